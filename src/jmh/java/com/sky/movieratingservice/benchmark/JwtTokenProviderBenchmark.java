@@ -0,0 +1,76 @@
+package com.sky.movieratingservice.benchmark;
+
+import com.sky.movieratingservice.domain.entity.User;
+import com.sky.movieratingservice.security.JwtTokenProvider;
+import com.sky.movieratingservice.security.UserPrincipal;
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request authentication costs: issuing a token at login, verifying it on every protected request and
+ * building the principal, either from the verified claims or from a loaded {@link User}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtTokenProviderBenchmark {
+
+    private JwtTokenProvider tokenProvider;
+    private UserPrincipal principal;
+    private User user;
+    private String token;
+    private Claims claims;
+
+    @Setup
+    public void setUp() {
+        tokenProvider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(tokenProvider, "jwtSecret",
+                "YourSuperSecretKeyThatShouldBeAtLeast512BitsLongForHS512AlgorithmToWorkProperlyAndSecurely1234567890");
+        ReflectionTestUtils.setField(tokenProvider, "jwtExpirationInMs", 3600000L);
+        ReflectionTestUtils.invokeMethod(tokenProvider, "init");
+
+        user = User.builder()
+                .id(UUID.randomUUID())
+                .email("benchmark@example.com")
+                .password("hash")
+                .build();
+        principal = new UserPrincipal(user.getId(), user.getEmail(), null,
+                List.of(new SimpleGrantedAuthority("ROLE_USER")));
+        token = tokenProvider.generateToken(principal);
+        claims = tokenProvider.parseToken(token).orElseThrow();
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return tokenProvider.generateToken(principal);
+    }
+
+    @Benchmark
+    public boolean validateToken() {
+        return tokenProvider.validateToken(token);
+    }
+
+    @Benchmark
+    public UUID getUserIdFromToken() {
+        return tokenProvider.getUserIdFromToken(token);
+    }
+
+    @Benchmark
+    public UserPrincipal principalFromClaims() {
+        return tokenProvider.getPrincipalFromClaims(claims);
+    }
+
+    @Benchmark
+    public UserPrincipal principalFromUser() {
+        return UserPrincipal.create(user);
+    }
+}
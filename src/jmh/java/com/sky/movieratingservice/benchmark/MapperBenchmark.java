@@ -0,0 +1,97 @@
+package com.sky.movieratingservice.benchmark;
+
+import com.sky.movieratingservice.api.dto.response.MovieDetailResponseDto;
+import com.sky.movieratingservice.api.dto.response.MovieResponseDto;
+import com.sky.movieratingservice.api.dto.response.RatingResponseDto;
+import com.sky.movieratingservice.api.dto.response.TopRatedMovieResponseDto;
+import com.sky.movieratingservice.domain.entity.Movie;
+import com.sky.movieratingservice.domain.entity.Rating;
+import com.sky.movieratingservice.domain.entity.User;
+import com.sky.movieratingservice.domain.ranking.LeaderboardEntry;
+import com.sky.movieratingservice.domain.repository.RatingRepository;
+import com.sky.movieratingservice.mapper.MovieMapper;
+import com.sky.movieratingservice.mapper.MovieMapperImpl;
+import com.sky.movieratingservice.mapper.RatingMapper;
+import com.sky.movieratingservice.mapper.RatingMapperImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The generated MapStruct mappers on the read paths: ratings from an entity graph and from the flat listing
+ * projection, movies for the catalog and details, and top-rated entries from the in-memory leaderboard.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MapperBenchmark {
+
+    private final RatingMapper ratingMapper = new RatingMapperImpl();
+    private final MovieMapper movieMapper = new MovieMapperImpl();
+
+    private Movie movie;
+    private Rating rating;
+    private RatingRepository.RatingView ratingView;
+    private LeaderboardEntry leaderboardEntry;
+
+    @Setup
+    public void setUp() {
+        LocalDateTime now = LocalDateTime.now();
+        movie = Movie.builder()
+                .id(UUID.randomUUID())
+                .name("The Shawshank Redemption")
+                .director("Frank Darabont")
+                .genre("Drama")
+                .description("Two imprisoned men bond over a number of years.")
+                .releaseYear(1994)
+                .build();
+        movie.setCreatedAt(now);
+        User user = User.builder().id(UUID.randomUUID()).email("benchmark@example.com").build();
+        rating = Rating.builder().id(UUID.randomUUID()).movie(movie).user(user).ratingValue(9).review("Great!").build();
+        rating.setCreatedAt(now);
+        rating.setUpdatedAt(now);
+        ratingView = new RatingRepository.RatingView() {
+            public UUID getId() { return rating.getId(); }
+            public UUID getUserId() { return user.getId(); }
+            public String getUserEmail() { return user.getEmail(); }
+            public UUID getMovieId() { return movie.getId(); }
+            public String getMovieName() { return movie.getName(); }
+            public Integer getRatingValue() { return 9; }
+            public String getReview() { return "Great!"; }
+            public LocalDateTime getCreatedAt() { return now; }
+            public LocalDateTime getUpdatedAt() { return now; }
+        };
+        leaderboardEntry = LeaderboardEntry.of(movie.getId(), movie.getName(), movie.getDescription(),
+                movie.getReleaseYear(), movie.getGenre(), movie.getDirector(), 4321, 500, 1);
+    }
+
+    @Benchmark
+    public RatingResponseDto ratingFromEntity() {
+        return ratingMapper.toRatingResponse(rating);
+    }
+
+    @Benchmark
+    public RatingResponseDto ratingFromView() {
+        return ratingMapper.toRatingResponse(ratingView);
+    }
+
+    @Benchmark
+    public MovieResponseDto movie() {
+        return movieMapper.toMovieResponse(movie);
+    }
+
+    @Benchmark
+    public MovieDetailResponseDto movieDetail() {
+        return movieMapper.toMovieDetailResponse(movie);
+    }
+
+    @Benchmark
+    public TopRatedMovieResponseDto topRatedFromLeaderboard() {
+        return movieMapper.toTopRatedMoviesResponse(leaderboardEntry);
+    }
+}
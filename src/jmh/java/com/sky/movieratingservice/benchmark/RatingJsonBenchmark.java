@@ -0,0 +1,71 @@
+package com.sky.movieratingservice.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.sky.movieratingservice.api.dto.response.RatingResponseDto;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Jackson serialization of rating listings as the controllers return them, with the same modules and date
+ * format as the application's {@code ObjectMapper}. {@code toStream} writes to a discarding stream, which is
+ * what Spring MVC does with the response body; {@code toBytes} adds the buffer copy.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RatingJsonBenchmark {
+
+    @Param({"20", "100"})
+    private int ratings;
+
+    private ObjectWriter writer;
+    private List<RatingResponseDto> page;
+
+    @Setup
+    public void setUp() {
+        // Boot's defaults: JavaTimeModule registered and dates written as ISO strings
+        writer = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build()
+                .writerFor(new TypeReference<List<RatingResponseDto>>() {
+                });
+        LocalDateTime now = LocalDateTime.now();
+        UUID movieId = UUID.randomUUID();
+        page = IntStream.range(0, ratings)
+                .mapToObj(i -> RatingResponseDto.builder()
+                        .id(UUID.randomUUID())
+                        .userId(UUID.randomUUID())
+                        .userEmail("user" + i + "@example.com")
+                        .movieId(movieId)
+                        .movieName("The Shawshank Redemption")
+                        .ratingValue(1 + i % 10)
+                        .review(i % 3 == 0 ? "A review of a few words, " + i : null)
+                        .createdAt(now.minusMinutes(i))
+                        .updatedAt(now)
+                        .build())
+                .toList();
+    }
+
+    @Benchmark
+    public byte[] toBytes() throws IOException {
+        return writer.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public void toStream() throws IOException {
+        writer.writeValue(OutputStream.nullOutputStream(), page);
+    }
+}
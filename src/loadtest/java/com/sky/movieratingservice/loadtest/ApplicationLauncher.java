@@ -0,0 +1,43 @@
+package com.sky.movieratingservice.loadtest;
+
+import com.sky.movieratingservice.MovieRatingServiceApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Boots the application in this JVM on a random port, with the shipped configuration and quiet logging.
+ */
+final class ApplicationLauncher {
+
+    private ApplicationLauncher() {
+    }
+
+    /**
+     * @param overrides further {@code --name=value} arguments; a repeated name would be read as a list, so they must
+     *                  not repeat the ones set here
+     */
+    static ConfigurableApplicationContext start(String... overrides) {
+        // devtools would restart the application by calling main again, without the load test's arguments
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        // command line arguments, since default properties would lose to application.yaml
+        List<String> args = new ArrayList<>(List.of(
+                // the test classpath has its own application.yaml, so point at the one that ships
+                "--spring.config.location=file:src/main/resources/application.yaml",
+                "--spring.profiles.active=test",
+                "--spring.docker.compose.enabled=false",
+                "--server.port=0",
+                "--logging.level.root=WARN",
+                "--logging.level.org.hibernate.SQL=WARN",
+                "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN",
+                "--logging.level.org.springframework.security=WARN"));
+        args.addAll(List.of(overrides));
+        return new SpringApplicationBuilder(MovieRatingServiceApplication.class).run(args.toArray(String[]::new));
+    }
+
+    static String baseUrl(ConfigurableApplicationContext app) {
+        return "http://localhost:" + app.getEnvironment().getProperty("local.server.port");
+    }
+}
@@ -0,0 +1,99 @@
+package com.sky.movieratingservice.loadtest;
+
+import com.sky.movieratingservice.api.dto.response.ImportReportDto;
+import com.sky.movieratingservice.domain.entity.User;
+import com.sky.movieratingservice.domain.model.ImportLayout;
+import com.sky.movieratingservice.security.JwtTokenProvider;
+import com.sky.movieratingservice.security.UserPrincipal;
+import com.sky.movieratingservice.service.ICatalogImportService;
+import org.springframework.context.ApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Seeds a running instance through its own beans: movies and ratings go through the {@code COPY} importer, users
+ * are inserted with one shared password hash (hashing each of them would take minutes at production cost), and
+ * access tokens are issued directly so the write scenarios do not depend on the login endpoint.
+ */
+final class DataSeeder {
+    static final String PASSWORD = "LoadTest123!@";
+
+    private static final String[] GENRES = {"Drama", "Comedy", "Action", "Thriller", "Sci-Fi", "Horror", "Romance", "Documentary"};
+
+    private DataSeeder() {
+    }
+
+    record DataSet(List<String> movieIds, List<String> emails, List<String> tokens) {
+    }
+
+    static DataSet seed(ApplicationContext app, int movies, int users, int ratingsPerUser) {
+        Random random = new Random(42);
+        ICatalogImportService importer = app.getBean(ICatalogImportService.class);
+
+        List<String> movieIds = new ArrayList<>(movies);
+        StringBuilder moviesCsv = new StringBuilder("movie_id,name,director,genre,release_year,description\n");
+        for (int i = 0; i < movies; i++) {
+            String movieId = UUID.randomUUID().toString();
+            movieIds.add(movieId);
+            moviesCsv.append(movieId).append(",Load Test Movie ").append(i)
+                    .append(",Director ").append(i % 300)
+                    .append(',').append(GENRES[i % GENRES.length])
+                    .append(',').append(1950 + random.nextInt(75))
+                    .append(",A movie seeded for load tests\n");
+        }
+        report(importer.importMovies(csv(moviesCsv), ImportLayout.NATIVE));
+
+        String run = Long.toString(System.currentTimeMillis(), 36);
+        String passwordHash = app.getBean(PasswordEncoder.class).encode(PASSWORD);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<User> seededUsers = new ArrayList<>(users);
+        List<Object[]> rows = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            User user = User.builder().id(UUID.randomUUID()).email("load-" + run + "-" + i + "@example.com").build();
+            seededUsers.add(user);
+            rows.add(new Object[]{user.getId(), user.getEmail(), passwordHash, now, now});
+        }
+        // the pool hands out connections with auto-commit off
+        new TransactionTemplate(app.getBean(PlatformTransactionManager.class)).executeWithoutResult(status ->
+                app.getBean(JdbcTemplate.class).batchUpdate(
+                        "INSERT INTO users (user_id, email, password, created_at, updated_at) VALUES (?, ?, ?, ?, ?)", rows));
+
+        StringBuilder ratingsCsv = new StringBuilder("id,movie_id,user_id,rating_value,review,created_at,updated_at\n");
+        for (User user : seededUsers) {
+            for (int i = 0; i < ratingsPerUser; i++) {
+                ratingsCsv.append(',').append(movieIds.get(random.nextInt(movies)))
+                        .append(',').append(user.getId())
+                        .append(',').append(1 + random.nextInt(10))
+                        .append(",,,\n");
+            }
+        }
+        report(importer.importRatings(csv(ratingsCsv), ImportLayout.NATIVE));
+
+        JwtTokenProvider tokenProvider = app.getBean(JwtTokenProvider.class);
+        List<String> emails = seededUsers.stream().map(User::getEmail).toList();
+        List<String> tokens = seededUsers.stream()
+                .map(user -> tokenProvider.generateToken(UserPrincipal.create(user)))
+                .toList();
+        return new DataSet(movieIds, emails, tokens);
+    }
+
+    private static ByteArrayInputStream csv(StringBuilder content) {
+        return new ByteArrayInputStream(content.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void report(ImportReportDto report) {
+        System.out.printf("Seeded %s: %d inserted, %d skipped in %d ms%n",
+                report.getDataset(), report.getInserted(), report.getSkipped(), report.getElapsedMs());
+    }
+}
@@ -0,0 +1,103 @@
+package com.sky.movieratingservice.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+/**
+ * Rating write burst against a real PostgreSQL, once with every write committed on its own and once with
+ * {@code app.ratings.group-commit.enabled}, reporting throughput and p50/p99/p999 of {@code POST /api/v1/ratings}
+ * for both. The application is booted afresh for each mode against the same database, which is seeded once, and
+ * each mode is warmed up before it is measured. Results go to {@code target/loadtest/group-commit.json}.
+ * <p>
+ * Options as for {@link LoadTestSuite}: {@code pg-bin}, {@code external}, {@code movies} (2000), {@code users} (200),
+ * {@code ratings-per-user} (20), {@code callers} (200), {@code warmup} (PT5S), {@code duration} (PT20S) and
+ * {@code virtual-threads}.
+ * <p>
+ * {@code mvn -Ploadtest test-compile exec:exec -Dloadtest.main=com.sky.movieratingservice.loadtest.GroupCommitLoadTest
+ * -Dloadtest.args="--callers=400 --duration=PT30S"}
+ */
+public final class GroupCommitLoadTest {
+    private static final ObjectMapper JSON = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private static final String DATABASE = "movierating_group_commit";
+    private static final Map<String, Boolean> MODES = new LinkedHashMap<>();
+
+    static {
+        MODES.put("individual", false);
+        MODES.put("group-commit", true);
+    }
+
+    private GroupCommitLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        Path output = Path.of("target", "loadtest");
+        Files.createDirectories(output);
+        List<String> overrides = new ArrayList<>(List.of(
+                "--spring.threads.virtual.enabled=" + options.get("virtual-threads", "false")));
+
+        LocalPostgres postgres = null;
+        if (!Boolean.parseBoolean(options.get("external", "false"))) {
+            postgres = LocalPostgres.start(LocalPostgres.findBinaries(options.get("pg-bin", null)),
+                    output.resolve("pgdata").toAbsolutePath(), DATABASE);
+            overrides.add("--spring.datasource.url=" + postgres.jdbcUrl());
+            overrides.add("--spring.datasource.username=" + LocalPostgres.USER);
+            overrides.add("--spring.datasource.password=");
+        }
+        try {
+            int callers = options.getInt("callers", 200);
+            Duration warmup = options.getDuration("warmup", "PT5S");
+            Duration duration = options.getDuration("duration", "PT20S");
+            HttpClient client = HttpClient.newBuilder()
+                    .executor(Executors.newVirtualThreadPerTaskExecutor())
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .build();
+
+            DataSeeder.DataSet data = null;
+            Map<String, LoadGenerator.EndpointResult> results = new LinkedHashMap<>();
+            for (Map.Entry<String, Boolean> mode : MODES.entrySet()) {
+                List<String> modeOverrides = new ArrayList<>(overrides);
+                modeOverrides.add("--app.ratings.group-commit.enabled=" + mode.getValue());
+                try (ConfigurableApplicationContext app = ApplicationLauncher.start(modeOverrides.toArray(String[]::new))) {
+                    if (data == null) {
+                        // tokens are signed with the configured secret, so they stay valid for the next boot
+                        data = DataSeeder.seed(app, options.getInt("movies", 2000),
+                                options.getInt("users", 200), options.getInt("ratings-per-user", 20));
+                    }
+                    Scenarios scenarios = Scenarios.of(client, ApplicationLauncher.baseUrl(app), data);
+                    LoadGenerator generator = new LoadGenerator(client);
+                    generator.run(scenarios.ratingWriteBurst(), callers, warmup);
+                    List<LoadGenerator.EndpointResult> result = generator.run(scenarios.ratingWriteBurst(), callers, duration);
+                    LoadGenerator.print(mode.getKey() + ", " + callers + " callers", result);
+                    results.put(mode.getKey(), result.getFirst());
+                }
+            }
+
+            double gain = results.get("group-commit").throughput() / results.get("individual").throughput();
+            System.out.printf("%nGroup commit: %.2fx the throughput of individual commits, p99 %.1f ms versus %.1f ms%n",
+                    gain, results.get("group-commit").p99Millis(), results.get("individual").p99Millis());
+
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("callers", callers);
+            report.put("durationSeconds", duration.toSeconds());
+            report.put("modes", results);
+            report.put("throughputGain", gain);
+            JSON.writeValue(output.resolve("group-commit.json").toFile(), report);
+        } finally {
+            if (postgres != null) {
+                postgres.close();
+            }
+        }
+    }
+}
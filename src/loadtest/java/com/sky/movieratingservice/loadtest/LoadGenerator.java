@@ -0,0 +1,137 @@
+package com.sky.movieratingservice.loadtest;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+/**
+ * Closed-loop HTTP load: {@code callers} virtual threads each send a request, wait for the answer and send the
+ * next one until the duration is over. Every request is drawn from a weighted mix of {@link Step}s, and its
+ * latency and status are recorded under the step's name. Non-2xx answers and transport failures are errors.
+ */
+public final class LoadGenerator {
+    private final HttpClient client;
+
+    public LoadGenerator(HttpClient client) {
+        this.client = client;
+    }
+
+    public record Step(String name, int weight, Function<ThreadLocalRandom, HttpRequest> request) {
+    }
+
+    public record EndpointResult(String endpoint, long requests, long errors, double throughput,
+                                 double p50Millis, double p99Millis, double p999Millis) {
+    }
+
+    public List<EndpointResult> run(List<Step> mix, int callers, Duration duration) throws InterruptedException {
+        int totalWeight = mix.stream().mapToInt(Step::weight).sum();
+        long deadline = System.nanoTime() + duration.toNanos();
+        List<Map<String, Samples>> perCaller = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            Map<String, Samples> samples = new HashMap<>();
+            perCaller.add(samples);
+            threads.add(Thread.ofVirtual().name("load-", i).start(() -> call(mix, totalWeight, deadline, samples)));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Map<String, Samples> merged = new LinkedHashMap<>();
+        mix.forEach(step -> merged.put(step.name(), new Samples()));
+        perCaller.forEach(samples -> samples.forEach((name, caller) -> merged.get(name).addAll(caller)));
+        double seconds = duration.toNanos() / 1e9;
+        return merged.entrySet().stream()
+                .map(entry -> entry.getValue().summarise(entry.getKey(), seconds))
+                .toList();
+    }
+
+    public static void print(String heading, List<EndpointResult> results) {
+        System.out.printf("%n%s%n", heading);
+        System.out.printf("%-12s %10s %8s %10s %10s %10s %10s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms");
+        for (EndpointResult result : results) {
+            System.out.printf("%-12s %10d %8d %10.0f %10.1f %10.1f %10.1f%n",
+                    result.endpoint(), result.requests(), result.errors(), result.throughput(),
+                    result.p50Millis(), result.p99Millis(), result.p999Millis());
+        }
+    }
+
+    private void call(List<Step> mix, int totalWeight, long deadline, Map<String, Samples> samples) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (System.nanoTime() < deadline) {
+            Step step = pick(mix, random.nextInt(totalWeight));
+            HttpRequest request = step.request().apply(random);
+            long start = System.nanoTime();
+            boolean ok;
+            try {
+                int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                ok = status >= 200 && status < 300;
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception ex) {
+                ok = false;
+            }
+            samples.computeIfAbsent(step.name(), name -> new Samples()).add(System.nanoTime() - start, ok);
+        }
+    }
+
+    private static Step pick(List<Step> mix, int ticket) {
+        for (Step step : mix) {
+            ticket -= step.weight();
+            if (ticket < 0) {
+                return step;
+            }
+        }
+        throw new IllegalStateException("Weights do not add up");
+    }
+
+    // Latencies of one endpoint, in nanoseconds, appended by a single caller and merged once the run is over
+    private static final class Samples {
+        private long[] latencies = new long[1024];
+        private int size;
+        private long errors;
+
+        void add(long latency, boolean ok) {
+            if (size == latencies.length) {
+                latencies = Arrays.copyOf(latencies, size * 2);
+            }
+            latencies[size++] = latency;
+            if (!ok) {
+                errors++;
+            }
+        }
+
+        void addAll(Samples other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.latencies[i], true);
+            }
+            errors += other.errors;
+        }
+
+        EndpointResult summarise(String endpoint, double seconds) {
+            long[] sorted = Arrays.copyOf(latencies, size);
+            Arrays.sort(sorted);
+            return new EndpointResult(endpoint, size, errors, size / seconds,
+                    percentile(sorted, 0.50), percentile(sorted, 0.99), percentile(sorted, 0.999));
+        }
+
+        private static double percentile(long[] sorted, double quantile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(quantile * sorted.length) - 1;
+            return sorted[Math.max(0, index)] / 1e6;
+        }
+    }
+}
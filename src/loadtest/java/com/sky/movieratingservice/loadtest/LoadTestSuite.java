@@ -0,0 +1,110 @@
+package com.sky.movieratingservice.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * End-to-end load test that needs nothing but a local PostgreSQL installation: it starts a throwaway cluster
+ * ({@link LocalPostgres}), boots the application against it, seeds movies, users and ratings
+ * ({@link DataSeeder}) and runs each scenario after a warmup, reporting throughput, p50/p99/p999 latency and
+ * errors per endpoint. Results go to {@code target/loadtest/suite.json}.
+ * <p>
+ * Options, all {@code --name=value}:
+ * <ul>
+ *     <li>{@code pg-bin}: directory holding {@code initdb} and {@code pg_ctl}, found on {@code PATH} by default</li>
+ *     <li>{@code external}: {@code true} to use the database configured by {@code DB_*} instead</li>
+ *     <li>{@code movies} (2000), {@code users} (200), {@code ratings-per-user} (20): the seeded dataset</li>
+ *     <li>{@code scenarios}: any of {@code catalog,top-rated,login,rating-burst}, all by default</li>
+ *     <li>{@code callers} (200), {@code warmup} (PT5S), {@code duration} (PT20S): load per scenario</li>
+ *     <li>{@code virtual-threads}: serve requests on virtual threads</li>
+ * </ul>
+ * {@code mvn -Ploadtest test-compile exec:exec -Dloadtest.args="--scenarios=catalog,login --callers=100"}
+ */
+public final class LoadTestSuite {
+    private static final ObjectMapper JSON = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private static final String DATABASE = "movierating_loadtest";
+
+    private static final Map<String, Function<Scenarios, List<LoadGenerator.Step>>> SCENARIOS = new LinkedHashMap<>();
+
+    static {
+        SCENARIOS.put("catalog", Scenarios::catalogBrowsing);
+        SCENARIOS.put("top-rated", Scenarios::topRatedPolling);
+        SCENARIOS.put("login", Scenarios::loginStorm);
+        SCENARIOS.put("rating-burst", Scenarios::ratingWriteBurst);
+    }
+
+    private LoadTestSuite() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        List<String> scenarios = List.of(options.get("scenarios", String.join(",", SCENARIOS.keySet())).split(","));
+        scenarios.stream()
+                .filter(scenario -> !SCENARIOS.containsKey(scenario))
+                .findFirst()
+                .ifPresent(scenario -> {
+                    throw new IllegalArgumentException("Unknown scenario " + scenario + ", expected " + SCENARIOS.keySet());
+                });
+
+        Path output = Path.of("target", "loadtest");
+        Files.createDirectories(output);
+        List<String> overrides = new ArrayList<>(List.of(
+                "--spring.threads.virtual.enabled=" + options.get("virtual-threads", "false")));
+
+        LocalPostgres postgres = null;
+        if (!Boolean.parseBoolean(options.get("external", "false"))) {
+            postgres = LocalPostgres.start(LocalPostgres.findBinaries(options.get("pg-bin", null)),
+                    output.resolve("pgdata").toAbsolutePath(), DATABASE);
+            overrides.add("--spring.datasource.url=" + postgres.jdbcUrl());
+            overrides.add("--spring.datasource.username=" + LocalPostgres.USER);
+            overrides.add("--spring.datasource.password=");
+        }
+        try (ConfigurableApplicationContext app = ApplicationLauncher.start(overrides.toArray(String[]::new))) {
+            DataSeeder.DataSet data = DataSeeder.seed(app, options.getInt("movies", 2000),
+                    options.getInt("users", 200), options.getInt("ratings-per-user", 20));
+            HttpClient client = HttpClient.newBuilder()
+                    .executor(Executors.newVirtualThreadPerTaskExecutor())
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .build();
+            Scenarios requests = Scenarios.of(client, ApplicationLauncher.baseUrl(app), data);
+            LoadGenerator generator = new LoadGenerator(client);
+            int callers = options.getInt("callers", 200);
+            Duration warmup = options.getDuration("warmup", "PT5S");
+            Duration duration = options.getDuration("duration", "PT20S");
+
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("callers", callers);
+            report.put("durationSeconds", duration.toSeconds());
+            Map<String, Integer> dataset = new LinkedHashMap<>();
+            dataset.put("movies", data.movieIds().size());
+            dataset.put("users", data.emails().size());
+            dataset.put("ratingsPerUser", options.getInt("ratings-per-user", 20));
+            report.put("dataset", dataset);
+            Map<String, List<LoadGenerator.EndpointResult>> results = new LinkedHashMap<>();
+            for (String scenario : scenarios) {
+                List<LoadGenerator.Step> mix = SCENARIOS.get(scenario).apply(requests);
+                generator.run(mix, callers, warmup);
+                results.put(scenario, generator.run(mix, callers, duration));
+                LoadGenerator.print(scenario + ", " + callers + " callers", results.get(scenario));
+            }
+            report.put("scenarios", results);
+            JSON.writeValue(output.resolve("suite.json").toFile(), report);
+        } finally {
+            if (postgres != null) {
+                postgres.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.sky.movieratingservice.loadtest;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * A throwaway PostgreSQL cluster started from locally installed binaries ({@code initdb}, {@code pg_ctl}), so
+ * load tests need neither Docker nor a network. The cluster trusts local connections, listens on a free port on
+ * localhost only and is deleted again on {@link #close()}. PostgreSQL refuses to run as root.
+ */
+final class LocalPostgres implements AutoCloseable {
+    static final String USER = "loadtest";
+
+    private final Path binaries;
+    private final Path dataDirectory;
+    private final int port;
+    private final String database;
+
+    private LocalPostgres(Path binaries, Path dataDirectory, int port, String database) {
+        this.binaries = binaries;
+        this.dataDirectory = dataDirectory;
+        this.port = port;
+        this.database = database;
+    }
+
+    static LocalPostgres start(Path binaries, Path dataDirectory, String database) throws IOException, InterruptedException {
+        delete(dataDirectory);
+        Files.createDirectories(dataDirectory.getParent());
+        int port = freePort();
+        LocalPostgres postgres = new LocalPostgres(binaries, dataDirectory, port, database);
+        postgres.run("initdb", "-D", dataDirectory.toString(), "-U", USER, "-A", "trust", "-E", "UTF8", "--no-sync");
+        postgres.run("pg_ctl", "-D", dataDirectory.toString(), "-l", dataDirectory.resolve("postgres.log").toString(), "-w",
+                "-o", "-p " + port + " -k " + dataDirectory + " -c listen_addresses=localhost -c max_connections=200",
+                "start");
+        try (Connection connection = DriverManager.getConnection(
+                "jdbc:postgresql://localhost:" + port + "/postgres", USER, "");
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE DATABASE \"" + database + "\"");
+        } catch (SQLException ex) {
+            postgres.close();
+            throw new IllegalStateException("Creating database " + database + " failed", ex);
+        }
+        return postgres;
+    }
+
+    /**
+     * The directory holding {@code pg_ctl}: the given one, else {@code PG_BIN}, else the first match on {@code PATH}
+     * or in the usual Debian and RedHat install locations.
+     */
+    static Path findBinaries(String configured) throws IOException {
+        List<Path> candidates = new ArrayList<>();
+        if (configured != null) {
+            candidates.add(Path.of(configured));
+        } else {
+            if (System.getenv("PG_BIN") != null) {
+                candidates.add(Path.of(System.getenv("PG_BIN")));
+            }
+            for (String entry : System.getenv().getOrDefault("PATH", "").split(File.pathSeparator)) {
+                candidates.add(Path.of(entry));
+            }
+            for (Path root : List.of(Path.of("/usr/lib/postgresql"), Path.of("/usr/local/pgsql"), Path.of("/usr"))) {
+                if (Files.isDirectory(root)) {
+                    try (Stream<Path> versions = Files.list(root)) {
+                        versions.sorted(Comparator.reverseOrder()).forEach(version -> candidates.add(version.resolve("bin")));
+                    }
+                    candidates.add(root.resolve("bin"));
+                }
+            }
+        }
+        return candidates.stream()
+                .filter(directory -> Files.isExecutable(directory.resolve("pg_ctl")) && Files.isExecutable(directory.resolve("initdb")))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException(
+                        "No PostgreSQL binaries found, pass --pg-bin=<directory with pg_ctl> or --external=true to use DB_*"));
+    }
+
+    String jdbcUrl() {
+        return "jdbc:postgresql://localhost:" + port + "/" + database;
+    }
+
+    @Override
+    public void close() throws IOException, InterruptedException {
+        run("pg_ctl", "-D", dataDirectory.toString(), "-m", "fast", "-w", "stop");
+        delete(dataDirectory);
+    }
+
+    private void run(String program, String... args) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(binaries.resolve(program).toString());
+        command.addAll(List.of(args));
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String output = new String(process.getInputStream().readAllBytes());
+        if (process.waitFor() != 0) {
+            throw new IllegalStateException(program + " failed:\n" + output);
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void delete(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
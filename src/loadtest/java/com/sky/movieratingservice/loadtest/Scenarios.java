@@ -0,0 +1,171 @@
+package com.sky.movieratingservice.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Request mixes against a running instance. {@link #prepare} registers the users whose tokens sign the rating
+ * writes and reads the movie ids that requests pick from, so the database only needs a catalog; {@link #of} takes
+ * them from a {@link DataSeeder.DataSet} instead.
+ */
+final class Scenarios {
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final int CURSOR_PAGES = 50;
+
+    private final String baseUrl;
+    private final List<String> movieIds;
+    private final List<String> emails;
+    private final List<String> tokens;
+    private final List<String> cursors;
+
+    private Scenarios(String baseUrl, List<String> movieIds, List<String> emails, List<String> tokens,
+                      List<String> cursors) {
+        this.baseUrl = baseUrl;
+        this.movieIds = movieIds;
+        this.emails = emails;
+        this.tokens = tokens;
+        this.cursors = cursors;
+    }
+
+    /**
+     * Scenarios over seeded data. The cursors of the first catalog pages are collected up front, so browsing can
+     * continue from any of them the way a client following {@code nextCursor} would.
+     */
+    static Scenarios of(HttpClient client, String baseUrl, DataSeeder.DataSet data) throws IOException, InterruptedException {
+        List<String> cursors = new ArrayList<>(List.of(""));
+        while (cursors.size() < CURSOR_PAGES) {
+            JsonNode page = JSON.readTree(send(client, request(baseUrl, "/api/v1/movies?size=20&after="
+                    + URLEncoder.encode(cursors.getLast(), StandardCharsets.UTF_8)).GET().build()).body());
+            if (!page.hasNonNull("nextCursor")) {
+                break;
+            }
+            cursors.add(page.get("nextCursor").asText());
+        }
+        return new Scenarios(baseUrl, data.movieIds(), data.emails(), data.tokens(), cursors);
+    }
+
+    static Scenarios prepare(HttpClient client, String baseUrl, int users) throws IOException, InterruptedException {
+        List<String> movieIds = new ArrayList<>();
+        for (int page = 0; movieIds.size() < 1000; page++) {
+            JsonNode movies = JSON.readTree(send(client,
+                    request(baseUrl, "/api/v1/movies?size=100&page=" + page).GET().build()).body());
+            movies.forEach(movie -> movieIds.add(movie.get("id").asText()));
+            if (movies.size() < 100) {
+                break;
+            }
+        }
+        if (movieIds.isEmpty()) {
+            throw new IllegalStateException("The catalog is empty, import some movies first");
+        }
+
+        List<String> emails = new ArrayList<>();
+        List<String> tokens = new ArrayList<>();
+        String run = Long.toString(System.currentTimeMillis(), 36);
+        for (int i = 0; i < users; i++) {
+            String email = "load-" + run + "-" + i + "@example.com";
+            String body = "{\"email\":\"" + email + "\",\"password\":\"" + DataSeeder.PASSWORD + "\"}";
+            HttpResponse<String> response = send(client, request(baseUrl, "/api/v1/auth/register")
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build());
+            if (response.statusCode() != 201 && response.statusCode() != 200) {
+                throw new IllegalStateException("Registering a load test user failed: " + response.body());
+            }
+            emails.add(email);
+            tokens.add(JSON.readTree(response.body()).get("accessToken").asText());
+        }
+        return new Scenarios(baseUrl, movieIds, emails, tokens, List.of(""));
+    }
+
+    /**
+     * Mostly reads: movie details, catalog pages and the top-rated list, with one in five requests a rating write.
+     */
+    List<LoadGenerator.Step> browseAndRate() {
+        return List.of(
+                new LoadGenerator.Step("movie", 35, this::movie),
+                new LoadGenerator.Step("movies", 25, this::moviesPage),
+                new LoadGenerator.Step("top-rated", 20, random -> topRated()),
+                new LoadGenerator.Step("rate", 20, this::rate));
+    }
+
+    /**
+     * Catalog browsing: movie details, offset pages and cursor pages.
+     */
+    List<LoadGenerator.Step> catalogBrowsing() {
+        return List.of(
+                new LoadGenerator.Step("movie", 50, this::movie),
+                new LoadGenerator.Step("movies", 25, this::moviesPage),
+                new LoadGenerator.Step("movies-after", 25, random -> request(baseUrl, "/api/v1/movies?size=20&after="
+                        + URLEncoder.encode(cursors.get(random.nextInt(cursors.size())), StandardCharsets.UTF_8))
+                        .GET().build()));
+    }
+
+    /**
+     * Every caller polling the top-rated lists, as a home page under a traffic spike would.
+     */
+    List<LoadGenerator.Step> topRatedPolling() {
+        return List.of(
+                new LoadGenerator.Step("top-rated", 80, random -> topRated()),
+                new LoadGenerator.Step("top-1", 20, random -> request(baseUrl, "/api/v1/movies/top-rated").GET().build()));
+    }
+
+    /**
+     * Logins only, each one a password hash verification.
+     */
+    List<LoadGenerator.Step> loginStorm() {
+        return List.of(new LoadGenerator.Step("login", 1, random -> request(baseUrl, "/api/v1/auth/login")
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"email\":\"" + emails.get(random.nextInt(emails.size()))
+                        + "\",\"password\":\"" + DataSeeder.PASSWORD + "\"}"))
+                .build()));
+    }
+
+    /**
+     * Rating writes only, spread over all users and movies.
+     */
+    List<LoadGenerator.Step> ratingWriteBurst() {
+        return List.of(new LoadGenerator.Step("rate", 1, this::rate));
+    }
+
+    private HttpRequest movie(ThreadLocalRandom random) {
+        return request(baseUrl, "/api/v1/movies/" + movieIds.get(random.nextInt(movieIds.size()))).GET().build();
+    }
+
+    private HttpRequest moviesPage(ThreadLocalRandom random) {
+        return request(baseUrl, "/api/v1/movies?size=20&page=" + random.nextInt(Math.max(1, movieIds.size() / 20)))
+                .GET().build();
+    }
+
+    private HttpRequest topRated() {
+        return request(baseUrl, "/api/v1/movies/top-rated?limit=10").GET().build();
+    }
+
+    private HttpRequest rate(ThreadLocalRandom random) {
+        return request(baseUrl, "/api/v1/ratings")
+                .header("Content-Type", "application/json")
+                .header("Authorization", "Bearer " + tokens.get(random.nextInt(tokens.size())))
+                .POST(HttpRequest.BodyPublishers.ofString("{\"movieId\":\"" + movieIds.get(random.nextInt(movieIds.size()))
+                        + "\",\"ratingValue\":" + (1 + random.nextInt(10)) + "}"))
+                .build();
+    }
+
+    private static HttpResponse<String> send(HttpClient client, HttpRequest request) throws IOException, InterruptedException {
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static HttpRequest.Builder request(String baseUrl, String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(Duration.ofSeconds(60));
+    }
+}
@@ -0,0 +1,91 @@
+package com.sky.movieratingservice.loadtest;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+/**
+ * Throughput and latency of the movie and rating endpoints with Tomcat on platform threads versus virtual threads.
+ * Each mode runs in its own JVM, which boots the application against the database configured by the usual
+ * {@code DB_*} variables, warms it up and then drives a mixed load of movie details, catalog pages, top-rated and
+ * rating writes. Results go to {@code target/loadtest/thread-modes.json}.
+ * <p>
+ * {@code mvn -Ploadtest test-compile exec:exec -Dloadtest.main=com.sky.movieratingservice.loadtest.ThreadModeBenchmark
+ * -Dloadtest.args="--callers=400 --duration=PT30S"}
+ */
+public final class ThreadModeBenchmark {
+    private static final List<String> MODES = List.of("platform", "virtual");
+    private static final ObjectMapper JSON = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    private ThreadModeBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        if (options.has("mode")) {
+            runMode(options);
+            return;
+        }
+
+        Path output = Path.of("target", "loadtest");
+        Files.createDirectories(output);
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (String mode : MODES) {
+            Path result = output.resolve("thread-mode-" + mode + ".json");
+            List<String> command = new ArrayList<>(List.of(
+                    Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                    "-cp", System.getProperty("java.class.path"),
+                    ThreadModeBenchmark.class.getName(), "--mode=" + mode, "--output=" + result));
+            options.values().forEach((name, value) -> command.add("--" + name + "=" + value));
+            int exitCode = new ProcessBuilder(command).inheritIO().start().waitFor();
+            if (exitCode != 0) {
+                throw new IllegalStateException(mode + " run failed with exit code " + exitCode);
+            }
+            results.put(mode, JSON.readTree(result.toFile()));
+        }
+        JSON.writeValue(output.resolve("thread-modes.json").toFile(), results);
+        results.forEach((mode, result) -> LoadGenerator.print(
+                mode + " threads, " + result.get("callers").asInt() + " callers",
+                JSON.convertValue(result.get("endpoints"), new TypeReference<List<LoadGenerator.EndpointResult>>() {
+                })));
+    }
+
+    private static void runMode(Options options) throws Exception {
+        boolean virtual = "virtual".equals(options.get("mode", null));
+        int callers = options.getInt("callers", 400);
+        int users = options.getInt("users", 50);
+        Duration warmup = options.getDuration("warmup", "PT10S");
+        Duration duration = options.getDuration("duration", "PT30S");
+
+        try (ConfigurableApplicationContext app = ApplicationLauncher.start("--spring.threads.virtual.enabled=" + virtual)) {
+            HttpClient client = HttpClient.newBuilder()
+                    .executor(Executors.newVirtualThreadPerTaskExecutor())
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .build();
+            Scenarios scenarios = Scenarios.prepare(client, ApplicationLauncher.baseUrl(app), users);
+            LoadGenerator generator = new LoadGenerator(client);
+
+            generator.run(scenarios.browseAndRate(), callers, warmup);
+            List<LoadGenerator.EndpointResult> results = generator.run(scenarios.browseAndRate(), callers, duration);
+
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("mode", options.get("mode", null));
+            report.put("callers", callers);
+            report.put("durationSeconds", duration.toSeconds());
+            report.put("endpoints", results);
+            JSON.writeValue(Path.of(options.get("output", null)).toFile(), report);
+        }
+    }
+}
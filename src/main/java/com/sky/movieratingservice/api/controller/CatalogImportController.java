@@ -0,0 +1,80 @@
+package com.sky.movieratingservice.api.controller;
+
+import com.sky.movieratingservice.api.dto.response.ImportReportDto;
+import com.sky.movieratingservice.domain.model.ImportLayout;
+import com.sky.movieratingservice.service.ICatalogImportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Bulk loading of movie and rating CSV files. Only registered when {@code app.importer.endpoint-enabled} is set,
+ * so it is exposed on admin-facing deployments only, and even there only to users with the admin role.
+ */
+@RestController
+@RequestMapping(value = "/api/v1/admin/import", consumes = "text/csv", produces = MediaType.APPLICATION_JSON_VALUE)
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "app.importer", name = "endpoint-enabled", havingValue = "true")
+@PreAuthorize("hasRole('ADMIN')")
+@Tag(name = "Catalog Import Controller", description = "APIs for bulk loading movies and ratings")
+public class CatalogImportController {
+
+    private final ICatalogImportService catalogImportService;
+
+    @PostMapping("/movies")
+    @Operation(
+            summary = "Import movies from CSV",
+            description = "Streams the CSV body into the database with COPY and merges it into the catalog. Send the body gzip-compressed with Content-Encoding: gzip to save bandwidth."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Movies imported"),
+            @ApiResponse(responseCode = "400", description = "Body is not valid CSV for the layout"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized - authentication required"),
+            @ApiResponse(responseCode = "403", description = "Forbidden - admin role required")
+    })
+    public ResponseEntity<ImportReportDto> importMovies(
+            @Parameter(description = "Column layout of the file") @RequestParam(defaultValue = "NATIVE") ImportLayout layout,
+            @RequestHeader(value = HttpHeaders.CONTENT_ENCODING, required = false) String contentEncoding,
+            InputStream body) throws IOException {
+        return ResponseEntity.ok(catalogImportService.importMovies(decode(body, contentEncoding), layout));
+    }
+
+    @PostMapping("/ratings")
+    @Operation(
+            summary = "Import ratings from CSV",
+            description = "Streams the CSV body into the database with COPY, merges it into the ratings and recomputes the statistics of every affected movie. Movies must be imported first. Send the body gzip-compressed with Content-Encoding: gzip to save bandwidth."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Ratings imported"),
+            @ApiResponse(responseCode = "400", description = "Body is not valid CSV for the layout"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized - authentication required"),
+            @ApiResponse(responseCode = "403", description = "Forbidden - admin role required")
+    })
+    public ResponseEntity<ImportReportDto> importRatings(
+            @Parameter(description = "Column layout of the file") @RequestParam(defaultValue = "NATIVE") ImportLayout layout,
+            @RequestHeader(value = HttpHeaders.CONTENT_ENCODING, required = false) String contentEncoding,
+            InputStream body) throws IOException {
+        return ResponseEntity.ok(catalogImportService.importRatings(decode(body, contentEncoding), layout));
+    }
+
+    private static InputStream decode(InputStream body, String contentEncoding) throws IOException {
+        return "gzip".equalsIgnoreCase(contentEncoding) ? new GZIPInputStream(body, 64 * 1024) : body;
+    }
+}
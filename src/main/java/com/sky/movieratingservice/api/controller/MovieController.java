@@ -1,10 +1,16 @@
 package com.sky.movieratingservice.api.controller;
 
 import com.sky.movieratingservice.api.dto.request.CreateMovieRequestDto;
+import com.sky.movieratingservice.api.dto.response.CursorPageResponseDto;
 import com.sky.movieratingservice.api.dto.response.MovieDetailResponseDto;
 import com.sky.movieratingservice.api.dto.response.MovieResponseDto;
+import com.sky.movieratingservice.api.dto.response.MovieSuggestionResponseDto;
+import com.sky.movieratingservice.api.dto.response.RatingDistributionResponseDto;
 import com.sky.movieratingservice.api.dto.response.TopRatedMovieResponseDto;
+import com.sky.movieratingservice.common.ConditionalGet;
+import com.sky.movieratingservice.common.Versioned;
 import com.sky.movieratingservice.service.IMovieService;
+import com.sky.movieratingservice.service.IMovieSuggestionService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
@@ -20,6 +26,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import java.util.List;
 import java.util.UUID;
@@ -32,6 +39,7 @@ import java.util.UUID;
 public class MovieController {
 
     private final IMovieService movieService;
+    private final IMovieSuggestionService movieSuggestionService;
 
     @GetMapping
     @Operation(
@@ -43,6 +51,10 @@ public class MovieController {
                     @io.swagger.v3.oas.annotations.responses.ApiResponse(
                             responseCode = "200",
                             description = "Successfully retrieved list of movies"
+                    ),
+                    @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                            responseCode = "304",
+                            description = "Not modified since the version given in If-None-Match"
                     )
             }
     )
@@ -50,10 +62,50 @@ public class MovieController {
             @Parameter(description = "Page number (0-based)")
             @RequestParam(defaultValue = "0") @Min(0) int page,
             @Parameter(description = "Page size")
-            @RequestParam(defaultValue = "20") @Min(1) @Max(100) int size
+            @RequestParam(defaultValue = "20") @Min(1) @Max(100) int size,
+            ServletWebRequest request
     ) {
-        List<MovieResponseDto> movies =  movieService.getAllMovies(page, size);
-        return ResponseEntity.ok(movies);
+        if (ConditionalGet.isRevalidation(request)
+                && ConditionalGet.isNotModified(request, movieService.getMoviesVersion(page, size))) {
+            return null;
+        }
+        return ConditionalGet.ok(movieService.getAllMovies(page, size));
+    }
+
+    @GetMapping(params = "after")
+    @Operation(
+            summary = "Get Movies by Cursor",
+            description = "Retrieve movies ordered by name using cursor pagination. Pass an empty 'after' for the first page "
+                    + "and the returned nextCursor for the following ones. No authentication required."
+    )
+    @ApiResponses(
+            value = {
+                    @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                            responseCode = "200",
+                            description = "Successfully retrieved a page of movies"
+                    ),
+                    @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                            responseCode = "304",
+                            description = "Not modified since the version given in If-None-Match"
+                    ),
+                    @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                            responseCode = "400",
+                            description = "Invalid cursor or page size"
+                    )
+            }
+    )
+    public ResponseEntity<CursorPageResponseDto<MovieResponseDto>> getMoviesAfter(
+            @Parameter(description = "Cursor returned by the previous page, empty for the first page")
+            @RequestParam String after,
+            @Parameter(description = "Page size")
+            @RequestParam(defaultValue = "20") @Min(1) @Max(100) int size,
+            ServletWebRequest request
+    ) {
+        if (ConditionalGet.isRevalidation(request)
+                && ConditionalGet.isNotModified(request, movieService.getMoviesVersion(after, size))) {
+            return null;
+        }
+        return ConditionalGet.ok(movieService.getMovies(after, size));
     }
 
     @GetMapping("/{movieId}")
@@ -71,18 +123,59 @@ public class MovieController {
                                     schema = @io.swagger.v3.oas.annotations.media.Schema(implementation = MovieDetailResponseDto.class)
                             )
                     ),
+                    @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                            responseCode = "304",
+                            description = "Not modified since the version given in If-None-Match"
+                    ),
                     @io.swagger.v3.oas.annotations.responses.ApiResponse(
                             responseCode = "404",
                             description = "Movie not found"
                     )
             }
     )
-    public ResponseEntity<MovieDetailResponseDto> getMovie(@PathVariable UUID movieId){
+    public ResponseEntity<MovieDetailResponseDto> getMovie(@PathVariable UUID movieId, ServletWebRequest request){
+        String version = null;
+        if (ConditionalGet.isRevalidation(request)) {
+            // a missing movie has no version and falls through to the 404 below
+            version = movieService.getMovieVersion(movieId).orElse(null);
+            if (ConditionalGet.isNotModified(request, version)) {
+                return null;
+            }
+        }
 
-        MovieDetailResponseDto movieDetail = movieService.getMovieById(movieId);
-        return ResponseEntity.ok(movieDetail);
+        Versioned<MovieDetailResponseDto> movieDetail = movieService.getMovieById(movieId);
+        if (version != null && !version.equals(movieDetail.version())) {
+            // the cached details are older than the database, e.g. only evicted on the instance that wrote
+            movieDetail = movieService.reloadMovieById(movieId);
+        }
+        return ConditionalGet.ok(movieDetail);
     }
 
+    @GetMapping("/{movieId}/distribution")
+    @Operation(
+            summary = "Get Rating Distribution",
+            description = "Retrieve how a movie's ratings are spread over the values 1 to 10, with the median and "
+                    + "percentiles. Served from per-movie counts, without reading individual ratings. No authentication required."
+    )
+    @ApiResponses(
+            value = {
+                    @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                            responseCode = "200",
+                            description = "Successfully retrieved the rating distribution",
+                            content = @io.swagger.v3.oas.annotations.media.Content(
+                                    mediaType = "application/json",
+                                    schema = @io.swagger.v3.oas.annotations.media.Schema(implementation = RatingDistributionResponseDto.class)
+                            )
+                    ),
+                    @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                            responseCode = "404",
+                            description = "Movie not found"
+                    )
+            }
+    )
+    public ResponseEntity<RatingDistributionResponseDto> getRatingDistribution(@PathVariable UUID movieId) {
+        return ResponseEntity.ok(movieService.getRatingDistribution(movieId));
+    }
 
 @GetMapping("/top-rated")
     @Operation(
@@ -99,15 +192,96 @@ public class MovieController {
                                 schema = @io.swagger.v3.oas.annotations.media.Schema(implementation = TopRatedMovieResponseDto.class)
                         )
                 ),
+                @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                        responseCode = "304",
+                        description = "Not modified since the version given in If-None-Match"
+                ),
                 @io.swagger.v3.oas.annotations.responses.ApiResponse(
                         responseCode = "404",
                         description = "Top rated movies not found"
                 )
         }
 )
-    public ResponseEntity<TopRatedMovieResponseDto> getTopRatedMovies(){
-        TopRatedMovieResponseDto topRatedMovieResponseDto = movieService.getTopRatedMovies();
-        return ResponseEntity.ok(topRatedMovieResponseDto);
+    public ResponseEntity<TopRatedMovieResponseDto> getTopRatedMovies(
+            @Parameter(description = "Only movies of this genre, case-insensitive")
+            @RequestParam(required = false) String genre,
+            @Parameter(description = "Only movies released in the decade starting with this year, e.g. 1990")
+            @RequestParam(required = false) Integer decade,
+            ServletWebRequest request
+    ){
+        // read from memory, so the body is read even for a revalidation and tagged with the version it was read at
+        Versioned<TopRatedMovieResponseDto> topRatedMovie = movieService.getTopRatedMovies(genre, decade);
+        if (ConditionalGet.isNotModified(request, topRatedMovie.version())) {
+            return null;
+        }
+        return ConditionalGet.ok(topRatedMovie);
+    }
+
+    @GetMapping(value = "/top-rated", params = "limit")
+    @Operation(
+            summary = "Get Top N Rated Movies",
+            description = "Retrieve the best rated movies ordered by weighted rating, then rating count, optionally within a genre "
+                    + "and/or a release decade. Genre and decade rankings only list movies with at least "
+                    + "app.leaderboard.scoped-min-ratings ratings. No authentication required."
+    )
+    @ApiResponses(
+            value = {
+                    @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                            responseCode = "200",
+                            description = "Successfully retrieved top-rated movies"
+                    ),
+                    @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                            responseCode = "304",
+                            description = "Not modified since the version given in If-None-Match"
+                    ),
+                    @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                            responseCode = "400",
+                            description = "Invalid limit or decade"
+                    )
+            }
+    )
+    public ResponseEntity<List<TopRatedMovieResponseDto>> getTopRatedMovies(
+            @Parameter(description = "Number of movies to return")
+            @RequestParam @Min(1) @Max(100) int limit,
+            @Parameter(description = "Only movies of this genre, case-insensitive")
+            @RequestParam(required = false) String genre,
+            @Parameter(description = "Only movies released in the decade starting with this year, e.g. 1990")
+            @RequestParam(required = false) Integer decade,
+            ServletWebRequest request
+    ) {
+        Versioned<List<TopRatedMovieResponseDto>> topRatedMovies = movieService.getTopRatedMovies(genre, decade, limit);
+        if (ConditionalGet.isNotModified(request, topRatedMovies.version())) {
+            return null;
+        }
+        return ConditionalGet.ok(topRatedMovies);
+    }
+
+    @GetMapping("/suggest")
+    @Operation(
+            summary = "Suggest Movies",
+            description = "Suggest movies whose title or director, from any word on, starts with the typed text, the most "
+                    + "rated first. Queries of 4 to 7 characters tolerate one typo and longer ones two. Served from memory, "
+                    + "without a database query. No authentication required."
+    )
+    @ApiResponses(
+            value = {
+                    @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                            responseCode = "200",
+                            description = "Successfully retrieved suggestions"
+                    ),
+                    @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                            responseCode = "400",
+                            description = "Missing query or invalid limit"
+                    )
+            }
+    )
+    public ResponseEntity<List<MovieSuggestionResponseDto>> suggestMovies(
+            @Parameter(description = "Text typed so far")
+            @RequestParam String q,
+            @Parameter(description = "Number of suggestions to return")
+            @RequestParam(defaultValue = "10") @Min(1) @Max(10) int limit
+    ) {
+        return ResponseEntity.ok(movieSuggestionService.suggest(q, limit));
     }
 
     @PostMapping
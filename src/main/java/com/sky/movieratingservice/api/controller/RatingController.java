@@ -1,26 +1,62 @@
 package com.sky.movieratingservice.api.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.sky.movieratingservice.api.dto.request.BatchRatingItemDto;
 import com.sky.movieratingservice.api.dto.request.RatingRequestDto;
+import com.sky.movieratingservice.api.dto.response.BatchRatingResponseDto;
 import com.sky.movieratingservice.api.dto.response.RatingResponseDto;
+import com.sky.movieratingservice.common.ConditionalGet;
+import com.sky.movieratingservice.common.ExportResumeToken;
+import com.sky.movieratingservice.domain.exception.BadRequestException;
+import com.sky.movieratingservice.service.IRatingBatchService;
+import com.sky.movieratingservice.service.IRatingGroupCommitService;
 import com.sky.movieratingservice.service.IRatingService;
+import com.sky.movieratingservice.service.IRatingWriteBehindService;
 import com.sky.movieratingservice.security.UserPrincipal;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Pattern;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.util.StringUtils;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
+
+import static java.time.format.DateTimeFormatter.ISO_LOCAL_DATE_TIME;
 
 @RestController
 @RequestMapping(value = "/api/v1/ratings", produces = MediaType.APPLICATION_JSON_VALUE)
@@ -29,13 +65,26 @@ import java.util.UUID;
 @Tag(name = "Rating Controller", description = "Endpoints for managing movie ratings")
 @SecurityRequirement(name = "Bearer Authentication")
 public class RatingController {
+    private static final String TEXT_CSV_VALUE = "text/csv";
+    private static final String CSV_HEADER = "id,movie_id,user_id,rating_value,review,created_at,updated_at\n";
+    private static final int EXPORT_BUFFER_SIZE = 64 * 1024;
+
     private final IRatingService ratingService;
+    private final IRatingBatchService ratingBatchService;
+    // present when app.ratings.write-behind.enabled is set
+    private final Optional<IRatingWriteBehindService> ratingWriteBehindService;
+    // present when app.ratings.group-commit.enabled is set
+    private final Optional<IRatingGroupCommitService> ratingGroupCommitService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.ratings.batch.max-items:5000}")
+    private int maxBatchItems;
 
 
     @PostMapping
     @Operation(
             summary = "Create or update a movie rating",
-            description = "Allows an authenticated user to create a new rating or update an existing rating for a movie."
+            description = "Allows an authenticated user to create a new rating or update an existing rating for a movie. In write-behind mode the movie is checked, then the rating is journaled and acknowledged with 202, and written to the database shortly after. With group commit, concurrent writes are committed together in one transaction."
     )
     @ApiResponses(
             value = {
@@ -49,6 +98,10 @@ public class RatingController {
                                     )
                             }
                     ),
+                    @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                            responseCode = "202",
+                            description = "Rating accepted in write-behind mode"
+                    ),
                     @io.swagger.v3.oas.annotations.responses.ApiResponse(
                             responseCode = "400",
                             description = "Invalid input data"
@@ -60,15 +113,80 @@ public class RatingController {
                     @io.swagger.v3.oas.annotations.responses.ApiResponse(
                             responseCode = "404",
                             description = "Movie not found"
+                    ),
+                    @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                            responseCode = "503",
+                            description = "Write-behind journal or group commit queue is full, retry shortly"
                     )
             }
     )
     public ResponseEntity<RatingResponseDto> createOrUpdateRating(@Valid @RequestBody RatingRequestDto ratingRequestDto,
                                                                   @AuthenticationPrincipal UserPrincipal userPrincipal) {
-        RatingResponseDto ratingResponseDto = ratingService.createOrUpdateRating(ratingRequestDto, userPrincipal.getId());
+        if (ratingWriteBehindService.isPresent()) {
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .body(ratingWriteBehindService.get().accept(ratingRequestDto, userPrincipal.getId()));
+        }
+        RatingResponseDto ratingResponseDto = ratingGroupCommitService.isPresent()
+                ? ratingGroupCommitService.get().createOrUpdateRating(ratingRequestDto, userPrincipal.getId())
+                : ratingService.createOrUpdateRating(ratingRequestDto, userPrincipal.getId());
         return ResponseEntity.status(HttpStatus.CREATED).body(ratingResponseDto);
     }
 
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(
+            summary = "Create, update or delete many ratings",
+            description = "Applies a JSON array of rating writes for the authenticated user, in chunks that commit independently, and reports the outcome of every item. Items default to op UPSERT; op DELETE removes the user's rating of the movie."
+    )
+    @ApiResponses(
+            value = {
+                    @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                            responseCode = "200",
+                            description = "Batch processed, see the per-item results",
+                            content = {
+                                    @io.swagger.v3.oas.annotations.media.Content(
+                                            mediaType = "application/json",
+                                            schema = @io.swagger.v3.oas.annotations.media.Schema(implementation = BatchRatingResponseDto.class)
+                                    )
+                            }
+                    ),
+                    @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                            responseCode = "400",
+                            description = "Body is not a JSON array of ratings, or has too many items"
+                    ),
+                    @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                            responseCode = "401",
+                            description = "Unauthorized - authentication required"
+                    )
+            }
+    )
+    @io.swagger.v3.oas.annotations.parameters.RequestBody(content = @io.swagger.v3.oas.annotations.media.Content(
+            array = @io.swagger.v3.oas.annotations.media.ArraySchema(
+                    schema = @io.swagger.v3.oas.annotations.media.Schema(implementation = BatchRatingItemDto.class))))
+    public ResponseEntity<BatchRatingResponseDto> applyRatingBatch(InputStream body,
+                                                                   @AuthenticationPrincipal UserPrincipal userPrincipal) throws IOException {
+        List<BatchRatingItemDto> items = readBatch(body);
+        return ResponseEntity.ok(ratingBatchService.applyBatch(userPrincipal.getId(), items));
+    }
+
+    // Reads the array item by item from the stream, without buffering the body or building a JSON tree
+    private List<BatchRatingItemDto> readBatch(InputStream body) throws IOException {
+        try (JsonParser parser = objectMapper.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new BadRequestException("Batch must be a JSON array of ratings");
+            }
+            List<BatchRatingItemDto> items = new ArrayList<>();
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                if (items.size() == maxBatchItems) {
+                    throw new BadRequestException("Batch cannot exceed " + maxBatchItems + " ratings");
+                }
+                items.add(objectMapper.readValue(parser, BatchRatingItemDto.class));
+            }
+            return items;
+        } catch (JsonProcessingException ex) {
+            throw new BadRequestException("Malformed batch: " + ex.getOriginalMessage());
+        }
+    }
+
     @DeleteMapping("/{ratingId}")
     @Operation(
             summary = "Delete a movie rating",
@@ -100,6 +218,104 @@ public class RatingController {
         return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
     }
 
+    @GetMapping(value = "/export", produces = {MediaType.APPLICATION_NDJSON_VALUE, TEXT_CSV_VALUE})
+    @Operation(
+            summary = "Export all ratings",
+            description = "Stream every rating as NDJSON or CSV, ordered by creation time. Pass the createdAt and id of the last row received as after=<createdAt>,<id> to resume an interrupted export. Gzip-compressed when the client accepts it."
+    )
+    @ApiResponses({
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "200",
+                    description = "Ratings streamed successfully"
+            ),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "400",
+                    description = "Invalid format or resume token"
+            ),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "401",
+                    description = "Unauthorized"
+            )
+    })
+    public ResponseEntity<StreamingResponseBody> exportRatings(
+            @Parameter(description = "ndjson or csv")
+            @RequestParam(defaultValue = "ndjson") @Pattern(regexp = "ndjson|csv", message = "format must be ndjson or csv") String format,
+            @Parameter(description = "Resume token <createdAt>,<id> of the last row received, empty to start from the beginning")
+            @RequestParam(required = false) String after,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+
+        // parse before the response starts, so a bad token is still a 400
+        ExportResumeToken resumeAfter = StringUtils.hasText(after) ? ExportResumeToken.parse(after) : null;
+        boolean csv = "csv".equals(format);
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+
+        StreamingResponseBody body = out -> {
+            try (OutputStream target = gzip
+                    ? new GZIPOutputStream(out, EXPORT_BUFFER_SIZE)
+                    : new BufferedOutputStream(out, EXPORT_BUFFER_SIZE)) {
+                if (csv) {
+                    writeCsv(resumeAfter, target);
+                } else {
+                    writeNdjson(resumeAfter, target);
+                }
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(csv ? MediaType.parseMediaType(TEXT_CSV_VALUE) : MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(csv ? "ratings.csv" : "ratings.ndjson")
+                        .build()
+                        .toString())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
+    private void writeNdjson(ExportResumeToken after, OutputStream out) throws IOException {
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.setRootValueSeparator(null);
+            ratingService.exportRatings(after, rating -> {
+                try {
+                    writer.writeValue(generator, rating);
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    private void writeCsv(ExportResumeToken after, OutputStream out) throws IOException {
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        writer.write(CSV_HEADER);
+        ratingService.exportRatings(after, rating -> {
+            try {
+                writer.write(rating.getId() + "," + rating.getMovieId() + "," + rating.getUserId() + ","
+                        + rating.getRatingValue() + "," + csvField(rating.getReview()) + ","
+                        + ISO_LOCAL_DATE_TIME.format(rating.getCreatedAt()) + ","
+                        + ISO_LOCAL_DATE_TIME.format(rating.getUpdatedAt()) + "\n");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        writer.flush();
+    }
+
+    // RFC 4180: quote fields containing a separator, quote or line break, and double embedded quotes
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
     @GetMapping("/my")
     @Operation(
             summary = "Get my ratings",
@@ -110,17 +326,25 @@ public class RatingController {
                     responseCode = "200",
                     description = "Ratings retrieved successfully"
             ),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "304",
+                    description = "Not modified since the version given in If-None-Match"
+            ),
             @io.swagger.v3.oas.annotations.responses.ApiResponse(
                     responseCode = "401",
                     description = "Unauthorized"
             )
     })
     public ResponseEntity<List<RatingResponseDto>> getMyRatings(
-            @AuthenticationPrincipal UserPrincipal currentUser) {
-
-        List<RatingResponseDto> ratings = ratingService.getUserRatings(currentUser.getId());
+            @AuthenticationPrincipal UserPrincipal currentUser,
+            ServletWebRequest request) {
 
-        return ResponseEntity.status(HttpStatus.OK).body(ratings);
+        CacheControl cacheControl = CacheControl.noCache().cachePrivate();
+        if (ConditionalGet.isRevalidation(request)
+                && ConditionalGet.isNotModified(request, ratingService.getUserRatingsVersion(currentUser.getId()), cacheControl)) {
+            return null;
+        }
+        return ConditionalGet.ok(ratingService.getUserRatings(currentUser.getId()), cacheControl);
     }
     @GetMapping("/my/movie/{movieId}")
     @Operation(
@@ -180,4 +404,47 @@ public class RatingController {
 
         return ResponseEntity.ok(ratings);
     }
+
+    @GetMapping(value = "/movie/{movieId}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(
+            summary = "Stream all ratings for a movie",
+            description = "Stream all user ratings for specific movie as newline-delimited JSON, one rating per line, written as they are read from the database"
+    )
+    @ApiResponses({
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "200",
+                    description = "Ratings streamed successfully"
+            ),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "404",
+                    description = "Movie not found"
+            ),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "401",
+                    description = "Unauthorized"
+            )
+    })
+    public void streamMovieRatings(
+            @Parameter(description = "Movie ID")
+            @PathVariable UUID movieId,
+            HttpServletResponse response) throws IOException {
+
+        // nothing touches the response until the service has found the movie, so a 404 still gets the regular error body
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream());
+        generator.setRootValueSeparator(null);
+        ratingService.streamMovieRatings(movieId, rating -> {
+            try {
+                if (response.getContentType() == null) {
+                    response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+                }
+                writer.writeValue(generator, rating);
+                generator.writeRaw('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        generator.flush();
+    }
 }
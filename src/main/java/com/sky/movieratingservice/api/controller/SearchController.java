@@ -0,0 +1,66 @@
+package com.sky.movieratingservice.api.controller;
+
+import com.sky.movieratingservice.api.dto.response.CursorPageResponseDto;
+import com.sky.movieratingservice.api.dto.response.SearchResultResponseDto;
+import com.sky.movieratingservice.service.ISearchService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping(value = "/api/v1/search", produces = MediaType.APPLICATION_JSON_VALUE)
+@RequiredArgsConstructor
+@Validated
+@Tag(name = "Search Controller", description = "APIs for full-text search over movies and reviews")
+public class SearchController {
+
+    private final ISearchService searchService;
+
+    @GetMapping
+    @Operation(
+            summary = "Search Movies or Reviews",
+            description = "Full-text search over movie names, directors and descriptions, or over review texts, most "
+                    + "relevant first. The query accepts quoted phrases, 'or' and '-word'. With boost, results of better "
+                    + "rated movies rank higher. Pass the returned nextCursor as 'after' for the next page. "
+                    + "No authentication required."
+    )
+    @ApiResponses(
+            value = {
+                    @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                            responseCode = "200",
+                            description = "Successfully retrieved a page of search results"
+                    ),
+                    @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                            responseCode = "400",
+                            description = "Missing query, unknown target, invalid cursor or page size"
+                    )
+            }
+    )
+    public ResponseEntity<CursorPageResponseDto<SearchResultResponseDto>> search(
+            @Parameter(description = "Words to search for")
+            @RequestParam @NotBlank @Size(max = 200) String q,
+            @Parameter(description = "What to search: movies or reviews")
+            @RequestParam(name = "in", defaultValue = "movies") String target,
+            @Parameter(description = "Rank results of better rated movies higher")
+            @RequestParam(defaultValue = "false") boolean boost,
+            @Parameter(description = "Cursor returned by the previous page, omitted for the first page")
+            @RequestParam(required = false) String after,
+            @Parameter(description = "Page size")
+            @RequestParam(defaultValue = "20") @Min(1) @Max(100) int size
+    ) {
+        return ResponseEntity.ok(searchService.search(q, target, boost, after, size));
+    }
+}
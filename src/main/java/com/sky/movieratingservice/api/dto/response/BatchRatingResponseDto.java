@@ -0,0 +1,25 @@
+package com.sky.movieratingservice.api.dto.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "Per-item outcome of a rating batch")
+public class BatchRatingResponseDto {
+    @Schema(description = "Number of items applied")
+    private int applied;
+
+    @Schema(description = "Number of items not applied")
+    private int rejected;
+
+    @Schema(description = "One result per request item, in request order")
+    private List<BatchRatingResultDto> results;
+}
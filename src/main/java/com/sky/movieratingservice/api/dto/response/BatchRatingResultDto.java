@@ -0,0 +1,44 @@
+package com.sky.movieratingservice.api.dto.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "Outcome of one item of a rating batch")
+public class BatchRatingResultDto {
+    @Schema(description = "Position of the item in the request, 0-based")
+    private int index;
+
+    @Schema(description = "Movie ID of the item")
+    private UUID movieId;
+
+    @Schema(description = "What happened to the item")
+    private Status status;
+
+    @Schema(description = "Why the item was not applied; null when it was")
+    private String message;
+
+    public enum Status {
+        CREATED,
+        UPDATED,
+        DELETED,
+        // a later item of the batch wrote the same movie
+        SUPERSEDED,
+        NOT_FOUND,
+        INVALID,
+        // the item's chunk could not be written, the item can be retried
+        FAILED;
+
+        public boolean isApplied() {
+            return this == CREATED || this == UPDATED || this == DELETED || this == SUPERSEDED;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.sky.movieratingservice.api.dto.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "One page of a cursor paginated listing")
+public class CursorPageResponseDto<T> {
+    @Schema(description = "Items of this page")
+    private List<T> items;
+
+    @Schema(description = "Cursor for the next page, pass it as 'after'; null on the last page")
+    private String nextCursor;
+}
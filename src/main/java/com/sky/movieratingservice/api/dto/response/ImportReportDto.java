@@ -0,0 +1,42 @@
+package com.sky.movieratingservice.api.dto.response;
+
+import com.sky.movieratingservice.domain.model.ImportLayout;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "Outcome of a bulk CSV import")
+public class ImportReportDto {
+    @Schema(description = "Imported data set", example = "ratings")
+    private String dataset;
+
+    @Schema(description = "Column layout of the file")
+    private ImportLayout layout;
+
+    @Schema(description = "Data rows read from the file")
+    private long rowsRead;
+
+    @Schema(description = "Rows that created a movie or rating")
+    private long inserted;
+
+    @Schema(description = "Rows that changed an existing movie or rating")
+    private long updated;
+
+    @Schema(description = "Rows identical to what is already stored")
+    private long unchanged;
+
+    @Schema(description = "Rows skipped as invalid, duplicated within the file, or referring to an unknown movie or user")
+    private long skipped;
+
+    @Schema(description = "Wall-clock time of the import in milliseconds")
+    private long elapsedMs;
+
+    @Schema(description = "Rows read per second")
+    private long rowsPerSecond;
+}
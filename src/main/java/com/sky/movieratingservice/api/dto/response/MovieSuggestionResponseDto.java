@@ -0,0 +1,31 @@
+package com.sky.movieratingservice.api.dto.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "Movie suggested for a typed prefix")
+public class MovieSuggestionResponseDto {
+    @Schema(description = "Movie ID")
+    private UUID id;
+
+    @Schema(description = "Movie name")
+    private String name;
+
+    @Schema(description = "Director")
+    private String director;
+
+    @Schema(description = "Release year")
+    private Integer releaseYear;
+
+    @Schema(description = "Number of ratings, which suggestions are ranked by", example = "1250")
+    private Long ratingCount;
+}
@@ -0,0 +1,39 @@
+package com.sky.movieratingservice.api.dto.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "Distribution of a movie's ratings")
+public class RatingDistributionResponseDto {
+    @Schema(description = "Movie ID")
+    private UUID movieId;
+
+    @Schema(description = "Total number of ratings", example = "1250")
+    private Long ratingCount;
+
+    @Schema(description = "Average rating", example = "8.5")
+    private Double avgRating;
+
+    @Schema(description = "Number of ratings per rating value, for every value from 1 to 10",
+            example = "{\"1\": 3, \"2\": 0, \"3\": 5, \"4\": 12, \"5\": 40, \"6\": 95, \"7\": 210, \"8\": 380, \"9\": 330, \"10\": 175}")
+    private Map<Integer, Long> counts;
+
+    @Schema(description = "Median rating, the mean of the two middle ratings for an even count; absent without ratings",
+            example = "8.0")
+    private Double median;
+
+    @Schema(description = "Nearest-rank percentiles: the lowest rating that the given share of ratings is at or below; "
+            + "absent without ratings",
+            example = "{\"p10\": 6, \"p25\": 7, \"p50\": 8, \"p75\": 9, \"p90\": 10}")
+    private Map<String, Integer> percentiles;
+}
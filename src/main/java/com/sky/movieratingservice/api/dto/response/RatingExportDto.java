@@ -0,0 +1,38 @@
+package com.sky.movieratingservice.api.dto.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Schema(description = "One row of the ratings export")
+public class RatingExportDto {
+    @Schema(description = "Rating ID")
+    private UUID id;
+
+    @Schema(description = "Movie ID")
+    private UUID movieId;
+
+    @Schema(description = "User ID")
+    private UUID userId;
+
+    @Schema(description = "Rating value (1-10)", example = "9")
+    private Integer ratingValue;
+
+    @Schema(description = "Optional review text")
+    private String review;
+
+    @Schema(description = "Creation timestamp, first half of the resume token")
+    private LocalDateTime createdAt;
+
+    @Schema(description = "Last update timestamp")
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,43 @@
+package com.sky.movieratingservice.api.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "Movie or review matching a search")
+public class SearchResultResponseDto {
+    @Schema(description = "Movie ID, of the reviewed movie for reviews")
+    private UUID movieId;
+
+    @Schema(description = "Movie name")
+    private String movieName;
+
+    @Schema(description = "Director, for movies")
+    private String director;
+
+    @Schema(description = "Release year, for movies")
+    private Integer releaseYear;
+
+    @Schema(description = "Rating ID, for reviews")
+    private UUID ratingId;
+
+    @Schema(description = "Rating given with the review, for reviews", example = "8")
+    private Integer ratingValue;
+
+    @Schema(description = "Relevance, higher first; only comparable within one search")
+    private Double score;
+
+    @Schema(description = "HTML-escaped excerpt of the description or review, matches wrapped in <mark> tags",
+            example = "A thief who steals corporate secrets through the use of <mark>dream</mark>-sharing technology")
+    private String snippet;
+}
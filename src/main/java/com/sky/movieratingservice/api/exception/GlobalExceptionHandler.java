@@ -5,8 +5,12 @@ import com.sky.movieratingservice.domain.exception.*;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.ConstraintViolationException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -14,11 +18,17 @@ import org.springframework.web.bind.annotation.RestControllerAdvice;
 
 import javax.naming.AuthenticationException;
 import java.util.List;
+import java.util.Map;
 
 @RestControllerAdvice
 @Slf4j
 public class GlobalExceptionHandler {
 
+    // Resource a foreign key points at, for writes that leave existence checks to the database
+    private static final Map<String, String> FOREIGN_KEY_RESOURCES = Map.of(
+            "fk_ratings_movies_id", "Movie",
+            "fk_ratings_users_id", "User");
+
     @ExceptionHandler(ResourceNotFoundException.class)
     public ResponseEntity<ErrorResponse> handleResourceNotFoundException(ResourceNotFoundException exception, HttpServletRequest request) {
         log.error("Resource not found: {}", exception.getMessage());
@@ -28,7 +38,8 @@ public class GlobalExceptionHandler {
                 .path(request.getRequestURI())
                 .message(exception.getMessage())
                 .build();
-        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
+        // explicit content type, so the error body is still written when the request only accepts application/x-ndjson
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).contentType(MediaType.APPLICATION_JSON).body(errorResponse);
     }
 
     @ExceptionHandler(DuplicateResourceException.class)
@@ -43,6 +54,22 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.CONFLICT).body(errorResponse);
     }
 
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<ErrorResponse> handleDataIntegrityViolationException(DataIntegrityViolationException exception, HttpServletRequest request) {
+        String resource = violatedForeignKeyResource(exception);
+        if (resource != null) {
+            return handleResourceNotFoundException(new ResourceNotFoundException(resource + " not found"), request);
+        }
+        log.error("Data integrity violation: {}", exception.getMostSpecificCause().getMessage());
+        ErrorResponse errorResponse = ErrorResponse.builder()
+                .error(HttpStatus.CONFLICT.getReasonPhrase())
+                .status(HttpStatus.CONFLICT.value())
+                .path(request.getRequestURI())
+                .message("Request conflicts with existing data")
+                .build();
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(errorResponse);
+    }
+
     @ExceptionHandler(BadRequestException.class)
     public ResponseEntity<ErrorResponse> handleBadRequestException(BadRequestException exception, HttpServletRequest request) {
         log.error("Bad request: {}", exception.getMessage());
@@ -79,6 +106,32 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.FORBIDDEN).body(errorResponse);
     }
 
+    @ExceptionHandler(AccessDeniedException.class)
+    public ResponseEntity<ErrorResponse> handleAccessDeniedException(AccessDeniedException exception, HttpServletRequest request) {
+        log.error("Access denied: {}", exception.getMessage());
+        ErrorResponse errorResponse = ErrorResponse.builder()
+                .error(HttpStatus.FORBIDDEN.getReasonPhrase())
+                .status(HttpStatus.FORBIDDEN.value())
+                .path(request.getRequestURI())
+                .message("You do not have permission to perform this action")
+                .build();
+        return ResponseEntity.status(HttpStatus.FORBIDDEN).body(errorResponse);
+    }
+
+    @ExceptionHandler(ServiceUnavailableException.class)
+    public ResponseEntity<ErrorResponse> handleServiceUnavailableException(ServiceUnavailableException exception, HttpServletRequest request) {
+        log.warn("Service unavailable: {}", exception.getMessage());
+        ErrorResponse errorResponse = ErrorResponse.builder()
+                .error(HttpStatus.SERVICE_UNAVAILABLE.getReasonPhrase())
+                .status(HttpStatus.SERVICE_UNAVAILABLE.value())
+                .path(request.getRequestURI())
+                .message(exception.getMessage())
+                .build();
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(errorResponse);
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<ErrorResponse> handleValidationException(MethodArgumentNotValidException exception,
                                                                    HttpServletRequest request) {
@@ -148,4 +201,13 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
     }
 
+    private static String violatedForeignKeyResource(DataIntegrityViolationException exception) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof org.hibernate.exception.ConstraintViolationException violation
+                    && violation.getConstraintName() != null) {
+                return FOREIGN_KEY_RESOURCES.get(violation.getConstraintName().toLowerCase());
+            }
+        }
+        return null;
+    }
 }
@@ -0,0 +1,79 @@
+package com.sky.movieratingservice.cli;
+
+import com.sky.movieratingservice.api.dto.response.ImportReportDto;
+import com.sky.movieratingservice.domain.model.ImportLayout;
+import com.sky.movieratingservice.service.ICatalogImportService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.BiFunction;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Runs the catalog importer from the command line and exits, for example
+ * {@code java -jar movie-rating-service.jar --spring.profiles.active=import --app.importer.layout=MOVIELENS
+ * --app.importer.movies=ml-25m/movies.csv --app.importer.ratings=ml-25m/ratings.csv}.
+ * Files ending in {@code .gz} are decompressed on the fly.
+ */
+@Component
+@Profile("import")
+@RequiredArgsConstructor
+@Slf4j
+public class CatalogImportCommand implements ApplicationRunner {
+
+    private final ICatalogImportService catalogImportService;
+    private final ConfigurableApplicationContext context;
+
+    @Value("${app.importer.layout:NATIVE}")
+    private ImportLayout layout;
+
+    @Value("${app.importer.movies:}")
+    private String moviesFile;
+
+    @Value("${app.importer.ratings:}")
+    private String ratingsFile;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        int exitCode = 0;
+        try {
+            if (moviesFile.isBlank() && ratingsFile.isBlank()) {
+                log.error("Nothing to import, set app.importer.movies and/or app.importer.ratings");
+                exitCode = 2;
+            }
+            // movies first, ratings of unknown movies are skipped
+            if (!moviesFile.isBlank()) {
+                importFile(moviesFile, catalogImportService::importMovies);
+            }
+            if (!ratingsFile.isBlank()) {
+                importFile(ratingsFile, catalogImportService::importRatings);
+            }
+        } catch (RuntimeException | IOException ex) {
+            log.error("Import failed", ex);
+            exitCode = 1;
+        }
+        int status = exitCode;
+        System.exit(SpringApplication.exit(context, () -> status));
+    }
+
+    private void importFile(String file, BiFunction<InputStream, ImportLayout, ImportReportDto> importer) throws IOException {
+        Path path = Path.of(file);
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(path), 64 * 1024)) {
+            InputStream csv = file.endsWith(".gz") ? new GZIPInputStream(in, 64 * 1024) : in;
+            ImportReportDto report = importer.apply(csv, layout);
+            log.info("{}: {}", path.getFileName(), report);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.sky.movieratingservice.common;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+/**
+ * Answers conditional GETs from version keys. Full responses carry the key of their body as a strong ETag (see
+ * {@link Versioned}). A request whose {@code If-None-Match} holds the current key is answered with 304 and no
+ * body, checked against a version lookup before anything of the body is loaded. Responses are marked
+ * {@code no-cache} by default: clients may keep them but revalidate before every reuse.
+ * <p>
+ * Version lookups only run for requests that carry {@code If-None-Match}; other requests get the key read along
+ * with their body.
+ */
+public final class ConditionalGet {
+
+    private ConditionalGet() {
+    }
+
+    /**
+     * @return true if the request asks to revalidate a response it holds, i.e. a version lookup may save the body
+     */
+    public static boolean isRevalidation(WebRequest request) {
+        return request.getHeader(HttpHeaders.IF_NONE_MATCH) != null;
+    }
+
+    /**
+     * @param version the current version key of the resource, null if there is none, e.g. for a missing resource
+     * @return true if the response has been made a 304, in which case the handler returns without a body
+     */
+    public static boolean isNotModified(ServletWebRequest request, String version) {
+        return isNotModified(request, version, CacheControl.noCache());
+    }
+
+    /**
+     * Like {@link #isNotModified(ServletWebRequest, String)}, with other caching directives, e.g. {@code private}
+     * ones for responses that differ per user.
+     */
+    public static boolean isNotModified(ServletWebRequest request, String version, CacheControl cacheControl) {
+        HttpServletResponse response = request.getResponse();
+        if (response != null) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+        }
+        return version != null && request.checkNotModified(version);
+    }
+
+    /**
+     * A 200 response with the body, tagged with the version key it was read at.
+     */
+    public static <T> ResponseEntity<T> ok(Versioned<T> versioned) {
+        return ok(versioned, CacheControl.noCache());
+    }
+
+    /**
+     * Like {@link #ok(Versioned)}, with other caching directives.
+     */
+    public static <T> ResponseEntity<T> ok(Versioned<T> versioned, CacheControl cacheControl) {
+        return ResponseEntity.ok()
+                .cacheControl(cacheControl)
+                .eTag(versioned.version())
+                .body(versioned.body());
+    }
+}
@@ -0,0 +1,47 @@
+package com.sky.movieratingservice.common;
+
+import com.sky.movieratingservice.domain.exception.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Encodes keyset positions as opaque, URL-safe cursors. Clients must treat a cursor as a token and
+ * only pass back what the API returned; the layout may change without notice.
+ * <p>
+ * Only the last key may contain arbitrary text, so free-text keys such as names go last.
+ */
+public final class CursorCodec {
+    private static final char SEPARATOR = '\u001F';
+
+    private CursorCodec() {
+    }
+
+    public static String encode(Object... keys) {
+        StringBuilder raw = new StringBuilder();
+        for (int i = 0; i < keys.length; i++) {
+            if (i > 0) {
+                raw.append(SEPARATOR);
+            }
+            raw.append(keys[i]);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws BadRequestException if the cursor is not one this API produced with {@code expectedKeys} keys
+     */
+    public static List<String> decode(String cursor, int expectedKeys) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            List<String> keys = List.of(raw.split(String.valueOf(SEPARATOR), expectedKeys));
+            if (keys.size() != expectedKeys) {
+                throw new BadRequestException("Invalid cursor");
+            }
+            return keys;
+        } catch (IllegalArgumentException ex) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.sky.movieratingservice.common;
+
+import com.sky.movieratingservice.domain.exception.BadRequestException;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.UUID;
+
+/**
+ * Position of the last row an export client received, written as {@code <createdAt>,<ratingId>}.
+ * Unlike {@link CursorCodec} cursors the token is readable on purpose: a client whose download broke
+ * off builds it from the last complete row it has, without any help from the server.
+ */
+public record ExportResumeToken(LocalDateTime createdAt, UUID ratingId) {
+
+    /**
+     * @throws BadRequestException if the token is not {@code <ISO local date-time>,<UUID>}
+     */
+    public static ExportResumeToken parse(String token) {
+        int separator = token.indexOf(',');
+        if (separator < 0) {
+            throw new BadRequestException("Invalid resume token");
+        }
+        try {
+            return new ExportResumeToken(
+                    LocalDateTime.parse(token.substring(0, separator).trim()),
+                    UUID.fromString(token.substring(separator + 1).trim()));
+        } catch (DateTimeParseException | IllegalArgumentException ex) {
+            throw new BadRequestException("Invalid resume token");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return createdAt + "," + ratingId;
+    }
+}
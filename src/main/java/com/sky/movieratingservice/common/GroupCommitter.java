@@ -0,0 +1,178 @@
+package com.sky.movieratingservice.common;
+
+import com.sky.movieratingservice.domain.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Collects items submitted concurrently by many threads and hands them to {@code commit} in batches, so that
+ * one transaction and one connection serve many callers. A committer thread takes the first waiting item, then
+ * keeps collecting for at most {@code maxWait} or until {@code maxBatchSize} items are together.
+ * <p>
+ * {@code commit} returns one {@link Outcome} per item, in the order given, and each caller's future completes
+ * with its own outcome. When {@code commit} throws, every item of the batch fails with that exception.
+ * Submissions that find the queue full fail immediately with {@link ServiceUnavailableException}.
+ * <p>
+ * Meters, tagged with {@code name}: {@code group.commit.batch.size}, {@code group.commit} (time per batch),
+ * {@code group.commit.queued} and {@code group.commit.rejected}.
+ */
+@Slf4j
+public class GroupCommitter<T, R> implements AutoCloseable {
+    private static final long IDLE_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final String name;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final Function<List<T>, List<Outcome<R>>> commit;
+    private final BlockingQueue<Submission<T, R>> queue;
+    private final List<Thread> committers = new ArrayList<>();
+    private final DistributionSummary batchSizes;
+    private final Timer commitTimer;
+    private final Counter rejected;
+    private volatile boolean closed;
+
+    public GroupCommitter(String name, int committers, int maxBatchSize, Duration maxWait, int queueCapacity,
+                          Function<List<T>, List<Outcome<R>>> commit, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.commit = commit;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSizes = DistributionSummary.builder("group.commit.batch.size")
+                .description("Items committed together in one batch")
+                .tag("name", name)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.commitTimer = Timer.builder("group.commit")
+                .description("Time spent committing one batch")
+                .tag("name", name)
+                .register(meterRegistry);
+        this.rejected = Counter.builder("group.commit.rejected")
+                .description("Submissions rejected because the group commit queue was full")
+                .tag("name", name)
+                .register(meterRegistry);
+        Gauge.builder("group.commit.queued", queue, BlockingQueue::size)
+                .description("Items waiting for a committer")
+                .tag("name", name)
+                .register(meterRegistry);
+
+        for (int i = 0; i < committers; i++) {
+            this.committers.add(Thread.ofPlatform().name("group-commit-" + name + "-" + i).daemon(true).start(this::run));
+        }
+        log.info("Group commit {} started with {} committers, batches of up to {} within {}",
+                name, committers, maxBatchSize, maxWait);
+    }
+
+    /**
+     * @throws ServiceUnavailableException if the queue is full or the committer is closed
+     */
+    public CompletableFuture<R> submit(T item) {
+        if (closed) {
+            throw new ServiceUnavailableException("Writes are shutting down, please retry");
+        }
+        Submission<T, R> submission = new Submission<>(item, new CompletableFuture<>());
+        if (!queue.offer(submission)) {
+            rejected.increment();
+            throw new ServiceUnavailableException("Too many concurrent writes, please retry shortly");
+        }
+        return submission.result();
+    }
+
+    /**
+     * Stops taking submissions and waits for the committers to write what is queued.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        closed = true;
+        for (Thread committer : committers) {
+            committer.join();
+        }
+        Submission<T, R> left;
+        while ((left = queue.poll()) != null) {
+            left.result().completeExceptionally(new ServiceUnavailableException("Writes are shutting down, please retry"));
+        }
+    }
+
+    private void run() {
+        List<Submission<T, R>> batch = new ArrayList<>(maxBatchSize);
+        try {
+            while (!closed || !queue.isEmpty()) {
+                Submission<T, R> first = queue.poll(IDLE_POLL_NANOS, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                collect(batch);
+                commit(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            batch.forEach(submission -> submission.result().completeExceptionally(
+                    new ServiceUnavailableException("Write was interrupted, please retry")));
+        }
+    }
+
+    private void collect(List<Submission<T, R>> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + maxWaitNanos;
+        while (batch.size() < maxBatchSize) {
+            queue.drainTo(batch, maxBatchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() == maxBatchSize || remaining <= 0) {
+                return;
+            }
+            Submission<T, R> next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void commit(List<Submission<T, R>> batch) {
+        batchSizes.record(batch.size());
+        List<Outcome<R>> outcomes;
+        try {
+            outcomes = commitTimer.recordCallable(() -> commit.apply(batch.stream().map(Submission::item).toList()));
+        } catch (Exception ex) {
+            log.warn("Group commit {} of {} items failed", name, batch.size(), ex);
+            batch.forEach(submission -> submission.result().completeExceptionally(ex));
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            Outcome<R> outcome = outcomes.get(i);
+            if (outcome.error() != null) {
+                batch.get(i).result().completeExceptionally(outcome.error());
+            } else {
+                batch.get(i).result().complete(outcome.value());
+            }
+        }
+    }
+
+    // Result of one item of a batch, either a value or the error that item alone failed with
+    public record Outcome<R>(R value, RuntimeException error) {
+        public static <R> Outcome<R> success(R value) {
+            return new Outcome<>(value, null);
+        }
+
+        public static <R> Outcome<R> failure(RuntimeException error) {
+            return new Outcome<>(null, error);
+        }
+    }
+
+    private record Submission<T, R>(T item, CompletableFuture<R> result) {
+    }
+}
@@ -0,0 +1,26 @@
+package com.sky.movieratingservice.common;
+
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A response body with the version key of the rows it was built from, sent as its ETag by {@link ConditionalGet}.
+ * A body and its key are read together, so the key always describes the body it goes out with, also when the body
+ * comes from a cache.
+ *
+ * @param version digest of the parts that decide the body, see {@link #digest}
+ */
+public record Versioned<T>(T body, String version) {
+
+    /**
+     * Version key of the given parts, e.g. ids and change times. Version lookups that only read these parts compute
+     * their key with this too, so a revalidation is answered with the same key the body was sent with.
+     */
+    public static String digest(Stream<?> parts) {
+        String joined = parts.map(String::valueOf).collect(Collectors.joining(","));
+        return DigestUtils.md5DigestAsHex(joined.getBytes(StandardCharsets.UTF_8));
+    }
+}
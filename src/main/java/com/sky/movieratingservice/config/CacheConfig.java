@@ -0,0 +1,24 @@
+package com.sky.movieratingservice.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Caches are backed by Caffeine and configured through {@code spring.cache.*}. Caches listed in
+ * {@code spring.cache.cache-names} are created at startup, which is what registers their hit, miss and
+ * eviction meters with Micrometer ({@code cache.gets}, {@code cache.evictions}, ...).
+ * <p>
+ * The cache advice runs before the transaction advice, so a cache hit never opens a transaction
+ * and an eviction after a write only happens once that write is committed.
+ * <p>
+ * Each instance has its own caches, and evictions come from local after-commit listeners only, so a rating
+ * written through another instance is not evicted here: cached movie details may be stale by up to their
+ * {@code expireAfterWrite}, which is kept short for that reason. Revalidations compare the cached version with
+ * the database and reload, so a stale entry never answers a 304.
+ */
+@Configuration
+@EnableCaching(order = Ordered.HIGHEST_PRECEDENCE)
+public class CacheConfig {
+    public static final String MOVIE_DETAILS_CACHE = "movieDetails";
+}
@@ -0,0 +1,98 @@
+package com.sky.movieratingservice.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sky.movieratingservice.api.dto.response.ErrorResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caps the number of requests served at once. With virtual threads a request no longer waits for a Tomcat
+ * thread, but it still needs one of the few pooled database connections; without a cap a burst parks
+ * thousands of requests inside the pool until its connection timeout and then fails them all. Requests that
+ * get no slot within {@code acquireTimeout} are answered with 503 and {@code Retry-After} instead.
+ * <p>
+ * Meters: {@code http.server.requests.limit.wait} (time spent waiting for a slot),
+ * {@code http.server.requests.limit.available} and {@code http.server.requests.limit.rejected}.
+ */
+@Slf4j
+public class RequestConcurrencyLimitFilter extends OncePerRequestFilter {
+    private final Semaphore slots;
+    private final long acquireTimeoutNanos;
+    private final ObjectMapper objectMapper;
+    private final Timer waitTimer;
+    private final Counter rejected;
+
+    public RequestConcurrencyLimitFilter(int maxInFlightRequests, Duration acquireTimeout, ObjectMapper objectMapper,
+                                         MeterRegistry meterRegistry) {
+        this.slots = new Semaphore(maxInFlightRequests, true);
+        this.acquireTimeoutNanos = acquireTimeout.toNanos();
+        this.objectMapper = objectMapper;
+        this.waitTimer = Timer.builder("http.server.requests.limit.wait")
+                .description("Time requests waited for a slot before being served")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("http.server.requests.limit.rejected")
+                .description("Requests rejected because no slot became free in time")
+                .register(meterRegistry);
+        Gauge.builder("http.server.requests.limit.available", slots, Semaphore::availablePermits)
+                .description("Requests that can start right away")
+                .register(meterRegistry);
+        log.info("Serving at most {} requests at once, waiting up to {} for a slot", maxInFlightRequests, acquireTimeout);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (!acquire()) {
+            rejected.increment();
+            reject(request, response);
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            slots.release();
+        }
+    }
+
+    private boolean acquire() {
+        long start = System.nanoTime();
+        try {
+            return slots.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void reject(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        ErrorResponse errorResponse = ErrorResponse.builder()
+                .status(HttpStatus.SERVICE_UNAVAILABLE.value())
+                .error(HttpStatus.SERVICE_UNAVAILABLE.getReasonPhrase())
+                .message("Server is busy, please retry shortly")
+                .path(request.getRequestURI())
+                .build();
+
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write(objectMapper.writeValueAsString(errorResponse));
+    }
+}
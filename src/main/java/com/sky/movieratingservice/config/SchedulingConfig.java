@@ -0,0 +1,15 @@
+package com.sky.movieratingservice.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Scheduled tasks share the {@code spring.task.scheduling} pool; {@code @Async} listeners, such as the rebuilds
+ * after a rankings refresh, run on the application task executor so they never hold up a scheduled task.
+ */
+@Configuration
+@EnableScheduling
+@EnableAsync(proxyTargetClass = true)
+public class SchedulingConfig {
+}
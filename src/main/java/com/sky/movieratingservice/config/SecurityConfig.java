@@ -1,8 +1,13 @@
 package com.sky.movieratingservice.config;
 
+import com.sky.movieratingservice.security.BCryptCostCalibrator;
+import com.sky.movieratingservice.security.BoundedPasswordEncoder;
 import com.sky.movieratingservice.security.JwtAuthenticationEntryPoint;
 import com.sky.movieratingservice.security.JwtAuthenticationFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -14,6 +19,7 @@ import org.springframework.security.config.annotation.web.configuration.EnableWe
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
@@ -21,7 +27,9 @@ import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 
 @Configuration
 @EnableWebSecurity
@@ -37,6 +45,8 @@ public class SecurityConfig {
                 http.csrf(AbstractHttpConfigurer::disable)
                         .cors(cors->cors.configurationSource(configureSource()))
                         .authorizeHttpRequests(auth -> auth
+                                // Streamed responses finish on an async dispatch of a request that was already authorized
+                                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                                 // Swagger/OpenAPI documentation
                                 .requestMatchers(
                                         "/swagger-ui/**",
@@ -51,7 +61,8 @@ public class SecurityConfig {
                                 //Get endpoints - NO authentication required
                                 .requestMatchers(HttpMethod.GET,
                                         "/api/v1/movies",
-                                        "/api/v1/movies/*")
+                                        "/api/v1/movies/**",
+                                        "/api/v1/search")
                                 .permitAll()
                                 // Post endpoints - authentication required
                                 .requestMatchers(HttpMethod.POST,
@@ -89,8 +100,24 @@ public class SecurityConfig {
     }
 
     @Bean
-    PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder(12);
+    PasswordEncoder passwordEncoder(MeterRegistry meterRegistry,
+                                    @Value("${app.security.password-hashing.threads:0}") int threads,
+                                    @Value("${app.security.password-hashing.queue-capacity:64}") int queueCapacity,
+                                    @Value("${app.security.password-hashing.bcrypt.cost:12}") int cost,
+                                    @Value("${app.security.password-hashing.bcrypt.target-latency:100ms}") Duration targetLatency,
+                                    @Value("${app.security.password-hashing.bcrypt.min-cost:10}") int minCost,
+                                    @Value("${app.security.password-hashing.bcrypt.max-cost:14}") int maxCost) {
+        // BCrypt is CPU bound, so by default never hash on more threads than there are cores
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        int bcryptCost = cost > 0 ? cost : BCryptCostCalibrator.calibrate(targetLatency, minCost, maxCost);
+
+        // New hashes are stored as {bcrypt}$2a$<cost>$..., hashes stored before the prefix existed are still BCrypt.
+        // Only hashes below the cost are upgraded, so instances calibrated to different costs never undo each other's rehash
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(bcryptCost);
+        DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder("bcrypt", Map.of("bcrypt", bcrypt));
+        delegating.setDefaultPasswordEncoderForMatches(bcrypt);
+
+        return new BoundedPasswordEncoder(delegating, poolSize, queueCapacity, meterRegistry);
     }
 
     @Bean
@@ -0,0 +1,47 @@
+package com.sky.movieratingservice.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+
+/**
+ * Virtual-thread mode, switched on with {@code spring.threads.virtual.enabled}. Boot then runs Tomcat requests,
+ * async request processing (streamed exports) and scheduled tasks on virtual threads. Requests are no longer
+ * bounded by Tomcat's thread pool, so they are bounded by the database pool instead, before authentication
+ * (which may itself read the database) runs.
+ */
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConfig {
+
+    @Bean
+    FilterRegistrationBean<RequestConcurrencyLimitFilter> requestConcurrencyLimitFilter(
+            DataSource dataSource, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+            @Value("${app.concurrency.max-in-flight-requests:0}") int maxInFlightRequests,
+            @Value("${app.concurrency.acquire-timeout:PT2S}") Duration acquireTimeout) throws SQLException {
+        int slots = maxInFlightRequests > 0 ? maxInFlightRequests : 2 * poolSize(dataSource);
+        FilterRegistrationBean<RequestConcurrencyLimitFilter> registration = new FilterRegistrationBean<>(
+                new RequestConcurrencyLimitFilter(slots, acquireTimeout, objectMapper, meterRegistry));
+        registration.addUrlPatterns("/api/*");
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER - 1);
+        return registration;
+    }
+
+    private static int poolSize(DataSource dataSource) throws SQLException {
+        if (!dataSource.isWrapperFor(HikariDataSource.class)) {
+            throw new IllegalStateException("Database pool size is unknown, set app.concurrency.max-in-flight-requests");
+        }
+        return dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize();
+    }
+}
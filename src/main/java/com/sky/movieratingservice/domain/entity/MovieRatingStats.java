@@ -0,0 +1,58 @@
+package com.sky.movieratingservice.domain.entity;
+
+import com.sky.movieratingservice.domain.model.RatingHistogram;
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Running rating aggregates for a single movie.
+ * Rows are written only through {@link com.sky.movieratingservice.domain.repository.MovieRatingStatsRepository#applyDelta}
+ * so that the sum and count stay consistent with the ratings table within the same transaction.
+ */
+@Entity
+@Table(name = "MOVIE_RATING_STATS")
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@ToString
+public class MovieRatingStats {
+
+    @Id
+    @Column(name = "MOVIE_ID", nullable = false, updatable = false)
+    private UUID movieId;
+
+    @Column(name = "RATING_SUM", nullable = false)
+    private long ratingSum;
+
+    @Column(name = "RATING_COUNT", nullable = false)
+    private long ratingCount;
+
+    // Ratings per value 1..10, see RatingHistogram
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "RATING_HISTOGRAM", nullable = false)
+    private long[] ratingHistogram;
+
+    @Column(name = "VERSION", nullable = false)
+    private long version;
+
+    @Column(name = "UPDATED_AT", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @Column(name = "AVG_RATING", insertable = false, updatable = false)
+    private Double avgRating;
+
+    public RatingHistogram getHistogram() {
+        return ratingHistogram == null ? new RatingHistogram() : RatingHistogram.of(ratingHistogram);
+    }
+
+    public double getAverageRating() {
+        return ratingCount == 0 ? 0.0 : (double) ratingSum / ratingCount;
+    }
+}
@@ -1,6 +1,7 @@
 package com.sky.movieratingservice.domain.entity;
 
 import com.sky.movieratingservice.domain.entity.common.Auditable;
+import com.sky.movieratingservice.domain.model.UserRole;
 import jakarta.persistence.*;
 import lombok.*;
 import org.apache.commons.lang3.builder.HashCodeExclude;
@@ -31,6 +32,11 @@ public class User extends Auditable {
     @Column(name = "PASSWORD", nullable = false, length = 100)
     private String password;
 
+    @Enumerated(EnumType.STRING)
+    @Column(name = "ROLE", nullable = false, length = 20)
+    @Builder.Default
+    private UserRole role = UserRole.USER;
+
     @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, orphanRemoval = true)
     @Builder.Default
     @ToString.Exclude
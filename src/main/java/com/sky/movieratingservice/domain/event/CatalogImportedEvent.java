@@ -0,0 +1,8 @@
+package com.sky.movieratingservice.domain.event;
+
+/**
+ * Published by a bulk import that changed movies or ratings with set-based statements,
+ * so no per-movie {@link MovieRatingStatsChangedEvent} was raised for it.
+ */
+public record CatalogImportedEvent(String dataset) {
+}
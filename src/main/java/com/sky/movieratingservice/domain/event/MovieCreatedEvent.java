@@ -0,0 +1,9 @@
+package com.sky.movieratingservice.domain.event;
+
+import java.util.UUID;
+
+/**
+ * Published when a single movie is created through the API. Bulk imports raise {@link CatalogImportedEvent} instead.
+ */
+public record MovieCreatedEvent(UUID movieId, String name, String director, Integer releaseYear) {
+}
@@ -0,0 +1,10 @@
+package com.sky.movieratingservice.domain.event;
+
+import com.sky.movieratingservice.domain.ranking.BayesianPrior;
+
+/**
+ * Published after {@code movie_rankings} has been refreshed, carrying the prior its weighted scores were
+ * computed with.
+ */
+public record MovieRankingsRefreshedEvent(BayesianPrior prior) {
+}
@@ -0,0 +1,11 @@
+package com.sky.movieratingservice.domain.event;
+
+import java.util.UUID;
+
+/**
+ * Published whenever a rating write changes a movie's aggregates.
+ * Carries the aggregates as they are after the change; {@code version} increases with every change
+ * so listeners can discard events that arrive out of order.
+ */
+public record MovieRatingStatsChangedEvent(UUID movieId, long ratingSum, long ratingCount, long version) {
+}
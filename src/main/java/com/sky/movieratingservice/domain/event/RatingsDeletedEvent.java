@@ -0,0 +1,11 @@
+package com.sky.movieratingservice.domain.event;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Published inside the transaction that deletes ratings of a user, so writes of them that are still buffered
+ * can be cancelled before it commits.
+ */
+public record RatingsDeletedEvent(UUID userId, List<UUID> movieIds) {
+}
@@ -0,0 +1,7 @@
+package com.sky.movieratingservice.domain.exception;
+
+public class ServiceUnavailableException extends RuntimeException{
+    public ServiceUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,27 @@
+package com.sky.movieratingservice.domain.journal;
+
+import java.util.UUID;
+
+/**
+ * A rating write as stored in the {@link RatingJournal}. The offset is where the record starts in the journal,
+ * which is where replay has to begin as long as this record has not been flushed. A record with the rating value
+ * {@value #DELETED} marks a delete of the rating, which cancels the writes of it journaled before.
+ */
+public record JournalRecord(long sequence,
+                            int offset,
+                            UUID userId,
+                            UUID movieId,
+                            int ratingValue,
+                            String review,
+                            long acceptedAt) {
+
+    public static final int DELETED = 0;
+
+    public RatingKey key() {
+        return new RatingKey(userId, movieId);
+    }
+
+    public boolean deleted() {
+        return ratingValue == DELETED;
+    }
+}
@@ -0,0 +1,275 @@
+package com.sky.movieratingservice.domain.journal;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.zip.CRC32C;
+
+/**
+ * Accepted rating writes in a memory-mapped file, used as a ring: records are appended at the write position and
+ * the space before the checkpoint is reused once the writer wraps around. The checkpoint is the oldest record
+ * that still has to be replayed; everything before it has reached the database.
+ * <p>
+ * Layout: a {@value #HEADER_SIZE} byte header holding two checksummed checkpoint slots, written alternately so a
+ * crash while writing one leaves the other intact, followed by records of
+ * {@code [length][crc32c][sequence][acceptedAt][userId][movieId][ratingValue][reviewLength][review]}.
+ * Sequences are consecutive, so replay stops at the first record that is torn, corrupt or left over from an
+ * earlier lap. Stores into the mapping survive a crash of the process; {@link #force()} is needed to survive
+ * a crash of the machine.
+ * <p>
+ * Not thread-safe on its own; callers serialize access.
+ */
+public class RatingJournal implements AutoCloseable {
+
+    private static final int HEADER_SIZE = 64;
+    private static final int MAGIC = 0x524a4e31;
+    private static final int FORMAT_VERSION = 1;
+    private static final int[] SLOTS = {8, 24};
+    private static final int RECORD_HEADER = 8;
+    private static final int RECORD_BODY = 8 + 8 + 16 + 16 + 1 + 4;
+    private static final int WRAP = -1;
+    private static final int NO_REVIEW = -1;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+
+    private int currentSlot;
+    private long checkpointSequence;
+    private int checkpointOffset;
+    private int writePosition;
+    private long nextSequence;
+
+    /**
+     * Opens the journal file, creating it with the given size when missing. An existing file keeps its size.
+     */
+    public RatingJournal(Path path, int capacity) throws IOException {
+        if (capacity < HEADER_SIZE + 64 * 1024) {
+            throw new IllegalArgumentException("Journal capacity must be at least 64KB");
+        }
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        boolean created = channel.size() == 0;
+        this.capacity = created ? capacity : (int) channel.size();
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, this.capacity);
+
+        if (created) {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, FORMAT_VERSION);
+            currentSlot = 1;
+            checkpoint(1, HEADER_SIZE);
+        } else if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+            close();
+            throw new IOException("Not a rating journal: " + path);
+        } else {
+            readCheckpoint();
+        }
+        writePosition = checkpointOffset;
+        nextSequence = checkpointSequence;
+    }
+
+    /**
+     * Reads every record from the checkpoint on and moves the write position behind the last intact one.
+     * Must be called once, before the first {@link #append}.
+     */
+    public List<JournalRecord> replay() {
+        List<JournalRecord> records = new ArrayList<>();
+        int position = checkpointOffset;
+        int end = position;
+        long expected = checkpointSequence;
+        boolean wrapped = false;
+        while (true) {
+            if (capacity - position < RECORD_HEADER || buffer.getInt(position) == WRAP) {
+                if (wrapped) {
+                    break;
+                }
+                wrapped = true;
+                position = HEADER_SIZE;
+                continue;
+            }
+            JournalRecord journalRecord = read(position, expected);
+            if (journalRecord == null) {
+                break;
+            }
+            records.add(journalRecord);
+            position += RECORD_HEADER + buffer.getInt(position);
+            end = position;
+            expected++;
+        }
+        // a wrap marker from an earlier lap is not followed by a record of this one
+        writePosition = end;
+        nextSequence = expected;
+        return records;
+    }
+
+    /**
+     * Appends a rating write.
+     *
+     * @return the stored record, or empty when the journal has no room left before the checkpoint
+     */
+    public Optional<JournalRecord> append(UUID userId, UUID movieId, int ratingValue, String review, long acceptedAt) {
+        byte[] reviewBytes = review == null ? null : review.getBytes(StandardCharsets.UTF_8);
+        int length = RECORD_BODY + (reviewBytes == null ? 0 : reviewBytes.length);
+        int size = RECORD_HEADER + length;
+
+        int position = writePosition;
+        if (position >= checkpointOffset && position + size > capacity) {
+            if (HEADER_SIZE + size >= checkpointOffset && !isEmpty()) {
+                return Optional.empty();
+            }
+            if (capacity - position >= 4) {
+                buffer.putInt(position, WRAP);
+            }
+            position = HEADER_SIZE;
+        } else if (position < checkpointOffset && position + size >= checkpointOffset) {
+            return Optional.empty();
+        }
+
+        long sequence = nextSequence;
+        int body = position + RECORD_HEADER;
+        buffer.putLong(body, sequence);
+        buffer.putLong(body + 8, acceptedAt);
+        putUuid(body + 16, userId);
+        putUuid(body + 32, movieId);
+        buffer.put(body + 48, (byte) ratingValue);
+        buffer.putInt(body + 49, reviewBytes == null ? NO_REVIEW : reviewBytes.length);
+        if (reviewBytes != null) {
+            buffer.put(body + RECORD_BODY, reviewBytes);
+        }
+        buffer.putInt(position, length);
+        buffer.putInt(position + 4, recordCrc(position, length));
+
+        if (isEmpty() && position != checkpointOffset) {
+            // nothing live before this record, so the wrapped-over space is free again
+            checkpoint(sequence, position);
+        }
+        writePosition = position + size;
+        nextSequence = sequence + 1;
+        return Optional.of(new JournalRecord(sequence, position, userId, movieId, ratingValue, review, acceptedAt));
+    }
+
+    /**
+     * Marks everything before the given record as flushed; replay starts at that record from now on.
+     */
+    public void checkpoint(long sequence, int offset) {
+        int slot = SLOTS[1 - currentSlot];
+        buffer.putLong(slot, sequence);
+        buffer.putInt(slot + 8, offset);
+        buffer.putInt(slot + 12, slotCrc(slot));
+        currentSlot = 1 - currentSlot;
+        checkpointSequence = sequence;
+        checkpointOffset = offset;
+    }
+
+    /**
+     * Marks every appended record as flushed.
+     */
+    public void checkpointAll() {
+        checkpoint(nextSequence, writePosition);
+    }
+
+    // Records appended after the checkpoint
+    public long lag() {
+        return nextSequence - checkpointSequence;
+    }
+
+    // Bytes between the checkpoint and the write position
+    public int usedBytes() {
+        return writePosition >= checkpointOffset
+                ? writePosition - checkpointOffset
+                : capacity - checkpointOffset + writePosition - HEADER_SIZE;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public void force() {
+        buffer.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private boolean isEmpty() {
+        return nextSequence == checkpointSequence;
+    }
+
+    private JournalRecord read(int position, long expectedSequence) {
+        int length = buffer.getInt(position);
+        if (length < RECORD_BODY || position + RECORD_HEADER + length > capacity
+                || buffer.getInt(position + 4) != recordCrc(position, length)) {
+            return null;
+        }
+        int body = position + RECORD_HEADER;
+        if (buffer.getLong(body) != expectedSequence) {
+            return null;
+        }
+        int reviewLength = buffer.getInt(body + 49);
+        if (reviewLength == NO_REVIEW ? length != RECORD_BODY : reviewLength != length - RECORD_BODY) {
+            return null;
+        }
+        String review = null;
+        if (reviewLength != NO_REVIEW) {
+            byte[] reviewBytes = new byte[reviewLength];
+            buffer.get(body + RECORD_BODY, reviewBytes);
+            review = new String(reviewBytes, StandardCharsets.UTF_8);
+        }
+        return new JournalRecord(expectedSequence, position, getUuid(body + 16), getUuid(body + 32),
+                buffer.get(body + 48), review, buffer.getLong(body + 8));
+    }
+
+    private void readCheckpoint() {
+        currentSlot = -1;
+        for (int index = 0; index < SLOTS.length; index++) {
+            int slot = SLOTS[index];
+            if (buffer.getInt(slot + 12) != slotCrc(slot)) {
+                continue;
+            }
+            long sequence = buffer.getLong(slot);
+            if (currentSlot < 0 || sequence > checkpointSequence) {
+                currentSlot = index;
+                checkpointSequence = sequence;
+                checkpointOffset = buffer.getInt(slot + 8);
+            }
+        }
+        if (currentSlot < 0) {
+            throw new IllegalStateException("Rating journal has no valid checkpoint");
+        }
+    }
+
+    // covers the length too, so a torn length is caught as well
+    private int recordCrc(int position, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(position, 4));
+        crc.update(buffer.slice(position + RECORD_HEADER, length));
+        return (int) crc.getValue();
+    }
+
+    private int slotCrc(int slot) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(slot, 12));
+        return (int) crc.getValue();
+    }
+
+    private void putUuid(int position, UUID uuid) {
+        buffer.putLong(position, uuid.getMostSignificantBits());
+        buffer.putLong(position + 8, uuid.getLeastSignificantBits());
+    }
+
+    private UUID getUuid(int position) {
+        return new UUID(buffer.getLong(position), buffer.getLong(position + 8));
+    }
+}
@@ -0,0 +1,9 @@
+package com.sky.movieratingservice.domain.journal;
+
+import java.util.UUID;
+
+/**
+ * Identity of a rating: one per user and movie, like {@code uk_ratings_user_movie}.
+ */
+public record RatingKey(UUID userId, UUID movieId) {
+}
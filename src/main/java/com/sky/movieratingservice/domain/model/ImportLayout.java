@@ -0,0 +1,17 @@
+package com.sky.movieratingservice.domain.model;
+
+/**
+ * Column layout of a CSV file handed to the catalog importer.
+ */
+public enum ImportLayout {
+    /**
+     * MovieLens files: {@code movieId,title,genres} and {@code userId,movieId,rating,timestamp}.
+     * MovieLens ids are mapped to stable UUIDs and every MovieLens user becomes a user that cannot log in.
+     */
+    MOVIELENS,
+    /**
+     * This service's own columns: {@code movie_id,name,director,genre,release_year,description} for movies and
+     * the ratings export columns {@code id,movie_id,user_id,rating_value,review,created_at,updated_at} for ratings.
+     */
+    NATIVE
+}
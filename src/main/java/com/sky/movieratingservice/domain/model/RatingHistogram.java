@@ -0,0 +1,134 @@
+package com.sky.movieratingservice.domain.model;
+
+import java.util.Arrays;
+
+/**
+ * Number of ratings per rating value 1..10. Rating writers use it as a change to a movie's histogram, with
+ * negative counts for ratings taken away; the sum and count deltas of the stats row follow from it. Read back
+ * from the stats row it answers distribution queries by walking the ten buckets, whatever the number of ratings.
+ */
+public final class RatingHistogram {
+    public static final int MIN_RATING = 1;
+    public static final int MAX_RATING = 10;
+    public static final int BUCKETS = MAX_RATING - MIN_RATING + 1;
+
+    private final long[] counts;
+
+    public RatingHistogram() {
+        this.counts = new long[BUCKETS];
+    }
+
+    private RatingHistogram(long[] counts) {
+        this.counts = counts;
+    }
+
+    public static RatingHistogram of(long[] counts) {
+        if (counts.length != BUCKETS) {
+            throw new IllegalArgumentException("A rating histogram has " + BUCKETS + " buckets, got " + counts.length);
+        }
+        return new RatingHistogram(counts.clone());
+    }
+
+    public RatingHistogram add(int ratingValue) {
+        counts[bucket(ratingValue)]++;
+        return this;
+    }
+
+    public RatingHistogram remove(int ratingValue) {
+        counts[bucket(ratingValue)]--;
+        return this;
+    }
+
+    public RatingHistogram change(int previousValue, int ratingValue) {
+        return remove(previousValue).add(ratingValue);
+    }
+
+    public long count(int ratingValue) {
+        return counts[bucket(ratingValue)];
+    }
+
+    public long count() {
+        return Arrays.stream(counts).sum();
+    }
+
+    public long sum() {
+        long sum = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            sum += (MIN_RATING + i) * counts[i];
+        }
+        return sum;
+    }
+
+    public boolean isEmpty() {
+        return Arrays.stream(counts).allMatch(count -> count == 0);
+    }
+
+    public double mean() {
+        long count = count();
+        return count == 0 ? 0.0 : (double) sum() / count;
+    }
+
+    /**
+     * The middle rating, or the mean of the two middle ratings for an even count; empty histograms have none.
+     */
+    public Double median() {
+        long count = count();
+        if (count == 0) {
+            return null;
+        }
+        return (valueAtRank((count + 1) / 2) + valueAtRank(count / 2 + 1)) / 2.0;
+    }
+
+    /**
+     * Nearest-rank percentile: the smallest rating that at least {@code percentile}% of the ratings are at or below.
+     */
+    public Integer percentile(double percentile) {
+        if (percentile <= 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile must be in (0, 100]");
+        }
+        long count = count();
+        if (count == 0) {
+            return null;
+        }
+        return valueAtRank((long) Math.ceil(percentile / 100 * count));
+    }
+
+    // Counts in bucket order, as bound to the rating_histogram column
+    public Long[] toArray() {
+        return Arrays.stream(counts).boxed().toArray(Long[]::new);
+    }
+
+    // The rating at 1-based rank in ascending order
+    private int valueAtRank(long rank) {
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return MIN_RATING + i;
+            }
+        }
+        throw new IllegalStateException("Rank " + rank + " is beyond the histogram");
+    }
+
+    private static int bucket(int ratingValue) {
+        if (ratingValue < MIN_RATING || ratingValue > MAX_RATING) {
+            throw new IllegalArgumentException("Rating value must be between " + MIN_RATING + " and " + MAX_RATING);
+        }
+        return ratingValue - MIN_RATING;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof RatingHistogram histogram && Arrays.equals(counts, histogram.counts);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(counts);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(counts);
+    }
+}
@@ -0,0 +1,16 @@
+package com.sky.movieratingservice.domain.model;
+
+import com.sky.movieratingservice.domain.journal.RatingKey;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A single rating write waiting to be committed together with others, stamped with the time it was submitted.
+ */
+public record RatingWrite(UUID userId, UUID movieId, int ratingValue, String review, LocalDateTime acceptedAt) {
+
+    public RatingKey key() {
+        return new RatingKey(userId, movieId);
+    }
+}
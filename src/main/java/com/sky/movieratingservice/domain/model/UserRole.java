@@ -0,0 +1,12 @@
+package com.sky.movieratingservice.domain.model;
+
+/**
+ * Role of a user account, granted to its tokens as the {@code ROLE_<name>} authority.
+ */
+public enum UserRole {
+    USER,
+    /**
+     * May use the admin endpoints such as the bulk catalog import. Only granted directly in the database.
+     */
+    ADMIN
+}
@@ -0,0 +1,24 @@
+package com.sky.movieratingservice.domain.ranking;
+
+/**
+ * IMDb-style weighted rating: a movie's own ratings are blended with {@code minVotes} imaginary ratings at the
+ * overall mean, {@code (v/(v+m))·R + (m/(v+m))·C}, so a movie with a single 10/10 no longer outranks one with
+ * hundreds of 9s. {@link #NONE} ranks by the plain average.
+ */
+public record BayesianPrior(double minVotes, double meanRating) {
+
+    public static final BayesianPrior NONE = new BayesianPrior(0, 0);
+
+    public BayesianPrior {
+        if (minVotes < 0) {
+            throw new IllegalArgumentException("minVotes must not be negative");
+        }
+    }
+
+    public double score(long ratingSum, long ratingCount) {
+        if (ratingCount == 0) {
+            return 0.0;
+        }
+        return (ratingSum + minVotes * meanRating) / (ratingCount + minVotes);
+    }
+}
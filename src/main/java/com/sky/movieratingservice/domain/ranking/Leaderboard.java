@@ -0,0 +1,128 @@
+package com.sky.movieratingservice.domain.ranking;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Movies ordered by (weighted rating desc, rating count desc, movie id), the weighted rating being the
+ * {@link BayesianPrior} score of the movie's aggregates; without a prior that is the plain average.
+ * Movies with fewer than {@code minRatings} ratings are not ranked.
+ * <p>
+ * Writers are serialized by a lock and keep the full ordering; after each change that can affect the head of
+ * the ranking they publish an immutable copy of the first {@code capacity} entries. Readers only ever see
+ * that published snapshot, so {@link #top(int)} never blocks and never observes a half-applied update.
+ */
+public class Leaderboard {
+
+    private final int capacity;
+    private final BayesianPrior prior;
+    private final long minRatings;
+    private final Comparator<LeaderboardEntry> ranking;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final NavigableSet<LeaderboardEntry> ranked;
+    private final Map<UUID, LeaderboardEntry> entries = new ConcurrentHashMap<>();
+    private volatile List<LeaderboardEntry> top = List.of();
+
+    public Leaderboard(int capacity) {
+        this(capacity, BayesianPrior.NONE);
+    }
+
+    public Leaderboard(int capacity, BayesianPrior prior) {
+        this(capacity, prior, 1);
+    }
+
+    public Leaderboard(int capacity, BayesianPrior prior, long minRatings) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Leaderboard capacity must be positive");
+        }
+        if (minRatings < 1) {
+            throw new IllegalArgumentException("minRatings must be positive");
+        }
+        this.capacity = capacity;
+        this.prior = prior;
+        this.minRatings = minRatings;
+        this.ranking = Comparator
+                .comparingDouble((LeaderboardEntry entry) -> prior.score(entry.ratingSum(), entry.ratingCount())).reversed()
+                .thenComparing(Comparator.comparingLong(LeaderboardEntry::ratingCount).reversed())
+                .thenComparing(LeaderboardEntry::movieId);
+        this.ranked = new TreeSet<>(ranking);
+    }
+
+    /**
+     * Applies the entry unless a newer version of the same movie has already been applied.
+     * Entries with fewer than {@code minRatings} ratings are tracked (to reject stale updates) but not ranked.
+     *
+     * @return true if the entry was applied
+     */
+    public boolean update(LeaderboardEntry entry) {
+        writeLock.lock();
+        try {
+            LeaderboardEntry current = entries.get(entry.movieId());
+            if (current != null && current.version() >= entry.version()) {
+                return false;
+            }
+            if (current != null) {
+                ranked.remove(current);
+            }
+            entries.put(entry.movieId(), entry);
+            if (entry.ratingCount() >= minRatings) {
+                ranked.add(entry);
+            }
+            if (affectsTop(current, entry)) {
+                publish();
+            }
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public Optional<LeaderboardEntry> get(UUID movieId) {
+        return Optional.ofNullable(entries.get(movieId));
+    }
+
+    /**
+     * Returns up to {@code limit} best ranked movies from the last published snapshot.
+     */
+    public List<LeaderboardEntry> top(int limit) {
+        List<LeaderboardEntry> snapshot = top;
+        return snapshot.size() <= limit ? snapshot : snapshot.subList(0, limit);
+    }
+
+    /**
+     * Every entry applied so far, ranked or not, in no particular order.
+     */
+    public Collection<LeaderboardEntry> entries() {
+        return Collections.unmodifiableCollection(entries.values());
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public BayesianPrior prior() {
+        return prior;
+    }
+
+    private boolean affectsTop(LeaderboardEntry previous, LeaderboardEntry updated) {
+        List<LeaderboardEntry> snapshot = top;
+        if (snapshot.size() < capacity) {
+            return true;
+        }
+        LeaderboardEntry last = snapshot.getLast();
+        return (previous != null && ranking.compare(previous, last) <= 0)
+                || ranking.compare(updated, last) <= 0;
+    }
+
+    private void publish() {
+        List<LeaderboardEntry> head = new ArrayList<>(Math.min(capacity, ranked.size()));
+        for (LeaderboardEntry entry : ranked) {
+            if (head.size() == capacity) {
+                break;
+            }
+            head.add(entry);
+        }
+        top = List.copyOf(head);
+    }
+}
@@ -0,0 +1,29 @@
+package com.sky.movieratingservice.domain.ranking;
+
+import java.util.UUID;
+
+/**
+ * Immutable leaderboard row: a movie summary together with the rating aggregates it is ranked by.
+ */
+public record LeaderboardEntry(UUID movieId,
+                               String name,
+                               String description,
+                               Integer releaseYear,
+                               String genre,
+                               String director,
+                               long ratingSum,
+                               long ratingCount,
+                               double avgRating,
+                               long version) {
+
+    public static LeaderboardEntry of(UUID movieId, String name, String description, Integer releaseYear,
+                                      String genre, String director, long ratingSum, long ratingCount, long version) {
+        double avgRating = ratingCount == 0 ? 0.0 : (double) ratingSum / ratingCount;
+        return new LeaderboardEntry(movieId, name, description, releaseYear, genre, director,
+                ratingSum, ratingCount, avgRating, version);
+    }
+
+    public LeaderboardEntry withStats(long ratingSum, long ratingCount, long version) {
+        return of(movieId, name, description, releaseYear, genre, director, ratingSum, ratingCount, version);
+    }
+}
@@ -0,0 +1,49 @@
+package com.sky.movieratingservice.domain.ranking;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The movies a leaderboard ranks: all of them ({@link #ALL}), one genre, one release decade, or a genre within a
+ * decade. Genres compare case-insensitively; a decade is the first year of it, 1990 for the 90s.
+ */
+public record LeaderboardScope(String genre, Integer decade) {
+
+    public static final LeaderboardScope ALL = new LeaderboardScope(null, null);
+
+    public LeaderboardScope {
+        genre = genre == null || genre.isBlank() ? null : genre.trim().toLowerCase(Locale.ROOT);
+        if (decade != null && decade % 10 != 0) {
+            throw new IllegalArgumentException("A decade is given by its first year, e.g. 1990");
+        }
+    }
+
+    public static Integer decadeOf(Integer releaseYear) {
+        return releaseYear == null ? null : Math.floorDiv(releaseYear, 10) * 10;
+    }
+
+    /**
+     * Every scope the movie is ranked in, {@link #ALL} first.
+     */
+    public static List<LeaderboardScope> of(LeaderboardEntry entry) {
+        LeaderboardScope genre = new LeaderboardScope(entry.genre(), null);
+        LeaderboardScope decade = new LeaderboardScope(null, decadeOf(entry.releaseYear()));
+        List<LeaderboardScope> scopes = new ArrayList<>(4);
+        scopes.add(ALL);
+        if (genre.genre() != null) {
+            scopes.add(genre);
+        }
+        if (decade.decade() != null) {
+            scopes.add(decade);
+        }
+        if (genre.genre() != null && decade.decade() != null) {
+            scopes.add(new LeaderboardScope(genre.genre(), decade.decade()));
+        }
+        return scopes;
+    }
+
+    public boolean isAll() {
+        return genre == null && decade == null;
+    }
+}
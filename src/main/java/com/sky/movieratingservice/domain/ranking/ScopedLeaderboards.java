@@ -0,0 +1,74 @@
+package com.sky.movieratingservice.domain.ranking;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One {@link Leaderboard} per {@link LeaderboardScope}, all ranking with the same prior. Every entry goes to the
+ * overall leaderboard and to those of its genre, its decade and its genre within its decade, which are created as
+ * the first movie of a scope arrives. Scoped leaderboards only rank movies with at least {@code scopedMinRatings}
+ * ratings, so a narrow scope is not topped by a movie a handful of people rated.
+ */
+public class ScopedLeaderboards {
+
+    private final int capacity;
+    private final BayesianPrior prior;
+    private final long scopedMinRatings;
+    private final Map<LeaderboardScope, Leaderboard> boards = new ConcurrentHashMap<>();
+
+    public ScopedLeaderboards(int capacity, BayesianPrior prior, long scopedMinRatings) {
+        this.capacity = capacity;
+        this.prior = prior;
+        this.scopedMinRatings = scopedMinRatings;
+        boards.put(LeaderboardScope.ALL, new Leaderboard(capacity, prior));
+    }
+
+    /**
+     * Applies the entry to each leaderboard of its scopes, each rejecting it if it already holds a newer version.
+     *
+     * @return true if the overall leaderboard applied it
+     */
+    public boolean update(LeaderboardEntry entry) {
+        boolean applied = false;
+        for (LeaderboardScope scope : LeaderboardScope.of(entry)) {
+            boolean boardApplied = boards.computeIfAbsent(scope, this::create).update(entry);
+            applied |= scope.isAll() && boardApplied;
+        }
+        return applied;
+    }
+
+    public Optional<LeaderboardEntry> get(UUID movieId) {
+        return overall().get(movieId);
+    }
+
+    /**
+     * Returns up to {@code limit} best ranked movies of the scope, none for a scope without rated movies.
+     */
+    public List<LeaderboardEntry> top(LeaderboardScope scope, int limit) {
+        Leaderboard board = boards.get(scope);
+        return board == null ? List.of() : board.top(limit);
+    }
+
+    /**
+     * Every entry applied so far, in no particular order.
+     */
+    public Collection<LeaderboardEntry> entries() {
+        return overall().entries();
+    }
+
+    public int scopes() {
+        return boards.size();
+    }
+
+    private Leaderboard overall() {
+        return boards.get(LeaderboardScope.ALL);
+    }
+
+    private Leaderboard create(LeaderboardScope scope) {
+        return new Leaderboard(capacity, prior, scopedMinRatings);
+    }
+}
@@ -0,0 +1,169 @@
+package com.sky.movieratingservice.domain.repository;
+
+import com.sky.movieratingservice.domain.entity.MovieRatingStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface MovieRatingStatsRepository extends JpaRepository<MovieRatingStats, UUID> {
+
+    /**
+     * Adds the given deltas to the movie's aggregates, creating the row on first rating.
+     * Runs as a single upsert so concurrent writers serialize on the stats row instead of racing on insert,
+     * and returns the aggregates as they are after the change. The histogram delta holds one count per rating value.
+     */
+    @Query(value = """
+            INSERT INTO movie_rating_stats AS s (movie_id, rating_sum, rating_count, rating_histogram, version, updated_at)
+            VALUES (:movieId, :sumDelta, :countDelta, CAST(:histogramDelta AS bigint[]), 1, CURRENT_TIMESTAMP)
+            ON CONFLICT (movie_id) DO UPDATE
+            SET rating_sum = s.rating_sum + EXCLUDED.rating_sum,
+                rating_count = s.rating_count + EXCLUDED.rating_count,
+                rating_histogram = rating_histogram_add(s.rating_histogram, EXCLUDED.rating_histogram),
+                version = s.version + 1,
+                updated_at = EXCLUDED.updated_at
+            RETURNING s.movie_id as movieId,
+                      s.rating_sum as ratingSum,
+                      s.rating_count as ratingCount,
+                      s.version as version
+            """, nativeQuery = true)
+    StatsSnapshot applyDelta(@Param("movieId") UUID movieId,
+                             @Param("sumDelta") long sumDelta,
+                             @Param("countDelta") long countDelta,
+                             @Param("histogramDelta") Long[] histogramDelta);
+
+    /**
+     * {@link #applyDelta} for many movies in one statement, the arrays holding one entry per movie and the
+     * histogram deltas ten consecutive entries per movie.
+     * Rows are written in movie id order, so concurrent batches lock stats rows in the same order.
+     */
+    @Query(value = """
+            INSERT INTO movie_rating_stats AS s (movie_id, rating_sum, rating_count, rating_histogram, version, updated_at)
+            SELECT d.movie_id, d.sum_delta, d.count_delta,
+                   (CAST(:histogramDeltas AS bigint[]))[(d.ord - 1) * 10 + 1 : d.ord * 10], 1, CURRENT_TIMESTAMP
+            FROM unnest(CAST(:movieIds AS uuid[]), CAST(:sumDeltas AS bigint[]), CAST(:countDeltas AS bigint[]))
+                 WITH ORDINALITY AS d(movie_id, sum_delta, count_delta, ord)
+            ORDER BY d.movie_id
+            ON CONFLICT (movie_id) DO UPDATE
+            SET rating_sum = s.rating_sum + EXCLUDED.rating_sum,
+                rating_count = s.rating_count + EXCLUDED.rating_count,
+                rating_histogram = rating_histogram_add(s.rating_histogram, EXCLUDED.rating_histogram),
+                version = s.version + 1,
+                updated_at = EXCLUDED.updated_at
+            RETURNING s.movie_id as movieId,
+                      s.rating_sum as ratingSum,
+                      s.rating_count as ratingCount,
+                      s.version as version
+            """, nativeQuery = true)
+    List<StatsSnapshot> applyDeltas(@Param("movieIds") UUID[] movieIds,
+                                    @Param("sumDeltas") Long[] sumDeltas,
+                                    @Param("countDeltas") Long[] countDeltas,
+                                    @Param("histogramDeltas") Long[] histogramDeltas);
+
+    /**
+     * The {@code limit} best movies by weighted score, walking idx_movie_rankings_score. The order is as of the last
+     * refresh of {@code movie_rankings}; the aggregates are the current ones.
+     */
+    @Query(value = """
+            SELECT m.movie_id as movieId,
+                   m.name as movieName,
+                   m.description as movieDescription,
+                   m.release_year as releaseYear,
+                   m.genre as genre,
+                   m.director as director,
+                   s.rating_sum as ratingSum,
+                   s.rating_count as ratingCount,
+                   s.version as version
+            FROM movie_rankings r
+            JOIN movie_rating_stats s ON s.movie_id = r.movie_id
+            JOIN movies m ON m.movie_id = r.movie_id
+            WHERE s.rating_count > 0
+            ORDER BY r.weighted_score DESC, r.rating_count DESC, r.movie_id
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<RankedMovie> findTopRankedMovies(@Param("limit") int limit);
+
+    /**
+     * The movies among the {@code limit} best by weighted score of their genre, of their release decade or of
+     * their genre within that decade, counting only movies with at least {@code minRatings} ratings. Reads every
+     * ranked movie, so it is meant for rebuilding the scoped leaderboards after a refresh, not per request.
+     */
+    @Query(value = """
+            SELECT movieId, movieName, movieDescription, releaseYear, genre, director, ratingSum, ratingCount, version
+            FROM (SELECT m.movie_id as movieId,
+                         m.name as movieName,
+                         m.description as movieDescription,
+                         m.release_year as releaseYear,
+                         m.genre as genre,
+                         m.director as director,
+                         s.rating_sum as ratingSum,
+                         s.rating_count as ratingCount,
+                         s.version as version,
+                         row_number() OVER (PARTITION BY lower(m.genre)
+                                            ORDER BY r.weighted_score DESC, r.rating_count DESC, r.movie_id) as genreRank,
+                         row_number() OVER (PARTITION BY m.release_year / 10
+                                            ORDER BY r.weighted_score DESC, r.rating_count DESC, r.movie_id) as decadeRank,
+                         row_number() OVER (PARTITION BY lower(m.genre), m.release_year / 10
+                                            ORDER BY r.weighted_score DESC, r.rating_count DESC, r.movie_id) as genreDecadeRank
+                  FROM movie_rankings r
+                  JOIN movie_rating_stats s ON s.movie_id = r.movie_id
+                  JOIN movies m ON m.movie_id = r.movie_id
+                  WHERE s.rating_count >= :minRatings) ranked
+            WHERE genreRank <= :limit OR decadeRank <= :limit OR genreDecadeRank <= :limit
+            """, nativeQuery = true)
+    List<RankedMovie> findTopRankedMoviesPerScope(@Param("limit") int limit, @Param("minRatings") long minRatings);
+
+    /**
+     * The prior {@code movie_rankings} was last refreshed with, empty while no movie has ratings.
+     */
+    @Query(value = "SELECT min_votes as minVotes, mean_rating as meanRating FROM movie_rankings LIMIT 1",
+            nativeQuery = true)
+    Optional<RankingPrior> findRankingPrior();
+
+    /**
+     * Takes the rankings refresh lock for the current transaction, unless another instance holds it.
+     */
+    @Query(value = "SELECT pg_try_advisory_xact_lock(hashtext('movie_rankings'))", nativeQuery = true)
+    boolean tryLockRankingsRefresh();
+
+    // Read by the movie_rankings definition while it is refreshed in the current transaction
+    @Query(value = "SELECT set_config('movie_rankings.min_votes', :minVotes, true)", nativeQuery = true)
+    String setRankingMinVotes(@Param("minVotes") String minVotes);
+
+    @Modifying
+    @Query(value = "REFRESH MATERIALIZED VIEW CONCURRENTLY movie_rankings", nativeQuery = true)
+    void refreshRankings();
+
+    // Projection of the aggregates returned by applyDelta
+    interface StatsSnapshot {
+        UUID getMovieId();
+        long getRatingSum();
+        long getRatingCount();
+        long getVersion();
+    }
+
+    // Prior of the weighted scores in movie_rankings
+    interface RankingPrior {
+        double getMinVotes();
+        double getMeanRating();
+    }
+
+    // Projection of a movie together with its aggregates
+    interface RankedMovie {
+        UUID getMovieId();
+        String getMovieName();
+        String getMovieDescription();
+        Integer getReleaseYear();
+        String getGenre();
+        String getDirector();
+        long getRatingSum();
+        long getRatingCount();
+        long getVersion();
+    }
+}
@@ -1,13 +1,16 @@
 package com.sky.movieratingservice.domain.repository;
 
 import com.sky.movieratingservice.domain.entity.Movie;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -15,6 +18,22 @@ import java.util.UUID;
 @Repository
 public interface MovieRepository extends JpaRepository<Movie, UUID> {
     Page<Movie> findAll(Pageable pageable);
+
+    // Offset page without the count query a Page needs
+    Slice<Movie> findAllBy(Pageable pageable);
+
+    List<Movie> findAllByOrderByNameAscIdAsc(Limit limit);
+
+    /**
+     * Keyset page: the movies ordered after (name, id), served from idx_movies_name (name, movie_id)
+     * so every page costs the same regardless of how deep it is.
+     */
+    @Query("""
+            SELECT m FROM Movie m
+            WHERE (m.name, m.id) > (:name, :id)
+            ORDER BY m.name, m.id
+            """)
+    List<Movie> findAllAfter(@Param("name") String name, @Param("id") UUID id, Limit limit);
     @Query("""
               SELECT m FROM Movie m
               LEFT JOIN FETCH m.ratings r
@@ -48,22 +67,82 @@ public interface MovieRepository extends JpaRepository<Movie, UUID> {
             """)
     Page<MovieStatistics> findMoviesWithStatistics(Pageable pageable);
 
+    /**
+     * What a movie's details are versioned by: when the movie was last changed and its statistics version, read
+     * with one primary key lookup per table. Empty if the movie does not exist.
+     */
+    @Query("""
+            SELECT m.updatedAt AS updatedAt, s.version AS statsVersion
+            FROM Movie m
+            LEFT JOIN MovieRatingStats s ON s.movieId = m.id
+            WHERE m.id = :movieId
+            """)
+    Optional<DetailVersion> findDetailVersionById(@Param("movieId") UUID movieId);
+
+    /**
+     * Ids and change times of an offset page of movies, as listed by {@link #findAllBy}, read from the name index
+     * without loading the movies.
+     */
+    List<RowVersion> findVersionsBy(Pageable pageable);
+
+    /**
+     * Ids and change times of the first movies by name, as listed by {@link #findAllByOrderByNameAscIdAsc}.
+     */
+    List<RowVersion> findVersionsByOrderByNameAscIdAsc(Limit limit);
+
+    /**
+     * Ids and change times of the keyset page {@link #findAllAfter} lists.
+     */
     @Query("""
-        SELECT m.id as movieId,
-               m.name as movieName,
-               m.description as movieDescription,
-               m.releaseYear as releaseYear,
-               m.genre as genre,
-               m.director as director,
-               AVG(r.ratingValue) as avgRating,
-               COUNT(r.id) as ratingCount
-        FROM Movie m
-        INNER JOIN m.ratings r
-        GROUP BY m.id, m.name, m.description, m.releaseYear, m.genre, m.director
-        HAVING COUNT(r.id) >= :minRatings
-        ORDER BY avgRating DESC, ratingCount DESC
-        """)
-    Page<MovieStatistics> findTopRatedMovies(@Param("minRatings") long minRatings, Pageable pageable);
+            SELECT m.id AS id, m.updatedAt AS updatedAt FROM Movie m
+            WHERE (m.name, m.id) > (:name, :id)
+            ORDER BY m.name, m.id
+            """)
+    List<RowVersion> findVersionsAfter(@Param("name") String name, @Param("id") UUID id, Limit limit);
+
+    /**
+     * Every movie with its number of ratings, for building the typeahead index.
+     */
+    @Query(value = """
+            SELECT m.movie_id as movieId,
+                   m.name as movieName,
+                   m.director as director,
+                   m.release_year as releaseYear,
+                   COALESCE(s.rating_count, 0) as ratingCount
+            FROM movies m
+            LEFT JOIN movie_rating_stats s ON s.movie_id = m.movie_id
+            """, nativeQuery = true)
+    List<SuggestionSource> findAllForSuggestions();
+
+    /**
+     * One page of the movies matching a web-search style query (quoted phrases, {@code or}, {@code -word}), best
+     * first, continuing after the given score and id. The score is {@code ts_rank} over name, director and
+     * description, multiplied by {@code 1 + boost * weighted_score / 10} from {@code movie_rankings}, so a boost of
+     * 1 up to doubles it for the best rated movies and 0 leaves it untouched. Matches are found with the GIN index
+     * on {@code search_vector}; only the rows of the page get a snippet, with its matches between the control
+     * characters STX and ETX.
+     */
+    @Query(value = """
+            SELECT h.movie_id AS movieId,
+                   h.name AS movieName,
+                   h.director AS director,
+                   h.release_year AS releaseYear,
+                   h.score AS score,
+                   ts_headline('english', coalesce(h.description, h.name), websearch_to_tsquery('english', :query),
+                               E'MaxFragments=2, MinWords=5, MaxWords=20, StartSel="\\x02", StopSel="\\x03"') AS snippet
+            FROM (
+                SELECT m.movie_id, m.name, m.director, m.release_year, m.description,
+                       ts_rank(m.search_vector, websearch_to_tsquery('english', :query))::double precision
+                           * (1 + :boost * COALESCE(r.weighted_score, 0) / 10) AS score
+                FROM movies m
+                LEFT JOIN movie_rankings r ON r.movie_id = m.movie_id
+                WHERE m.search_vector @@ websearch_to_tsquery('english', :query)
+            ) h
+            WHERE (h.score, h.movie_id) < (:afterScore, :afterId)
+            ORDER BY h.score DESC, h.movie_id DESC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<MovieSearchHit> searchMovies(String query, double boost, double afterScore, UUID afterId, int limit);
 
     // Projection interface for statistics
     interface MovieStatistics {
@@ -76,4 +155,35 @@ public interface MovieRepository extends JpaRepository<Movie, UUID> {
         Double getAvgRating();
         Long getRatingCount();
     }
+
+    // Projection of what a movie's details are versioned by, statsVersion is null before its first rating
+    interface DetailVersion {
+        LocalDateTime getUpdatedAt();
+        Long getStatsVersion();
+    }
+
+    // Projection of a listed movie's id and change time, what a page of movies is versioned by
+    interface RowVersion {
+        UUID getId();
+        LocalDateTime getUpdatedAt();
+    }
+
+    // Projection of a movie as indexed by the typeahead
+    interface SuggestionSource {
+        UUID getMovieId();
+        String getMovieName();
+        String getDirector();
+        Integer getReleaseYear();
+        long getRatingCount();
+    }
+
+    // Projection of a movie matching a search, with its highlighted snippet
+    interface MovieSearchHit {
+        UUID getMovieId();
+        String getMovieName();
+        String getDirector();
+        Integer getReleaseYear();
+        double getScore();
+        String getSnippet();
+    }
 }
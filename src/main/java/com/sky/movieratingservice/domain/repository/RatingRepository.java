@@ -1,13 +1,19 @@
 package com.sky.movieratingservice.domain.repository;
 
 import com.sky.movieratingservice.domain.entity.Rating;
+import com.sky.movieratingservice.domain.model.RatingExportRow;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
 public interface RatingRepository extends JpaRepository<Rating, UUID> {
@@ -32,4 +38,308 @@ public interface RatingRepository extends JpaRepository<Rating, UUID> {
             order by r.createdAt desc
             """)
     List<Rating> findByUserIdWithDetails(UUID userId);
+
+    // Bulk exports read far more rows per round trip than the default hibernate.jdbc.fetch_size
+    String EXPORT_FETCH_SIZE = "1000";
+
+    // Rating listing columns, joined once so mapping never touches a lazy association
+    String RATING_VIEW_SELECT = """
+            select r.id as id,
+                   u.id as userId,
+                   u.email as userEmail,
+                   m.id as movieId,
+                   m.name as movieName,
+                   r.ratingValue as ratingValue,
+                   r.review as review,
+                   r.createdAt as createdAt,
+                   r.updatedAt as updatedAt
+            from Rating r
+            join r.user u
+            join r.movie m
+            """;
+
+    @Query(RATING_VIEW_SELECT + """
+            where m.id = :movieId
+            """)
+    List<RatingView> findViewsByMovieId(UUID movieId);
+
+    @Query(RATING_VIEW_SELECT + """
+            where u.id = :userId
+            order by r.createdAt desc
+            """)
+    List<RatingView> findViewsByUserId(UUID userId);
+
+    /**
+     * What the ratings {@link #findViewsByUserId} lists are versioned by: their ids and change times and the names
+     * of the rated movies, read without the other listing columns.
+     */
+    @Query("""
+            select r.id as id, r.updatedAt as updatedAt, m.name as movieName
+            from Rating r
+            join r.movie m
+            where r.user.id = :userId
+            """)
+    List<RatingVersion> findVersionsByUserId(UUID userId);
+
+    @Query(RATING_VIEW_SELECT + """
+            where u.id = :userId and m.id = :movieId
+            """)
+    Optional<RatingView> findViewByUserIdAndMovieId(UUID userId, UUID movieId);
+
+    /**
+     * Forward-only stream of a movie's ratings as read-only rows. Must be consumed inside a transaction;
+     * rows are fetched from a server-side cursor in batches of {@code hibernate.jdbc.fetch_size}.
+     */
+    @Query(RATING_VIEW_SELECT + """
+            where m.id = :movieId
+            """)
+    Stream<RatingView> streamByMovieId(UUID movieId);
+
+    /**
+     * The whole ratings table in {@code (created_at, rating_id)} order, streamed from a server-side cursor.
+     * User and movie ids come from the rating's own foreign keys, so nothing is joined.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE))
+    @Query("""
+            select new com.sky.movieratingservice.domain.model.RatingExportRow(
+                   r.id, r.movie.id, r.user.id, r.ratingValue, r.review, r.createdAt, r.updatedAt)
+            from Rating r
+            order by r.createdAt, r.id
+            """)
+    Stream<RatingExportRow> streamAllForExport();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE))
+    @Query("""
+            select new com.sky.movieratingservice.domain.model.RatingExportRow(
+                   r.id, r.movie.id, r.user.id, r.ratingValue, r.review, r.createdAt, r.updatedAt)
+            from Rating r
+            where (r.createdAt, r.id) > (:createdAt, :ratingId)
+            order by r.createdAt, r.id
+            """)
+    Stream<RatingExportRow> streamAllForExportAfter(LocalDateTime createdAt, UUID ratingId);
+
+    /**
+     * Creates or updates the user's rating of the movie in one statement and returns it as a listing row.
+     * The foreign keys check that user and movie exist, so an unknown one fails the statement. The existing rating
+     * is locked before it is compared and left untouched when value and review are unchanged. Comes back empty only
+     * when a concurrent first rating of the same movie committed after the statement started; running it again
+     * then updates that rating.
+     */
+    @Query(value = """
+            WITH locked AS (
+                SELECT rating_id, rating_value, review, created_at, updated_at
+                FROM ratings
+                WHERE user_id = :userId AND movie_id = :movieId
+                FOR UPDATE
+            ),
+            updated AS (
+                UPDATE ratings r
+                SET rating_value = :ratingValue, review = CAST(:review AS text), updated_at = CURRENT_TIMESTAMP
+                FROM locked l
+                WHERE r.rating_id = l.rating_id
+                  AND (l.rating_value, l.review) IS DISTINCT FROM (:ratingValue, CAST(:review AS text))
+                RETURNING r.rating_id, r.rating_value, r.review, r.created_at, r.updated_at, l.rating_value AS previous_value
+            ),
+            inserted AS (
+                INSERT INTO ratings (rating_id, user_id, movie_id, rating_value, review, created_at, updated_at)
+                SELECT gen_random_uuid(), :userId, :movieId, :ratingValue, CAST(:review AS text), CURRENT_TIMESTAMP, CURRENT_TIMESTAMP
+                WHERE NOT EXISTS (SELECT 1 FROM locked)
+                ON CONFLICT (user_id, movie_id) DO NOTHING
+                RETURNING rating_id, rating_value, review, created_at, updated_at
+            ),
+            written AS (
+                SELECT rating_id, rating_value, review, created_at, updated_at, previous_value, false AS inserted
+                FROM updated
+                UNION ALL
+                SELECT rating_id, rating_value, review, created_at, updated_at, NULL, true
+                FROM inserted
+                UNION ALL
+                SELECT rating_id, rating_value, review, created_at, updated_at, rating_value, false
+                FROM locked
+                WHERE NOT EXISTS (SELECT 1 FROM updated)
+            )
+            SELECT w.rating_id AS id,
+                   u.user_id AS userId,
+                   u.email AS userEmail,
+                   m.movie_id AS movieId,
+                   m.name AS movieName,
+                   w.rating_value AS ratingValue,
+                   w.review AS review,
+                   w.created_at AS createdAt,
+                   w.updated_at AS updatedAt,
+                   w.previous_value AS previousValue,
+                   w.inserted AS inserted
+            FROM written w
+            JOIN users u ON u.user_id = :userId
+            JOIN movies m ON m.movie_id = :movieId
+            """, nativeQuery = true)
+    Optional<WrittenRating> upsert(UUID userId, UUID movieId, int ratingValue, String review);
+
+    /**
+     * Writes ratings of many users at once, the arrays being the columns of the rows to write, with the time each
+     * write was accepted as the update time of an existing rating, and returns them as listing rows. New ratings are
+     * stamped with the database time instead, like {@link #upsert} does: the export resumes by {@code created_at},
+     * which must not lag behind the commit by however long a write sat in a buffer. Works like {@link #upsert} per row:
+     * existing ratings are locked in key order and only rewritten when changed. Rows of unknown users or movies are
+     * skipped, as are first ratings that lose to a concurrent insert, so both are simply missing from the result.
+     * Each user and movie pair may appear only once.
+     */
+    @Query(value = """
+            WITH input AS (
+                SELECT *
+                FROM unnest(CAST(:userIds AS uuid[]), CAST(:movieIds AS uuid[]), CAST(:ratingValues AS integer[]),
+                            CAST(:reviews AS text[]), CAST(:acceptedAt AS timestamp[]))
+                     AS i(user_id, movie_id, rating_value, review, accepted_at)
+            ),
+            locked AS (
+                SELECT r.rating_id, r.user_id, r.movie_id, r.rating_value, r.review, r.created_at, r.updated_at
+                FROM ratings r
+                JOIN input i ON i.user_id = r.user_id AND i.movie_id = r.movie_id
+                ORDER BY r.user_id, r.movie_id
+                FOR UPDATE OF r
+            ),
+            updated AS (
+                UPDATE ratings r
+                SET rating_value = i.rating_value, review = i.review, updated_at = i.accepted_at
+                FROM locked l
+                JOIN input i ON i.user_id = l.user_id AND i.movie_id = l.movie_id
+                WHERE r.rating_id = l.rating_id
+                  AND (l.rating_value, l.review) IS DISTINCT FROM (i.rating_value, i.review)
+                RETURNING r.rating_id, r.user_id, r.movie_id, r.rating_value, r.review, r.created_at, r.updated_at,
+                          l.rating_value AS previous_value
+            ),
+            inserted AS (
+                INSERT INTO ratings (rating_id, user_id, movie_id, rating_value, review, created_at, updated_at)
+                SELECT gen_random_uuid(), i.user_id, i.movie_id, i.rating_value, i.review, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP
+                FROM input i
+                WHERE NOT EXISTS (SELECT 1 FROM locked l WHERE l.user_id = i.user_id AND l.movie_id = i.movie_id)
+                  AND EXISTS (SELECT 1 FROM users u WHERE u.user_id = i.user_id)
+                  AND EXISTS (SELECT 1 FROM movies m WHERE m.movie_id = i.movie_id)
+                ORDER BY i.user_id, i.movie_id
+                ON CONFLICT (user_id, movie_id) DO NOTHING
+                RETURNING rating_id, user_id, movie_id, rating_value, review, created_at, updated_at
+            ),
+            written AS (
+                SELECT rating_id, user_id, movie_id, rating_value, review, created_at, updated_at, previous_value,
+                       false AS inserted
+                FROM updated
+                UNION ALL
+                SELECT rating_id, user_id, movie_id, rating_value, review, created_at, updated_at, NULL, true
+                FROM inserted
+                UNION ALL
+                SELECT l.rating_id, l.user_id, l.movie_id, l.rating_value, l.review, l.created_at, l.updated_at,
+                       l.rating_value, false
+                FROM locked l
+                WHERE NOT EXISTS (SELECT 1 FROM updated u WHERE u.rating_id = l.rating_id)
+            )
+            SELECT w.rating_id AS id,
+                   u.user_id AS userId,
+                   u.email AS userEmail,
+                   m.movie_id AS movieId,
+                   m.name AS movieName,
+                   w.rating_value AS ratingValue,
+                   w.review AS review,
+                   w.created_at AS createdAt,
+                   w.updated_at AS updatedAt,
+                   w.previous_value AS previousValue,
+                   w.inserted AS inserted
+            FROM written w
+            JOIN users u ON u.user_id = w.user_id
+            JOIN movies m ON m.movie_id = w.movie_id
+            """, nativeQuery = true)
+    List<WrittenRating> upsertForUsers(UUID[] userIds, UUID[] movieIds, Integer[] ratingValues, String[] reviews,
+                                       LocalDateTime[] acceptedAt);
+
+    /**
+     * Takes the rating lock of each given user for the current transaction, waiting for whoever holds it. Users
+     * share one of 256 locks by hash, taken in order, so a batch of many users needs few locks and cannot deadlock
+     * with another batch. Deletes take it so a write-behind flush cannot write a deleted rating back.
+     */
+    @Query(value = """
+            SELECT count(*)
+            FROM (SELECT pg_advisory_xact_lock(hashtext('ratings'), bucket)
+                  FROM (SELECT DISTINCT hashtext(CAST(id AS text)) & 255 AS bucket
+                        FROM unnest(CAST(:userIds AS uuid[])) AS id
+                        ORDER BY bucket) buckets) locks
+            """, nativeQuery = true)
+    long lockRatingsOfUsers(UUID[] userIds);
+
+    @Query(value = """
+            DELETE FROM ratings
+            WHERE user_id = :userId AND movie_id = ANY(CAST(:movieIds AS uuid[]))
+            RETURNING movie_id AS movieId, rating_value AS ratingValue
+            """, nativeQuery = true)
+    List<RatingValue> deleteAllReturning(UUID userId, UUID[] movieIds);
+
+    /**
+     * One page of the reviews matching a web-search style query, best first, continuing after the given score and
+     * id. Works like {@link MovieRepository#searchMovies}: {@code ts_rank} of the review, normalized by its length so
+     * long reviews do not win by repetition, boosted by the weighted rating of the reviewed movie, matched with the
+     * partial GIN index on {@code review_vector}.
+     */
+    @Query(value = """
+            SELECT h.rating_id AS ratingId,
+                   h.movie_id AS movieId,
+                   m.name AS movieName,
+                   h.rating_value AS ratingValue,
+                   h.score AS score,
+                   ts_headline('english', h.review, websearch_to_tsquery('english', :query),
+                               E'MaxFragments=2, MinWords=5, MaxWords=20, StartSel="\\x02", StopSel="\\x03"') AS snippet
+            FROM (
+                SELECT ra.rating_id, ra.movie_id, ra.rating_value, ra.review,
+                       ts_rank(ra.review_vector, websearch_to_tsquery('english', :query), 1)::double precision
+                           * (1 + :boost * COALESCE(r.weighted_score, 0) / 10) AS score
+                FROM ratings ra
+                LEFT JOIN movie_rankings r ON r.movie_id = ra.movie_id
+                WHERE ra.review IS NOT NULL
+                  AND ra.review_vector @@ websearch_to_tsquery('english', :query)
+            ) h
+            JOIN movies m ON m.movie_id = h.movie_id
+            WHERE (h.score, h.rating_id) < (:afterScore, :afterId)
+            ORDER BY h.score DESC, h.rating_id DESC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<ReviewSearchHit> searchReviews(String query, double boost, double afterScore, UUID afterId, int limit);
+
+    // Projection of a rating with the user and movie fields a listing shows
+    interface RatingView {
+        UUID getId();
+        UUID getUserId();
+        String getUserEmail();
+        UUID getMovieId();
+        String getMovieName();
+        Integer getRatingValue();
+        String getReview();
+        LocalDateTime getCreatedAt();
+        LocalDateTime getUpdatedAt();
+    }
+
+    // Listing row of a rating written by upsert or upsertForUsers; previousValue is the value before the write, null when inserted
+    interface WrittenRating extends RatingView {
+        Integer getPreviousValue();
+        boolean getInserted();
+    }
+
+    // Projection of what a listed rating is versioned by
+    interface RatingVersion {
+        UUID getId();
+        LocalDateTime getUpdatedAt();
+        String getMovieName();
+    }
+
+    // Projection of a rating's value, keyed by movie
+    interface RatingValue {
+        UUID getMovieId();
+        int getRatingValue();
+    }
+
+    // Projection of a review matching a search, with its highlighted snippet
+    interface ReviewSearchHit {
+        UUID getRatingId();
+        UUID getMovieId();
+        String getMovieName();
+        int getRatingValue();
+        double getScore();
+        String getSnippet();
+    }
 }
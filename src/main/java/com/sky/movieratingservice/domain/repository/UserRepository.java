@@ -2,7 +2,11 @@ package com.sky.movieratingservice.domain.repository;
 
 import com.sky.movieratingservice.domain.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 import java.util.UUID;
@@ -11,4 +15,20 @@ import java.util.UUID;
 public interface UserRepository extends JpaRepository<User, UUID> {
     Optional<User> findByEmail(String email);
     boolean existsByEmail(String email);
+
+    /**
+     * Replaces the password hash only if it is still the one that was verified,
+     * so a concurrent password change is never overwritten by a rehash.
+     * Runs in its own short transaction, the caller hashes outside of one.
+     */
+    @Transactional
+    @Modifying
+    @Query("""
+            UPDATE User u
+            SET u.password = :newPassword, u.updatedAt = CURRENT_TIMESTAMP
+            WHERE u.id = :userId AND u.password = :currentPassword
+            """)
+    int updatePassword(@Param("userId") UUID userId,
+                       @Param("currentPassword") String currentPassword,
+                       @Param("newPassword") String newPassword);
 }
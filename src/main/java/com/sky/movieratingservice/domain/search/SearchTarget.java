@@ -0,0 +1,27 @@
+package com.sky.movieratingservice.domain.search;
+
+import java.util.Locale;
+
+/**
+ * What a full-text search looks through: movie names, directors and descriptions, or the text of reviews.
+ */
+public enum SearchTarget {
+    MOVIES,
+    REVIEWS;
+
+    /**
+     * The target of the given name, case-insensitive, {@link #MOVIES} when none is given.
+     *
+     * @throws IllegalArgumentException if the name is not one of the targets
+     */
+    public static SearchTarget of(String name) {
+        if (name == null || name.isBlank()) {
+            return MOVIES;
+        }
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Search target must be 'movies' or 'reviews'");
+        }
+    }
+}
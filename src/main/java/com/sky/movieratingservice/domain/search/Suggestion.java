@@ -0,0 +1,15 @@
+package com.sky.movieratingservice.domain.search;
+
+import java.util.Comparator;
+import java.util.UUID;
+
+/**
+ * A movie as offered by the typeahead, with the popularity (its number of ratings) suggestions are ranked by.
+ */
+public record Suggestion(UUID movieId, String name, String director, Integer releaseYear, long popularity) {
+
+    static final Comparator<Suggestion> BY_POPULARITY = Comparator
+            .comparingLong(Suggestion::popularity).reversed()
+            .thenComparing(Suggestion::name)
+            .thenComparing(Suggestion::movieId);
+}
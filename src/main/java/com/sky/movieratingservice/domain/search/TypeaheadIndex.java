@@ -0,0 +1,240 @@
+package com.sky.movieratingservice.domain.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Autocomplete over movie titles and directors: a compressed prefix trie (one node per branching point, edges
+ * labelled with whole substrings) whose every node holds the {@code topK} most popular movies below it, so a
+ * prefix is answered without walking its subtree. Titles and directors are indexed from every word on, so
+ * "knight" finds "The Dark Knight" and "nolan" finds Christopher Nolan's movies.
+ * <p>
+ * Queries of 4 to 7 characters tolerate one typo and longer ones two (insertion, deletion, substitution or
+ * swap of neighbours): the trie is walked with an edit distance row per character and pruned as soon as no
+ * completion can stay within the budget. Closer matches come first, then more popular movies.
+ * <p>
+ * The index is immutable; {@link #with} copies only the path of each indexed key, so readers of an index are
+ * never affected by later additions.
+ */
+public final class TypeaheadIndex {
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^a-z0-9]+");
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final char[] NO_KEYS = new char[0];
+    private static final Suggestion[] NO_SUGGESTIONS = new Suggestion[0];
+
+    private final int topK;
+    private final Node root;
+    private final int size;
+
+    private TypeaheadIndex(int topK, Node root, int size) {
+        this.topK = topK;
+        this.root = root;
+        this.size = size;
+    }
+
+    public static TypeaheadIndex empty(int topK) {
+        if (topK < 1) {
+            throw new IllegalArgumentException("topK must be positive");
+        }
+        return new TypeaheadIndex(topK, new Node("", NO_KEYS, NO_CHILDREN, NO_SUGGESTIONS), 0);
+    }
+
+    /**
+     * This index with the movie added, or with its popularity raised if it is already there.
+     */
+    public TypeaheadIndex with(Suggestion suggestion) {
+        Node updated = root;
+        for (String key : keys(suggestion)) {
+            updated = insert(updated, key, 0, suggestion);
+        }
+        return new TypeaheadIndex(topK, updated, size + 1);
+    }
+
+    public TypeaheadIndex withAll(Iterable<Suggestion> suggestions) {
+        TypeaheadIndex index = this;
+        for (Suggestion suggestion : suggestions) {
+            index = index.with(suggestion);
+        }
+        return index;
+    }
+
+    /**
+     * Number of additions so far, a movie added twice counting twice.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Up to {@code limit} (at most {@code topK}) movies whose title or director, from some word on, starts with the
+     * query or with something within the query's typo budget of it.
+     */
+    public List<Suggestion> suggest(String query, int limit) {
+        String normalized = normalize(query);
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+        int maxTypos = normalized.length() < 4 ? 0 : normalized.length() < 8 ? 1 : 2;
+
+        Map<UUID, Match> matches = new HashMap<>();
+        int[] firstRow = new int[normalized.length() + 1];
+        for (int j = 0; j < firstRow.length; j++) {
+            firstRow[j] = j;
+        }
+        for (Node child : root.children) {
+            walk(child, normalized, firstRow, null, '\0', maxTypos + 1, matches);
+        }
+        return matches.values().stream()
+                .sorted(Comparator.comparingInt(Match::typos).thenComparing(Match::suggestion, Suggestion.BY_POPULARITY))
+                .limit(Math.min(limit, topK))
+                .map(Match::suggestion)
+                .toList();
+    }
+
+    /**
+     * Lower case, accents dropped and runs of anything but letters and digits turned into single spaces.
+     */
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String folded = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return SEPARATORS.matcher(folded.toLowerCase(Locale.ROOT)).replaceAll(" ").strip();
+    }
+
+    // Walks the edge into node character by character, extending the Damerau-Levenshtein rows of the query
+    // against the path. best is the fewest typos already matched on this path; descendants only add to matches
+    // with fewer, so the walk stops once no row entry is below it.
+    private void walk(Node node, String query, int[] row, int[] previousRow, char previousChar, int best,
+                      Map<UUID, Match> matches) {
+        int m = query.length();
+        for (int i = 0; i < node.edge.length(); i++) {
+            char c = node.edge.charAt(i);
+            int[] next = new int[m + 1];
+            next[0] = row[0] + 1;
+            int rowMin = next[0];
+            for (int j = 1; j <= m; j++) {
+                char q = query.charAt(j - 1);
+                int cost = q == c ? 0 : 1;
+                int distance = Math.min(Math.min(row[j] + 1, next[j - 1] + 1), row[j - 1] + cost);
+                if (previousRow != null && j > 1 && q == previousChar && query.charAt(j - 2) == c) {
+                    distance = Math.min(distance, previousRow[j - 2] + 1);
+                }
+                next[j] = distance;
+                rowMin = Math.min(rowMin, distance);
+            }
+            if (next[m] < best) {
+                best = next[m];
+                for (Suggestion suggestion : node.top) {
+                    matches.merge(suggestion.movieId(), new Match(best, suggestion),
+                            (known, found) -> found.typos() < known.typos() ? found : known);
+                }
+            }
+            if (rowMin >= best) {
+                return;
+            }
+            previousRow = row;
+            previousChar = c;
+            row = next;
+        }
+        for (Node child : node.children) {
+            walk(child, query, row, previousRow, previousChar, best, matches);
+        }
+    }
+
+    // The path from node down to key, copied with the suggestion merged into every node's top list
+    private Node insert(Node node, String key, int depth, Suggestion suggestion) {
+        Suggestion[] top = merge(node.top, suggestion);
+        if (depth == key.length()) {
+            return new Node(node.edge, node.keys, node.children, top);
+        }
+        char first = key.charAt(depth);
+        int index = Arrays.binarySearch(node.keys, first);
+        if (index < 0) {
+            Node leaf = new Node(key.substring(depth), NO_KEYS, NO_CHILDREN, new Suggestion[]{suggestion});
+            return node.withChildAt(-index - 1, first, leaf, top);
+        }
+
+        Node child = node.children[index];
+        int common = 0;
+        while (common < child.edge.length() && depth + common < key.length()
+                && child.edge.charAt(common) == key.charAt(depth + common)) {
+            common++;
+        }
+        if (common < child.edge.length()) {
+            // the key leaves the edge halfway, split it at that point
+            Node lower = new Node(child.edge.substring(common), child.keys, child.children, child.top);
+            child = new Node(child.edge.substring(0, common), new char[]{lower.edge.charAt(0)}, new Node[]{lower}, child.top);
+        }
+        return node.withChildReplaced(index, insert(child, key, depth + common, suggestion), top);
+    }
+
+    private Suggestion[] merge(Suggestion[] top, Suggestion suggestion) {
+        List<Suggestion> merged = new ArrayList<>(top.length + 1);
+        for (Suggestion existing : top) {
+            if (existing.movieId().equals(suggestion.movieId())) {
+                if (existing.popularity() >= suggestion.popularity()) {
+                    return top;
+                }
+            } else {
+                merged.add(existing);
+            }
+        }
+        merged.add(suggestion);
+        merged.sort(Suggestion.BY_POPULARITY);
+        return merged.subList(0, Math.min(topK, merged.size())).toArray(NO_SUGGESTIONS);
+    }
+
+    private static Set<String> keys(Suggestion suggestion) {
+        Set<String> keys = new LinkedHashSet<>();
+        addWordSuffixes(keys, normalize(suggestion.name()));
+        addWordSuffixes(keys, normalize(suggestion.director()));
+        return keys;
+    }
+
+    private static void addWordSuffixes(Set<String> keys, String text) {
+        if (text.isEmpty()) {
+            return;
+        }
+        keys.add(text);
+        for (int i = text.indexOf(' '); i >= 0; i = text.indexOf(' ', i + 1)) {
+            keys.add(text.substring(i + 1));
+        }
+    }
+
+    private record Match(int typos, Suggestion suggestion) {
+    }
+
+    // children are sorted by their first edge character, which keys holds
+    private record Node(String edge, char[] keys, Node[] children, Suggestion[] top) {
+
+        Node withChildAt(int position, char key, Node child, Suggestion[] top) {
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, position);
+            System.arraycopy(children, 0, newChildren, 0, position);
+            newKeys[position] = key;
+            newChildren[position] = child;
+            System.arraycopy(keys, position, newKeys, position + 1, keys.length - position);
+            System.arraycopy(children, position, newChildren, position + 1, children.length - position);
+            return new Node(edge, newKeys, newChildren, top);
+        }
+
+        Node withChildReplaced(int position, Node child, Suggestion[] top) {
+            Node[] newChildren = children.clone();
+            newChildren[position] = child;
+            return new Node(edge, keys, newChildren, top);
+        }
+    }
+}
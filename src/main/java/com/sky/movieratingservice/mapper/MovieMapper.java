@@ -3,9 +3,12 @@ package com.sky.movieratingservice.mapper;
 import com.sky.movieratingservice.api.dto.request.CreateMovieRequestDto;
 import com.sky.movieratingservice.api.dto.response.MovieDetailResponseDto;
 import com.sky.movieratingservice.api.dto.response.MovieResponseDto;
+import com.sky.movieratingservice.api.dto.response.MovieSuggestionResponseDto;
 import com.sky.movieratingservice.api.dto.response.TopRatedMovieResponseDto;
 import com.sky.movieratingservice.domain.entity.Movie;
+import com.sky.movieratingservice.domain.ranking.LeaderboardEntry;
 import com.sky.movieratingservice.domain.repository.MovieRepository;
+import com.sky.movieratingservice.domain.search.Suggestion;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.MappingConstants;
@@ -26,4 +29,11 @@ public interface MovieMapper {
     @Mapping(source = "movieName", target = "name")
     @Mapping(source = "movieDescription", target = "description")
     TopRatedMovieResponseDto toTopRatedMoviesResponse(MovieRepository.MovieStatistics first);
+
+    @Mapping(source = "movieId", target = "id")
+    TopRatedMovieResponseDto toTopRatedMoviesResponse(LeaderboardEntry entry);
+
+    @Mapping(source = "movieId", target = "id")
+    @Mapping(source = "popularity", target = "ratingCount")
+    MovieSuggestionResponseDto toSuggestionResponse(Suggestion suggestion);
 }
@@ -1,7 +1,10 @@
 package com.sky.movieratingservice.mapper;
 
+import com.sky.movieratingservice.api.dto.response.RatingExportDto;
 import com.sky.movieratingservice.api.dto.response.RatingResponseDto;
 import com.sky.movieratingservice.domain.entity.Rating;
+import com.sky.movieratingservice.domain.model.RatingExportRow;
+import com.sky.movieratingservice.domain.repository.RatingRepository;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.MappingConstants;
@@ -14,4 +17,8 @@ public interface RatingMapper {
     @Mapping(source = "rating.movie.id", target = "movieId")
     @Mapping(source = "rating.user.email", target = "userEmail")
     RatingResponseDto toRatingResponse(Rating rating);
+
+    RatingResponseDto toRatingResponse(RatingRepository.RatingView rating);
+
+    RatingExportDto toRatingExport(RatingExportRow rating);
 }
@@ -0,0 +1,49 @@
+package com.sky.movieratingservice.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+
+import java.time.Duration;
+
+/**
+ * Picks the BCrypt cost for the hardware the service runs on. Each extra cost step doubles the work,
+ * so a single hash at a reference cost is enough to estimate every other cost; the highest cost whose
+ * estimate stays within the target latency is chosen, bounded by {@code minCost} and {@code maxCost}.
+ */
+@Slf4j
+public final class BCryptCostCalibrator {
+    private static final int REFERENCE_COST = 8;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+
+    private BCryptCostCalibrator() {
+    }
+
+    public static int calibrate(Duration targetLatency, int minCost, int maxCost) {
+        String salt = BCrypt.gensalt(REFERENCE_COST);
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            BCrypt.hashpw("calibration", salt);
+        }
+        long fastest = Long.MAX_VALUE;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long start = System.nanoTime();
+            BCrypt.hashpw("calibration", salt);
+            fastest = Math.min(fastest, System.nanoTime() - start);
+        }
+
+        int cost = costFor(targetLatency, Duration.ofNanos(fastest), minCost, maxCost);
+        log.info("BCrypt cost calibrated to {} (cost {} took {} us, target {} ms)",
+                cost, REFERENCE_COST, fastest / 1_000, targetLatency.toMillis());
+        return cost;
+    }
+
+    static int costFor(Duration targetLatency, Duration referenceLatency, int minCost, int maxCost) {
+        long estimate = Math.max(1, referenceLatency.toNanos());
+        int cost = REFERENCE_COST;
+        while (cost < maxCost && estimate * 2 <= targetLatency.toNanos()) {
+            estimate *= 2;
+            cost++;
+        }
+        return Math.clamp(cost, minCost, maxCost);
+    }
+}
@@ -1,23 +1,32 @@
 package com.sky.movieratingservice.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
-import jakarta.servlet.ServletRequest;
-import jakarta.servlet.ServletResponse;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
+import org.springframework.security.web.servlet.util.matcher.PathPatternRequestMatcher;
+import org.springframework.security.web.util.matcher.OrRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.UUID;
 
 @Component
@@ -25,8 +34,52 @@ import java.util.UUID;
 @Slf4j
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
+    // Routes that are public for everyone, a token would not change the outcome so it is not parsed at all
+    private static final RequestMatcher PUBLIC_ROUTES = new OrRequestMatcher(
+            PathPatternRequestMatcher.withDefaults().matcher(HttpMethod.GET, "/api/v1/movies"),
+            PathPatternRequestMatcher.withDefaults().matcher(HttpMethod.GET, "/api/v1/movies/**"),
+            PathPatternRequestMatcher.withDefaults().matcher("/api/v1/auth/**")
+    );
+
     private final JwtTokenProvider tokenProvider;
     private final CustomUserDetailService userDetailsService;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * {@code claims} builds the principal from the verified token alone, {@code database} loads the user
+     * on every request so deleted users are rejected immediately.
+     */
+    @Value("${app.jwt.principal-source:claims}")
+    private PrincipalSource principalSource;
+
+    /**
+     * How long a principal loaded from the database is reused, zero disables the cache.
+     */
+    @Value("${app.jwt.principal-cache.ttl:PT0S}")
+    private Duration principalCacheTtl;
+
+    @Value("${app.jwt.principal-cache.max-size:1000}")
+    private long principalCacheMaxSize;
+
+    private Cache<UUID, UserDetails> principalCache;
+
+    @PostConstruct
+    void init() {
+        if (principalSource == PrincipalSource.DATABASE && principalCacheTtl.isPositive()) {
+            principalCache = Caffeine.newBuilder()
+                    .maximumSize(principalCacheMaxSize)
+                    .expireAfterWrite(principalCacheTtl)
+                    .recordStats()
+                    .build();
+            CaffeineCacheMetrics.monitor(meterRegistry, principalCache, "jwtPrincipals");
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return PUBLIC_ROUTES.matches(request);
+    }
+
     @Override
     protected void doFilterInternal(HttpServletRequest request,
             HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
@@ -34,25 +87,25 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         try {
             String jwt = getJwtFromRequest(request);
 
-            if (StringUtils.hasText(jwt) && tokenProvider.validateToken(jwt)) {
-                UUID userId = tokenProvider.getUserIdFromToken(jwt);
-
-                UserDetails userDetails = userDetailsService.loadUserById(userId);
+            if (StringUtils.hasText(jwt)) {
+                tokenProvider.parseToken(jwt).ifPresent(claims -> {
+                    UserDetails userDetails = resolvePrincipal(claims);
 
-                UsernamePasswordAuthenticationToken authentication =
-                        new UsernamePasswordAuthenticationToken(
-                                userDetails,
-                                null,
-                                userDetails.getAuthorities()
-                        );
+                    UsernamePasswordAuthenticationToken authentication =
+                            new UsernamePasswordAuthenticationToken(
+                                    userDetails,
+                                    null,
+                                    userDetails.getAuthorities()
+                            );
 
-                authentication.setDetails(
-                        new WebAuthenticationDetailsSource().buildDetails(request)
-                );
+                    authentication.setDetails(
+                            new WebAuthenticationDetailsSource().buildDetails(request)
+                    );
 
-                SecurityContextHolder.getContext().setAuthentication(authentication);
+                    SecurityContextHolder.getContext().setAuthentication(authentication);
 
-                log.debug("Set authentication for user: {}", userDetails.getUsername());
+                    log.debug("Set authentication for user: {}", userDetails.getUsername());
+                });
             }
         } catch (Exception ex) {
             log.error("Could not set user authentication in security context", ex);
@@ -61,6 +114,25 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    private UserDetails resolvePrincipal(Claims claims) {
+        if (principalSource == PrincipalSource.CLAIMS) {
+            return tokenProvider.getPrincipalFromClaims(claims);
+        }
+        UUID userId = UUID.fromString(claims.getSubject());
+        if (principalCache == null) {
+            return userDetailsService.loadUserById(userId);
+        }
+        // Not get(userId, loader): Caffeine runs the loader inside a synchronized map bin, which pins the carrier of a
+        // virtual thread for the whole query. Concurrent misses of the same user may load it twice instead.
+        UserDetails cached = principalCache.getIfPresent(userId);
+        if (cached != null) {
+            return cached;
+        }
+        UserDetails loaded = userDetailsService.loadUserById(userId);
+        principalCache.put(userId, loaded);
+        return loaded;
+    }
+
     private String getJwtFromRequest(HttpServletRequest request) {
         String bearerToken = request.getHeader("Authorization");
 
@@ -70,4 +142,9 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         return null;
     }
+
+    enum PrincipalSource {
+        CLAIMS,
+        DATABASE
+    }
 }
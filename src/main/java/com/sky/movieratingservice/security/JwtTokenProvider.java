@@ -3,19 +3,27 @@ package com.sky.movieratingservice.security;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
 import io.jsonwebtoken.security.SignatureException;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.util.Collection;
 import java.util.Date;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Component
 @Slf4j
 public class JwtTokenProvider {
+    static final String EMAIL_CLAIM = "email";
+    static final String ROLES_CLAIM = "roles";
 
     @Value("${app.jwt.secret}")
     private String jwtSecret;
@@ -23,43 +31,45 @@ public class JwtTokenProvider {
     @Value("${app.jwt.expiration-ms}")
     private long jwtExpirationInMs;
 
-    private SecretKey getSigningKey() {
-        byte[] keyBytes = jwtSecret.getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
+    // Both are immutable and thread-safe, so they are built once instead of per token
+    private SecretKey signingKey;
+    private JwtParser jwtParser;
+
+    @PostConstruct
+    void init() {
+        signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+        jwtParser = Jwts.parser()
+                .verifyWith(signingKey)
+                .build();
     }
 
     public String generateToken(Authentication authentication) {
-        UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
+        return generateToken((UserPrincipal) authentication.getPrincipal());
+    }
 
+    public String generateToken(UserPrincipal userPrincipal) {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + jwtExpirationInMs);
 
         return Jwts.builder()
                 .subject(userPrincipal.getId().toString())
-                .claim("email", userPrincipal.getEmail())
+                .claim(EMAIL_CLAIM, userPrincipal.getEmail())
+                .claim(ROLES_CLAIM, userPrincipal.getAuthorities().stream()
+                        .map(GrantedAuthority::getAuthority)
+                        .toList())
                 .issuedAt(now)
                 .expiration(expiryDate)
-                .signWith(getSigningKey(), SignatureAlgorithm.HS512)
+                .signWith(signingKey, SignatureAlgorithm.HS512)
                 .compact();
     }
 
-    public UUID getUserIdFromToken(String token) {
-        Claims claims = Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-
-        return UUID.fromString(claims.getSubject());
-    }
-
-    public boolean validateToken(String token) {
+    /**
+     * Verifies the token signature and expiry once and returns its claims,
+     * or empty if the token is not valid.
+     */
+    public Optional<Claims> parseToken(String token) {
         try {
-            Jwts.parser()
-                    .verifyWith(getSigningKey())
-                    .build()
-                    .parseSignedClaims(token);
-            return true;
+            return Optional.of(jwtParser.parseSignedClaims(token).getPayload());
         } catch (SignatureException ex) {
             log.error("Invalid JWT signature");
         } catch (MalformedJwtException ex) {
@@ -71,6 +81,36 @@ public class JwtTokenProvider {
         } catch (IllegalArgumentException ex) {
             log.error("JWT claims string is empty");
         }
-        return false;
+        return Optional.empty();
+    }
+
+    /**
+     * Builds the principal from already verified claims. Tokens issued before roles were added
+     * to the claims fall back to the default user role.
+     */
+    public UserPrincipal getPrincipalFromClaims(Claims claims) {
+        List<?> roles = claims.get(ROLES_CLAIM, List.class);
+        Collection<GrantedAuthority> authorities = roles == null || roles.isEmpty()
+                ? UserPrincipal.DEFAULT_AUTHORITIES
+                : roles.stream()
+                        .map(role -> (GrantedAuthority) new SimpleGrantedAuthority(role.toString()))
+                        .toList();
+
+        return new UserPrincipal(
+                UUID.fromString(claims.getSubject()),
+                claims.get(EMAIL_CLAIM, String.class),
+                null,
+                authorities
+        );
+    }
+
+    public UUID getUserIdFromToken(String token) {
+        Claims claims = jwtParser.parseSignedClaims(token).getPayload();
+
+        return UUID.fromString(claims.getSubject());
+    }
+
+    public boolean validateToken(String token) {
+        return parseToken(token).isPresent();
     }
 }
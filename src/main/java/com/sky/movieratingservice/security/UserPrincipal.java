@@ -1,6 +1,7 @@
 package com.sky.movieratingservice.security;
 
 import com.sky.movieratingservice.domain.entity.User;
+import com.sky.movieratingservice.domain.model.UserRole;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.Getter;
@@ -22,16 +23,18 @@ public class UserPrincipal implements UserDetails {
     private String password;
     private Collection<? extends GrantedAuthority> authorities;
 
-    public static UserPrincipal create(User user) {
-        Collection<GrantedAuthority> authorities = Collections.singletonList(
-                new SimpleGrantedAuthority("ROLE_USER")
-        );
+    static final Collection<GrantedAuthority> DEFAULT_AUTHORITIES = Collections.singletonList(
+            new SimpleGrantedAuthority("ROLE_USER")
+    );
 
+    public static UserPrincipal create(User user) {
         return new UserPrincipal(
                 user.getId(),
                 user.getEmail(),
                 user.getPassword(),
-                authorities
+                user.getRole() == null || user.getRole() == UserRole.USER
+                        ? DEFAULT_AUTHORITIES
+                        : Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + user.getRole().name()))
         );
     }
 
@@ -0,0 +1,12 @@
+package com.sky.movieratingservice.service;
+
+import com.sky.movieratingservice.api.dto.response.ImportReportDto;
+import com.sky.movieratingservice.domain.model.ImportLayout;
+
+import java.io.InputStream;
+
+public interface ICatalogImportService {
+    ImportReportDto importMovies(InputStream csv, ImportLayout layout);
+
+    ImportReportDto importRatings(InputStream csv, ImportLayout layout);
+}
@@ -0,0 +1,10 @@
+package com.sky.movieratingservice.service;
+
+import com.sky.movieratingservice.domain.ranking.LeaderboardEntry;
+import com.sky.movieratingservice.domain.ranking.LeaderboardScope;
+
+import java.util.List;
+
+public interface ILeaderboardService {
+    List<LeaderboardEntry> getTopRated(LeaderboardScope scope, int limit);
+}
@@ -0,0 +1,10 @@
+package com.sky.movieratingservice.service;
+
+public interface IMovieRankingService {
+    /**
+     * Refreshes {@code movie_rankings} now.
+     *
+     * @return false if another instance was already refreshing it
+     */
+    boolean refresh();
+}
@@ -1,21 +1,43 @@
 package com.sky.movieratingservice.service;
 
 import com.sky.movieratingservice.api.dto.request.CreateMovieRequestDto;
+import com.sky.movieratingservice.api.dto.response.CursorPageResponseDto;
 import com.sky.movieratingservice.api.dto.response.MovieDetailResponseDto;
 import com.sky.movieratingservice.api.dto.response.MovieResponseDto;
+import com.sky.movieratingservice.api.dto.response.RatingDistributionResponseDto;
 import com.sky.movieratingservice.api.dto.response.TopRatedMovieResponseDto;
+import com.sky.movieratingservice.common.Versioned;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 public interface IMovieService {
-    List<MovieResponseDto> getAllMovies(@Min(0) int page, @Min(1) @Max(100) int size);
+    Versioned<List<MovieResponseDto>> getAllMovies(@Min(0) int page, @Min(1) @Max(100) int size);
 
-    MovieDetailResponseDto getMovieById(UUID movieId);
+    Versioned<CursorPageResponseDto<MovieResponseDto>> getMovies(String after, @Min(1) @Max(100) int size);
+
+    String getMoviesVersion(@Min(0) int page, @Min(1) @Max(100) int size);
+
+    String getMoviesVersion(String after, @Min(1) @Max(100) int size);
+
+    Versioned<MovieDetailResponseDto> getMovieById(UUID movieId);
+
+    Versioned<MovieDetailResponseDto> reloadMovieById(UUID movieId);
+
+    Optional<String> getMovieVersion(UUID movieId);
+
+    RatingDistributionResponseDto getRatingDistribution(UUID movieId);
 
     TopRatedMovieResponseDto getTopRatedMovies();
 
+    Versioned<TopRatedMovieResponseDto> getTopRatedMovies(String genre, Integer decade);
+
+    List<TopRatedMovieResponseDto> getTopRatedMovies(@Min(1) @Max(100) int limit);
+
+    Versioned<List<TopRatedMovieResponseDto>> getTopRatedMovies(String genre, Integer decade, @Min(1) @Max(100) int limit);
+
     MovieResponseDto createMovie(CreateMovieRequestDto movieRequestDto);
 }
@@ -0,0 +1,9 @@
+package com.sky.movieratingservice.service;
+
+import com.sky.movieratingservice.api.dto.response.MovieSuggestionResponseDto;
+
+import java.util.List;
+
+public interface IMovieSuggestionService {
+    List<MovieSuggestionResponseDto> suggest(String query, int limit);
+}
@@ -0,0 +1,11 @@
+package com.sky.movieratingservice.service;
+
+import com.sky.movieratingservice.api.dto.request.BatchRatingItemDto;
+import com.sky.movieratingservice.api.dto.response.BatchRatingResponseDto;
+
+import java.util.List;
+import java.util.UUID;
+
+public interface IRatingBatchService {
+    BatchRatingResponseDto applyBatch(UUID userId, List<BatchRatingItemDto> items);
+}
@@ -0,0 +1,10 @@
+package com.sky.movieratingservice.service;
+
+import com.sky.movieratingservice.api.dto.request.RatingRequestDto;
+import com.sky.movieratingservice.api.dto.response.RatingResponseDto;
+
+import java.util.UUID;
+
+public interface IRatingGroupCommitService {
+    RatingResponseDto createOrUpdateRating(RatingRequestDto ratingRequestDto, UUID userId);
+}
@@ -1,12 +1,16 @@
 package com.sky.movieratingservice.service;
 
 import com.sky.movieratingservice.api.dto.request.RatingRequestDto;
+import com.sky.movieratingservice.api.dto.response.RatingExportDto;
 import com.sky.movieratingservice.api.dto.response.RatingResponseDto;
+import com.sky.movieratingservice.common.ExportResumeToken;
+import com.sky.movieratingservice.common.Versioned;
 import jakarta.validation.Valid;
 
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 public interface IRatingService {
     RatingResponseDto createOrUpdateRating(@Valid RatingRequestDto ratingRequestDto, UUID userID);
@@ -15,7 +19,13 @@ public interface IRatingService {
 
     List<RatingResponseDto> getMovieRatings(UUID movieId);
 
-    List<RatingResponseDto>  getUserRatings(UUID userId);
+    void streamMovieRatings(UUID movieId, Consumer<RatingResponseDto> consumer);
+
+    Versioned<List<RatingResponseDto>> getUserRatings(UUID userId);
+
+    String getUserRatingsVersion(UUID userId);
+
+    void exportRatings(ExportResumeToken after, Consumer<RatingExportDto> consumer);
 
     Optional<RatingResponseDto> getUserRatingForMovie(UUID movieId, UUID userId);
 }
@@ -0,0 +1,12 @@
+package com.sky.movieratingservice.service;
+
+import com.sky.movieratingservice.api.dto.request.RatingRequestDto;
+import com.sky.movieratingservice.api.dto.response.RatingResponseDto;
+
+import java.util.UUID;
+
+public interface IRatingWriteBehindService {
+    RatingResponseDto accept(RatingRequestDto ratingRequestDto, UUID userId);
+
+    void flush();
+}
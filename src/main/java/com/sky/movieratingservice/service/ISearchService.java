@@ -0,0 +1,8 @@
+package com.sky.movieratingservice.service;
+
+import com.sky.movieratingservice.api.dto.response.CursorPageResponseDto;
+import com.sky.movieratingservice.api.dto.response.SearchResultResponseDto;
+
+public interface ISearchService {
+    CursorPageResponseDto<SearchResultResponseDto> search(String query, String target, boolean boost, String after, int size);
+}
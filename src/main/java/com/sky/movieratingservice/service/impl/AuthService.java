@@ -6,25 +6,25 @@ import com.sky.movieratingservice.api.dto.response.AuthResponseDto;
 import com.sky.movieratingservice.api.dto.response.UserResponseDto;
 import com.sky.movieratingservice.domain.entity.User;
 import com.sky.movieratingservice.domain.exception.DuplicateResourceException;
-import com.sky.movieratingservice.domain.exception.ForbiddenException;
 import com.sky.movieratingservice.domain.exception.ResourceNotFoundException;
 import com.sky.movieratingservice.domain.repository.UserRepository;
 import com.sky.movieratingservice.mapper.UserMapper;
 import com.sky.movieratingservice.security.JwtTokenProvider;
+import com.sky.movieratingservice.security.UserPrincipal;
 import com.sky.movieratingservice.service.IAuthService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.exception.ConstraintViolationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Optional;
 import java.util.UUID;
 
 @Service
@@ -34,41 +34,42 @@ public class AuthService implements IAuthService {
     private final Logger logger = LoggerFactory.getLogger(AuthService.class);
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
-    private final AuthenticationManager authenticationManager;
     private final JwtTokenProvider jwtTokenProvider;
     private final UserMapper userMapper;
 
+    private static final String USER_NOT_FOUND_PASSWORD = "userNotFoundPassword";
+
     @Value("${app.jwt.expiration-ms}")
     private long jwtExpirationInMs;
 
+    private volatile String userNotFoundEncodedPassword;
+
 
+    /**
+     * Not transactional on purpose: hashing waits for the hashing pool and then spends ~100 ms in BCrypt,
+     * so the insert runs in its own short transaction after the hash is ready.
+     */
     @Override
-    @Transactional
     public AuthResponseDto register(UserRegistrationRequestDto userRegistrationRequestDto) {
         logger.info("Registering user with email: {}", userRegistrationRequestDto.getEmail());
 
-        if (userRepository.existsByEmail(userRegistrationRequestDto.getEmail())) {
-            throw new DuplicateResourceException("User", "email", userRegistrationRequestDto.getEmail());
-        }
-
         User user = User.builder()
                 .email(userRegistrationRequestDto.getEmail())
                 .password(passwordEncoder.encode(userRegistrationRequestDto.getPassword()))
                 .build();
 
-        user = userRepository.save(user);
+        // The unique index on email is the duplicate check, flushing surfaces the violation here
+        try {
+            user = userRepository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException ex) {
+            if (isDuplicateEmail(ex)) {
+                throw new DuplicateResourceException("User", "email", userRegistrationRequestDto.getEmail());
+            }
+            throw ex;
+        }
         logger.info("User registered successfully {}", user);
 
-        Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(
-                        userRegistrationRequestDto.getEmail(),
-                        userRegistrationRequestDto.getPassword()
-                )
-        );
-
-        SecurityContextHolder.getContext().setAuthentication(authentication);
-
-        String token = jwtTokenProvider.generateToken(authentication);
+        String token = jwtTokenProvider.generateToken(UserPrincipal.create(user));
 
         return AuthResponseDto.builder()
                 .accessToken(token)
@@ -77,35 +78,34 @@ public class AuthService implements IAuthService {
                 .build();
     }
 
+    /**
+     * Not transactional on purpose: the lookup and the optional rehash each use their own short transaction,
+     * so no connection is held while the password is verified or rehashed.
+     */
     @Override
-    @Transactional
     public AuthResponseDto login(UserLoginRequestDto userLoginRequestDto) {
         log.info("login request  with email: {}", userLoginRequestDto.getEmail());
 
-        Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(
-                        userLoginRequestDto.getEmail(),
-                        userLoginRequestDto.getPassword()
-                )
-        );
-        SecurityContextHolder.getContext().setAuthentication(authentication);
-
-
+        Optional<User> user = userRepository.findByEmail(userLoginRequestDto.getEmail());
 
-        User user = userRepository.findByEmail(userLoginRequestDto.getEmail()) // change getId() if necessary
-                .orElseThrow(() ->  new ResourceNotFoundException("USER","email", userLoginRequestDto.getEmail()));
+        // Unknown emails are checked against a dummy hash so they take as long as a wrong password
+        String encodedPassword = user.map(User::getPassword).orElseGet(this::userNotFoundEncodedPassword);
+        boolean passwordMatches = passwordEncoder.matches(userLoginRequestDto.getPassword(), encodedPassword);
 
-        if(!passwordEncoder.matches(userLoginRequestDto.getPassword(), user.getPassword())){
-            throw new ForbiddenException("Invalid credentials");
+        if (user.isEmpty() || !passwordMatches) {
+            throw new BadCredentialsException("Invalid email or password");
         }
-        String token = jwtTokenProvider.generateToken(authentication);
+        rehashIfNeeded(user.get(), userLoginRequestDto.getPassword());
+
+        String token = jwtTokenProvider.generateToken(UserPrincipal.create(user.get()));
 
         return AuthResponseDto.builder()
                 .accessToken(token)
                 .expiresIn(jwtExpirationInMs / 1000) // Convert milliseconds to seconds
-                .userResponseDto(userMapper.toUserResponse(user))
+                .userResponseDto(userMapper.toUserResponse(user.get()))
                 .build();
     }
+
     @Transactional(readOnly = true)
     public UserResponseDto getCurrentUser(UUID userId) {
         User user = userRepository.findById(userId)
@@ -113,4 +113,32 @@ public class AuthService implements IAuthService {
 
         return userMapper.toUserResponse(user);
     }
+
+    /**
+     * Brings the stored hash in line with the current algorithm and cost while the raw password is at hand.
+     */
+    private void rehashIfNeeded(User user, String rawPassword) {
+        if (!passwordEncoder.upgradeEncoding(user.getPassword())) {
+            return;
+        }
+        String rehashed = passwordEncoder.encode(rawPassword);
+        if (userRepository.updatePassword(user.getId(), user.getPassword(), rehashed) == 1) {
+            log.info("Rehashed password of user {}", user.getId());
+        }
+    }
+
+    private static boolean isDuplicateEmail(DataIntegrityViolationException ex) {
+        return ex.getCause() instanceof ConstraintViolationException violation
+                && violation.getConstraintName() != null
+                && violation.getConstraintName().endsWith("users_email");
+    }
+
+    private String userNotFoundEncodedPassword() {
+        String encoded = userNotFoundEncodedPassword;
+        if (encoded == null) {
+            encoded = passwordEncoder.encode(USER_NOT_FOUND_PASSWORD);
+            userNotFoundEncodedPassword = encoded;
+        }
+        return encoded;
+    }
 }
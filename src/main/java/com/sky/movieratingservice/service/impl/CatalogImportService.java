@@ -0,0 +1,327 @@
+package com.sky.movieratingservice.service.impl;
+
+import com.sky.movieratingservice.api.dto.response.ImportReportDto;
+import com.sky.movieratingservice.domain.event.CatalogImportedEvent;
+import com.sky.movieratingservice.domain.exception.BadRequestException;
+import com.sky.movieratingservice.domain.model.ImportLayout;
+import com.sky.movieratingservice.service.ICatalogImportService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads movie and rating CSV files with {@code COPY FROM STDIN} into session-local staging tables and merges
+ * them into {@code movies} and {@code ratings} with one set-based statement each. Rows that do not parse or
+ * refer to unknown movies or users are skipped; a file that is not valid CSV fails the whole import.
+ * Every import runs in one transaction, so it is all or nothing.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CatalogImportService implements ICatalogImportService {
+
+    private static final String UUID_PATTERN = "'^\\s*[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}\\s*$'";
+    private static final String INTEGER_PATTERN = "'^\\s*\\d{1,9}\\s*$'";
+    private static final String TIMESTAMP_PATTERN = "'^\\s*\\d{4}-\\d{2}-\\d{2}[T ]\\d{2}:\\d{2}(:\\d{2}(\\.\\d{1,9})?)?\\s*$'";
+
+    // MovieLens ids are mapped to name-based UUIDs, so importing the same files again updates instead of duplicating
+    private static final String MOVIELENS_MOVIE_ID = "md5('movielens:movie:' || trim(%s))::uuid";
+    private static final String MOVIELENS_USER_ID = "md5('movielens:user:' || trim(%s))::uuid";
+
+    // Millisecond timestamp prefix (the UUIDv7 layout), so rows inserted in order land on the right edge of the primary key
+    private static final String TIME_ORDERED_UUID = """
+            encode(overlay(uuid_send(gen_random_uuid())
+                           PLACING substring(int8send((extract(epoch FROM clock_timestamp()) * 1000)::bigint) FROM 3)
+                           FROM 1 FOR 6), 'hex')::uuid""";
+
+    private static final String MOVIELENS_MOVIES_STAGING =
+            "CREATE TEMP TABLE import_movies (ml_movie_id text, title text, genres text) ON COMMIT DROP";
+
+    private static final String NATIVE_MOVIES_STAGING = """
+            CREATE TEMP TABLE import_movies (movie_id text, name text, director text, genre text, release_year text,
+                                             description text) ON COMMIT DROP""";
+
+    private static final String MOVIELENS_RATINGS_STAGING =
+            "CREATE TEMP TABLE import_ratings (ml_user_id text, ml_movie_id text, rating text, rated_at text) ON COMMIT DROP";
+
+    private static final String NATIVE_RATINGS_STAGING = """
+            CREATE TEMP TABLE import_ratings (rating_id text, movie_id text, user_id text, rating_value text, review text,
+                                              created_at text, updated_at text) ON COMMIT DROP""";
+
+    // MovieLens titles end with the release year, "Heat (1995)"; the first of the genres becomes the genre
+    private static final String MOVIELENS_MOVIES_SOURCE = """
+            SELECT DISTINCT ON (movie_id)
+                   %s AS movie_id,
+                   left(trim(regexp_replace(title, '\\s*\\(\\d{4}\\)\\s*$', '')), 100) AS name,
+                   'Unknown' AS director,
+                   CASE WHEN genres IS NULL OR genres = '(no genres listed)' THEN 'Unknown'
+                        ELSE left(split_part(genres, '|', 1), 50) END AS genre,
+                   substring(title FROM '\\((\\d{4})\\)\\s*$')::integer AS release_year,
+                   NULL::text AS description
+            FROM import_movies
+            WHERE ml_movie_id ~ %s
+              AND title ~ '\\(\\d{4}\\)\\s*$'
+            ORDER BY movie_id
+            """.formatted(MOVIELENS_MOVIE_ID.formatted("ml_movie_id"), INTEGER_PATTERN);
+
+    // Casts are guarded by CASE rather than by the WHERE clause, which gives no evaluation order
+    private static final String NATIVE_MOVIES_SOURCE = """
+            SELECT DISTINCT ON (movie_id) *
+            FROM (SELECT CASE WHEN movie_id IS NULL THEN gen_random_uuid()
+                              WHEN movie_id ~ %1$s THEN trim(movie_id)::uuid END AS movie_id,
+                         trim(name) AS name,
+                         trim(director) AS director,
+                         trim(genre) AS genre,
+                         CASE WHEN release_year ~ %2$s THEN trim(release_year)::integer END AS release_year,
+                         nullif(description, '') AS description
+                  FROM import_movies
+                  WHERE length(trim(name)) BETWEEN 1 AND 100
+                    AND length(trim(director)) > 0
+                    AND length(trim(genre)) BETWEEN 1 AND 50) s
+            WHERE movie_id IS NOT NULL
+              AND release_year IS NOT NULL
+            ORDER BY movie_id
+            """.formatted(UUID_PATTERN, INTEGER_PATTERN);
+
+    // Imported values win over stored ones, except a MovieLens director which is only a placeholder
+    private static final String MERGE_MOVIES = """
+            WITH source AS (%s),
+            merged AS (
+                INSERT INTO movies AS m (movie_id, name, director, genre, release_year, description, created_at, updated_at)
+                SELECT movie_id, name, director, genre, release_year, description, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP
+                FROM source
+                ON CONFLICT (movie_id) DO UPDATE
+                SET name = EXCLUDED.name,
+                    director = CASE WHEN %2$s THEN m.director ELSE EXCLUDED.director END,
+                    genre = EXCLUDED.genre,
+                    release_year = EXCLUDED.release_year,
+                    description = coalesce(EXCLUDED.description, m.description),
+                    updated_at = EXCLUDED.updated_at
+                WHERE (m.name, m.genre, m.release_year) IS DISTINCT FROM (EXCLUDED.name, EXCLUDED.genre, EXCLUDED.release_year)
+                   OR (NOT %2$s AND m.director IS DISTINCT FROM EXCLUDED.director)
+                   OR (EXCLUDED.description IS NOT NULL AND m.description IS DISTINCT FROM EXCLUDED.description)
+                RETURNING (xmax = 0) AS inserted
+            )
+            SELECT (SELECT count(*) FROM source) AS accepted,
+                   count(*) FILTER (WHERE inserted) AS inserted,
+                   count(*) FILTER (WHERE NOT inserted) AS updated
+            FROM merged
+            """;
+
+    // Placeholder accounts: '!' is not a password hash, so no password ever matches
+    private static final String CREATE_MOVIELENS_USERS = """
+            INSERT INTO users (user_id, email, password, created_at, updated_at)
+            SELECT %s, 'movielens-' || ml_user_id || '@import.invalid', '!', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP
+            FROM (SELECT DISTINCT trim(ml_user_id) AS ml_user_id FROM import_ratings WHERE ml_user_id ~ %s) u
+            ON CONFLICT DO NOTHING
+            """.formatted(MOVIELENS_USER_ID.formatted("ml_user_id"), INTEGER_PATTERN);
+
+    // MovieLens rates 0.5 to 5 stars in half steps, this service 1 to 10
+    private static final String MOVIELENS_RATINGS_SOURCE = """
+            SELECT DISTINCT ON (user_id, movie_id) *
+            FROM (SELECT %s AS user_id,
+                         %s AS movie_id,
+                         CASE WHEN rating ~ '^\\s*\\d(\\.\\d+)?\\s*$' THEN round(trim(rating)::numeric * 2)::integer END AS rating_value,
+                         NULL::text AS review,
+                         CASE WHEN rated_at ~ '^\\s*\\d{1,12}\\s*$' THEN to_timestamp(trim(rated_at)::bigint) AT TIME ZONE 'UTC' END AS updated_at
+                  FROM import_ratings
+                  WHERE ml_user_id ~ %3$s
+                    AND ml_movie_id ~ %3$s) s
+            WHERE rating_value BETWEEN 1 AND 10
+              AND updated_at IS NOT NULL
+              AND EXISTS (SELECT 1 FROM movies m WHERE m.movie_id = s.movie_id)
+            ORDER BY user_id, movie_id, updated_at DESC
+            """.formatted(MOVIELENS_USER_ID.formatted("ml_user_id"), MOVIELENS_MOVIE_ID.formatted("ml_movie_id"),
+            INTEGER_PATTERN);
+
+    private static final String NATIVE_RATINGS_SOURCE = """
+            SELECT DISTINCT ON (user_id, movie_id) *
+            FROM (SELECT CASE WHEN rating_id IS NULL THEN gen_random_uuid()
+                              WHEN rating_id ~ %1$s THEN trim(rating_id)::uuid END AS rating_id,
+                         CASE WHEN user_id ~ %1$s THEN trim(user_id)::uuid END AS user_id,
+                         CASE WHEN movie_id ~ %1$s THEN trim(movie_id)::uuid END AS movie_id,
+                         CASE WHEN rating_value ~ %2$s THEN trim(rating_value)::integer END AS rating_value,
+                         nullif(review, '') AS review,
+                         CASE WHEN created_at IS NULL THEN CURRENT_TIMESTAMP::timestamp
+                              WHEN created_at ~ %3$s THEN trim(created_at)::timestamp END AS created_at,
+                         CASE WHEN updated_at IS NULL THEN CURRENT_TIMESTAMP::timestamp
+                              WHEN updated_at ~ %3$s THEN trim(updated_at)::timestamp END AS updated_at
+                  FROM import_ratings) s
+            WHERE rating_id IS NOT NULL
+              AND rating_value BETWEEN 1 AND 10
+              AND created_at IS NOT NULL
+              AND updated_at IS NOT NULL
+              AND EXISTS (SELECT 1 FROM movies m WHERE m.movie_id = s.movie_id)
+              AND EXISTS (SELECT 1 FROM users u WHERE u.user_id = s.user_id)
+            ORDER BY user_id, movie_id, updated_at DESC
+            """.formatted(UUID_PATTERN, INTEGER_PATTERN, TIMESTAMP_PATTERN);
+
+    // Movies whose ratings changed are collected for the statistics refresh
+    private static final String MERGE_RATINGS = """
+            WITH source AS (%s),
+            merged AS (
+                INSERT INTO ratings AS r (rating_id, user_id, movie_id, rating_value, review, created_at, updated_at)
+                SELECT %s, user_id, movie_id, rating_value, review, %s, updated_at
+                FROM source
+                ON CONFLICT (user_id, movie_id) DO UPDATE
+                SET rating_value = EXCLUDED.rating_value,
+                    review = EXCLUDED.review,
+                    updated_at = EXCLUDED.updated_at
+                WHERE (r.rating_value, r.review) IS DISTINCT FROM (EXCLUDED.rating_value, EXCLUDED.review)
+                RETURNING r.movie_id, (xmax = 0) AS inserted
+            ),
+            touched AS (
+                INSERT INTO import_touched_movies SELECT DISTINCT movie_id FROM merged
+            )
+            SELECT (SELECT count(*) FROM source) AS accepted,
+                   count(*) FILTER (WHERE inserted) AS inserted,
+                   count(*) FILTER (WHERE NOT inserted) AS updated
+            FROM merged
+            """;
+
+    private static final String TOUCHED_MOVIES_STAGING =
+            "CREATE TEMP TABLE import_touched_movies (movie_id uuid PRIMARY KEY) ON COMMIT DROP";
+
+    // Rating writers wait on these rows to apply their deltas, so a delta is either counted here or applied on top
+    private static final String LOCK_TOUCHED_STATS = """
+            SELECT s.movie_id FROM movie_rating_stats s
+            WHERE s.movie_id IN (SELECT movie_id FROM import_touched_movies)
+            ORDER BY s.movie_id
+            FOR UPDATE
+            """;
+
+    private static final String REFRESH_TOUCHED_STATS = """
+            INSERT INTO movie_rating_stats AS s (movie_id, rating_sum, rating_count, rating_histogram, version, updated_at)
+            SELECT r.movie_id, sum(r.rating_value), count(*),
+                   ARRAY[count(*) FILTER (WHERE r.rating_value = 1), count(*) FILTER (WHERE r.rating_value = 2),
+                         count(*) FILTER (WHERE r.rating_value = 3), count(*) FILTER (WHERE r.rating_value = 4),
+                         count(*) FILTER (WHERE r.rating_value = 5), count(*) FILTER (WHERE r.rating_value = 6),
+                         count(*) FILTER (WHERE r.rating_value = 7), count(*) FILTER (WHERE r.rating_value = 8),
+                         count(*) FILTER (WHERE r.rating_value = 9), count(*) FILTER (WHERE r.rating_value = 10)],
+                   1, CURRENT_TIMESTAMP
+            FROM ratings r
+            WHERE r.movie_id IN (SELECT movie_id FROM import_touched_movies)
+            GROUP BY r.movie_id
+            ON CONFLICT (movie_id) DO UPDATE
+            SET rating_sum = EXCLUDED.rating_sum,
+                rating_count = EXCLUDED.rating_count,
+                rating_histogram = EXCLUDED.rating_histogram,
+                version = s.version + 1,
+                updated_at = EXCLUDED.updated_at
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // The merges sort and de-duplicate the whole file; the default work_mem would spill that to disk
+    @Value("${app.importer.work-mem:256MB}")
+    private String workMem;
+
+    @Override
+    @Transactional
+    public ImportReportDto importMovies(InputStream csv, ImportLayout layout) {
+        log.info("Import {} movies", layout);
+        long started = System.nanoTime();
+        useImportWorkMem();
+
+        jdbcTemplate.execute(layout == ImportLayout.MOVIELENS ? MOVIELENS_MOVIES_STAGING : NATIVE_MOVIES_STAGING);
+        long rowsRead = copyIn("import_movies", csv);
+        ImportReportDto report = merge(MERGE_MOVIES.formatted(
+                layout == ImportLayout.MOVIELENS ? MOVIELENS_MOVIES_SOURCE : NATIVE_MOVIES_SOURCE,
+                layout == ImportLayout.MOVIELENS), "movies", layout, rowsRead);
+
+        finish(report, started);
+        eventPublisher.publishEvent(new CatalogImportedEvent(report.getDataset()));
+        return report;
+    }
+
+    @Override
+    @Transactional
+    public ImportReportDto importRatings(InputStream csv, ImportLayout layout) {
+        log.info("Import {} ratings", layout);
+        long started = System.nanoTime();
+        useImportWorkMem();
+
+        jdbcTemplate.execute(layout == ImportLayout.MOVIELENS ? MOVIELENS_RATINGS_STAGING : NATIVE_RATINGS_STAGING);
+        jdbcTemplate.execute(TOUCHED_MOVIES_STAGING);
+        long rowsRead = copyIn("import_ratings", csv);
+        if (layout == ImportLayout.MOVIELENS) {
+            jdbcTemplate.update(CREATE_MOVIELENS_USERS);
+        }
+        ImportReportDto report = merge(layout == ImportLayout.MOVIELENS
+                        ? MERGE_RATINGS.formatted(MOVIELENS_RATINGS_SOURCE, TIME_ORDERED_UUID, "updated_at")
+                        : MERGE_RATINGS.formatted(NATIVE_RATINGS_SOURCE, "rating_id", "created_at"),
+                "ratings", layout, rowsRead);
+
+        jdbcTemplate.queryForList(LOCK_TOUCHED_STATS);
+        int refreshed = jdbcTemplate.update(REFRESH_TOUCHED_STATS);
+        log.debug("Refreshed rating statistics of {} movies", refreshed);
+
+        finish(report, started);
+        eventPublisher.publishEvent(new CatalogImportedEvent(report.getDataset()));
+        return report;
+    }
+
+    private void useImportWorkMem() {
+        // transaction-local, the pooled connection goes back with the default
+        jdbcTemplate.queryForObject("SELECT set_config('work_mem', ?, true)", String.class, workMem);
+    }
+
+    private long copyIn(String stagingTable, InputStream csv) {
+        String copy = "COPY " + stagingTable + " FROM STDIN WITH (FORMAT csv, HEADER true)";
+        Long rows = jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            try {
+                return connection.unwrap(PGConnection.class).getCopyAPI().copyIn(copy, csv);
+            } catch (SQLException ex) {
+                // class 22 is a data exception: wrong column count, bad quoting, wrong encoding
+                if (ex.getSQLState() != null && ex.getSQLState().startsWith("22")) {
+                    throw new BadRequestException("Malformed CSV: " + ex.getMessage());
+                }
+                throw ex;
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+        // temporary tables are never auto-analyzed; without statistics the merge is planned for a single row
+        jdbcTemplate.execute("ANALYZE " + stagingTable);
+        return rows == null ? 0 : rows;
+    }
+
+    private ImportReportDto merge(String sql, String dataset, ImportLayout layout, long rowsRead) {
+        return jdbcTemplate.queryForObject(sql, (rs, rowNum) -> {
+            long accepted = rs.getLong("accepted");
+            long inserted = rs.getLong("inserted");
+            long updated = rs.getLong("updated");
+            return ImportReportDto.builder()
+                    .dataset(dataset)
+                    .layout(layout)
+                    .rowsRead(rowsRead)
+                    .inserted(inserted)
+                    .updated(updated)
+                    .unchanged(accepted - inserted - updated)
+                    .skipped(rowsRead - accepted)
+                    .build();
+        });
+    }
+
+    private void finish(ImportReportDto report, long started) {
+        long elapsedNanos = Math.max(System.nanoTime() - started, 1);
+        report.setElapsedMs(TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+        report.setRowsPerSecond(report.getRowsRead() * TimeUnit.SECONDS.toNanos(1) / elapsedNanos);
+        log.info("Imported {} {} rows in {} ms ({} rows/s): {} inserted, {} updated, {} unchanged, {} skipped",
+                report.getRowsRead(), report.getDataset(), report.getElapsedMs(), report.getRowsPerSecond(),
+                report.getInserted(), report.getUpdated(), report.getUnchanged(), report.getSkipped());
+    }
+}
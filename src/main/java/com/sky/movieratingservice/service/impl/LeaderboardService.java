@@ -0,0 +1,144 @@
+package com.sky.movieratingservice.service.impl;
+
+import com.sky.movieratingservice.domain.event.MovieRankingsRefreshedEvent;
+import com.sky.movieratingservice.domain.event.MovieRatingStatsChangedEvent;
+import com.sky.movieratingservice.domain.ranking.BayesianPrior;
+import com.sky.movieratingservice.domain.ranking.LeaderboardEntry;
+import com.sky.movieratingservice.domain.ranking.LeaderboardScope;
+import com.sky.movieratingservice.domain.ranking.ScopedLeaderboards;
+import com.sky.movieratingservice.domain.repository.MovieRatingStatsRepository;
+import com.sky.movieratingservice.domain.repository.MovieRepository;
+import com.sky.movieratingservice.service.ILeaderboardService;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps the top-rated rankings in memory, overall and per genre and release decade, ordered by the same Bayesian
+ * weighted rating as {@code movie_rankings}. At startup and after every refresh of that view the rankings are
+ * rebuilt from its best {@code capacity} movies overall (an index scan) and per scope, with the view's prior;
+ * in between they are updated after every committed rating write. Movies outside the loaded heads enter the
+ * rankings when they are rated here, or with the next refresh.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LeaderboardService implements ILeaderboardService {
+    private final MovieRatingStatsRepository movieRatingStatsRepository;
+    private final MovieRepository movieRepository;
+
+    @Value("${app.leaderboard.capacity:100}")
+    private int capacity;
+
+    @Value("${app.leaderboard.scoped-min-ratings:5}")
+    private int scopedMinRatings;
+
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private volatile ScopedLeaderboards leaderboards;
+
+    @PostConstruct
+    void initialize() {
+        leaderboards = load(currentPrior());
+    }
+
+    @Override
+    public List<LeaderboardEntry> getTopRated(LeaderboardScope scope, int limit) {
+        return leaderboards.top(scope, limit);
+    }
+
+    /**
+     * The prior changes with every refresh, and a bulk import may rename movies without touching their statistics
+     * versions, so the ranking is rebuilt from scratch and swapped in once complete. Writes to the loaded movies
+     * that reached the old ranking meanwhile are carried over, the versions rejecting those already loaded.
+     * Other movies are not: the old ranking may hold values that other instances have since changed.
+     * Runs asynchronously so the refreshing scheduler thread is not held up by the reload. Rebuilds are serialized
+     * and read the prior from the view rather than the event, so the last one to run always reflects the latest
+     * refresh.
+     */
+    @Async
+    @EventListener
+    public void onRankingsRefreshed(MovieRankingsRefreshedEvent event) {
+        rebuildLock.lock();
+        try {
+            ScopedLeaderboards previous = leaderboards;
+            ScopedLeaderboards rebuilt = load(currentPrior());
+            leaderboards = rebuilt;
+            previous.entries().stream()
+                    .filter(entry -> rebuilt.get(entry.movieId()).isPresent())
+                    .forEach(rebuilt::update);
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private BayesianPrior currentPrior() {
+        return movieRatingStatsRepository.findRankingPrior()
+                .map(found -> new BayesianPrior(found.getMinVotes(), found.getMeanRating()))
+                .orElse(BayesianPrior.NONE);
+    }
+
+    private ScopedLeaderboards load(BayesianPrior prior) {
+        ScopedLeaderboards target = new ScopedLeaderboards(capacity, prior, scopedMinRatings);
+        List<MovieRatingStatsRepository.RankedMovie> rankedMovies = movieRatingStatsRepository.findTopRankedMovies(capacity);
+        List<MovieRatingStatsRepository.RankedMovie> scopedMovies =
+                movieRatingStatsRepository.findTopRankedMoviesPerScope(capacity, scopedMinRatings);
+        // a movie in both lists is applied once, the second copy carrying the same version
+        for (MovieRatingStatsRepository.RankedMovie rankedMovie : rankedMovies) {
+            target.update(toEntry(rankedMovie));
+        }
+        for (MovieRatingStatsRepository.RankedMovie scopedMovie : scopedMovies) {
+            target.update(toEntry(scopedMovie));
+        }
+        log.debug("Leaderboards loaded with {} ranked and {} scoped movies in {} scopes, {} votes at {} as prior",
+                rankedMovies.size(), scopedMovies.size(), target.scopes(), prior.minVotes(), prior.meanRating());
+        return target;
+    }
+
+    private static LeaderboardEntry toEntry(MovieRatingStatsRepository.RankedMovie rankedMovie) {
+        return LeaderboardEntry.of(
+                rankedMovie.getMovieId(),
+                rankedMovie.getMovieName(),
+                rankedMovie.getMovieDescription(),
+                rankedMovie.getReleaseYear(),
+                rankedMovie.getGenre(),
+                rankedMovie.getDirector(),
+                rankedMovie.getRatingSum(),
+                rankedMovie.getRatingCount(),
+                rankedMovie.getVersion());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onRatingStatsChanged(MovieRatingStatsChangedEvent event) {
+        ScopedLeaderboards current = leaderboards;
+        Optional<LeaderboardEntry> known = current.get(event.movieId());
+        if (known.isPresent()) {
+            current.update(known.get().withStats(event.ratingSum(), event.ratingCount(), event.version()));
+            return;
+        }
+
+        // First rating of this movie seen by this instance. The writing transaction is committed but still holds its
+        // connection until this listener returns, so the lookup reuses it; asking the pool for a second one would let
+        // a burst of writers starve the pool while each waits for its own second connection.
+        movieRepository.findById(event.movieId())
+                .ifPresent(movie -> current.update(LeaderboardEntry.of(
+                        movie.getId(),
+                        movie.getName(),
+                        movie.getDescription(),
+                        movie.getReleaseYear(),
+                        movie.getGenre(),
+                        movie.getDirector(),
+                        event.ratingSum(),
+                        event.ratingCount(),
+                        event.version())));
+    }
+}
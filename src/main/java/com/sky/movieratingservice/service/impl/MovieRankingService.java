@@ -0,0 +1,112 @@
+package com.sky.movieratingservice.service.impl;
+
+import com.sky.movieratingservice.domain.event.CatalogImportedEvent;
+import com.sky.movieratingservice.domain.event.MovieRankingsRefreshedEvent;
+import com.sky.movieratingservice.domain.event.MovieRatingStatsChangedEvent;
+import com.sky.movieratingservice.domain.ranking.BayesianPrior;
+import com.sky.movieratingservice.domain.repository.MovieRatingStatsRepository;
+import com.sky.movieratingservice.service.IMovieRankingService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Refreshes the {@code movie_rankings} materialized view with {@code REFRESH MATERIALIZED VIEW CONCURRENTLY}, so
+ * readers keep using the previous rows while it runs. A refresh is due once {@code refresh-after-writes} rating
+ * changes have been committed on this instance, or {@code refresh-interval} after the last one, which picks up
+ * writes handled by other instances; due refreshes are started by a check every {@code check-interval}. An
+ * advisory lock lets only one instance refresh at a time.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MovieRankingService implements IMovieRankingService {
+    private final MovieRatingStatsRepository movieRatingStatsRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PlatformTransactionManager transactionManager;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.ranking.min-votes:10}")
+    private double minVotes;
+
+    @Value("${app.ranking.refresh-interval:PT5M}")
+    private Duration refreshInterval;
+
+    @Value("${app.ranking.refresh-after-writes:1000}")
+    private long refreshAfterWrites;
+
+    private final AtomicLong pendingChanges = new AtomicLong();
+    // The view may be stale after a restart, so the first check refreshes it
+    private volatile long nextRefreshNanos = System.nanoTime();
+    private Timer refreshTimer;
+
+    @PostConstruct
+    void registerMeters() {
+        refreshTimer = Timer.builder("movie.rankings.refresh")
+                .description("Time taken to refresh the movie_rankings materialized view")
+                .register(meterRegistry);
+        Gauge.builder("movie.rankings.pending.changes", pendingChanges, AtomicLong::get)
+                .description("Rating changes committed on this instance since movie_rankings was last refreshed")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.ranking.check-interval:PT1S}")
+    public void refreshIfDue() {
+        if (pendingChanges.get() >= refreshAfterWrites || System.nanoTime() - nextRefreshNanos >= 0) {
+            refresh();
+        }
+    }
+
+    @Override
+    public boolean refresh() {
+        long changes = pendingChanges.get();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        BayesianPrior prior = refreshTimer.record(() -> transaction.execute(status -> {
+            if (!movieRatingStatsRepository.tryLockRankingsRefresh()) {
+                return null;
+            }
+            movieRatingStatsRepository.setRankingMinVotes(Double.toString(minVotes));
+            movieRatingStatsRepository.refreshRankings();
+            return movieRatingStatsRepository.findRankingPrior()
+                    .map(found -> new BayesianPrior(found.getMinVotes(), found.getMeanRating()))
+                    .orElse(BayesianPrior.NONE);
+        }));
+        nextRefreshNanos = System.nanoTime() + refreshInterval.toNanos();
+        if (prior == null) {
+            log.debug("movie_rankings is being refreshed by another instance");
+            return false;
+        }
+
+        pendingChanges.addAndGet(-changes);
+        log.debug("movie_rankings refreshed after {} rating changes, mean rating {}", changes, prior.meanRating());
+        eventPublisher.publishEvent(new MovieRankingsRefreshedEvent(prior));
+        return true;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onRatingStatsChanged(MovieRatingStatsChangedEvent event) {
+        pendingChanges.incrementAndGet();
+    }
+
+    /**
+     * An import changes aggregates without per-movie events, so the next check refreshes regardless.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onCatalogImported(CatalogImportedEvent event) {
+        nextRefreshNanos = System.nanoTime();
+    }
+}
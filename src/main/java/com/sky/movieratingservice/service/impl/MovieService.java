@@ -1,42 +1,93 @@
 package com.sky.movieratingservice.service.impl;
 
 import com.sky.movieratingservice.api.dto.request.CreateMovieRequestDto;
+import com.sky.movieratingservice.api.dto.response.CursorPageResponseDto;
 import com.sky.movieratingservice.api.dto.response.MovieDetailResponseDto;
 import com.sky.movieratingservice.api.dto.response.MovieResponseDto;
+import com.sky.movieratingservice.api.dto.response.RatingDistributionResponseDto;
 import com.sky.movieratingservice.api.dto.response.TopRatedMovieResponseDto;
+import com.sky.movieratingservice.common.CursorCodec;
+import com.sky.movieratingservice.common.Versioned;
+import com.sky.movieratingservice.config.CacheConfig;
 import com.sky.movieratingservice.domain.entity.Movie;
+import com.sky.movieratingservice.domain.entity.MovieRatingStats;
+import com.sky.movieratingservice.domain.event.CatalogImportedEvent;
+import com.sky.movieratingservice.domain.event.MovieCreatedEvent;
+import com.sky.movieratingservice.domain.event.MovieRatingStatsChangedEvent;
+import com.sky.movieratingservice.domain.exception.BadRequestException;
 import com.sky.movieratingservice.domain.exception.ResourceNotFoundException;
+import com.sky.movieratingservice.domain.model.RatingHistogram;
+import com.sky.movieratingservice.domain.ranking.LeaderboardEntry;
+import com.sky.movieratingservice.domain.ranking.LeaderboardScope;
+import com.sky.movieratingservice.domain.repository.MovieRatingStatsRepository;
 import com.sky.movieratingservice.domain.repository.MovieRepository;
-import com.sky.movieratingservice.domain.repository.RatingRepository;
 import com.sky.movieratingservice.mapper.MovieMapper;
+import com.sky.movieratingservice.service.ILeaderboardService;
 import com.sky.movieratingservice.service.IMovieService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.mapstruct.factory.Mappers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.data.domain.Page;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
 
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class MovieService implements IMovieService {
+    private static final int[] DISTRIBUTION_PERCENTILES = {10, 25, 50, 75, 90};
+    private static final Sort MOVIE_PAGE_SORT = Sort.by("name").ascending().and(Sort.by("id"));
+
     private final Logger logger = LoggerFactory.getLogger(MovieService.class);
     private final MovieRepository movieRepository;
-    private final RatingRepository ratingRepository;
+    private final MovieRatingStatsRepository movieRatingStatsRepository;
+    private final ILeaderboardService leaderboardService;
     private final MovieMapper movieMapper;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * The details are cached together with the version they were read at, so a cached body always goes out under
+     * its own tag even when it is older than the database.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    @Cacheable(cacheNames = CacheConfig.MOVIE_DETAILS_CACHE, key = "#movieId")
+    public Versioned<MovieDetailResponseDto> getMovieById(UUID movieId) {
+        return loadMovieDetails(movieId);
+    }
 
+    /**
+     * Reads the details from the database and replaces the cached ones, for when they are known to be older than
+     * the database, e.g. because only another instance evicted them.
+     */
     @Override
     @Transactional(readOnly = true)
-    public MovieDetailResponseDto getMovieById(UUID movieId) {
+    @CachePut(cacheNames = CacheConfig.MOVIE_DETAILS_CACHE, key = "#movieId")
+    public Versioned<MovieDetailResponseDto> reloadMovieById(UUID movieId) {
+        return loadMovieDetails(movieId);
+    }
+
+    private Versioned<MovieDetailResponseDto> loadMovieDetails(UUID movieId) {
         logger.debug("Fetching movie details for ID: {}", movieId);
 
         var movie = movieRepository.findById(movieId).orElseThrow(() ->
@@ -44,13 +95,57 @@ public class MovieService implements IMovieService {
 
         MovieDetailResponseDto movieDetailResponseDto = movieMapper.toMovieDetailResponse(movie);
 
-        var movieAvgRating = ratingRepository.findAverageRatingByMovieId(movieId).orElse(0.0);
-        var movieRatingCount = ratingRepository.countByMovieId(movieId);
+        var movieRatingStats = movieRatingStatsRepository.findById(movieId);
+
+        movieDetailResponseDto.setAvgRating(movieRatingStats.map(MovieRatingStats::getAverageRating).orElse(0.0));
+        movieDetailResponseDto.setRatingCount(movieRatingStats.map(MovieRatingStats::getRatingCount).orElse(0L));
+        Long statsVersion = movieRatingStats.map(MovieRatingStats::getVersion).orElse(null);
+        return new Versioned<>(movieDetailResponseDto, detailVersion(movie.getUpdatedAt(), statsVersion));
+    }
 
-        movieDetailResponseDto.setAvgRating(movieAvgRating);
-        movieDetailResponseDto.setRatingCount(movieRatingCount);
-        return movieDetailResponseDto;
+    @Override
+    public Optional<String> getMovieVersion(UUID movieId) {
+        return movieRepository.findDetailVersionById(movieId)
+                .map(version -> detailVersion(version.getUpdatedAt(), version.getStatsVersion()));
+    }
 
+    private static String detailVersion(LocalDateTime updatedAt, Long statsVersion) {
+        return Versioned.digest(Stream.of(updatedAt, statsVersion));
+    }
+
+    /**
+     * Reads the distribution from the movie's histogram, so the cost does not grow with the number of ratings.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public RatingDistributionResponseDto getRatingDistribution(UUID movieId) {
+        logger.debug("Fetching rating distribution for ID: {}", movieId);
+
+        var movieRatingStats = movieRatingStatsRepository.findById(movieId);
+        if (movieRatingStats.isEmpty() && !movieRepository.existsById(movieId)) {
+            throw new ResourceNotFoundException("Movie", "id", movieId);
+        }
+        RatingHistogram histogram = movieRatingStats.map(MovieRatingStats::getHistogram).orElseGet(RatingHistogram::new);
+
+        Map<Integer, Long> counts = new LinkedHashMap<>();
+        for (int value = RatingHistogram.MIN_RATING; value <= RatingHistogram.MAX_RATING; value++) {
+            counts.put(value, histogram.count(value));
+        }
+        Map<String, Integer> percentiles = null;
+        if (histogram.count() > 0) {
+            percentiles = new LinkedHashMap<>();
+            for (int percentile : DISTRIBUTION_PERCENTILES) {
+                percentiles.put("p" + percentile, histogram.percentile(percentile));
+            }
+        }
+        return RatingDistributionResponseDto.builder()
+                .movieId(movieId)
+                .ratingCount(histogram.count())
+                .avgRating(histogram.mean())
+                .counts(counts)
+                .median(histogram.median())
+                .percentiles(percentiles)
+                .build();
     }
 
     @Override
@@ -60,38 +155,159 @@ public class MovieService implements IMovieService {
 
         Movie movie = movieMapper.toMovie(movieRequestDto);
         movie = movieRepository.save(movie);
+        eventPublisher.publishEvent(new MovieCreatedEvent(
+                movie.getId(), movie.getName(), movie.getDirector(), movie.getReleaseYear()));
 
         logger.debug("Movie created: {}", movie);
         return movieMapper.toMovieResponse(movie);
     }
 
+    /**
+     * Drops the cached details of a movie once a rating change for it is committed,
+     * so the next read picks up the new average and count.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    @CacheEvict(cacheNames = CacheConfig.MOVIE_DETAILS_CACHE, key = "#event.movieId()")
+    public void onRatingStatsChanged(MovieRatingStatsChangedEvent event) {
+        logger.debug("Evicting cached details of movie {}", event.movieId());
+    }
+
+    /**
+     * Drops all cached movie details once a bulk import is committed.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    @CacheEvict(cacheNames = CacheConfig.MOVIE_DETAILS_CACHE, allEntries = true)
+    public void onCatalogImported(CatalogImportedEvent event) {
+        logger.debug("Evicting all cached movie details after a {} import", event.dataset());
+    }
+
     @Override
-    @Transactional(readOnly = true)
     public TopRatedMovieResponseDto getTopRatedMovies() {
-        logger.debug("Fetching top rated movies");
+        return getTopRatedMovies(null, null).body();
+    }
 
+    @Override
+    public Versioned<TopRatedMovieResponseDto> getTopRatedMovies(String genre, Integer decade) {
+        logger.debug("Fetching top rated movie, genre: {}, decade: {}", genre, decade);
 
-        Pageable pageable = PageRequest.of(0, 1);
-        Page<MovieRepository.MovieStatistics> topRatedMovies = movieRepository.findTopRatedMovies(1L, pageable);
+        Versioned<List<TopRatedMovieResponseDto>> topRatedMovies = getTopRatedMovies(genre, decade, 1);
 
-        if (topRatedMovies.isEmpty()) {
+        if (topRatedMovies.body().isEmpty()) {
             throw new ResourceNotFoundException("N0 top rated movies found, no movies have ratings yet.");
         }
 
-        return movieMapper.toTopRatedMoviesResponse(topRatedMovies.getContent().getFirst());
+        return new Versioned<>(topRatedMovies.body().getFirst(), topRatedMovies.version());
+    }
+
+    @Override
+    public List<TopRatedMovieResponseDto> getTopRatedMovies(int limit) {
+        return getTopRatedMovies(null, null, limit).body();
+    }
+
+    /**
+     * Served from the in-memory leaderboard of the genre, the decade or the genre within the decade; a scope without
+     * movies that have enough ratings is an empty list. The body and its version come from one read of the entries,
+     * versioned by the listed movie ids in order and the stats version of each, the only parts of an entry that
+     * change, so no query is needed and instances with the same rankings agree on it.
+     */
+    @Override
+    public Versioned<List<TopRatedMovieResponseDto>> getTopRatedMovies(String genre, Integer decade, int limit) {
+        logger.debug("Fetching top {} rated movies, genre: {}, decade: {}", limit, genre, decade);
+
+        List<LeaderboardEntry> entries = leaderboardService.getTopRated(scope(genre, decade), limit);
+        String version = Versioned.digest(entries.stream()
+                .flatMap(entry -> Stream.of(entry.movieId(), entry.version())));
+        return new Versioned<>(entries.stream()
+                .map(movieMapper::toTopRatedMoviesResponse)
+                .toList(), version);
+    }
+
+    private static LeaderboardScope scope(String genre, Integer decade) {
+        try {
+            return new LeaderboardScope(genre, decade);
+        } catch (IllegalArgumentException ex) {
+            throw new BadRequestException(ex.getMessage());
+        }
     }
 
     @Override
     @Transactional(readOnly = true)
-    public List<MovieResponseDto> getAllMovies(int page, int size) {
+    public Versioned<List<MovieResponseDto>> getAllMovies(int page, int size) {
         logger.debug("Fetching all movies - page: {}, size: {}", page, size);
 
-        Pageable pageable = PageRequest.of(page, size, Sort.by("name").ascending());
-        Page<Movie> allMovies = movieRepository.findAll(pageable);
+        Pageable pageable = PageRequest.of(page, size, MOVIE_PAGE_SORT);
+        Slice<Movie> allMovies = movieRepository.findAllBy(pageable);
 
-        return allMovies.getContent()
+        List<MovieResponseDto> movies = allMovies.getContent()
                 .stream()
                 .map(movieMapper::toMovieResponse)
                 .toList();
+        return new Versioned<>(movies, moviesVersion(allMovies.getContent()));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Versioned<CursorPageResponseDto<MovieResponseDto>> getMovies(String after, int size) {
+        logger.debug("Fetching movies after cursor: {}, size: {}", after, size);
+
+        // One extra row tells whether there is a next page without counting
+        Limit limit = Limit.of(size + 1);
+        List<Movie> movies;
+        if (after == null || after.isBlank()) {
+            movies = movieRepository.findAllByOrderByNameAscIdAsc(limit);
+        } else {
+            List<String> keys = CursorCodec.decode(after, 2);
+            movies = movieRepository.findAllAfter(keys.get(1), parseCursorId(keys.getFirst()), limit);
+        }
+
+        boolean hasNext = movies.size() > size;
+        List<Movie> page = hasNext ? movies.subList(0, size) : movies;
+        String nextCursor = hasNext ? CursorCodec.encode(page.getLast().getId(), page.getLast().getName()) : null;
+
+        CursorPageResponseDto<MovieResponseDto> response = CursorPageResponseDto.<MovieResponseDto>builder()
+                .items(page.stream().map(movieMapper::toMovieResponse).toList())
+                .nextCursor(nextCursor)
+                .build();
+        return new Versioned<>(response, moviesVersion(movies));
+    }
+
+    @Override
+    public String getMoviesVersion(int page, int size) {
+        return pageVersion(movieRepository.findVersionsBy(PageRequest.of(page, size, MOVIE_PAGE_SORT)));
+    }
+
+    /**
+     * Version of the page {@link #getMovies} returns for the cursor. It covers the extra row read to find out whether
+     * there is a next page, so a movie added after the last page changes it along with the page's next cursor.
+     */
+    @Override
+    public String getMoviesVersion(String after, int size) {
+        Limit limit = Limit.of(size + 1);
+        if (after == null || after.isBlank()) {
+            return pageVersion(movieRepository.findVersionsByOrderByNameAscIdAsc(limit));
+        }
+        List<String> keys = CursorCodec.decode(after, 2);
+        return pageVersion(movieRepository.findVersionsAfter(keys.get(1), parseCursorId(keys.getFirst()), limit));
+    }
+
+    // A page is versioned by the ids and change times of its rows, whether read with the movies or on their own
+    private static String moviesVersion(List<Movie> movies) {
+        return Versioned.digest(movies.stream().map(movie -> rowVersion(movie.getId(), movie.getUpdatedAt())));
+    }
+
+    private static String pageVersion(List<MovieRepository.RowVersion> rows) {
+        return Versioned.digest(rows.stream().map(row -> rowVersion(row.getId(), row.getUpdatedAt())));
+    }
+
+    private static String rowVersion(UUID id, LocalDateTime updatedAt) {
+        return id + ":" + updatedAt;
+    }
+
+    private static UUID parseCursorId(String id) {
+        try {
+            return UUID.fromString(id);
+        } catch (IllegalArgumentException ex) {
+            throw new BadRequestException("Invalid cursor");
+        }
     }
 }
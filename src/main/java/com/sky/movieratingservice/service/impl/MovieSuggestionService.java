@@ -0,0 +1,183 @@
+package com.sky.movieratingservice.service.impl;
+
+import com.sky.movieratingservice.api.dto.response.MovieSuggestionResponseDto;
+import com.sky.movieratingservice.domain.event.CatalogImportedEvent;
+import com.sky.movieratingservice.domain.event.MovieCreatedEvent;
+import com.sky.movieratingservice.domain.event.MovieRankingsRefreshedEvent;
+import com.sky.movieratingservice.domain.event.MovieRatingStatsChangedEvent;
+import com.sky.movieratingservice.domain.repository.MovieRepository;
+import com.sky.movieratingservice.domain.search.Suggestion;
+import com.sky.movieratingservice.domain.search.TypeaheadIndex;
+import com.sky.movieratingservice.mapper.MovieMapper;
+import com.sky.movieratingservice.service.IMovieSuggestionService;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Serves movie suggestions from an in-memory {@link TypeaheadIndex}, ranked by number of ratings. The index is
+ * built from all movies at startup; movies created afterwards are added and rating counts raised as their writes
+ * are committed on this instance. Changes the index cannot follow incrementally (fewer ratings, renames, writes on
+ * other instances) are picked up by a full rebuild after a bulk import and, at most every {@code rebuild-interval},
+ * after a refresh of the rankings.
+ * <p>
+ * Readers use the current index without locking; writers are serialized by a lock that is never held while the
+ * movies are read. Changes arriving during a rebuild are recorded and replayed onto the rebuilt index, which only
+ * ever raises popularity, so a change the rebuild has already read is a no-op.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MovieSuggestionService implements IMovieSuggestionService {
+    private final MovieRepository movieRepository;
+    private final MovieMapper movieMapper;
+
+    @Value("${app.suggest.top-k:10}")
+    private int topK;
+
+    @Value("${app.suggest.rebuild-interval:PT1H}")
+    private Duration rebuildInterval;
+
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private volatile TypeaheadIndex index;
+    private volatile long nextRebuildNanos;
+
+    // Guarded by writeLock: the indexed movies by id, and the changes made while a rebuild reads the movies
+    private Map<UUID, Suggestion> suggestions = new HashMap<>();
+    private List<Suggestion> createdDuringRebuild;
+    private Map<UUID, Long> countsDuringRebuild;
+
+    @PostConstruct
+    void initialize() {
+        rebuild();
+    }
+
+    @Override
+    public List<MovieSuggestionResponseDto> suggest(String query, int limit) {
+        return index.suggest(query, limit).stream()
+                .map(movieMapper::toSuggestionResponse)
+                .toList();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onMovieCreated(MovieCreatedEvent event) {
+        Suggestion suggestion = new Suggestion(event.movieId(), event.name(), event.director(), event.releaseYear(), 0);
+        writeLock.lock();
+        try {
+            add(suggestion);
+            if (createdDuringRebuild != null) {
+                createdDuringRebuild.add(suggestion);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Raises the movie's popularity in place. Movies not indexed yet (created on another instance) and lower counts
+     * (deleted ratings, or events arriving out of order) wait for the next rebuild.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onRatingStatsChanged(MovieRatingStatsChangedEvent event) {
+        writeLock.lock();
+        try {
+            raisePopularity(event.movieId(), event.ratingCount());
+            if (countsDuringRebuild != null) {
+                countsDuringRebuild.merge(event.movieId(), event.ratingCount(), Math::max);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onCatalogImported(CatalogImportedEvent event) {
+        rebuild();
+    }
+
+    @Async
+    @EventListener
+    public void onRankingsRefreshed(MovieRankingsRefreshedEvent event) {
+        if (System.nanoTime() - nextRebuildNanos >= 0) {
+            rebuild();
+        }
+    }
+
+    private void rebuild() {
+        rebuildLock.lock();
+        try {
+            long start = System.nanoTime();
+            nextRebuildNanos = start + rebuildInterval.toNanos();
+            startRecording();
+
+            Map<UUID, Suggestion> loaded = new HashMap<>();
+            for (MovieRepository.SuggestionSource source : movieRepository.findAllForSuggestions()) {
+                loaded.put(source.getMovieId(), new Suggestion(source.getMovieId(), source.getMovieName(),
+                        source.getDirector(), source.getReleaseYear(), source.getRatingCount()));
+            }
+            TypeaheadIndex rebuilt = TypeaheadIndex.empty(topK).withAll(loaded.values());
+
+            swapIn(rebuilt, loaded);
+            log.debug("Suggestion index built with {} movies in {} ms",
+                    loaded.size(), (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private void startRecording() {
+        writeLock.lock();
+        try {
+            createdDuringRebuild = new ArrayList<>();
+            countsDuringRebuild = new HashMap<>();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void swapIn(TypeaheadIndex rebuilt, Map<UUID, Suggestion> loaded) {
+        writeLock.lock();
+        try {
+            index = rebuilt;
+            suggestions = loaded;
+            createdDuringRebuild.forEach(this::add);
+            countsDuringRebuild.forEach(this::raisePopularity);
+            createdDuringRebuild = null;
+            countsDuringRebuild = null;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void add(Suggestion suggestion) {
+        // a movie the rebuild already read keeps what it read, which may include ratings
+        if (suggestions.putIfAbsent(suggestion.movieId(), suggestion) == null) {
+            index = index.with(suggestion);
+        }
+    }
+
+    private void raisePopularity(UUID movieId, long ratingCount) {
+        Suggestion known = suggestions.get(movieId);
+        if (known == null || known.popularity() >= ratingCount) {
+            return;
+        }
+        Suggestion raised = new Suggestion(movieId, known.name(), known.director(), known.releaseYear(), ratingCount);
+        suggestions.put(movieId, raised);
+        index = index.with(raised);
+    }
+}
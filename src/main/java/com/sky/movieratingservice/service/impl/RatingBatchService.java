@@ -0,0 +1,225 @@
+package com.sky.movieratingservice.service.impl;
+
+import com.sky.movieratingservice.api.dto.request.BatchRatingItemDto;
+import com.sky.movieratingservice.api.dto.response.BatchRatingResponseDto;
+import com.sky.movieratingservice.api.dto.response.BatchRatingResultDto;
+import com.sky.movieratingservice.domain.event.MovieRatingStatsChangedEvent;
+import com.sky.movieratingservice.domain.event.RatingsDeletedEvent;
+import com.sky.movieratingservice.domain.model.RatingHistogram;
+import com.sky.movieratingservice.domain.repository.MovieRatingStatsRepository;
+import com.sky.movieratingservice.domain.repository.MovieRepository;
+import com.sky.movieratingservice.domain.repository.RatingRepository;
+import com.sky.movieratingservice.service.IRatingBatchService;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import static com.sky.movieratingservice.api.dto.request.BatchRatingItemDto.Operation.DELETE;
+import static com.sky.movieratingservice.api.dto.request.BatchRatingItemDto.Operation.UPSERT;
+
+/**
+ * Applies many rating writes of one user with a handful of statements per chunk instead of four round trips
+ * per rating. Every chunk commits on its own, so a failing chunk only fails its own items.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RatingBatchService implements IRatingBatchService {
+    private static final int MAX_UPSERT_ATTEMPTS = 3;
+
+    private final RatingRepository ratingRepository;
+    private final MovieRepository movieRepository;
+    private final MovieRatingStatsRepository movieRatingStatsRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PlatformTransactionManager transactionManager;
+    private final Validator validator;
+
+    @Value("${app.ratings.batch.chunk-size:500}")
+    private int chunkSize;
+
+    @Override
+    public BatchRatingResponseDto applyBatch(UUID userId, List<BatchRatingItemDto> items) {
+        log.info("Apply batch of {} ratings for User {}", items.size(), userId);
+
+        BatchRatingResultDto[] results = new BatchRatingResultDto[items.size()];
+        List<Integer> chunk = new ArrayList<>(Math.min(chunkSize, items.size()));
+        for (int index = 0; index < items.size(); index++) {
+            String violation = validate(items.get(index));
+            if (violation != null) {
+                results[index] = result(index, items.get(index), BatchRatingResultDto.Status.INVALID, violation);
+                continue;
+            }
+            chunk.add(index);
+            if (chunk.size() == chunkSize) {
+                applyChunk(userId, items, chunk, results);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            applyChunk(userId, items, chunk, results);
+        }
+
+        int applied = (int) Arrays.stream(results).filter(r -> r.getStatus().isApplied()).count();
+        return BatchRatingResponseDto.builder()
+                .applied(applied)
+                .rejected(results.length - applied)
+                .results(Arrays.asList(results))
+                .build();
+    }
+
+    private void applyChunk(UUID userId, List<BatchRatingItemDto> items, List<Integer> chunk, BatchRatingResultDto[] results) {
+        // one write per movie: a statement may not touch the same row twice, and the last item wins anyway
+        Map<UUID, Integer> lastIndexByMovie = new LinkedHashMap<>();
+        for (int index : chunk) {
+            lastIndexByMovie.put(items.get(index).getMovieId(), index);
+        }
+
+        Map<UUID, BatchRatingResultDto.Status> outcomes;
+        try {
+            outcomes = new TransactionTemplate(transactionManager).execute(status -> writeChunk(userId,
+                    lastIndexByMovie.values().stream().map(items::get).toList()));
+        } catch (DataAccessException ex) {
+            log.error("Rating batch chunk of {} items for User {} failed", chunk.size(), userId, ex);
+            for (int index : chunk) {
+                results[index] = result(index, items.get(index), BatchRatingResultDto.Status.FAILED,
+                        "Could not be stored, the item can be retried");
+            }
+            return;
+        }
+
+        for (int index : chunk) {
+            BatchRatingItemDto item = items.get(index);
+            if (lastIndexByMovie.get(item.getMovieId()) != index) {
+                results[index] = result(index, item, BatchRatingResultDto.Status.SUPERSEDED,
+                        "Replaced by a later item for the same movie");
+                continue;
+            }
+            BatchRatingResultDto.Status status = outcomes.get(item.getMovieId());
+            if (status == null) {
+                results[index] = result(index, item, BatchRatingResultDto.Status.NOT_FOUND,
+                        item.getOp() == DELETE ? "No rating for this movie" : "Movie not found");
+            } else if (status == BatchRatingResultDto.Status.FAILED) {
+                results[index] = result(index, item, status, "Rating is being changed concurrently, the item can be retried");
+            } else {
+                results[index] = result(index, item, status, null);
+            }
+        }
+    }
+
+    private Map<UUID, BatchRatingResultDto.Status> writeChunk(UUID userId, List<BatchRatingItemDto> writes) {
+        List<BatchRatingItemDto> upserts = writes.stream().filter(w -> w.getOp() == UPSERT).toList();
+        UUID[] deletes = writes.stream().filter(w -> w.getOp() == DELETE).map(BatchRatingItemDto::getMovieId).toArray(UUID[]::new);
+
+        if (deletes.length > 0) {
+            // taken before anything is written, as by single deletes, see RatingService#deleteRating
+            ratingRepository.lockRatingsOfUsers(new UUID[]{userId});
+        }
+
+        Map<UUID, BatchRatingResultDto.Status> outcomes = new HashMap<>();
+        // sorted, so stats rows are locked in the same order by every writer
+        Map<UUID, RatingHistogram> statsDeltas = new TreeMap<>();
+
+        List<BatchRatingItemDto> pending = upserts;
+        for (int attempt = 0; attempt < MAX_UPSERT_ATTEMPTS && !pending.isEmpty(); attempt++) {
+            Map<UUID, RatingRepository.WrittenRating> written = upsert(userId, pending);
+            List<BatchRatingItemDto> missing = new ArrayList<>();
+            for (BatchRatingItemDto item : pending) {
+                var rating = written.get(item.getMovieId());
+                if (rating == null) {
+                    // unknown movie, or a concurrent first rating committed meanwhile, the next attempt updates it
+                    missing.add(item);
+                } else if (rating.getInserted()) {
+                    outcomes.put(rating.getMovieId(), BatchRatingResultDto.Status.CREATED);
+                    statsDeltas.put(rating.getMovieId(), new RatingHistogram().add(rating.getRatingValue()));
+                } else {
+                    outcomes.put(rating.getMovieId(), BatchRatingResultDto.Status.UPDATED);
+                    statsDeltas.put(rating.getMovieId(),
+                            new RatingHistogram().change(rating.getPreviousValue(), rating.getRatingValue()));
+                }
+            }
+            pending = missing;
+        }
+        for (BatchRatingItemDto item : pending) {
+            if (movieRepository.existsById(item.getMovieId())) {
+                outcomes.put(item.getMovieId(), BatchRatingResultDto.Status.FAILED);
+            }
+        }
+
+        if (deletes.length > 0) {
+            for (var rating : ratingRepository.deleteAllReturning(userId, deletes)) {
+                outcomes.put(rating.getMovieId(), BatchRatingResultDto.Status.DELETED);
+                statsDeltas.put(rating.getMovieId(), new RatingHistogram().remove(rating.getRatingValue()));
+            }
+            eventPublisher.publishEvent(new RatingsDeletedEvent(userId, List.of(deletes)));
+        }
+
+        statsDeltas.values().removeIf(RatingHistogram::isEmpty);
+        if (!statsDeltas.isEmpty()) {
+            var snapshots = movieRatingStatsRepository.applyDeltas(
+                    statsDeltas.keySet().toArray(UUID[]::new),
+                    statsDeltas.values().stream().map(RatingHistogram::sum).toArray(Long[]::new),
+                    statsDeltas.values().stream().map(RatingHistogram::count).toArray(Long[]::new),
+                    statsDeltas.values().stream().flatMap(delta -> Arrays.stream(delta.toArray())).toArray(Long[]::new));
+            snapshots.forEach(stats -> eventPublisher.publishEvent(new MovieRatingStatsChangedEvent(
+                    stats.getMovieId(), stats.getRatingSum(), stats.getRatingCount(), stats.getVersion())));
+        }
+        return outcomes;
+    }
+
+    /**
+     * Writes the ratings like single rating writes do: existing ones are locked before their previous value is
+     * read, and first ratings that lose to a concurrent insert are left out instead of overwriting it.
+     */
+    private Map<UUID, RatingRepository.WrittenRating> upsert(UUID userId, List<BatchRatingItemDto> upserts) {
+        LocalDateTime now = LocalDateTime.now();
+        var written = ratingRepository.upsertForUsers(
+                upserts.stream().map(item -> userId).toArray(UUID[]::new),
+                upserts.stream().map(BatchRatingItemDto::getMovieId).toArray(UUID[]::new),
+                upserts.stream().map(BatchRatingItemDto::getRatingValue).toArray(Integer[]::new),
+                upserts.stream().map(BatchRatingItemDto::getReview).toArray(String[]::new),
+                upserts.stream().map(item -> now).toArray(LocalDateTime[]::new));
+        Map<UUID, RatingRepository.WrittenRating> byMovie = new HashMap<>();
+        written.forEach(rating -> byMovie.put(rating.getMovieId(), rating));
+        return byMovie;
+    }
+
+    private String validate(BatchRatingItemDto item) {
+        var violations = validator.validate(item);
+        if (!violations.isEmpty()) {
+            return violations.stream().map(ConstraintViolation::getMessage).sorted().findFirst().orElseThrow();
+        }
+        if (item.getOp() == null) {
+            return "Operation cannot be null";
+        }
+        if (item.getOp() == UPSERT && item.getRatingValue() == null) {
+            return "Rating value cannot be null";
+        }
+        return null;
+    }
+
+    private static BatchRatingResultDto result(int index, BatchRatingItemDto item, BatchRatingResultDto.Status status, String message) {
+        return BatchRatingResultDto.builder()
+                .index(index)
+                .movieId(item.getMovieId())
+                .status(status)
+                .message(message)
+                .build();
+    }
+}
@@ -0,0 +1,196 @@
+package com.sky.movieratingservice.service.impl;
+
+import com.sky.movieratingservice.api.dto.request.RatingRequestDto;
+import com.sky.movieratingservice.api.dto.response.RatingResponseDto;
+import com.sky.movieratingservice.common.GroupCommitter;
+import com.sky.movieratingservice.common.GroupCommitter.Outcome;
+import com.sky.movieratingservice.domain.event.MovieRatingStatsChangedEvent;
+import com.sky.movieratingservice.domain.exception.ResourceNotFoundException;
+import com.sky.movieratingservice.domain.exception.ServiceUnavailableException;
+import com.sky.movieratingservice.domain.journal.RatingKey;
+import com.sky.movieratingservice.domain.model.RatingHistogram;
+import com.sky.movieratingservice.domain.model.RatingWrite;
+import com.sky.movieratingservice.domain.repository.MovieRatingStatsRepository;
+import com.sky.movieratingservice.domain.repository.MovieRepository;
+import com.sky.movieratingservice.domain.repository.RatingRepository;
+import com.sky.movieratingservice.domain.repository.UserRepository;
+import com.sky.movieratingservice.mapper.RatingMapper;
+import com.sky.movieratingservice.service.IRatingGroupCommitService;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Group commit for single rating writes. Writes arriving concurrently on different request threads are collected
+ * by a {@link GroupCommitter} and written in one transaction with one upsert statement, so a burst of ratings
+ * costs one connection checkout and one WAL flush instead of one per rating. Each caller still gets its own
+ * rating back, or its own error.
+ */
+@Service
+@ConditionalOnProperty(prefix = "app.ratings.group-commit", name = "enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class RatingGroupCommitService implements IRatingGroupCommitService {
+    private static final int MAX_UPSERT_ATTEMPTS = 3;
+
+    private final RatingRepository ratingRepository;
+    private final MovieRepository movieRepository;
+    private final UserRepository userRepository;
+    private final MovieRatingStatsRepository movieRatingStatsRepository;
+    private final RatingMapper ratingMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PlatformTransactionManager transactionManager;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.ratings.group-commit.committers:2}")
+    private int committers;
+
+    @Value("${app.ratings.group-commit.max-batch-size:200}")
+    private int maxBatchSize;
+
+    @Value("${app.ratings.group-commit.max-wait:PT0.002S}")
+    private Duration maxWait;
+
+    @Value("${app.ratings.group-commit.queue-capacity:10000}")
+    private int queueCapacity;
+
+    private GroupCommitter<RatingWrite, RatingResponseDto> committer;
+
+    @PostConstruct
+    public void open() {
+        committer = new GroupCommitter<>("ratings", committers, maxBatchSize, maxWait, queueCapacity,
+                this::commit, meterRegistry);
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        committer.close();
+    }
+
+    @Override
+    public RatingResponseDto createOrUpdateRating(RatingRequestDto ratingRequestDto, UUID userId) {
+        var result = committer.submit(new RatingWrite(userId, ratingRequestDto.getMovieId(),
+                ratingRequestDto.getRatingValue(), ratingRequestDto.getReview(), LocalDateTime.now()));
+        try {
+            return result.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Rating write was interrupted");
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    private List<Outcome<RatingResponseDto>> commit(List<RatingWrite> writes) {
+        return new TransactionTemplate(transactionManager).execute(status -> write(writes));
+    }
+
+    private List<Outcome<RatingResponseDto>> write(List<RatingWrite> writes) {
+        @SuppressWarnings("unchecked")
+        Outcome<RatingResponseDto>[] outcomes = new Outcome[writes.size()];
+        // sorted, so stats rows are locked in the same order by every writer
+        Map<UUID, RatingHistogram> statsDeltas = new TreeMap<>();
+
+        for (List<Integer> round : rounds(writes)) {
+            List<Integer> pending = round;
+            for (int attempt = 0; attempt < MAX_UPSERT_ATTEMPTS && !pending.isEmpty(); attempt++) {
+                Map<RatingKey, RatingRepository.WrittenRating> written = upsert(pending.stream().map(writes::get).toList());
+                List<Integer> missing = new ArrayList<>();
+                for (int index : pending) {
+                    var rating = written.get(writes.get(index).key());
+                    if (rating == null) {
+                        // unknown user or movie, or a concurrent first rating committed meanwhile
+                        missing.add(index);
+                        continue;
+                    }
+                    addStatsDelta(statsDeltas, rating);
+                    outcomes[index] = Outcome.success(ratingMapper.toRatingResponse(rating));
+                }
+                pending = missing;
+            }
+            for (int index : pending) {
+                outcomes[index] = Outcome.failure(notWritten(writes.get(index)));
+            }
+        }
+
+        statsDeltas.values().removeIf(RatingHistogram::isEmpty);
+        if (!statsDeltas.isEmpty()) {
+            var snapshots = movieRatingStatsRepository.applyDeltas(
+                    statsDeltas.keySet().toArray(UUID[]::new),
+                    statsDeltas.values().stream().map(RatingHistogram::sum).toArray(Long[]::new),
+                    statsDeltas.values().stream().map(RatingHistogram::count).toArray(Long[]::new),
+                    statsDeltas.values().stream().flatMap(delta -> Arrays.stream(delta.toArray())).toArray(Long[]::new));
+            snapshots.forEach(stats -> eventPublisher.publishEvent(new MovieRatingStatsChangedEvent(
+                    stats.getMovieId(), stats.getRatingSum(), stats.getRatingCount(), stats.getVersion())));
+        }
+        log.debug("Group committed {} rating writes", writes.size());
+        return Arrays.asList(outcomes);
+    }
+
+    private Map<RatingKey, RatingRepository.WrittenRating> upsert(List<RatingWrite> writes) {
+        var written = ratingRepository.upsertForUsers(
+                writes.stream().map(RatingWrite::userId).toArray(UUID[]::new),
+                writes.stream().map(RatingWrite::movieId).toArray(UUID[]::new),
+                writes.stream().map(RatingWrite::ratingValue).toArray(Integer[]::new),
+                writes.stream().map(RatingWrite::review).toArray(String[]::new),
+                writes.stream().map(RatingWrite::acceptedAt).toArray(LocalDateTime[]::new));
+        Map<RatingKey, RatingRepository.WrittenRating> byKey = new HashMap<>();
+        written.forEach(rating -> byKey.put(new RatingKey(rating.getUserId(), rating.getMovieId()), rating));
+        return byKey;
+    }
+
+    // The upsert takes each rating once, so repeated writes of the same rating go into later rounds, in order
+    private static List<List<Integer>> rounds(List<RatingWrite> writes) {
+        List<List<Integer>> rounds = new ArrayList<>();
+        Map<RatingKey, Integer> seen = new HashMap<>();
+        for (int index = 0; index < writes.size(); index++) {
+            int round = seen.merge(writes.get(index).key(), 1, Integer::sum) - 1;
+            if (round == rounds.size()) {
+                rounds.add(new ArrayList<>());
+            }
+            rounds.get(round).add(index);
+        }
+        return rounds;
+    }
+
+    private static void addStatsDelta(Map<UUID, RatingHistogram> statsDeltas, RatingRepository.WrittenRating rating) {
+        RatingHistogram delta = statsDeltas.computeIfAbsent(rating.getMovieId(), movieId -> new RatingHistogram());
+        if (rating.getInserted()) {
+            delta.add(rating.getRatingValue());
+        } else {
+            delta.change(rating.getPreviousValue(), rating.getRatingValue());
+        }
+    }
+
+    private RuntimeException notWritten(RatingWrite write) {
+        if (!movieRepository.existsById(write.movieId())) {
+            return new ResourceNotFoundException("Movie not found");
+        }
+        if (!userRepository.existsById(write.userId())) {
+            return new ResourceNotFoundException("User not found");
+        }
+        return new ServiceUnavailableException("Rating is being changed concurrently, please retry");
+    }
+}
@@ -1,70 +1,85 @@
 package com.sky.movieratingservice.service.impl;
 
 import com.sky.movieratingservice.api.dto.request.RatingRequestDto;
+import com.sky.movieratingservice.api.dto.response.RatingExportDto;
 import com.sky.movieratingservice.api.dto.response.RatingResponseDto;
+import com.sky.movieratingservice.common.ExportResumeToken;
+import com.sky.movieratingservice.common.Versioned;
 import com.sky.movieratingservice.domain.entity.Rating;
+import com.sky.movieratingservice.domain.event.MovieRatingStatsChangedEvent;
+import com.sky.movieratingservice.domain.event.RatingsDeletedEvent;
 import com.sky.movieratingservice.domain.exception.ForbiddenException;
 import com.sky.movieratingservice.domain.exception.ResourceNotFoundException;
+import com.sky.movieratingservice.domain.exception.ServiceUnavailableException;
+import com.sky.movieratingservice.domain.model.RatingExportRow;
+import com.sky.movieratingservice.domain.model.RatingHistogram;
+import com.sky.movieratingservice.domain.repository.MovieRatingStatsRepository;
 import com.sky.movieratingservice.domain.repository.MovieRepository;
 import com.sky.movieratingservice.domain.repository.RatingRepository;
-import com.sky.movieratingservice.domain.repository.UserRepository;
 import com.sky.movieratingservice.mapper.RatingMapper;
 import com.sky.movieratingservice.service.IRatingService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class RatingService implements IRatingService {
+    private static final int MAX_UPSERT_ATTEMPTS = 3;
+
     private final RatingRepository ratingRepository;
     private final MovieRepository movieRepository;
-    private final UserRepository userRepository;
+    private final MovieRatingStatsRepository movieRatingStatsRepository;
     private final RatingMapper ratingMapper;
+    private final ApplicationEventPublisher eventPublisher;
 
+    /**
+     * Writes the rating with a single upsert. Unknown users and movies fail on the foreign keys and are answered
+     * with 404 by the exception handler, so nothing is looked up beforehand.
+     */
     @Override
     @Transactional
     public RatingResponseDto createOrUpdateRating(RatingRequestDto ratingRequestDto, UUID userID) {
         log.info("Create or update rating {}", ratingRequestDto);
-        var user = userRepository.findById(userID).orElseThrow(() -> new ResourceNotFoundException("User", "userId", userID));
-
-        var movie = movieRepository.findById(ratingRequestDto.getMovieId())
-                .orElseThrow(() -> new ResourceNotFoundException("Movie", "movieId", ratingRequestDto.getMovieId()));
-
-        Optional<Rating> existingRating = ratingRepository.findByUserIdAndMovieId(userID, movie.getId());
-        Rating rating;
-        if (existingRating.isPresent()) {
-            //Update existing rating
-            rating = existingRating.get();
-            rating.setRatingValue(ratingRequestDto.getRatingValue());
-            rating.setReview(ratingRequestDto.getReview());
-
-            log.info("Updating Existing rating with ID {}", rating.getId());
-
-        } else {
-            // Create new rating
-            rating = Rating.builder()
-                    .ratingValue(ratingRequestDto.getRatingValue())
-                    .user(user)
-                    .movie(movie)
-                    .review(ratingRequestDto.getReview())
-                    .build();
-            log.info("Creating new rating");
+        UUID movieId = ratingRequestDto.getMovieId();
+        int ratingValue = ratingRequestDto.getRatingValue();
+
+        Optional<RatingRepository.WrittenRating> written = Optional.empty();
+        for (int attempt = 0; attempt < MAX_UPSERT_ATTEMPTS && written.isEmpty(); attempt++) {
+            // empty when a concurrent first rating of this movie committed meanwhile, the next attempt updates it
+            written = ratingRepository.upsert(userID, movieId, ratingValue, ratingRequestDto.getReview());
+        }
+        var rating = written.orElseThrow(() -> new ServiceUnavailableException("Rating is being changed concurrently, please retry"));
+
+        if (rating.getInserted()) {
+            log.info("Created new rating with ID {}", rating.getId());
+            applyStatsDelta(movieId, new RatingHistogram().add(ratingValue));
+        } else if (rating.getPreviousValue() != ratingValue) {
+            log.info("Updated existing rating with ID {}", rating.getId());
+            applyStatsDelta(movieId, new RatingHistogram().change(rating.getPreviousValue(), ratingValue));
         }
-        rating = ratingRepository.save(rating);
         return ratingMapper.toRatingResponse(rating);
     }
 
+    /**
+     * Deletes the rating under the user's rating lock, so a write-behind flush running meanwhile either finishes
+     * first or sees the buffered write of the rating cancelled by {@link RatingsDeletedEvent}.
+     */
     @Override
     @Transactional
     public void deleteRating(UUID ratingId, UUID userId) {
-
+        ratingRepository.lockRatingsOfUsers(new UUID[]{userId});
         Rating rating = ratingRepository.findById(ratingId).orElseThrow(() ->
                 new ResourceNotFoundException("Rating", "ratingId", ratingId));
 
@@ -72,6 +87,8 @@ public class RatingService implements IRatingService {
             throw new ForbiddenException("You can only delete your own ratings");
         }
         ratingRepository.delete(rating);
+        eventPublisher.publishEvent(new RatingsDeletedEvent(userId, List.of(rating.getMovie().getId())));
+        applyStatsDelta(rating.getMovie().getId(), new RatingHistogram().remove(rating.getRatingValue()));
         log.info("Deleting rating with ID {}", ratingId);
 
     }
@@ -81,34 +98,96 @@ public class RatingService implements IRatingService {
     public List<RatingResponseDto> getMovieRatings(UUID movieId) {
         log.info("Get all movie ratings for Movie {}", movieId);
 
-        //Check if the movie exists
-        movieRepository.findById(movieId).orElseThrow(() -> new ResourceNotFoundException("Movie", "movieId", movieId));
+        var ratings = ratingRepository.findViewsByMovieId(movieId);
 
-        var ratings = ratingRepository.findByMovieId(movieId);
+        //No ratings might also mean no movie, only then check if the movie exists
+        if (ratings.isEmpty() && !movieRepository.existsById(movieId)) {
+            throw new ResourceNotFoundException("Movie", "movieId", movieId);
+        }
         return ratings.stream()
                 .map(ratingMapper::toRatingResponse)
                 .toList();
     }
 
+    /**
+     * Hands every rating of the movie to the consumer as it is read, without materialising the list.
+     * The consumer runs inside the read-only transaction, so it should write the rating out and return.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void streamMovieRatings(UUID movieId, Consumer<RatingResponseDto> consumer) {
+        log.info("Stream all movie ratings for Movie {}", movieId);
+
+        if (!movieRepository.existsById(movieId)) {
+            throw new ResourceNotFoundException("Movie", "movieId", movieId);
+        }
+
+        try (Stream<RatingRepository.RatingView> ratings = ratingRepository.streamByMovieId(movieId)) {
+            ratings.map(ratingMapper::toRatingResponse).forEach(consumer);
+        }
+    }
+
     @Override
     @Transactional(readOnly = true)
-    public List<RatingResponseDto> getUserRatings(UUID userId) {
+    public Versioned<List<RatingResponseDto>> getUserRatings(UUID userId) {
         log.info("Get all movie ratings for User {}", userId);
-        var ratings = ratingRepository.findByUserIdWithDetails(userId);
-        return ratings.stream()
+        var ratings = ratingRepository.findViewsByUserId(userId);
+        String version = userRatingsVersion(ratings.stream()
+                .map(rating -> ratingVersion(rating.getId(), rating.getUpdatedAt(), rating.getMovieName())));
+        return new Versioned<>(ratings.stream()
                 .map(ratingMapper::toRatingResponse)
-                .toList();
+                .toList(), version);
+    }
+
+    @Override
+    public String getUserRatingsVersion(UUID userId) {
+        return userRatingsVersion(ratingRepository.findVersionsByUserId(userId).stream()
+                .map(rating -> ratingVersion(rating.getId(), rating.getUpdatedAt(), rating.getMovieName())));
+    }
+
+    // Ordered by id, as ratings created at the same time may be listed in any order
+    private static String userRatingsVersion(Stream<String> ratings) {
+        return Versioned.digest(ratings.sorted());
+    }
+
+    private static String ratingVersion(UUID id, LocalDateTime updatedAt, String movieName) {
+        return id + ":" + updatedAt + ":" + movieName;
+    }
+
+    /**
+     * Hands every rating to the consumer in {@code (created_at, rating_id)} order, starting after {@code after}
+     * when given. Runs in one read-only transaction for the whole export, like {@link #streamMovieRatings}.
+     * <p>
+     * Ratings are created with the database time at the start of the writing transaction, so a resumed export
+     * misses only ratings whose transaction was still open when the interrupted export read past that time.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void exportRatings(ExportResumeToken after, Consumer<RatingExportDto> consumer) {
+        log.info("Export ratings after {}", after);
+
+        try (Stream<RatingExportRow> ratings = after == null
+                ? ratingRepository.streamAllForExport()
+                : ratingRepository.streamAllForExportAfter(after.createdAt(), after.ratingId())) {
+            ratings.map(ratingMapper::toRatingExport).forEach(consumer);
+        }
     }
 
     @Override
     @Transactional
     public Optional<RatingResponseDto> getUserRatingForMovie(UUID movieId, UUID userId) {
         log.info("Get user rating for Movie {} and User {}", movieId, userId);
-        var rating = ratingRepository.findByUserIdAndMovieId(userId, movieId);
+        var rating = ratingRepository.findViewByUserIdAndMovieId(userId, movieId);
         if(rating.isEmpty()){
             log.info("No rating found for Movie {} and User {}", movieId, userId);
             throw new ResourceNotFoundException("Rating", "movieId", movieId);
         }
         return rating.map(ratingMapper::toRatingResponse);
     }
+
+    private void applyStatsDelta(UUID movieId, RatingHistogram delta) {
+        var stats = movieRatingStatsRepository.applyDelta(movieId, delta.sum(), delta.count(), delta.toArray());
+        eventPublisher.publishEvent(new MovieRatingStatsChangedEvent(
+                stats.getMovieId(), stats.getRatingSum(), stats.getRatingCount(), stats.getVersion()));
+    }
 }
@@ -0,0 +1,483 @@
+package com.sky.movieratingservice.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sky.movieratingservice.api.dto.request.RatingRequestDto;
+import com.sky.movieratingservice.api.dto.response.RatingResponseDto;
+import com.sky.movieratingservice.domain.event.MovieRatingStatsChangedEvent;
+import com.sky.movieratingservice.domain.event.RatingsDeletedEvent;
+import com.sky.movieratingservice.domain.exception.ResourceNotFoundException;
+import com.sky.movieratingservice.domain.exception.ServiceUnavailableException;
+import com.sky.movieratingservice.domain.journal.JournalRecord;
+import com.sky.movieratingservice.domain.journal.RatingJournal;
+import com.sky.movieratingservice.domain.journal.RatingKey;
+import com.sky.movieratingservice.domain.model.RatingHistogram;
+import com.sky.movieratingservice.domain.repository.MovieRatingStatsRepository;
+import com.sky.movieratingservice.domain.repository.MovieRepository;
+import com.sky.movieratingservice.domain.repository.RatingRepository;
+import com.sky.movieratingservice.domain.repository.UserRepository;
+import com.sky.movieratingservice.service.IRatingWriteBehindService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Write-behind mode for single rating writes. An accepted rating is appended to the {@link RatingJournal} and
+ * acknowledged; repeated writes of the same user and movie replace each other in memory, and a background flusher
+ * writes what is left to the database in large batches. The journal is replayed on startup and drained on shutdown,
+ * so an acknowledged rating survives a restart or crash of the process.
+ * <p>
+ * The movie is checked before a rating is accepted, so a rating of an unknown movie is answered with 404 rather than
+ * acknowledged; movies are never deleted, so movies once found are remembered in a bounded cache. Ratings whose
+ * user or movie turns out to be missing when flushed are dropped then. First ratings that lose
+ * to a concurrent insert of the same rating are retried, and stay pending for the next run if they still lose.
+ * A rating still not written after {@code max-flush-attempts} runs is appended to the dead-letter file (one JSON
+ * object per line) and given up on, so it cannot hold the journal checkpoint back until the journal fills up.
+ * Reads see a rating once it has been flushed.
+ * <p>
+ * A delete of a rating cancels its buffered write: the delete journals a marker and drops the pending write before
+ * it commits, and flushes and deletes serialize on {@link RatingRepository#lockRatingsOfUsers}, so a flush either
+ * commits before the delete or no longer writes the rating. Only writes buffered by this instance are cancelled.
+ * <p>
+ * Meters: {@code ratings.journal.lag} (records not yet flushed), {@code ratings.journal.lag.age} (seconds since the
+ * oldest of them was accepted), {@code ratings.journal.used}, {@code ratings.write.behind.pending} and the
+ * {@code ratings.write.behind.*} counters.
+ */
+@Service
+@ConditionalOnProperty(prefix = "app.ratings.write-behind", name = "enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class RatingWriteBehindService implements IRatingWriteBehindService {
+    private static final int MAX_UPSERT_ATTEMPTS = 3;
+
+    private final RatingRepository ratingRepository;
+    private final MovieRepository movieRepository;
+    private final UserRepository userRepository;
+    private final MovieRatingStatsRepository movieRatingStatsRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PlatformTransactionManager transactionManager;
+    private final MeterRegistry meterRegistry;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.ratings.write-behind.journal-path:data/ratings.journal}")
+    private Path journalPath;
+
+    @Value("${app.ratings.write-behind.journal-size:64MB}")
+    private DataSize journalSize;
+
+    @Value("${app.ratings.write-behind.sync-on-append:false}")
+    private boolean syncOnAppend;
+
+    @Value("${app.ratings.write-behind.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${app.ratings.write-behind.max-flush-attempts:5}")
+    private int maxFlushAttempts;
+
+    @Value("${app.ratings.write-behind.dead-letter-path:data/ratings.dead-letter.ndjson}")
+    private Path deadLetterPath;
+
+    @Value("${app.ratings.write-behind.known-movies-cache-size:100000}")
+    private long knownMoviesCacheSize;
+
+    // guards the journal and the pending ratings, which always change together
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final Map<RatingKey, JournalRecord> pending = new HashMap<>();
+    private final NavigableMap<Long, RatingKey> pendingBySequence = new TreeMap<>();
+    // flush runs that left the pending rating unwritten, reset by a newer write of it
+    private final Map<RatingKey, Integer> failedFlushes = new HashMap<>();
+
+    private Cache<UUID, Boolean> knownMovies;
+    private RatingJournal journal;
+    private volatile boolean accepting;
+    private boolean closed;
+    private Counter flushed;
+    private Counter dropped;
+    private Counter coalesced;
+    private Counter rejected;
+    private Counter deadLettered;
+
+    @PostConstruct
+    public void open() throws IOException {
+        flushed = counter("ratings.write.behind.flushed", "Buffered ratings written to the database");
+        dropped = counter("ratings.write.behind.dropped", "Buffered ratings dropped for an unknown user or movie");
+        coalesced = counter("ratings.write.behind.coalesced", "Buffered ratings replaced by a later write before being flushed");
+        rejected = counter("ratings.write.behind.rejected", "Rating writes rejected because the journal was full");
+        deadLettered = counter("ratings.write.behind.dead.lettered",
+                "Buffered ratings given up on after max-flush-attempts runs and written to the dead-letter file");
+        knownMovies = Caffeine.newBuilder()
+                .maximumSize(knownMoviesCacheSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, knownMovies, "writeBehindKnownMovies");
+
+        journal = new RatingJournal(journalPath, Math.toIntExact(journalSize.toBytes()));
+        List<JournalRecord> replayed = journal.replay();
+        replayed.forEach(this::replay);
+        log.info("Rating journal {} opened, {} ratings replayed, {} pending", journalPath, replayed.size(), pending.size());
+
+        Gauge.builder("ratings.journal.lag", this, service -> service.withLock(() -> service.journal.lag()))
+                .description("Journaled rating writes that have not reached the database yet")
+                .register(meterRegistry);
+        Gauge.builder("ratings.journal.lag.age", this, service -> service.withLock(service::oldestPendingAgeSeconds))
+                .description("Time since the oldest rating write that has not reached the database was accepted")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("ratings.journal.used", this, service -> service.withLock(() -> service.journal.usedBytes()))
+                .description("Journal space taken by rating writes that have not reached the database yet")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("ratings.write.behind.pending", this, service -> service.withLock(service.pending::size))
+                .description("Distinct user and movie ratings waiting to be flushed")
+                .register(meterRegistry);
+        accepting = true;
+    }
+
+    @Override
+    public RatingResponseDto accept(RatingRequestDto ratingRequestDto, UUID userId) {
+        if (!accepting) {
+            throw new ServiceUnavailableException("Rating writes are paused, please retry shortly");
+        }
+        requireKnownMovie(ratingRequestDto.getMovieId());
+        long acceptedAt = System.currentTimeMillis();
+        lock.lock();
+        try {
+            JournalRecord journalRecord = journal.append(userId, ratingRequestDto.getMovieId(),
+                    ratingRequestDto.getRatingValue(), ratingRequestDto.getReview(), acceptedAt).orElse(null);
+            if (journalRecord == null) {
+                rejected.increment();
+                throw new ServiceUnavailableException("Rating buffer is full, please retry shortly");
+            }
+            if (syncOnAppend) {
+                journal.force();
+            }
+            addPending(journalRecord);
+        } finally {
+            lock.unlock();
+        }
+
+        return RatingResponseDto.builder()
+                .userId(userId)
+                .movieId(ratingRequestDto.getMovieId())
+                .ratingValue(ratingRequestDto.getRatingValue())
+                .review(ratingRequestDto.getReview())
+                .updatedAt(toLocalDateTime(acceptedAt))
+                .build();
+    }
+
+    /**
+     * Writes pending ratings, oldest first, until fewer than a batch are left. A failed batch, and ratings of a
+     * batch that could not be written yet, stay pending and are retried on the next run.
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${app.ratings.write-behind.flush-interval:PT0.2S}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            List<JournalRecord> batch;
+            do {
+                batch = withLock(() -> pendingBySequence.values().stream().limit(batchSize).map(pending::get).toList());
+                if (batch.isEmpty() || !writeBatch(batch)) {
+                    return;
+                }
+            } while (batch.size() == batchSize);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Cancels the buffered writes of the deleted ratings before the delete commits. Fails the delete when the
+     * journal has no room for the marker, as the cancelled write would come back on replay otherwise.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onRatingsDeleted(RatingsDeletedEvent event) {
+        long deletedAt = System.currentTimeMillis();
+        lock.lock();
+        try {
+            for (UUID movieId : event.movieIds()) {
+                JournalRecord buffered = pending.get(new RatingKey(event.userId(), movieId));
+                if (buffered == null) {
+                    continue;
+                }
+                if (journal.append(event.userId(), movieId, JournalRecord.DELETED, null, deletedAt).isEmpty()) {
+                    rejected.increment();
+                    throw new ServiceUnavailableException("Rating buffer is full, please retry shortly");
+                }
+                removePending(buffered);
+                coalesced.increment();
+            }
+            if (syncOnAppend) {
+                journal.force();
+            }
+            checkpoint();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void drain() throws IOException {
+        accepting = false;
+        flushLock.lock();
+        try {
+            flush();
+            int left = withLock(pending::size);
+            if (left > 0) {
+                log.warn("{} buffered ratings could not be flushed, they are replayed on the next start", left);
+            }
+            journal.force();
+            journal.close();
+            closed = true;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private boolean writeBatch(List<JournalRecord> batch) {
+        List<RatingRepository.WrittenRating> written;
+        List<JournalRecord> unknown = new ArrayList<>();
+        try {
+            written = new TransactionTemplate(transactionManager).execute(status -> write(batch, unknown));
+        } catch (DataAccessException ex) {
+            log.error("Flushing {} buffered ratings failed, retrying on the next run", batch.size(), ex);
+            return false;
+        }
+
+        Set<RatingKey> settled = written.stream()
+                .map(rating -> new RatingKey(rating.getUserId(), rating.getMovieId()))
+                .collect(Collectors.toCollection(HashSet::new));
+        unknown.forEach(journalRecord -> settled.add(journalRecord.key()));
+        List<JournalRecord> unsettled = new ArrayList<>();
+        int givenUp = 0;
+        lock.lock();
+        try {
+            for (JournalRecord journalRecord : batch) {
+                // a newer write of the same rating arrived meanwhile when this does not match, it stays pending
+                if (!journalRecord.equals(pending.get(journalRecord.key()))) {
+                    continue;
+                }
+                if (settled.contains(journalRecord.key())) {
+                    removePending(journalRecord);
+                } else if (failedFlushes.merge(journalRecord.key(), 1, Integer::sum) < maxFlushAttempts) {
+                    unsettled.add(journalRecord);
+                } else if (deadLetter(journalRecord)) {
+                    removePending(journalRecord);
+                    givenUp++;
+                }
+            }
+            checkpoint();
+        } finally {
+            lock.unlock();
+        }
+
+        flushed.increment(written.size());
+        if (!unknown.isEmpty()) {
+            dropped.increment(unknown.size());
+            log.warn("Dropped {} buffered ratings of unknown users or movies", unknown.size());
+        }
+        if (givenUp > 0) {
+            deadLettered.increment(givenUp);
+            log.error("Gave up on {} buffered ratings after {} flush attempts, see {}", givenUp, maxFlushAttempts, deadLetterPath);
+        }
+        if (!unsettled.isEmpty()) {
+            log.warn("{} buffered ratings are being changed concurrently, retrying on the next run", unsettled.size());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Appends the rating to the dead-letter file, forced to disk before the journal may move past it.
+     *
+     * @return false when it could not be written, the rating then stays pending
+     */
+    private boolean deadLetter(JournalRecord journalRecord) {
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("userId", journalRecord.userId());
+        line.put("movieId", journalRecord.movieId());
+        line.put("ratingValue", journalRecord.ratingValue());
+        line.put("review", journalRecord.review());
+        line.put("acceptedAt", Instant.ofEpochMilli(journalRecord.acceptedAt()).toString());
+        try {
+            if (deadLetterPath.getParent() != null) {
+                Files.createDirectories(deadLetterPath.getParent());
+            }
+            Files.writeString(deadLetterPath, objectMapper.writeValueAsString(line) + System.lineSeparator(),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE, StandardOpenOption.DSYNC);
+            return true;
+        } catch (IOException ex) {
+            log.error("Writing buffered rating {} to the dead-letter file failed, it stays pending", line, ex);
+            return false;
+        }
+    }
+
+    /**
+     * Writes the batch and returns the written ratings. Ratings missing from the upsert are retried, as a concurrent
+     * first rating of the same movie committed meanwhile is updated by the next attempt; the ones whose user or movie
+     * does not exist are added to {@code unknown}.
+     */
+    private List<RatingRepository.WrittenRating> write(List<JournalRecord> batch, List<JournalRecord> unknown) {
+        ratingRepository.lockRatingsOfUsers(batch.stream().map(JournalRecord::userId).distinct().toArray(UUID[]::new));
+        // ratings deleted while the lock was awaited are no longer pending and must not be written back
+        List<JournalRecord> remaining = withLock(() -> batch.stream()
+                .filter(journalRecord -> journalRecord.equals(pending.get(journalRecord.key())))
+                .toList());
+        Map<RatingKey, RatingRepository.WrittenRating> written = new HashMap<>();
+        for (int attempt = 0; attempt < MAX_UPSERT_ATTEMPTS && !remaining.isEmpty(); attempt++) {
+            upsert(remaining).forEach(rating -> written.put(new RatingKey(rating.getUserId(), rating.getMovieId()), rating));
+            remaining = remaining.stream().filter(journalRecord -> !written.containsKey(journalRecord.key())).toList();
+        }
+        Map<UUID, Boolean> movies = new HashMap<>();
+        Map<UUID, Boolean> users = new HashMap<>();
+        for (JournalRecord journalRecord : remaining) {
+            if (!movies.computeIfAbsent(journalRecord.movieId(), movieRepository::existsById)
+                    || !users.computeIfAbsent(journalRecord.userId(), userRepository::existsById)) {
+                unknown.add(journalRecord);
+            }
+        }
+
+        // sorted, so stats rows are locked in the same order by every writer
+        Map<UUID, RatingHistogram> statsDeltas = new TreeMap<>();
+        for (var rating : written.values()) {
+            RatingHistogram delta = statsDeltas.computeIfAbsent(rating.getMovieId(), movieId -> new RatingHistogram());
+            if (rating.getInserted()) {
+                delta.add(rating.getRatingValue());
+            } else {
+                delta.change(rating.getPreviousValue(), rating.getRatingValue());
+            }
+        }
+        statsDeltas.values().removeIf(RatingHistogram::isEmpty);
+        if (!statsDeltas.isEmpty()) {
+            var snapshots = movieRatingStatsRepository.applyDeltas(
+                    statsDeltas.keySet().toArray(UUID[]::new),
+                    statsDeltas.values().stream().map(RatingHistogram::sum).toArray(Long[]::new),
+                    statsDeltas.values().stream().map(RatingHistogram::count).toArray(Long[]::new),
+                    statsDeltas.values().stream().flatMap(delta -> Arrays.stream(delta.toArray())).toArray(Long[]::new));
+            snapshots.forEach(stats -> eventPublisher.publishEvent(new MovieRatingStatsChangedEvent(
+                    stats.getMovieId(), stats.getRatingSum(), stats.getRatingCount(), stats.getVersion())));
+        }
+        return List.copyOf(written.values());
+    }
+
+    private List<RatingRepository.WrittenRating> upsert(List<JournalRecord> batch) {
+        return ratingRepository.upsertForUsers(
+                batch.stream().map(JournalRecord::userId).toArray(UUID[]::new),
+                batch.stream().map(JournalRecord::movieId).toArray(UUID[]::new),
+                batch.stream().map(JournalRecord::ratingValue).toArray(Integer[]::new),
+                batch.stream().map(JournalRecord::review).toArray(String[]::new),
+                batch.stream().map(r -> toLocalDateTime(r.acceptedAt())).toArray(LocalDateTime[]::new));
+    }
+
+    private void requireKnownMovie(UUID movieId) {
+        if (knownMovies.getIfPresent(movieId) != null) {
+            return;
+        }
+        // not get(movieId, loader), which would pin the carrier of a virtual thread for the query
+        if (!movieRepository.existsById(movieId)) {
+            throw new ResourceNotFoundException("Movie", "movieId", movieId);
+        }
+        knownMovies.put(movieId, Boolean.TRUE);
+    }
+
+    private void replay(JournalRecord journalRecord) {
+        if (!journalRecord.deleted()) {
+            addPending(journalRecord);
+        } else if (pending.containsKey(journalRecord.key())) {
+            removePending(pending.get(journalRecord.key()));
+        }
+    }
+
+    private void addPending(JournalRecord journalRecord) {
+        JournalRecord replaced = pending.put(journalRecord.key(), journalRecord);
+        if (replaced != null) {
+            pendingBySequence.remove(replaced.sequence());
+            failedFlushes.remove(replaced.key());
+            coalesced.increment();
+        }
+        pendingBySequence.put(journalRecord.sequence(), journalRecord.key());
+    }
+
+    private void removePending(JournalRecord journalRecord) {
+        pending.remove(journalRecord.key());
+        pendingBySequence.remove(journalRecord.sequence());
+        failedFlushes.remove(journalRecord.key());
+    }
+
+    private void checkpoint() {
+        if (pendingBySequence.isEmpty()) {
+            journal.checkpointAll();
+        } else {
+            JournalRecord oldest = pending.get(pendingBySequence.firstEntry().getValue());
+            journal.checkpoint(oldest.sequence(), oldest.offset());
+        }
+    }
+
+    private double oldestPendingAgeSeconds() {
+        if (pendingBySequence.isEmpty()) {
+            return 0;
+        }
+        long acceptedAt = pending.get(pendingBySequence.firstEntry().getValue()).acceptedAt();
+        return Math.max(0, System.currentTimeMillis() - acceptedAt) / 1000.0;
+    }
+
+    private <T> T withLock(Supplier<T> action) {
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Counter counter(String name, String description) {
+        return Counter.builder(name).description(description).register(meterRegistry);
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMilli) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMilli), ZoneId.systemDefault());
+    }
+}
@@ -0,0 +1,131 @@
+package com.sky.movieratingservice.service.impl;
+
+import com.sky.movieratingservice.api.dto.response.CursorPageResponseDto;
+import com.sky.movieratingservice.api.dto.response.SearchResultResponseDto;
+import com.sky.movieratingservice.common.CursorCodec;
+import com.sky.movieratingservice.domain.exception.BadRequestException;
+import com.sky.movieratingservice.domain.repository.MovieRepository;
+import com.sky.movieratingservice.domain.repository.RatingRepository;
+import com.sky.movieratingservice.domain.search.SearchTarget;
+import com.sky.movieratingservice.service.ISearchService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.util.HtmlUtils;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Full-text search over movies or reviews, ranked in PostgreSQL and paged by keyset on (score, id). Scores depend
+ * on {@code movie_rankings} when boosted, so a refresh between two pages may move a few results across the page
+ * boundary; the cursor keeps the pages from repeating the rows before it.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SearchService implements ISearchService {
+    // The repositories mark matches with control characters, so the snippet can be escaped before they become tags
+    private static final String MATCH_START = "\u0002";
+    private static final String MATCH_END = "\u0003";
+    // Sorts after every real row, so the first page is read with the same query as the others
+    private static final UUID LAST_ID = new UUID(-1L, -1L);
+
+    private final MovieRepository movieRepository;
+    private final RatingRepository ratingRepository;
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageResponseDto<SearchResultResponseDto> search(String query, String target, boolean boost,
+                                                                 String after, int size) {
+        log.debug("Searching {} for '{}', boosted: {}, after cursor: {}, size: {}", target, query, boost, after, size);
+        SearchTarget searchTarget = searchTarget(target);
+
+        double afterScore = Double.POSITIVE_INFINITY;
+        UUID afterId = LAST_ID;
+        if (after != null && !after.isBlank()) {
+            List<String> keys = CursorCodec.decode(after, 2);
+            afterScore = parseCursorScore(keys.getFirst());
+            afterId = parseCursorId(keys.get(1));
+        }
+
+        // One extra row tells whether there is a next page without counting
+        double boostWeight = boost ? 1 : 0;
+        List<SearchResultResponseDto> results = searchTarget == SearchTarget.REVIEWS
+                ? ratingRepository.searchReviews(query, boostWeight, afterScore, afterId, size + 1).stream()
+                        .map(SearchService::toResult)
+                        .toList()
+                : movieRepository.searchMovies(query, boostWeight, afterScore, afterId, size + 1).stream()
+                        .map(SearchService::toResult)
+                        .toList();
+
+        boolean hasNext = results.size() > size;
+        List<SearchResultResponseDto> page = hasNext ? results.subList(0, size) : results;
+        String nextCursor = null;
+        if (hasNext) {
+            SearchResultResponseDto last = page.getLast();
+            nextCursor = CursorCodec.encode(last.getScore(), last.getRatingId() != null ? last.getRatingId() : last.getMovieId());
+        }
+
+        return CursorPageResponseDto.<SearchResultResponseDto>builder()
+                .items(page)
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    private static SearchResultResponseDto toResult(MovieRepository.MovieSearchHit hit) {
+        return SearchResultResponseDto.builder()
+                .movieId(hit.getMovieId())
+                .movieName(hit.getMovieName())
+                .director(hit.getDirector())
+                .releaseYear(hit.getReleaseYear())
+                .score(hit.getScore())
+                .snippet(highlight(hit.getSnippet()))
+                .build();
+    }
+
+    private static SearchResultResponseDto toResult(RatingRepository.ReviewSearchHit hit) {
+        return SearchResultResponseDto.builder()
+                .movieId(hit.getMovieId())
+                .movieName(hit.getMovieName())
+                .ratingId(hit.getRatingId())
+                .ratingValue(hit.getRatingValue())
+                .score(hit.getScore())
+                .snippet(highlight(hit.getSnippet()))
+                .build();
+    }
+
+    static String highlight(String snippet) {
+        if (snippet == null) {
+            return null;
+        }
+        return HtmlUtils.htmlEscape(snippet)
+                .replace(MATCH_START, "<mark>")
+                .replace(MATCH_END, "</mark>");
+    }
+
+    private static SearchTarget searchTarget(String target) {
+        try {
+            return SearchTarget.of(target);
+        } catch (IllegalArgumentException ex) {
+            throw new BadRequestException(ex.getMessage());
+        }
+    }
+
+    private static double parseCursorScore(String score) {
+        try {
+            return Double.parseDouble(score);
+        } catch (NumberFormatException ex) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+
+    private static UUID parseCursorId(String id) {
+        try {
+            return UUID.fromString(id);
+        } catch (IllegalArgumentException ex) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+}
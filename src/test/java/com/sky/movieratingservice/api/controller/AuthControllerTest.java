@@ -6,8 +6,12 @@ import com.sky.movieratingservice.common.AbstractIntegrationTest;
 import com.sky.movieratingservice.domain.entity.User;
 import org.junit.jupiter.api.Test;
 import org.springframework.http.MediaType;
+import org.springframework.security.crypto.bcrypt.BCrypt;
 
 import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
 class AuthControllerTest extends AbstractIntegrationTest {
 
     @Test
@@ -147,4 +151,31 @@ class AuthControllerTest extends AbstractIntegrationTest {
                 .exchange()
                 .expectStatus().isUnauthorized();
     }
+
+    @Test
+    void shouldRehashPasswordStoredWithAnotherCostOnLogin() {
+        // Given: User whose hash was made with a cost below the configured range
+        User user = userRepository.save(User.builder()
+                .email("rehash@example.com")
+                .password(BCrypt.hashpw("Password123!@", BCrypt.gensalt(4)))
+                .build());
+
+        UserLoginRequestDto request = UserLoginRequestDto.builder()
+                .email("rehash@example.com")
+                .password("Password123!@")
+                .build();
+
+        // When
+        webClient.post()
+                .uri("/api/v1/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(request)
+                .exchange()
+                .expectStatus().isOk();
+
+        // Then
+        String rehashed = userRepository.findById(user.getId()).orElseThrow().getPassword();
+        assertThat(rehashed).startsWith("{bcrypt}").doesNotContain("$04$");
+        assertThat(passwordEncoder.matches("Password123!@", rehashed)).isTrue();
+    }
 }
@@ -0,0 +1,158 @@
+package com.sky.movieratingservice.api.controller;
+
+import com.sky.movieratingservice.api.dto.request.UserLoginRequestDto;
+import com.sky.movieratingservice.api.dto.response.ImportReportDto;
+import com.sky.movieratingservice.common.AbstractIntegrationTest;
+import com.sky.movieratingservice.domain.entity.Movie;
+import com.sky.movieratingservice.domain.entity.MovieRatingStats;
+import com.sky.movieratingservice.domain.entity.User;
+import com.sky.movieratingservice.domain.model.UserRole;
+import com.sky.movieratingservice.domain.repository.MovieRatingStatsRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CatalogImportControllerTest extends AbstractIntegrationTest {
+
+    private static final String MOVIELENS_MOVIES = """
+            movieId,title,genres
+            9001,Imported Heat (1995),Action|Crime|Thriller
+            9002,"Imported Matrix, The (1999)",Action|Sci-Fi
+            9003,Imported Film Without Year,Drama
+            """;
+
+    private static final String MOVIELENS_RATINGS = """
+            userId,movieId,rating,timestamp
+            71,9001,4.5,964982703
+            72,9001,3.0,964982931
+            72,9002,5.0,964983815
+            73,9003,4.0,964982224
+            """;
+
+    @Autowired
+    private MovieRatingStatsRepository movieRatingStatsRepository;
+
+    @Test
+    void shouldImportMovieLensFilesAndRecomputeStats() throws Exception {
+        // Given
+        String token = registerAdminAndGetToken("importer@example.com", "Pass123!@");
+
+        // When
+        ImportReportDto movies = importCsv(token, "movies", "MOVIELENS", MOVIELENS_MOVIES);
+        ImportReportDto ratings = importCsv(token, "ratings", "MOVIELENS", MOVIELENS_RATINGS);
+        ImportReportDto again = importCsv(token, "ratings", "MOVIELENS", MOVIELENS_RATINGS);
+
+        // Then
+        assertThat(movies.getRowsRead()).isEqualTo(3);
+        assertThat(movies.getInserted()).isEqualTo(2);
+        assertThat(movies.getSkipped()).isEqualTo(1);
+        Movie heat = movieRepository.findAll().stream()
+                .filter(movie -> movie.getName().equals("Imported Heat"))
+                .findFirst().orElseThrow();
+        assertThat(heat.getReleaseYear()).isEqualTo(1995);
+        assertThat(heat.getGenre()).isEqualTo("Action");
+
+        assertThat(ratings.getInserted()).isEqualTo(3);
+        assertThat(ratings.getSkipped()).isEqualTo(1);
+        MovieRatingStats stats = movieRatingStatsRepository.findById(heat.getId()).orElseThrow();
+        assertThat(stats.getRatingSum()).isEqualTo(15);
+        assertThat(stats.getRatingCount()).isEqualTo(2);
+
+        assertThat(again.getInserted()).isZero();
+        assertThat(again.getUpdated()).isZero();
+        assertThat(again.getUnchanged()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldImportRatingsInExportLayout() throws Exception {
+        // Given
+        String token = registerAdminAndGetToken("nativeimporter@example.com", "Pass123!@");
+        User user = userRepository.findByEmail("nativeimporter@example.com").orElseThrow();
+        Movie movie = movieRepository.save(Movie.builder()
+                .name("Native Import Movie")
+                .director("Test Director")
+                .genre("Drama")
+                .releaseYear(2001)
+                .build());
+        String csv = """
+                id,movie_id,user_id,rating_value,review,created_at,updated_at
+                ,%s,%s,8,"Great, really",2025-01-18T12:00:00,2025-01-18T12:00:00
+                ,%s,%s,8,Unknown movie,2025-01-18T12:00:00,2025-01-18T12:00:00
+                ,%s,%s,11,Out of range,2025-01-18T12:00:00,2025-01-18T12:00:00
+                """.formatted(movie.getId(), user.getId(), UUID.randomUUID(), user.getId(), movie.getId(), user.getId());
+
+        // When
+        ImportReportDto report = importCsv(token, "ratings", "NATIVE", csv);
+
+        // Then
+        assertThat(report.getInserted()).isEqualTo(1);
+        assertThat(report.getSkipped()).isEqualTo(2);
+        assertThat(ratingRepository.findByUserIdAndMovieId(user.getId(), movie.getId()).orElseThrow().getReview())
+                .isEqualTo("Great, really");
+        MovieRatingStats stats = movieRatingStatsRepository.findById(movie.getId()).orElseThrow();
+        assertThat(stats.getRatingSum()).isEqualTo(8);
+        assertThat(stats.getRatingCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRejectMalformedCsv() throws Exception {
+        String token = registerAdminAndGetToken("badimporter@example.com", "Pass123!@");
+
+        webClient.post()
+                .uri("/api/v1/admin/import/movies?layout=MOVIELENS")
+                .header("Authorization", "Bearer " + token)
+                .contentType(MediaType.parseMediaType("text/csv"))
+                .bodyValue("movieId,title,genres\n1,\"unterminated,Drama\n")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void shouldForbidImportForUsersWithoutAdminRole() throws Exception {
+        String token = registerAndGetToken("plainimporter@example.com", "Pass123!@");
+
+        webClient.post()
+                .uri("/api/v1/admin/import/movies?layout=MOVIELENS")
+                .header("Authorization", "Bearer " + token)
+                .contentType(MediaType.parseMediaType("text/csv"))
+                .bodyValue(MOVIELENS_MOVIES)
+                .exchange()
+                .expectStatus().isForbidden();
+    }
+
+    private String registerAdminAndGetToken(String email, String password) throws Exception {
+        registerAndGetToken(email, password);
+        User user = userRepository.findByEmail(email).orElseThrow();
+        user.setRole(UserRole.ADMIN);
+        userRepository.save(user);
+
+        // The role is read at login, so a fresh token is needed after the promotion
+        byte[] responseBody = webClient.post()
+                .uri("/api/v1/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(UserLoginRequestDto.builder().email(email).password(password).build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .returnResult()
+                .getResponseBody();
+        return objectMapper.readTree(responseBody).get("accessToken").asText();
+    }
+
+    private ImportReportDto importCsv(String token, String dataset, String layout, String csv) {
+        return webClient.post()
+                .uri("/api/v1/admin/import/{dataset}?layout={layout}", dataset, layout)
+                .header("Authorization", "Bearer " + token)
+                .contentType(MediaType.parseMediaType("text/csv"))
+                .bodyValue(csv)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(ImportReportDto.class)
+                .returnResult()
+                .getResponseBody();
+    }
+}
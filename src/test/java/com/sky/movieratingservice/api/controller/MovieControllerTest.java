@@ -1,14 +1,21 @@
 package com.sky.movieratingservice.api.controller;
 
 import com.sky.movieratingservice.api.dto.request.CreateMovieRequestDto;
+import com.sky.movieratingservice.api.dto.request.RatingRequestDto;
+import com.sky.movieratingservice.api.dto.response.CursorPageResponseDto;
+import com.sky.movieratingservice.api.dto.response.MovieDetailResponseDto;
+import com.sky.movieratingservice.api.dto.response.RatingDistributionResponseDto;
 import com.sky.movieratingservice.common.AbstractIntegrationTest;
 import com.sky.movieratingservice.domain.entity.Movie;
-import com.sky.movieratingservice.domain.entity.Rating;
 import org.junit.jupiter.api.Test;
 import org.springframework.http.MediaType;
 
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
 class MovieControllerTest extends AbstractIntegrationTest {
 
     @Test
@@ -27,6 +34,42 @@ class MovieControllerTest extends AbstractIntegrationTest {
                 .jsonPath("$[0].name").exists();
     }
 
+    @Test
+    void shouldWalkCatalogByCursor() {
+        // Given: first page of two movies
+        CursorPageResponseDto<?> first = webClient.get()
+                .uri("/api/v1/movies?after=&size=2")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(CursorPageResponseDto.class)
+                .returnResult()
+                .getResponseBody();
+
+        List<Object> firstIds = first.getItems().stream().<Object>map(item -> ((Map<?, ?>) item).get("id")).toList();
+
+        // When & Then: the next page continues after the last movie of the first one
+        webClient.get()
+                .uri(uriBuilder -> uriBuilder
+                        .path("/api/v1/movies")
+                        .queryParam("after", first.getNextCursor())
+                        .queryParam("size", "2")
+                        .build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.items").isArray()
+                .jsonPath("$.items.length()").isEqualTo(2)
+                .jsonPath("$.items[*].id").value(ids -> assertThat((List<Object>) ids).doesNotContainAnyElementsOf(firstIds));
+    }
+
+    @Test
+    void shouldRejectInvalidCursor() {
+        webClient.get()
+                .uri("/api/v1/movies?after=bm90LWEtY3Vyc29y")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
     @Test
     void shouldGetMovieByIdWithStatistics() {
         // Given: Movie exists
@@ -43,6 +86,63 @@ class MovieControllerTest extends AbstractIntegrationTest {
                 .jsonPath("$.ratingCount").isNumber();
     }
 
+    @Test
+    void shouldRefreshCachedMovieDetailsAfterRating() throws Exception {
+        // Given: Movie details are cached
+        Movie movie = movieRepository.findAll().get(1);
+        String token = registerAndGetToken("cache@movie.com", "Password123!");
+
+        MovieDetailResponseDto cached = webClient.get()
+                .uri("/api/v1/movies/{movieId}", movie.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(MovieDetailResponseDto.class)
+                .returnResult()
+                .getResponseBody();
+
+        // When
+        rateMovie(token, RatingRequestDto.builder()
+                .movieId(movie.getId())
+                .ratingValue(7)
+                .build());
+
+        // Then
+        webClient.get()
+                .uri("/api/v1/movies/{movieId}", movie.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.ratingCount").isEqualTo(cached.getRatingCount() + 1);
+    }
+
+    @Test
+    void shouldTrackRatingDistributionAcrossRatingChanges() throws Exception {
+        // Given
+        Movie movie = movieRepository.findAll().get(2);
+        String token = registerAndGetToken("distribution@movie.com", "Password123!");
+        RatingDistributionResponseDto before = ratingDistribution(movie.getId());
+
+        // When
+        rateMovie(token, RatingRequestDto.builder().movieId(movie.getId()).ratingValue(7).build());
+        rateMovie(token, RatingRequestDto.builder().movieId(movie.getId()).ratingValue(3).build());
+
+        // Then: the rating moved from the 7 bucket to the 3 bucket
+        RatingDistributionResponseDto after = ratingDistribution(movie.getId());
+        assertThat(after.getRatingCount()).isEqualTo(before.getRatingCount() + 1);
+        assertThat(after.getCounts().get(7)).isEqualTo(before.getCounts().get(7));
+        assertThat(after.getCounts().get(3)).isEqualTo(before.getCounts().get(3) + 1);
+        assertThat(after.getMedian()).isNotNull();
+        assertThat(after.getPercentiles()).containsKeys("p10", "p25", "p50", "p75", "p90");
+    }
+
+    @Test
+    void shouldFailRatingDistributionWhenMovieNotFound() {
+        webClient.get()
+                .uri("/api/v1/movies/{movieId}/distribution", UUID.randomUUID())
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
     @Test
     void shouldFailGetMovieByIdWhenNotFound() {
         UUID nonExistentId = UUID.randomUUID();
@@ -67,22 +167,20 @@ class MovieControllerTest extends AbstractIntegrationTest {
         // Register user
         String token = registerAndGetToken("movie@movie.com", "Password123!");
 
-        // Create movie ratings
-        Rating ratingFirstMovie = Rating.builder()
-                .movie(movieFirst)
+        // Create movie ratings through the API so the rating aggregates are maintained
+        RatingRequestDto ratingFirstMovie = RatingRequestDto.builder()
+                .movieId(movieFirst.getId())
                 .ratingValue(10)
                 .review("Amazing movie!")
-                .user(userRepository.findByEmail("movie@movie.com").orElse(null))
                 .build();
-        ratingRepository.save(ratingFirstMovie);
+        rateMovie(token, ratingFirstMovie);
 
-        Rating ratingSecondMovie = Rating.builder()
-                .movie(movieSecond)
+        RatingRequestDto ratingSecondMovie = RatingRequestDto.builder()
+                .movieId(movieSecond.getId())
                 .ratingValue(8)
                 .review("Good movie!")
-                .user(userRepository.findByEmail("movie@movie.com").orElse(null))
                 .build();
-        ratingRepository.save(ratingSecondMovie);
+        rateMovie(token, ratingSecondMovie);
 
         // When & Then
         webClient.get()
@@ -98,6 +196,24 @@ class MovieControllerTest extends AbstractIntegrationTest {
                 .jsonPath("$.ratingCount").isEqualTo(1);
     }
 
+    @Test
+    void shouldGetTopRatedMoviesOfGenreAndDecade() {
+        webClient.get()
+                .uri("/api/v1/movies/top-rated?genre=drama&decade=1990&limit=5")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$").isArray();
+    }
+
+    @Test
+    void shouldRejectDecadeThatIsNotTheFirstYearOfOne() {
+        webClient.get()
+                .uri("/api/v1/movies/top-rated?decade=1995&limit=5")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
     @Test
     void shouldValidatePaginationParameters() {
         webClient.get()
@@ -154,4 +270,224 @@ class MovieControllerTest extends AbstractIntegrationTest {
                 .jsonPath("$.name").isEqualTo(movieRequestDto.getName());
     }
 
-}
\ No newline at end of file
+    @Test
+    void shouldAnswerConditionalGetOfMovieDetailsUntilRated() throws Exception {
+        // Given
+        Movie movie = movieRepository.save(Movie.builder()
+                .name("Conditional Movie")
+                .director("Test Director")
+                .genre("Drama")
+                .releaseYear(2004)
+                .build());
+        String etag = webClient.get()
+                .uri("/api/v1/movies/{movieId}", movie.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("Cache-Control", "no-cache")
+                .returnResult(String.class)
+                .getResponseHeaders()
+                .getETag();
+        assertThat(etag).startsWith("\"");
+
+        // When & Then: unchanged
+        webClient.get()
+                .uri("/api/v1/movies/{movieId}", movie.getId())
+                .header("If-None-Match", etag)
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+
+        // When & Then: a rating changes the statistics shown
+        rateMovie(registerAndGetToken("conditional@movie.com", "Password123!"),
+                RatingRequestDto.builder().movieId(movie.getId()).ratingValue(6).build());
+        webClient.get()
+                .uri("/api/v1/movies/{movieId}", movie.getId())
+                .header("If-None-Match", etag)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().value("ETag", newTag -> assertThat(newTag).isNotEqualTo(etag))
+                .expectBody()
+                .jsonPath("$.ratingCount").isEqualTo(1);
+    }
+
+    @Test
+    void shouldNotConfirmCachedMovieDetailsOlderThanTheDatabase() {
+        // Given: cached details, then a change that does not evict them, as when written through another instance
+        Movie movie = movieRepository.save(Movie.builder()
+                .name("Stale Movie")
+                .director("Test Director")
+                .genre("Drama")
+                .releaseYear(2004)
+                .description("Before")
+                .build());
+        String etag = webClient.get()
+                .uri("/api/v1/movies/{movieId}", movie.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(String.class)
+                .getResponseHeaders()
+                .getETag();
+        movie.setDescription("After");
+        movieRepository.save(movie);
+
+        // When & Then: the cached body still goes out under its own tag
+        webClient.get()
+                .uri("/api/v1/movies/{movieId}", movie.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", etag)
+                .expectBody()
+                .jsonPath("$.description").isEqualTo("Before");
+
+        // When & Then: a revalidation is checked against the database and reloads the cached body
+        String newTag = webClient.get()
+                .uri("/api/v1/movies/{movieId}", movie.getId())
+                .header("If-None-Match", etag)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(MovieDetailResponseDto.class)
+                .value(detail -> assertThat(detail.getDescription()).isEqualTo("After"))
+                .returnResult()
+                .getResponseHeaders()
+                .getETag();
+        assertThat(newTag).isNotEqualTo(etag);
+        webClient.get()
+                .uri("/api/v1/movies/{movieId}", movie.getId())
+                .header("If-None-Match", newTag)
+                .exchange()
+                .expectStatus().isNotModified();
+        webClient.get()
+                .uri("/api/v1/movies/{movieId}", movie.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", newTag)
+                .expectBody()
+                .jsonPath("$.description").isEqualTo("After");
+    }
+
+    @Test
+    void shouldAnswerConditionalGetOfMoviePagesUntilTheyChange() {
+        // Given
+        String etag = webClient.get()
+                .uri("/api/v1/movies?page=0&size=5")
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(String.class)
+                .getResponseHeaders()
+                .getETag();
+        webClient.get()
+                .uri("/api/v1/movies?page=0&size=5")
+                .header("If-None-Match", etag)
+                .exchange()
+                .expectStatus().isNotModified();
+
+        // When: a movie sorting first is added
+        movieRepository.save(Movie.builder()
+                .name("0 First Movie")
+                .director("Test Director")
+                .genre("Drama")
+                .releaseYear(2005)
+                .build());
+
+        // Then
+        webClient.get()
+                .uri("/api/v1/movies?page=0&size=5")
+                .header("If-None-Match", etag)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].name").isEqualTo("0 First Movie");
+    }
+
+    @Test
+    void shouldAnswerConditionalGetOfTopRatedMoviesUntilRated() throws Exception {
+        // Given
+        Movie movie = movieRepository.findAll().getFirst();
+        String token = registerAndGetToken("conditionaltop@movie.com", "Password123!");
+        rateMovie(token, RatingRequestDto.builder().movieId(movie.getId()).ratingValue(9).build());
+        String etag = webClient.get()
+                .uri("/api/v1/movies/top-rated?limit=100")
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(String.class)
+                .getResponseHeaders()
+                .getETag();
+        webClient.get()
+                .uri("/api/v1/movies/top-rated?limit=100")
+                .header("If-None-Match", etag)
+                .exchange()
+                .expectStatus().isNotModified();
+
+        // When: a listed movie is rated again
+        rateMovie(token, RatingRequestDto.builder().movieId(movie.getId()).ratingValue(3).build());
+
+        // Then
+        webClient.get()
+                .uri("/api/v1/movies/top-rated?limit=100")
+                .header("If-None-Match", etag)
+                .exchange()
+                .expectStatus().isOk();
+    }
+
+    @Test
+    void shouldSuggestCreatedMovieDespiteTypo() throws Exception {
+        // Given
+        String token = registerAndGetToken("suggest@movie.com", "Password@123!");
+        webClient.post()
+                .uri("/api/v1/movies")
+                .header("Authorization", "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(CreateMovieRequestDto.builder()
+                        .name("Zyxwvut Chronicles")
+                        .description("Test Description")
+                        .director("Quentin Zyxwvut")
+                        .genre("Drama")
+                        .releaseYear(2001)
+                        .build())
+                .exchange()
+                .expectStatus().isCreated();
+
+        // When & Then
+        webClient.get()
+                .uri("/api/v1/movies/suggest?q=chronicels")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[?(@.name == 'Zyxwvut Chronicles')].director").isEqualTo("Quentin Zyxwvut");
+        webClient.get()
+                .uri("/api/v1/movies/suggest?q=zyxw&limit=1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(1)
+                .jsonPath("$[0].name").isEqualTo("Zyxwvut Chronicles");
+    }
+
+    @Test
+    void shouldRejectSuggestionLimitAboveTen() {
+        webClient.get()
+                .uri("/api/v1/movies/suggest?q=the&limit=11")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    private RatingDistributionResponseDto ratingDistribution(UUID movieId) {
+        return webClient.get()
+                .uri("/api/v1/movies/{movieId}/distribution", movieId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(RatingDistributionResponseDto.class)
+                .returnResult()
+                .getResponseBody();
+    }
+
+    private void rateMovie(String token, RatingRequestDto ratingRequestDto) {
+        webClient.post()
+                .uri("/api/v1/ratings")
+                .header("Authorization", "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(ratingRequestDto)
+                .exchange()
+                .expectStatus().isCreated();
+    }
+}
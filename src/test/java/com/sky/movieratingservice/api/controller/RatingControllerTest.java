@@ -3,16 +3,26 @@ package com.sky.movieratingservice.api.controller;
 import com.sky.movieratingservice.api.dto.request.RatingRequestDto;
 import com.sky.movieratingservice.common.AbstractIntegrationTest;
 import com.sky.movieratingservice.domain.entity.Movie;
+import com.sky.movieratingservice.domain.entity.MovieRatingStats;
 import com.sky.movieratingservice.domain.entity.Rating;
 import com.sky.movieratingservice.domain.entity.User;
+import com.sky.movieratingservice.domain.repository.MovieRatingStatsRepository;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
 
 class RatingControllerTest extends AbstractIntegrationTest {
 
+    @Autowired
+    private MovieRatingStatsRepository movieRatingStatsRepository;
+
     @Test
     void shouldCreateRatingSuccessfully() throws Exception {
         // Given: User is authenticated
@@ -73,6 +83,36 @@ class RatingControllerTest extends AbstractIntegrationTest {
                 .jsonPath("$.review").isEqualTo("Actually, it's great!");
     }
 
+    @Test
+    void shouldAcceptConcurrentFirstRatingsOfTheSameMovie() throws Exception {
+        // Given
+        String token = registerAndGetToken("concurrent@example.com");
+        User user = userRepository.findByEmail("concurrent@example.com").orElseThrow();
+        Movie movie = movieRepository.save(Movie.builder()
+                .name("Concurrent Rating Movie")
+                .director("Test Director")
+                .genre("Drama")
+                .releaseYear(2002)
+                .build());
+
+        // When
+        List<CompletableFuture<Void>> requests = IntStream.rangeClosed(1, 4)
+                .mapToObj(value -> CompletableFuture.runAsync(() -> webClient.post()
+                        .uri("/api/v1/ratings")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(RatingRequestDto.builder().movieId(movie.getId()).ratingValue(value).build())
+                        .exchange()
+                        .expectStatus().isCreated()))
+                .toList();
+        CompletableFuture.allOf(requests.toArray(CompletableFuture[]::new)).join();
+
+        // Then
+        Rating stored = ratingRepository.findByUserIdAndMovieId(user.getId(), movie.getId()).orElseThrow();
+        assertThat(stats(movie).getRatingCount()).isEqualTo(1);
+        assertThat(stats(movie).getRatingSum()).isEqualTo(stored.getRatingValue().longValue());
+    }
+
     @Test
     void shouldFailCreateRatingWithoutAuthentication() {
         Movie movie = movieRepository.findAll().getFirst();
@@ -158,6 +198,47 @@ class RatingControllerTest extends AbstractIntegrationTest {
                 });
     }
 
+    @Test
+    void shouldAnswerConditionalGetOfMyRatingsUntilTheyChange() throws Exception {
+        // Given
+        String token = registerAndGetToken("conditional@example.com");
+        Movie movie = movieRepository.findAll().getFirst();
+        String etag = webClient.get()
+                .uri("/api/v1/ratings/my")
+                .header("Authorization", "Bearer " + token)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("Cache-Control", "no-cache, private")
+                .returnResult(String.class)
+                .getResponseHeaders()
+                .getETag();
+        webClient.get()
+                .uri("/api/v1/ratings/my")
+                .header("Authorization", "Bearer " + token)
+                .header("If-None-Match", etag)
+                .exchange()
+                .expectStatus().isNotModified();
+
+        // When
+        webClient.post()
+                .uri("/api/v1/ratings")
+                .header("Authorization", "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(RatingRequestDto.builder().movieId(movie.getId()).ratingValue(5).build())
+                .exchange()
+                .expectStatus().isCreated();
+
+        // Then
+        webClient.get()
+                .uri("/api/v1/ratings/my")
+                .header("Authorization", "Bearer " + token)
+                .header("If-None-Match", etag)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(1);
+    }
+
     @Test
     void shouldDeleteOwnRating() throws Exception {
         String token = registerAndGetToken("deleter@example.com");
@@ -251,6 +332,172 @@ class RatingControllerTest extends AbstractIntegrationTest {
                 .expectStatus().isNotFound();
     }
 
+    @Test
+    void shouldStreamMovieRatingsAsNdjson() throws Exception {
+        // Given
+        String token = registerAndGetToken("streamer@example.com");
+        User user = userRepository.findByEmail("streamer@example.com").orElseThrow();
+        Movie movie = movieRepository.findAll().getFirst();
+        ratingRepository.save(Rating.builder()
+                .user(user)
+                .movie(movie)
+                .ratingValue(7)
+                .review("Streamed")
+                .build());
+        long expected = ratingRepository.findByMovieId(movie.getId()).size();
+
+        // When
+        String body = webClient.get()
+                .uri("/api/v1/ratings/movie/{movieId}", movie.getId())
+                .header("Authorization", "Bearer " + token)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBody(String.class)
+                .returnResult()
+                .getResponseBody();
+
+        // Then
+        assertThat(body).endsWith("\n");
+        assertThat(body.lines()).hasSize((int) expected)
+                .allSatisfy(line -> assertThat(line).startsWith("{").contains("\"movieId\":\"" + movie.getId() + "\""))
+                .anySatisfy(line -> assertThat(line).contains("\"review\":\"Streamed\""));
+    }
+
+    @Test
+    void shouldReturn404WhenStreamingRatingsOfUnknownMovie() throws Exception {
+        String token = registerAndGetToken("streamer404@example.com");
+
+        webClient.get()
+                .uri("/api/v1/ratings/movie/{movieId}", UUID.randomUUID())
+                .header("Authorization", "Bearer " + token)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_JSON)
+                .expectBody()
+                .jsonPath("$.status").isEqualTo(404);
+    }
+
+    @Test
+    void shouldExportRatingsAsCsvAndResumeAfterLastRow() throws Exception {
+        // Given
+        String token = registerAndGetToken("exporter@example.com");
+        User user = userRepository.findByEmail("exporter@example.com").orElseThrow();
+        Movie movie = movieRepository.findAll().getFirst();
+        ratingRepository.save(Rating.builder()
+                .user(user)
+                .movie(movie)
+                .ratingValue(6)
+                .review("Fine, \"I guess\"")
+                .build());
+        long total = ratingRepository.count();
+
+        // When
+        List<String> lines = exportCsv(token, "").lines().toList();
+        String[] middle = lines.get(lines.size() / 2).split(",");
+        String resumeToken = middle[middle.length - 2] + "," + middle[0];
+        List<String> resumed = exportCsv(token, resumeToken).lines().toList();
+
+        // Then
+        assertThat(lines.getFirst()).isEqualTo("id,movie_id,user_id,rating_value,review,created_at,updated_at");
+        assertThat(lines).hasSize((int) total + 1)
+                .anySatisfy(line -> assertThat(line).contains(",6,\"Fine, \"\"I guess\"\"\","));
+        assertThat(resumed.subList(1, resumed.size())).isEqualTo(lines.subList(lines.size() / 2 + 1, lines.size()));
+    }
+
+    @Test
+    void shouldRejectInvalidExportResumeToken() throws Exception {
+        String token = registerAndGetToken("badexport@example.com");
+
+        webClient.get()
+                .uri("/api/v1/ratings/export?after={after}", "not-a-token")
+                .header("Authorization", "Bearer " + token)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void shouldApplyRatingBatchAndKeepStatsConsistent() throws Exception {
+        // Given
+        String token = registerAndGetToken("batcher@example.com");
+        User user = userRepository.findByEmail("batcher@example.com").orElseThrow();
+        List<Movie> movies = movieRepository.findAll();
+        Movie rated = movies.get(0);
+        Movie unrated = movies.get(1);
+        Movie deleted = movies.get(2);
+        ratingRepository.save(Rating.builder().user(user).movie(rated).ratingValue(4).build());
+        ratingRepository.save(Rating.builder().user(user).movie(deleted).ratingValue(8).build());
+        MovieRatingStats ratedBefore = stats(rated);
+        MovieRatingStats unratedBefore = stats(unrated);
+        MovieRatingStats deletedBefore = stats(deleted);
+
+        String batch = """
+                [
+                  {"movieId": "%s", "ratingValue": 2},
+                  {"movieId": "%s", "ratingValue": 9, "review": "Better the second time"},
+                  {"movieId": "%s", "ratingValue": 7},
+                  {"op": "DELETE", "movieId": "%s"},
+                  {"movieId": "%s", "ratingValue": 5},
+                  {"movieId": "%s", "ratingValue": 11}
+                ]
+                """.formatted(rated.getId(), rated.getId(), unrated.getId(), deleted.getId(), UUID.randomUUID(), unrated.getId());
+
+        // When & Then
+        webClient.post()
+                .uri("/api/v1/ratings/batch")
+                .header("Authorization", "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(batch)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.applied").isEqualTo(4)
+                .jsonPath("$.rejected").isEqualTo(2)
+                .jsonPath("$.results[*].status").isEqualTo(List.of("SUPERSEDED", "UPDATED", "CREATED", "DELETED", "NOT_FOUND", "INVALID"));
+
+        assertThat(ratingRepository.findByUserIdAndMovieId(user.getId(), rated.getId()).orElseThrow().getReview())
+                .isEqualTo("Better the second time");
+        assertThat(ratingRepository.findByUserIdAndMovieId(user.getId(), deleted.getId())).isEmpty();
+        assertThat(stats(rated).getRatingSum()).isEqualTo(ratedBefore.getRatingSum() + 5);
+        assertThat(stats(rated).getRatingCount()).isEqualTo(ratedBefore.getRatingCount());
+        assertThat(stats(unrated).getRatingSum()).isEqualTo(unratedBefore.getRatingSum() + 7);
+        assertThat(stats(unrated).getRatingCount()).isEqualTo(unratedBefore.getRatingCount() + 1);
+        assertThat(stats(deleted).getRatingSum()).isEqualTo(deletedBefore.getRatingSum() - 8);
+        assertThat(stats(deleted).getRatingCount()).isEqualTo(deletedBefore.getRatingCount() - 1);
+    }
+
+    @Test
+    void shouldRejectRatingBatchThatIsNotAnArray() throws Exception {
+        String token = registerAndGetToken("badbatch@example.com");
+
+        webClient.post()
+                .uri("/api/v1/ratings/batch")
+                .header("Authorization", "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"movieId\": \"" + UUID.randomUUID() + "\", \"ratingValue\": 5}")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    private MovieRatingStats stats(Movie movie) {
+        return movieRatingStatsRepository.findById(movie.getId())
+                .orElse(MovieRatingStats.builder().movieId(movie.getId()).build());
+    }
+
+    private String exportCsv(String token, String after) {
+        return webClient.get()
+                .uri("/api/v1/ratings/export?format=csv&after={after}", after)
+                .header("Authorization", "Bearer " + token)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.parseMediaType("text/csv"))
+                .expectBody(String.class)
+                .returnResult()
+                .getResponseBody();
+    }
+
     // Helper method
     protected String registerAndGetToken(String email) throws Exception {
         return registerAndGetToken(email, "Pass123!@");
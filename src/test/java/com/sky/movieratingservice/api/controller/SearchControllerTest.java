@@ -0,0 +1,103 @@
+package com.sky.movieratingservice.api.controller;
+
+import com.sky.movieratingservice.api.dto.request.RatingRequestDto;
+import com.sky.movieratingservice.api.dto.response.CursorPageResponseDto;
+import com.sky.movieratingservice.common.AbstractIntegrationTest;
+import com.sky.movieratingservice.domain.entity.Movie;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SearchControllerTest extends AbstractIntegrationTest {
+
+    @Test
+    void shouldFindMoviesByDescriptionWithEscapedHighlights() {
+        // Given
+        Movie movie = movieRepository.save(Movie.builder()
+                .name("Quokka Island")
+                .description("A <b>marsupial</b> & its friends meet the lighthouse keepers of a windswept island")
+                .director("Search Director")
+                .genre("Drama")
+                .releaseYear(2011)
+                .build());
+
+        // When & Then
+        webClient.get()
+                .uri("/api/v1/search?q=lighthouse keeper")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.items.length()").isEqualTo(1)
+                .jsonPath("$.items[0].movieId").isEqualTo(movie.getId().toString())
+                .jsonPath("$.items[0].ratingId").doesNotExist()
+                .jsonPath("$.items[0].snippet").value(snippet -> assertThat((String) snippet)
+                        .doesNotContain("<b>")
+                        .contains("&amp; its friends")
+                        .contains("<mark>lighthouse</mark> <mark>keepers</mark>"));
+    }
+
+    @Test
+    void shouldPageThroughMatchesByCursor() {
+        // Given: the name weighs more than the description
+        movieRepository.save(Movie.builder().name("Wombat Returns").description("Sequel")
+                .director("Search Director").genre("Comedy").releaseYear(2012).build());
+        movieRepository.save(Movie.builder().name("Outback").description("A wombat goes missing")
+                .director("Search Director").genre("Comedy").releaseYear(2013).build());
+
+        // When
+        CursorPageResponseDto<?> first = searchPage("/api/v1/search?q=wombat&size=1");
+        CursorPageResponseDto<?> second = searchPage("/api/v1/search?q=wombat&size=1&after=" + first.getNextCursor());
+
+        // Then
+        assertThat(((Map<?, ?>) first.getItems().getFirst()).get("movieName")).isEqualTo("Wombat Returns");
+        assertThat(((Map<?, ?>) second.getItems().getFirst()).get("movieName")).isEqualTo("Outback");
+        assertThat(second.getNextCursor()).isNull();
+    }
+
+    @Test
+    void shouldFindReviews() throws Exception {
+        // Given
+        String token = registerAndGetToken("search@movie.com", "Password123!");
+        Movie movie = movieRepository.findAll().getFirst();
+        webClient.post()
+                .uri("/api/v1/ratings")
+                .header("Authorization", "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(RatingRequestDto.builder().movieId(movie.getId()).ratingValue(8)
+                        .review("The cinematography of the desert chases is breathtaking").build())
+                .exchange()
+                .expectStatus().isCreated();
+
+        // When & Then
+        webClient.get()
+                .uri("/api/v1/search?q=breathtaking cinematography&in=reviews&boost=true")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.items.length()").isEqualTo(1)
+                .jsonPath("$.items[0].movieId").isEqualTo(movie.getId().toString())
+                .jsonPath("$.items[0].ratingValue").isEqualTo(8)
+                .jsonPath("$.items[0].snippet").value(snippet -> assertThat((String) snippet)
+                        .contains("<mark>breathtaking</mark>"));
+    }
+
+    @Test
+    void shouldRejectInvalidSearches() {
+        webClient.get().uri("/api/v1/search?q= ").exchange().expectStatus().isBadRequest();
+        webClient.get().uri("/api/v1/search?q=wombat&in=users").exchange().expectStatus().isBadRequest();
+        webClient.get().uri("/api/v1/search?q=wombat&after=bm90LWEtY3Vyc29y").exchange().expectStatus().isBadRequest();
+    }
+
+    private CursorPageResponseDto<?> searchPage(String uri) {
+        return webClient.get()
+                .uri(uri)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(CursorPageResponseDto.class)
+                .returnResult()
+                .getResponseBody();
+    }
+}
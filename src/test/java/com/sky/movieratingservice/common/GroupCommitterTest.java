@@ -0,0 +1,105 @@
+package com.sky.movieratingservice.common;
+
+import com.sky.movieratingservice.common.GroupCommitter.Outcome;
+import com.sky.movieratingservice.domain.exception.ResourceNotFoundException;
+import com.sky.movieratingservice.domain.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GroupCommitterTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void shouldCommitConcurrentSubmissionsTogetherAndCompleteEachWithItsOwnOutcome() throws Exception {
+        // Given
+        List<List<Integer>> batches = new CopyOnWriteArrayList<>();
+        try (var committer = new GroupCommitter<Integer, String>("test", 1, 4, Duration.ofSeconds(5), 10,
+                items -> {
+                    batches.add(items);
+                    return items.stream()
+                            .map(item -> item == 3
+                                    ? Outcome.<String>failure(new ResourceNotFoundException("Item not found"))
+                                    : Outcome.success("item-" + item))
+                            .toList();
+                }, meterRegistry)) {
+
+            // When
+            List<CompletableFuture<String>> results = IntStream.rangeClosed(1, 4).mapToObj(committer::submit).toList();
+
+            // Then
+            assertThat(results.get(0).get(5, TimeUnit.SECONDS)).isEqualTo("item-1");
+            assertThat(results.get(3).get(5, TimeUnit.SECONDS)).isEqualTo("item-4");
+            assertThat(results.get(2)).failsWithin(Duration.ofSeconds(5))
+                    .withThrowableOfType(Exception.class)
+                    .withCauseInstanceOf(ResourceNotFoundException.class);
+            assertThat(batches).containsExactly(List.of(1, 2, 3, 4));
+            assertThat(meterRegistry.get("group.commit.batch.size").summary().max()).isEqualTo(4);
+        }
+    }
+
+    @Test
+    void shouldFailEveryItemOfABatchWhenTheCommitThrows() throws Exception {
+        // Given
+        try (var committer = new GroupCommitter<Integer, String>("test", 1, 2, Duration.ofSeconds(5), 10,
+                items -> {
+                    throw new IllegalStateException("connection lost");
+                }, meterRegistry)) {
+
+            // When
+            var first = committer.submit(1);
+            var second = committer.submit(2);
+
+            // Then
+            assertThat(List.of(first, second)).allSatisfy(result -> assertThat(result)
+                    .failsWithin(Duration.ofSeconds(5))
+                    .withThrowableOfType(Exception.class)
+                    .withCauseInstanceOf(IllegalStateException.class));
+        }
+    }
+
+    @Test
+    void shouldRejectSubmissionsWhenTheQueueIsFull() throws Exception {
+        // Given
+        CountDownLatch committing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try (var committer = new GroupCommitter<Integer, String>("test", 1, 1, Duration.ZERO, 1,
+                items -> {
+                    committing.countDown();
+                    await(release);
+                    return List.of(Outcome.success("done"));
+                }, meterRegistry)) {
+            var inFlight = committer.submit(1);
+            assertThat(committing.await(5, TimeUnit.SECONDS)).isTrue();
+            var queued = committer.submit(2);
+
+            // When / Then
+            assertThatThrownBy(() -> committer.submit(3)).isInstanceOf(ServiceUnavailableException.class);
+            assertThat(meterRegistry.get("group.commit.rejected").counter().count()).isEqualTo(1);
+
+            release.countDown();
+            assertThat(inFlight.get(5, TimeUnit.SECONDS)).isEqualTo("done");
+            assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("done");
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
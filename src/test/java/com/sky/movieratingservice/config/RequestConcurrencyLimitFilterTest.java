@@ -0,0 +1,62 @@
+package com.sky.movieratingservice.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestConcurrencyLimitFilterTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RequestConcurrencyLimitFilter filter = new RequestConcurrencyLimitFilter(
+            1, Duration.ofMillis(50), new ObjectMapper().findAndRegisterModules(), meterRegistry);
+
+    @Test
+    void shouldRejectRequestsThatGetNoSlotInTimeAndServeThemOnceOneIsFree() throws Exception {
+        // Given
+        CountDownLatch inChain = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = Thread.ofVirtual().start(() -> {
+            try {
+                filter.doFilter(new MockHttpServletRequest("GET", "/api/v1/movies"), new MockHttpServletResponse(),
+                        (request, response) -> {
+                            inChain.countDown();
+                            try {
+                                release.await();
+                            } catch (InterruptedException ex) {
+                                Thread.currentThread().interrupt();
+                            }
+                        });
+            } catch (Exception ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+        assertThat(inChain.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // When
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/v1/movies/top-rated"), rejected, new MockFilterChain());
+        release.countDown();
+        holder.join();
+        MockHttpServletResponse served = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/v1/movies/top-rated"), served, new MockFilterChain());
+
+        // Then
+        assertThat(rejected.getStatus()).isEqualTo(503);
+        assertThat(rejected.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+        assertThat(rejected.getContentAsString()).contains("/api/v1/movies/top-rated");
+        assertThat(served.getStatus()).isEqualTo(200);
+        assertThat(meterRegistry.get("http.server.requests.limit.rejected").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("http.server.requests.limit.available").gauge().value()).isEqualTo(1);
+    }
+}
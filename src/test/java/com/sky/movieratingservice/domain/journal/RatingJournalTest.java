@@ -0,0 +1,107 @@
+package com.sky.movieratingservice.domain.journal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RatingJournalTest {
+
+    private static final int CAPACITY = 128 * 1024;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldReplayRecordsAfterTheCheckpoint() throws Exception {
+        // Given
+        Path path = directory.resolve("ratings.journal");
+        UUID userId = UUID.randomUUID();
+        try (RatingJournal journal = new RatingJournal(path, CAPACITY)) {
+            journal.replay();
+            JournalRecord flushed = journal.append(userId, UUID.randomUUID(), 4, null, 1L).orElseThrow();
+            JournalRecord first = journal.append(userId, UUID.randomUUID(), 7, "Grand, élégant", 2L).orElseThrow();
+            journal.append(userId, UUID.randomUUID(), 9, "", 3L).orElseThrow();
+            journal.checkpoint(first.sequence(), first.offset());
+            assertThat(flushed.sequence()).isEqualTo(1);
+        }
+
+        // When
+        List<JournalRecord> replayed;
+        try (RatingJournal journal = new RatingJournal(path, CAPACITY)) {
+            replayed = journal.replay();
+            assertThat(journal.lag()).isEqualTo(2);
+            assertThat(journal.append(userId, UUID.randomUUID(), 5, null, 4L).orElseThrow().sequence()).isEqualTo(4);
+        }
+
+        // Then
+        assertThat(replayed).extracting(JournalRecord::sequence).containsExactly(2L, 3L);
+        assertThat(replayed).extracting(JournalRecord::review).containsExactly("Grand, élégant", "");
+        assertThat(replayed.getFirst().ratingValue()).isEqualTo(7);
+        assertThat(replayed.getFirst().userId()).isEqualTo(userId);
+        assertThat(replayed.getFirst().acceptedAt()).isEqualTo(2L);
+    }
+
+    @Test
+    void shouldStopReplayAtCorruptRecord() throws Exception {
+        // Given
+        Path path = directory.resolve("ratings.journal");
+        int corruptOffset;
+        try (RatingJournal journal = new RatingJournal(path, CAPACITY)) {
+            journal.replay();
+            journal.append(UUID.randomUUID(), UUID.randomUUID(), 6, null, 1L).orElseThrow();
+            corruptOffset = journal.append(UUID.randomUUID(), UUID.randomUUID(), 8, "Torn", 2L).orElseThrow().offset();
+            journal.append(UUID.randomUUID(), UUID.randomUUID(), 3, null, 3L).orElseThrow();
+        }
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.seek(corruptOffset + 60);
+            file.write('X');
+        }
+
+        // When
+        try (RatingJournal journal = new RatingJournal(path, CAPACITY)) {
+            List<JournalRecord> replayed = journal.replay();
+
+            // Then
+            assertThat(replayed).extracting(JournalRecord::sequence).containsExactly(1L);
+            assertThat(journal.append(UUID.randomUUID(), UUID.randomUUID(), 5, null, 4L).orElseThrow().offset())
+                    .isEqualTo(corruptOffset);
+        }
+    }
+
+    @Test
+    void shouldWrapAroundAndRefuseToOverwriteUnflushedRecords() throws Exception {
+        // Given
+        Path path = directory.resolve("ratings.journal");
+        String review = "x".repeat(1000);
+        try (RatingJournal journal = new RatingJournal(path, CAPACITY)) {
+            journal.replay();
+            JournalRecord oldest = journal.append(UUID.randomUUID(), UUID.randomUUID(), 1, review, 0L).orElseThrow();
+            JournalRecord last = oldest;
+            while (true) {
+                var appended = journal.append(UUID.randomUUID(), UUID.randomUUID(), 2, review, 0L);
+                if (appended.isEmpty()) {
+                    break;
+                }
+                last = appended.get();
+            }
+
+            // When: everything up to the last record is flushed, so the writer may wrap
+            journal.checkpoint(last.sequence(), last.offset());
+            JournalRecord wrapped = journal.append(UUID.randomUUID(), UUID.randomUUID(), 3, review, 0L).orElseThrow();
+
+            // Then
+            assertThat(wrapped.offset()).isLessThan(last.offset());
+            assertThat(journal.lag()).isEqualTo(2);
+        }
+
+        try (RatingJournal journal = new RatingJournal(path, CAPACITY)) {
+            assertThat(journal.replay()).extracting(JournalRecord::ratingValue).containsExactly(2, 3);
+        }
+    }
+}
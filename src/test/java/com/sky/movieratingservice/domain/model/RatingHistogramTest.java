@@ -0,0 +1,69 @@
+package com.sky.movieratingservice.domain.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RatingHistogramTest {
+
+    @Test
+    void shouldDeriveSumAndCountDeltasFromTheBuckets() {
+        // Given
+        RatingHistogram created = new RatingHistogram().add(9);
+        RatingHistogram changed = new RatingHistogram().change(5, 9);
+        RatingHistogram deleted = new RatingHistogram().remove(7);
+        RatingHistogram unchanged = new RatingHistogram().change(6, 6);
+
+        // Then
+        assertThat(created.sum()).isEqualTo(9);
+        assertThat(created.count()).isEqualTo(1);
+        assertThat(changed.sum()).isEqualTo(4);
+        assertThat(changed.count()).isZero();
+        assertThat(changed.toArray()).containsExactly(0L, 0L, 0L, 0L, -1L, 0L, 0L, 0L, 1L, 0L);
+        assertThat(deleted.sum()).isEqualTo(-7);
+        assertThat(deleted.count()).isEqualTo(-1);
+        assertThat(unchanged.isEmpty()).isTrue();
+    }
+
+    @Test
+    void shouldComputeMedianAndPercentilesFromTheBuckets() {
+        // Given: ratings 1, 2, 2, 8, 8, 8, 9, 10
+        RatingHistogram histogram = RatingHistogram.of(new long[]{1, 2, 0, 0, 0, 0, 0, 3, 1, 1});
+
+        // Then
+        assertThat(histogram.count()).isEqualTo(8);
+        assertThat(histogram.mean()).isEqualTo(48 / 8.0);
+        assertThat(histogram.median()).isEqualTo(8.0);
+        assertThat(histogram.percentile(10)).isEqualTo(1);
+        assertThat(histogram.percentile(25)).isEqualTo(2);
+        assertThat(histogram.percentile(50)).isEqualTo(8);
+        assertThat(histogram.percentile(90)).isEqualTo(10);
+        assertThat(histogram.percentile(100)).isEqualTo(10);
+    }
+
+    @Test
+    void shouldAverageTheMiddleRatingsForAnEvenCount() {
+        // Given: ratings 4, 6
+        RatingHistogram histogram = new RatingHistogram().add(4).add(6);
+
+        // Then
+        assertThat(histogram.median()).isEqualTo(5.0);
+        assertThat(histogram.percentile(50)).isEqualTo(4);
+    }
+
+    @Test
+    void shouldHaveNoMedianOrPercentilesWithoutRatings() {
+        RatingHistogram histogram = new RatingHistogram();
+
+        assertThat(histogram.mean()).isZero();
+        assertThat(histogram.median()).isNull();
+        assertThat(histogram.percentile(50)).isNull();
+    }
+
+    @Test
+    void shouldRejectValuesOutsideTheRatingScale() {
+        assertThatThrownBy(() -> new RatingHistogram().add(11)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> RatingHistogram.of(new long[5])).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,107 @@
+package com.sky.movieratingservice.domain.ranking;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LeaderboardTest {
+
+    @Test
+    void shouldOrderByAverageThenCount() {
+        // Given
+        Leaderboard leaderboard = new Leaderboard(10);
+        LeaderboardEntry fewVotes = entry("Few votes", 18, 2, 1);
+        LeaderboardEntry manyVotes = entry("Many votes", 90, 10, 1);
+        LeaderboardEntry best = entry("Best", 10, 1, 1);
+
+        // When
+        leaderboard.update(fewVotes);
+        leaderboard.update(manyVotes);
+        leaderboard.update(best);
+
+        // Then
+        assertThat(leaderboard.top(10)).extracting(LeaderboardEntry::name)
+                .containsExactly("Best", "Many votes", "Few votes");
+    }
+
+    @Test
+    void shouldReorderWhenStatsChange() {
+        // Given
+        Leaderboard leaderboard = new Leaderboard(10);
+        LeaderboardEntry first = entry("First", 9, 1, 1);
+        LeaderboardEntry second = entry("Second", 8, 1, 1);
+        leaderboard.update(first);
+        leaderboard.update(second);
+
+        // When
+        leaderboard.update(second.withStats(18, 2, 2));
+        leaderboard.update(first.withStats(0, 0, 2));
+
+        // Then
+        assertThat(leaderboard.top(10)).extracting(LeaderboardEntry::name).containsExactly("Second");
+    }
+
+    @Test
+    void shouldIgnoreStaleUpdates() {
+        // Given
+        Leaderboard leaderboard = new Leaderboard(10);
+        LeaderboardEntry movie = entry("Movie", 10, 1, 3);
+        leaderboard.update(movie);
+
+        // When
+        boolean applied = leaderboard.update(movie.withStats(2, 1, 2));
+
+        // Then
+        assertThat(applied).isFalse();
+        assertThat(leaderboard.top(1).getFirst().avgRating()).isEqualTo(10.0);
+    }
+
+    @Test
+    void shouldKeepOnlyCapacityEntriesAndPromoteWhenHeadDrops() {
+        // Given
+        Leaderboard leaderboard = new Leaderboard(2);
+        LeaderboardEntry first = entry("First", 10, 1, 1);
+        leaderboard.update(first);
+        leaderboard.update(entry("Second", 9, 1, 1));
+        leaderboard.update(entry("Third", 8, 1, 1));
+
+        // When
+        List<LeaderboardEntry> before = leaderboard.top(5);
+        leaderboard.update(first.withStats(1, 1, 2));
+
+        // Then
+        assertThat(before).extracting(LeaderboardEntry::name).containsExactly("First", "Second");
+        assertThat(leaderboard.top(5)).extracting(LeaderboardEntry::name).containsExactly("Second", "Third");
+    }
+
+    @Test
+    void shouldRankByWeightedRatingWithAPrior() {
+        // Given
+        Leaderboard leaderboard = new Leaderboard(10, new BayesianPrior(10, 7.0));
+        LeaderboardEntry singlePerfect = entry("Single perfect", 10, 1, 1);
+        LeaderboardEntry manyNines = entry("Many nines", 900, 100, 1);
+        LeaderboardEntry fewEights = entry("Few eights", 40, 5, 1);
+
+        // When
+        leaderboard.update(singlePerfect);
+        leaderboard.update(manyNines);
+        leaderboard.update(fewEights);
+
+        // Then: (900 + 70) / 110 = 8.82, (40 + 70) / 15 = 7.33, (10 + 70) / 11 = 7.27
+        assertThat(leaderboard.top(10)).extracting(LeaderboardEntry::name)
+                .containsExactly("Many nines", "Few eights", "Single perfect");
+    }
+
+    @Test
+    void shouldRejectNonPositiveCapacity() {
+        assertThatThrownBy(() -> new Leaderboard(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private LeaderboardEntry entry(String name, long sum, long count, long version) {
+        return LeaderboardEntry.of(UUID.randomUUID(), name, null, 2000, "Drama", null, sum, count, version);
+    }
+}
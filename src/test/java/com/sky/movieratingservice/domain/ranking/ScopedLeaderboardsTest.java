@@ -0,0 +1,79 @@
+package com.sky.movieratingservice.domain.ranking;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ScopedLeaderboardsTest {
+
+    @Test
+    void shouldRankMoviesPerGenreAndDecade() {
+        // Given
+        ScopedLeaderboards leaderboards = new ScopedLeaderboards(10, BayesianPrior.NONE, 1);
+
+        // When
+        leaderboards.update(entry("Heat", "Crime", 1995, 90, 10, 1));
+        leaderboards.update(entry("Fargo", "Crime", 1996, 80, 10, 1));
+        leaderboards.update(entry("Alien", "Horror", 1979, 95, 10, 1));
+
+        // Then
+        assertThat(leaderboards.top(LeaderboardScope.ALL, 10)).extracting(LeaderboardEntry::name)
+                .containsExactly("Alien", "Heat", "Fargo");
+        assertThat(leaderboards.top(new LeaderboardScope("CRIME ", null), 10)).extracting(LeaderboardEntry::name)
+                .containsExactly("Heat", "Fargo");
+        assertThat(leaderboards.top(new LeaderboardScope(null, 1990), 10)).extracting(LeaderboardEntry::name)
+                .containsExactly("Heat", "Fargo");
+        assertThat(leaderboards.top(new LeaderboardScope("horror", 1970), 10)).extracting(LeaderboardEntry::name)
+                .containsExactly("Alien");
+        assertThat(leaderboards.top(new LeaderboardScope("horror", 1990), 10)).isEmpty();
+    }
+
+    @Test
+    void shouldOnlyRankMoviesWithEnoughRatingsInScopes() {
+        // Given
+        ScopedLeaderboards leaderboards = new ScopedLeaderboards(10, BayesianPrior.NONE, 5);
+        LeaderboardEntry fewRatings = entry("Few ratings", "Drama", 2001, 20, 2, 1);
+        leaderboards.update(fewRatings);
+        leaderboards.update(entry("Many ratings", "Drama", 2003, 40, 5, 1));
+        LeaderboardScope drama = new LeaderboardScope("Drama", null);
+
+        // Then: the overall ranking keeps ranking every rated movie
+        assertThat(leaderboards.top(LeaderboardScope.ALL, 10)).hasSize(2);
+        assertThat(leaderboards.top(drama, 10)).extracting(LeaderboardEntry::name).containsExactly("Many ratings");
+
+        // When
+        leaderboards.update(fewRatings.withStats(50, 5, 2));
+
+        // Then
+        assertThat(leaderboards.top(drama, 10)).extracting(LeaderboardEntry::name)
+                .containsExactly("Few ratings", "Many ratings");
+    }
+
+    @Test
+    void shouldRejectStaleUpdatesInEveryScope() {
+        // Given
+        ScopedLeaderboards leaderboards = new ScopedLeaderboards(10, BayesianPrior.NONE, 1);
+        LeaderboardEntry movie = entry("Movie", "Drama", 2010, 10, 1, 3);
+        leaderboards.update(movie);
+
+        // When
+        boolean applied = leaderboards.update(movie.withStats(2, 1, 2));
+
+        // Then
+        assertThat(applied).isFalse();
+        assertThat(leaderboards.top(new LeaderboardScope("drama", 2010), 1).getFirst().avgRating()).isEqualTo(10.0);
+    }
+
+    @Test
+    void shouldRejectDecadesNotGivenByTheirFirstYear() {
+        assertThatThrownBy(() -> new LeaderboardScope(null, 1995)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(LeaderboardScope.decadeOf(1999)).isEqualTo(1990);
+    }
+
+    private LeaderboardEntry entry(String name, String genre, int releaseYear, long sum, long count, long version) {
+        return LeaderboardEntry.of(UUID.randomUUID(), name, null, releaseYear, genre, null, sum, count, version);
+    }
+}
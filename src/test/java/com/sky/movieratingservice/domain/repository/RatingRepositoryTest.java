@@ -3,10 +3,14 @@ package com.sky.movieratingservice.domain.repository;
 import com.sky.movieratingservice.domain.entity.Movie;
 import com.sky.movieratingservice.domain.entity.Rating;
 import com.sky.movieratingservice.domain.entity.User;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
@@ -14,7 +18,10 @@ import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.AssertionsForClassTypes.*;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
@@ -50,6 +57,12 @@ class RatingRepositoryTest {
     @Autowired
     protected RatingRepository ratingRepository;
 
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     @Test
     void shouldSaveRating() {
         // Given
@@ -281,4 +294,103 @@ class RatingRepositoryTest {
         assertThat(ratings.get(0).getMovie()).isNotNull();
         assertThat(ratings.get(0).getUser()).isNotNull();
     }
+
+    @Test
+    void shouldListRatingViewsWithOneStatementPerCall() {
+        // Given
+        Movie movie = movieRepository.save(Movie.builder()
+                .name("Projection Movie")
+                .description("Test Description")
+                .director("Test Director")
+                .genre("Drama")
+                .releaseYear(1900)
+                .build());
+        User user = null;
+        for (int i = 0; i < 5; i++) {
+            user = userRepository.save(User.builder()
+                    .email("projection" + i + "@example.com")
+                    .password("pass")
+                    .build());
+            ratingRepository.save(Rating.builder()
+                    .user(user)
+                    .movie(movie)
+                    .ratingValue(i + 1)
+                    .build());
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+
+        // When
+        statistics.clear();
+        var movieRatings = ratingRepository.findViewsByMovieId(movie.getId());
+        movieRatings.forEach(this::readAllColumns);
+        long movieListingStatements = statistics.getPrepareStatementCount();
+
+        statistics.clear();
+        var userRatings = ratingRepository.findViewsByUserId(user.getId());
+        userRatings.forEach(this::readAllColumns);
+        long userListingStatements = statistics.getPrepareStatementCount();
+
+        // Then
+        assertEquals(5, movieRatings.size());
+        assertEquals(1, userRatings.size());
+        assertThat(movieListingStatements).isEqualTo(1);
+        assertThat(userListingStatements).isEqualTo(1);
+        assertThat(userRatings.getFirst().getMovieName()).isEqualTo("Projection Movie");
+        assertThat(userRatings.getFirst().getUserEmail()).isEqualTo("projection4@example.com");
+    }
+
+    @Test
+    void shouldStampBufferedFirstRatingsWithDatabaseTimeAndUpdatesWithAcceptedTime() {
+        // Given
+        User user = userRepository.save(User.builder()
+                .email("buffered@example.com")
+                .password("password")
+                .build());
+        Movie rated = movieRepository.save(Movie.builder().name("Rated Movie").director("Director").genre("Drama").releaseYear(1900).build());
+        Movie unrated = movieRepository.save(Movie.builder().name("Unrated Movie").director("Director").genre("Drama").releaseYear(1900).build());
+        ratingRepository.save(Rating.builder().user(user).movie(rated).ratingValue(3).build());
+        entityManager.flush();
+        LocalDateTime acceptedAt = LocalDateTime.now().minusHours(1).withNano(0);
+
+        // When
+        var written = ratingRepository.upsertForUsers(new UUID[]{user.getId(), user.getId()},
+                new UUID[]{rated.getId(), unrated.getId()}, new Integer[]{5, 6}, new String[2],
+                new LocalDateTime[]{acceptedAt, acceptedAt});
+
+        // Then
+        assertThat(written.stream().filter(rating -> !rating.getInserted()).findFirst().orElseThrow().getUpdatedAt())
+                .isEqualTo(acceptedAt);
+        assertThat(written.stream().filter(RatingRepository.WrittenRating::getInserted).findFirst().orElseThrow().getCreatedAt())
+                .isAfter(acceptedAt.plusMinutes(30));
+    }
+
+    @Test
+    void shouldLockEachRatingBucketOfTheUsersOnce() {
+        // Given
+        UUID userId = UUID.randomUUID();
+
+        // When
+        long sameUserTwice = ratingRepository.lockRatingsOfUsers(new UUID[]{userId, userId});
+        long manyUsers = ratingRepository.lockRatingsOfUsers(Stream.generate(UUID::randomUUID).limit(2000).toArray(UUID[]::new));
+
+        // Then
+        assertThat(sameUserTwice).isEqualTo(1);
+        assertThat(manyUsers).isEqualTo(256);
+    }
+
+    private void readAllColumns(RatingRepository.RatingView rating) {
+        rating.getId();
+        rating.getUserId();
+        rating.getUserEmail();
+        rating.getMovieId();
+        rating.getMovieName();
+        rating.getRatingValue();
+        rating.getReview();
+        rating.getCreatedAt();
+        rating.getUpdatedAt();
+    }
 }
\ No newline at end of file
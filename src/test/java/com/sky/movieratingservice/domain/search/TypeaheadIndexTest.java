@@ -0,0 +1,84 @@
+package com.sky.movieratingservice.domain.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TypeaheadIndexTest {
+
+    private static final Suggestion DARK_KNIGHT = movie("The Dark Knight", "Christopher Nolan", 2500);
+    private static final Suggestion INCEPTION = movie("Inception", "Christopher Nolan", 2200);
+    private static final Suggestion DARK_CITY = movie("Dark City", "Alex Proyas", 300);
+    private static final Suggestion AMELIE = movie("Amélie", "Jean-Pierre Jeunet", 900);
+
+    private final TypeaheadIndex index = TypeaheadIndex.empty(10)
+            .withAll(List.of(DARK_KNIGHT, INCEPTION, DARK_CITY, AMELIE));
+
+    @Test
+    void shouldSuggestByPrefixOfAnyWordMostPopularFirst() {
+        assertThat(index.suggest("dar", 10)).containsExactly(DARK_KNIGHT, DARK_CITY);
+        assertThat(index.suggest("knig", 10)).containsExactly(DARK_KNIGHT);
+        assertThat(index.suggest("Nolan", 10)).containsExactly(DARK_KNIGHT, INCEPTION);
+        assertThat(index.suggest("the dark k", 10)).containsExactly(DARK_KNIGHT);
+    }
+
+    @Test
+    void shouldIgnoreCaseAccentsAndPunctuation() {
+        assertThat(index.suggest("AMELIE", 10)).containsExactly(AMELIE);
+        assertThat(index.suggest("jean pierre", 10)).containsExactly(AMELIE);
+    }
+
+    @Test
+    void shouldTolerateOneTypoFromFourCharactersAndTwoFromEight() {
+        assertThat(index.suggest("dsr", 10)).isEmpty();
+        assertThat(index.suggest("incwp", 10)).containsExactly(INCEPTION);
+        assertThat(index.suggest("inecption", 10)).containsExactly(INCEPTION);
+        assertThat(index.suggest("christofer nolan", 10)).containsExactly(DARK_KNIGHT, INCEPTION);
+        assertThat(index.suggest("inxwpxion", 10)).isEmpty();
+    }
+
+    @Test
+    void shouldRankExactMatchesBeforeCloseOnes() {
+        Suggestion dart = movie("Darts", "Someone", 1);
+
+        List<Suggestion> suggestions = index.with(dart).suggest("dart", 10);
+
+        assertThat(suggestions).startsWith(dart).contains(DARK_KNIGHT, DARK_CITY);
+    }
+
+    @Test
+    void shouldKeepOnlyTopKPerPrefixAndHonourLimit() {
+        TypeaheadIndex small = TypeaheadIndex.empty(1).withAll(List.of(DARK_CITY, DARK_KNIGHT));
+
+        assertThat(small.suggest("dark", 10)).containsExactly(DARK_KNIGHT);
+        assertThat(index.suggest("dark", 1)).containsExactly(DARK_KNIGHT);
+    }
+
+    @Test
+    void shouldLeaveEarlierIndexesUnchanged() {
+        // Given
+        Suggestion darkWaters = movie("Dark Waters", "Todd Haynes", 5000);
+
+        // When
+        TypeaheadIndex updated = index.with(darkWaters);
+
+        // Then
+        assertThat(updated.suggest("dark", 10)).containsExactly(darkWaters, DARK_KNIGHT, DARK_CITY);
+        assertThat(index.suggest("dark", 10)).containsExactly(DARK_KNIGHT, DARK_CITY);
+    }
+
+    @Test
+    void shouldNotSuggestTheSameMovieTwice() {
+        Suggestion morePopular = new Suggestion(DARK_CITY.movieId(), "Dark City", "Alex Proyas", 1998, 3000);
+
+        assertThat(index.with(morePopular).suggest("dark", 10)).containsExactly(morePopular, DARK_KNIGHT);
+        assertThat(index.suggest("", 10)).isEmpty();
+    }
+
+    private static Suggestion movie(String name, String director, long popularity) {
+        return new Suggestion(UUID.randomUUID(), name, director, 2000, popularity);
+    }
+}
@@ -0,0 +1,29 @@
+package com.sky.movieratingservice.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BCryptPasswordEncodingTest {
+
+    @Test
+    void shouldRequestRehashOnlyForLowerCost() {
+        // Instances calibrated to different costs must not keep rehashing each other's hashes
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(5);
+
+        assertThat(encoder.upgradeEncoding(new BCryptPasswordEncoder(4).encode("secret"))).isTrue();
+        assertThat(encoder.upgradeEncoding(new BCryptPasswordEncoder(6).encode("secret"))).isFalse();
+        assertThat(encoder.upgradeEncoding(encoder.encode("secret"))).isFalse();
+    }
+
+    @Test
+    void shouldPickHighestCostWithinTargetLatency() {
+        // Cost 8 takes 4 ms, so cost 12 takes about 64 ms and cost 13 about 128 ms
+        assertThat(BCryptCostCalibrator.costFor(Duration.ofMillis(100), Duration.ofMillis(4), 10, 14)).isEqualTo(12);
+        assertThat(BCryptCostCalibrator.costFor(Duration.ofMillis(1), Duration.ofMillis(4), 10, 14)).isEqualTo(10);
+        assertThat(BCryptCostCalibrator.costFor(Duration.ofSeconds(10), Duration.ofMillis(4), 10, 14)).isEqualTo(14);
+    }
+}
@@ -0,0 +1,58 @@
+package com.sky.movieratingservice.security;
+
+import io.jsonwebtoken.Claims;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtTokenProviderTest {
+
+    private JwtTokenProvider tokenProvider;
+
+    @BeforeEach
+    void setUp() {
+        tokenProvider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(tokenProvider, "jwtSecret",
+                "YourSuperSecretKeyThatShouldBeAtLeast512BitsLongForHS512AlgorithmToWorkProperlyAndSecurely1234567890");
+        ReflectionTestUtils.setField(tokenProvider, "jwtExpirationInMs", 3600000L);
+        tokenProvider.init();
+    }
+
+    @Test
+    void shouldBuildPrincipalFromTokenClaims() {
+        // Given
+        UUID userId = UUID.randomUUID();
+        UserPrincipal principal = new UserPrincipal(userId, "test@example.com", "hash", UserPrincipal.DEFAULT_AUTHORITIES);
+        String token = tokenProvider.generateToken(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+
+        // When
+        Claims claims = tokenProvider.parseToken(token).orElseThrow();
+        UserPrincipal fromClaims = tokenProvider.getPrincipalFromClaims(claims);
+
+        // Then
+        assertThat(fromClaims.getId()).isEqualTo(userId);
+        assertThat(fromClaims.getEmail()).isEqualTo("test@example.com");
+        assertThat(fromClaims.getPassword()).isNull();
+        assertThat(fromClaims.getAuthorities()).extracting(GrantedAuthority::getAuthority).containsExactly("ROLE_USER");
+    }
+
+    @Test
+    void shouldRejectTamperedToken() {
+        // Given
+        UserPrincipal principal = new UserPrincipal(UUID.randomUUID(), "test@example.com", "hash", UserPrincipal.DEFAULT_AUTHORITIES);
+        String token = tokenProvider.generateToken(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+
+        // When & Then
+        assertThat(tokenProvider.parseToken(tampered)).isEmpty();
+        assertThat(tokenProvider.parseToken("not-a-jwt")).isEmpty();
+    }
+}
@@ -6,26 +6,25 @@ import com.sky.movieratingservice.api.dto.response.AuthResponseDto;
 import com.sky.movieratingservice.api.dto.response.UserResponseDto;
 import com.sky.movieratingservice.domain.entity.User;
 import com.sky.movieratingservice.domain.exception.DuplicateResourceException;
-import com.sky.movieratingservice.domain.exception.ForbiddenException;
 import com.sky.movieratingservice.domain.exception.ResourceNotFoundException;
 import com.sky.movieratingservice.domain.repository.UserRepository;
 import com.sky.movieratingservice.mapper.UserMapper;
 import com.sky.movieratingservice.security.JwtTokenProvider;
 import com.sky.movieratingservice.security.UserPrincipal;
 import com.sky.movieratingservice.service.impl.AuthService;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.authentication.BadCredentialsException;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.util.Optional;
 import java.util.UUID;
@@ -44,18 +43,12 @@ class AuthServiceTest {
     @Mock
     private PasswordEncoder passwordEncoder;
 
-    @Mock
-    private AuthenticationManager authenticationManager;
-
     @Mock
     private JwtTokenProvider tokenProvider;
 
     @Mock
     private UserMapper userMapper;
 
-    @Mock
-    private Authentication authentication;
-
     @InjectMocks
     private AuthService authService;
 
@@ -100,12 +93,9 @@ class AuthServiceTest {
     @Test
     void shouldRegisterUserSuccessfully() {
         // Given
-        when(userRepository.existsByEmail(registerRequest.getEmail())).thenReturn(false);
         when(passwordEncoder.encode(registerRequest.getPassword())).thenReturn("$2a$12$encodedPassword");
-        when(userRepository.save(any(User.class))).thenReturn(user);
-        when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
-                .thenReturn(authentication);
-        when(tokenProvider.generateToken(authentication)).thenReturn("jwt.token.here");
+        when(userRepository.saveAndFlush(any(User.class))).thenReturn(user);
+        when(tokenProvider.generateToken(any(UserPrincipal.class))).thenReturn("jwt.token.here");
         when(userMapper.toUserResponse(user)).thenReturn(userResponse);
 
         // When
@@ -119,18 +109,20 @@ class AuthServiceTest {
         assertThat(response.getUserResponseDto()).isNotNull();
         assertThat(response.getUserResponseDto().getEmail()).isEqualTo("test@example.com");
 
-        verify(userRepository).existsByEmail(registerRequest.getEmail());
         verify(passwordEncoder).encode(registerRequest.getPassword());
-        verify(userRepository).save(any(User.class));
-        verify(authenticationManager).authenticate(any(UsernamePasswordAuthenticationToken.class));
-        verify(tokenProvider).generateToken(authentication);
+        verify(userRepository).saveAndFlush(any(User.class));
+        verify(userRepository, never()).existsByEmail(anyString());
+        verify(passwordEncoder, never()).matches(any(), anyString());
+        verify(tokenProvider).generateToken(argThat((UserPrincipal principal) -> principal.getId().equals(user.getId())));
         verify(userMapper).toUserResponse(user);
     }
 
     @Test
     void shouldThrowExceptionWhenRegisteringWithExistingEmail() {
         // Given
-        when(userRepository.existsByEmail(registerRequest.getEmail())).thenReturn(true);
+        when(passwordEncoder.encode(registerRequest.getPassword())).thenReturn("$2a$12$encodedPassword");
+        when(userRepository.saveAndFlush(any(User.class))).thenThrow(new DataIntegrityViolationException("duplicate",
+                new ConstraintViolationException("duplicate key", new SQLException(), "uk_users_email")));
 
         // When & Then
         assertThatThrownBy(() -> authService.register(registerRequest))
@@ -138,24 +130,32 @@ class AuthServiceTest {
                 .hasMessageContaining("already exists")
                 .hasMessageContaining("test@example.com");
 
-        verify(userRepository).existsByEmail(registerRequest.getEmail());
-        verify(userRepository, never()).save(any(User.class));
-        verify(authenticationManager, never()).authenticate(any());
+        verify(tokenProvider, never()).generateToken(any(UserPrincipal.class));
+    }
+
+    @Test
+    void shouldRethrowOtherIntegrityViolationsOnRegister() {
+        // Given
+        DataIntegrityViolationException violation = new DataIntegrityViolationException("other",
+                new ConstraintViolationException("not null", new SQLException(), "users_password_not_null"));
+        when(passwordEncoder.encode(registerRequest.getPassword())).thenReturn("$2a$12$encodedPassword");
+        when(userRepository.saveAndFlush(any(User.class))).thenThrow(violation);
+
+        // When & Then
+        assertThatThrownBy(() -> authService.register(registerRequest)).isSameAs(violation);
     }
 
     @Test
     void shouldRegisterAndEncodePassword() {
         // Given
-        when(userRepository.existsByEmail(anyString())).thenReturn(false);
         when(passwordEncoder.encode(registerRequest.getPassword())).thenReturn("$2a$12$encodedPassword");
-        when(userRepository.save(any(User.class))).thenAnswer(invocation -> {
+        when(userRepository.saveAndFlush(any(User.class))).thenAnswer(invocation -> {
             User savedUser = invocation.getArgument(0);
             assertThat(savedUser.getPassword()).isEqualTo("$2a$12$encodedPassword");
             assertThat(savedUser.getPassword()).isNotEqualTo(registerRequest.getPassword());
             return user;
         });
-        when(authenticationManager.authenticate(any())).thenReturn(authentication);
-        when(tokenProvider.generateToken(any())).thenReturn("token");
+        when(tokenProvider.generateToken(any(UserPrincipal.class))).thenReturn("token");
         when(userMapper.toUserResponse(any())).thenReturn(userResponse);
 
         // When
@@ -163,42 +163,78 @@ class AuthServiceTest {
 
         // Then
         verify(passwordEncoder).encode(registerRequest.getPassword());
-        verify(userRepository).save(argThat(savedUser ->
+        verify(userRepository).saveAndFlush(argThat(savedUser ->
                 savedUser.getPassword().equals("$2a$12$encodedPassword")
         ));
     }
 
+    @Test
+    void shouldLoginWithSingleLookupAndSingleHashVerification() {
+        // Given
+        when(userRepository.findByEmail(loginRequest.getEmail())).thenReturn(Optional.of(user));
+        when(passwordEncoder.matches(loginRequest.getPassword(), user.getPassword())).thenReturn(true);
+        when(tokenProvider.generateToken(any(UserPrincipal.class))).thenReturn("jwt.token.here");
+        when(userMapper.toUserResponse(user)).thenReturn(userResponse);
+
+        // When
+        AuthResponseDto response = authService.login(loginRequest);
+
+        // Then
+        assertThat(response.getAccessToken()).isEqualTo("jwt.token.here");
+        assertThat(response.getUserResponseDto()).isEqualTo(userResponse);
+
+        verify(userRepository, times(1)).findByEmail(loginRequest.getEmail());
+        verify(passwordEncoder, times(1)).matches(anyString(), anyString());
+        verify(passwordEncoder).upgradeEncoding(user.getPassword());
+        verifyNoMoreInteractions(userRepository, passwordEncoder);
+    }
+
+    @Test
+    void shouldRehashPasswordOnLoginWhenCostChanged() {
+        // Given
+        when(userRepository.findByEmail(loginRequest.getEmail())).thenReturn(Optional.of(user));
+        when(passwordEncoder.matches(loginRequest.getPassword(), user.getPassword())).thenReturn(true);
+        when(passwordEncoder.upgradeEncoding(user.getPassword())).thenReturn(true);
+        when(passwordEncoder.encode(loginRequest.getPassword())).thenReturn("{bcrypt}$2a$10$rehashed");
+        when(userRepository.updatePassword(user.getId(), user.getPassword(), "{bcrypt}$2a$10$rehashed")).thenReturn(1);
+        when(tokenProvider.generateToken(any(UserPrincipal.class))).thenReturn("jwt.token.here");
+
+        // When
+        authService.login(loginRequest);
+
+        // Then
+        verify(userRepository).updatePassword(user.getId(), "$2a$12$encodedPassword", "{bcrypt}$2a$10$rehashed");
+    }
+
     @Test
     void shouldThrowExceptionWhenLoginWithInvalidCredentials() {
         // Given
-        when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
-                .thenThrow(new BadCredentialsException("Invalid credentials"));
+        when(userRepository.findByEmail(loginRequest.getEmail())).thenReturn(Optional.of(user));
+        when(passwordEncoder.matches(loginRequest.getPassword(), user.getPassword())).thenReturn(false);
 
         // When & Then
         assertThatThrownBy(() -> authService.login(loginRequest))
                 .isInstanceOf(BadCredentialsException.class)
-                .hasMessageContaining("Invalid credentials");
+                .hasMessageContaining("Invalid email or password");
 
-        verify(authenticationManager).authenticate(any(UsernamePasswordAuthenticationToken.class));
-        verify(tokenProvider, never()).generateToken(any());
-        verify(userRepository, never()).findByEmail(anyString());
+        verify(passwordEncoder).matches(loginRequest.getPassword(), user.getPassword());
+        verify(tokenProvider, never()).generateToken(any(UserPrincipal.class));
     }
 
     @Test
-    void shouldThrowExceptionWhenLoginUserNotFoundAfterAuthentication() {
+    void shouldVerifyDummyHashWhenLoginUserNotFound() {
         // Given
-        when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
-                .thenReturn(authentication);
         when(userRepository.findByEmail(loginRequest.getEmail())).thenReturn(Optional.empty());
+        when(passwordEncoder.encode(anyString())).thenReturn("$2a$12$dummy");
 
         // When & Then
         assertThatThrownBy(() -> authService.login(loginRequest))
-                .isInstanceOf(ResourceNotFoundException.class)
-                .hasMessageContaining("not found")
-                .hasMessageContaining("test@example.com");
+                .isInstanceOf(BadCredentialsException.class)
+                .hasMessageContaining("Invalid email or password");
 
-        verify(authenticationManager).authenticate(any());
         verify(userRepository).findByEmail(loginRequest.getEmail());
+        verify(passwordEncoder).matches(loginRequest.getPassword(), "$2a$12$dummy");
+        verify(tokenProvider, never()).generateToken(any(UserPrincipal.class));
     }
 
     @Test
@@ -239,11 +275,9 @@ class AuthServiceTest {
     @Test
     void shouldGenerateTokenWithCorrectExpiration() {
         // Given
-        when(userRepository.existsByEmail(anyString())).thenReturn(false);
         when(passwordEncoder.encode(anyString())).thenReturn("encoded");
-        when(userRepository.save(any(User.class))).thenReturn(user);
-        when(authenticationManager.authenticate(any())).thenReturn(authentication);
-        when(tokenProvider.generateToken(authentication)).thenReturn("token");
+        when(userRepository.saveAndFlush(any(User.class))).thenReturn(user);
+        when(tokenProvider.generateToken(any(UserPrincipal.class))).thenReturn("token");
         when(userMapper.toUserResponse(any())).thenReturn(userResponse);
 
         // When
@@ -256,22 +290,20 @@ class AuthServiceTest {
     @Test
     void shouldSaveUserWithCorrectEmail() {
         // Given
-        when(userRepository.existsByEmail(anyString())).thenReturn(false);
         when(passwordEncoder.encode(anyString())).thenReturn("encoded");
-        when(userRepository.save(any(User.class))).thenAnswer(invocation -> {
+        when(userRepository.saveAndFlush(any(User.class))).thenAnswer(invocation -> {
             User savedUser = invocation.getArgument(0);
             assertThat(savedUser.getEmail()).isEqualTo(registerRequest.getEmail());
             return user;
         });
-        when(authenticationManager.authenticate(any())).thenReturn(authentication);
-        when(tokenProvider.generateToken(any())).thenReturn("token");
+        when(tokenProvider.generateToken(any(UserPrincipal.class))).thenReturn("token");
         when(userMapper.toUserResponse(any())).thenReturn(userResponse);
 
         // When
         authService.register(registerRequest);
 
         // Then
-        verify(userRepository).save(argThat(savedUser ->
+        verify(userRepository).saveAndFlush(argThat(savedUser ->
                 savedUser.getEmail().equals(registerRequest.getEmail())
         ));
     }
@@ -279,11 +311,9 @@ class AuthServiceTest {
     @Test
     void shouldReturnTokenTypeBearer() {
         // Given
-        when(userRepository.existsByEmail(anyString())).thenReturn(false);
         when(passwordEncoder.encode(anyString())).thenReturn("encoded");
-        when(userRepository.save(any(User.class))).thenReturn(user);
-        when(authenticationManager.authenticate(any())).thenReturn(authentication);
-        when(tokenProvider.generateToken(any())).thenReturn("token");
+        when(userRepository.saveAndFlush(any(User.class))).thenReturn(user);
+        when(tokenProvider.generateToken(any(UserPrincipal.class))).thenReturn("token");
         when(userMapper.toUserResponse(any())).thenReturn(userResponse);
 
         // When
@@ -296,11 +326,9 @@ class AuthServiceTest {
     @Test
     void shouldHandleNullTokenGracefully() {
         // Given
-        when(userRepository.existsByEmail(anyString())).thenReturn(false);
         when(passwordEncoder.encode(anyString())).thenReturn("encoded");
-        when(userRepository.save(any(User.class))).thenReturn(user);
-        when(authenticationManager.authenticate(any())).thenReturn(authentication);
-        when(tokenProvider.generateToken(any())).thenReturn(null);
+        when(userRepository.saveAndFlush(any(User.class))).thenReturn(user);
+        when(tokenProvider.generateToken(any(UserPrincipal.class))).thenReturn(null);
         when(userMapper.toUserResponse(any())).thenReturn(userResponse);
 
         // When
@@ -313,11 +341,9 @@ class AuthServiceTest {
     @Test
     void shouldMapUserToResponseCorrectly() {
         // Given
-        when(userRepository.existsByEmail(anyString())).thenReturn(false);
         when(passwordEncoder.encode(anyString())).thenReturn("encoded");
-        when(userRepository.save(any(User.class))).thenReturn(user);
-        when(authenticationManager.authenticate(any())).thenReturn(authentication);
-        when(tokenProvider.generateToken(any())).thenReturn("token");
+        when(userRepository.saveAndFlush(any(User.class))).thenReturn(user);
+        when(tokenProvider.generateToken(any(UserPrincipal.class))).thenReturn("token");
         when(userMapper.toUserResponse(user)).thenReturn(userResponse);
 
         // When
@@ -331,11 +357,9 @@ class AuthServiceTest {
     @Test
     void shouldVerifyMethodCallOrderDuringRegistration() {
         // Given
-        when(userRepository.existsByEmail(anyString())).thenReturn(false);
         when(passwordEncoder.encode(anyString())).thenReturn("encoded");
-        when(userRepository.save(any(User.class))).thenReturn(user);
-        when(authenticationManager.authenticate(any())).thenReturn(authentication);
-        when(tokenProvider.generateToken(any())).thenReturn("token");
+        when(userRepository.saveAndFlush(any(User.class))).thenReturn(user);
+        when(tokenProvider.generateToken(any(UserPrincipal.class))).thenReturn("token");
         when(userMapper.toUserResponse(any())).thenReturn(userResponse);
 
         // When
@@ -345,37 +369,13 @@ class AuthServiceTest {
         var inOrder = inOrder(
                 userRepository,
                 passwordEncoder,
-                authenticationManager,
                 tokenProvider,
                 userMapper
         );
 
-        inOrder.verify(userRepository).existsByEmail(anyString());
         inOrder.verify(passwordEncoder).encode(anyString());
-        inOrder.verify(userRepository).save(any(User.class));
-        inOrder.verify(authenticationManager).authenticate(any());
-        inOrder.verify(tokenProvider).generateToken(any());
+        inOrder.verify(userRepository).saveAndFlush(any(User.class));
+        inOrder.verify(tokenProvider).generateToken(any(UserPrincipal.class));
         inOrder.verify(userMapper).toUserResponse(any());
     }
-
-    @Test
-    void shouldThrowForbiddenExceptionWhenPasswordDoesNotMatch() {
-        // Given
-        when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
-                .thenReturn(authentication);
-        when(userRepository.findByEmail(loginRequest.getEmail()))
-                .thenReturn(Optional.of(user));
-        when(passwordEncoder.matches(loginRequest.getPassword(), user.getPassword()))
-                .thenReturn(false);
-
-        // When & Then
-        assertThatThrownBy(() -> authService.login(loginRequest))
-                .isInstanceOf(ForbiddenException.class)
-                .hasMessageContaining("Invalid credentials");
-
-        verify(authenticationManager).authenticate(any());
-        verify(userRepository).findByEmail(loginRequest.getEmail());
-        verify(passwordEncoder).matches(loginRequest.getPassword(), user.getPassword());
-        verify(tokenProvider, never()).generateToken(any());
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,90 @@
+package com.sky.movieratingservice.service;
+
+import com.sky.movieratingservice.domain.event.MovieRankingsRefreshedEvent;
+import com.sky.movieratingservice.domain.event.MovieRatingStatsChangedEvent;
+import com.sky.movieratingservice.domain.ranking.BayesianPrior;
+import com.sky.movieratingservice.domain.repository.MovieRatingStatsRepository;
+import com.sky.movieratingservice.service.impl.MovieRankingService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MovieRankingServiceTest {
+
+    @Mock
+    private MovieRatingStatsRepository movieRatingStatsRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private MovieRankingService movieRankingService;
+
+    @BeforeEach
+    void setUp() {
+        movieRankingService = new MovieRankingService(movieRatingStatsRepository, eventPublisher, transactionManager,
+                new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(movieRankingService, "minVotes", 25.0);
+        ReflectionTestUtils.setField(movieRankingService, "refreshInterval", Duration.ofHours(1));
+        ReflectionTestUtils.setField(movieRankingService, "refreshAfterWrites", 2L);
+        ReflectionTestUtils.invokeMethod(movieRankingService, "registerMeters");
+    }
+
+    @Test
+    void shouldRefreshOnStartupAndAgainAfterEnoughWrites() {
+        // Given
+        MovieRatingStatsRepository.RankingPrior prior = mock(MovieRatingStatsRepository.RankingPrior.class);
+        when(prior.getMinVotes()).thenReturn(25.0);
+        when(prior.getMeanRating()).thenReturn(6.5);
+        when(movieRatingStatsRepository.tryLockRankingsRefresh()).thenReturn(true);
+        when(movieRatingStatsRepository.findRankingPrior()).thenReturn(Optional.of(prior));
+        MovieRatingStatsChangedEvent change = new MovieRatingStatsChangedEvent(UUID.randomUUID(), 8, 1, 1);
+
+        // When
+        movieRankingService.refreshIfDue();
+        movieRankingService.onRatingStatsChanged(change);
+        movieRankingService.refreshIfDue();
+        movieRankingService.onRatingStatsChanged(change);
+        movieRankingService.refreshIfDue();
+
+        // Then
+        verify(movieRatingStatsRepository, times(2)).refreshRankings();
+        InOrder inOrder = inOrder(movieRatingStatsRepository);
+        inOrder.verify(movieRatingStatsRepository).tryLockRankingsRefresh();
+        inOrder.verify(movieRatingStatsRepository).setRankingMinVotes("25.0");
+        inOrder.verify(movieRatingStatsRepository).refreshRankings();
+        verify(eventPublisher, times(2)).publishEvent(new MovieRankingsRefreshedEvent(new BayesianPrior(25, 6.5)));
+    }
+
+    @Test
+    void shouldSkipRefreshWhileAnotherInstanceHoldsTheLock() {
+        // Given
+        when(movieRatingStatsRepository.tryLockRankingsRefresh()).thenReturn(false);
+
+        // When
+        boolean refreshed = movieRankingService.refresh();
+
+        // Then
+        assertThat(refreshed).isFalse();
+        verify(movieRatingStatsRepository, never()).refreshRankings();
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+}
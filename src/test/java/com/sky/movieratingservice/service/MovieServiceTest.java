@@ -1,13 +1,22 @@
 package com.sky.movieratingservice.service;
 
 import com.sky.movieratingservice.api.dto.request.CreateMovieRequestDto;
+import com.sky.movieratingservice.api.dto.response.CursorPageResponseDto;
 import com.sky.movieratingservice.api.dto.response.MovieDetailResponseDto;
 import com.sky.movieratingservice.api.dto.response.MovieResponseDto;
+import com.sky.movieratingservice.api.dto.response.RatingDistributionResponseDto;
 import com.sky.movieratingservice.api.dto.response.TopRatedMovieResponseDto;
+import com.sky.movieratingservice.common.CursorCodec;
+import com.sky.movieratingservice.common.Versioned;
 import com.sky.movieratingservice.domain.entity.Movie;
+import com.sky.movieratingservice.domain.entity.MovieRatingStats;
+import com.sky.movieratingservice.domain.event.MovieCreatedEvent;
+import com.sky.movieratingservice.domain.exception.BadRequestException;
 import com.sky.movieratingservice.domain.exception.ResourceNotFoundException;
+import com.sky.movieratingservice.domain.repository.MovieRatingStatsRepository;
+import com.sky.movieratingservice.domain.ranking.LeaderboardEntry;
+import com.sky.movieratingservice.domain.ranking.LeaderboardScope;
 import com.sky.movieratingservice.domain.repository.MovieRepository;
-import com.sky.movieratingservice.domain.repository.RatingRepository;
 import com.sky.movieratingservice.mapper.MovieMapper;
 import com.sky.movieratingservice.service.impl.MovieService;
 import org.junit.jupiter.api.Test;
@@ -15,16 +24,21 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
 import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
+import static org.assertj.core.api.Assertions.entry;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
@@ -38,7 +52,13 @@ class MovieServiceTest {
     private MovieMapper movieMapper;
 
     @Mock
-    private RatingRepository ratingRepository;
+    private MovieRatingStatsRepository movieRatingStatsRepository;
+
+    @Mock
+    private ILeaderboardService leaderboardService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
 
     @InjectMocks
     private MovieService movieService;
@@ -56,14 +76,38 @@ class MovieServiceTest {
                 .id(movie.getId())
                 .name(movie.getName())
                 .build());
-        when(ratingRepository.findAverageRatingByMovieId(movie.getId())).thenReturn(Optional.of(4.5));
-        when(ratingRepository.countByMovieId(any())).thenReturn(10L);
+        when(movieRatingStatsRepository.findById(movie.getId())).thenReturn(Optional.of(MovieRatingStats.builder()
+                .movieId(movie.getId())
+                .ratingSum(45)
+                .ratingCount(10)
+                .build()));
 
-        movieService.getMovieById(movie.getId());
+        MovieDetailResponseDto result = movieService.getMovieById(movie.getId()).body();
 
+        assertThat(result.getAvgRating()).isEqualTo(4.5);
+        assertThat(result.getRatingCount()).isEqualTo(10L);
         verify(movieRepository).findById(movie.getId());
-        verify(ratingRepository).findAverageRatingByMovieId(movie.getId());
-        verify(ratingRepository).countByMovieId(movie.getId());
+        verify(movieRatingStatsRepository).findById(movie.getId());
+    }
+
+    @Test
+    void shouldReturnZeroStatisticsForUnratedMovie() {
+        Movie movie = Movie.builder()
+                .id(UUID.randomUUID())
+                .name("Unrated movie")
+                .build();
+
+        when(movieRepository.findById(movie.getId())).thenReturn(Optional.of(movie));
+        when(movieMapper.toMovieDetailResponse(movie)).thenReturn(MovieDetailResponseDto.builder()
+                .id(movie.getId())
+                .name(movie.getName())
+                .build());
+        when(movieRatingStatsRepository.findById(movie.getId())).thenReturn(Optional.empty());
+
+        MovieDetailResponseDto result = movieService.getMovieById(movie.getId()).body();
+
+        assertThat(result.getAvgRating()).isEqualTo(0.0);
+        assertThat(result.getRatingCount()).isZero();
     }
     @Test
     void shouldThrowExceptionWhenMovieNotFound() {
@@ -77,8 +121,63 @@ class MovieServiceTest {
                 .hasMessageContaining("not found");
 
         verify(movieRepository).findById(movieId);
-        verifyNoInteractions(ratingRepository);
+        verifyNoInteractions(movieRatingStatsRepository);
+    }
+
+    @Test
+    void shouldGetRatingDistributionFromHistogram() {
+        // Given: ratings 6, 8, 8, 10
+        UUID movieId = UUID.randomUUID();
+        when(movieRatingStatsRepository.findById(movieId)).thenReturn(Optional.of(MovieRatingStats.builder()
+                .movieId(movieId)
+                .ratingSum(32)
+                .ratingCount(4)
+                .ratingHistogram(new long[]{0, 0, 0, 0, 0, 1, 0, 2, 0, 1})
+                .build()));
+
+        // When
+        RatingDistributionResponseDto result = movieService.getRatingDistribution(movieId);
+
+        // Then
+        assertThat(result.getRatingCount()).isEqualTo(4L);
+        assertThat(result.getAvgRating()).isEqualTo(8.0);
+        assertThat(result.getCounts()).containsExactly(entry(1, 0L), entry(2, 0L), entry(3, 0L), entry(4, 0L),
+                entry(5, 0L), entry(6, 1L), entry(7, 0L), entry(8, 2L), entry(9, 0L), entry(10, 1L));
+        assertThat(result.getMedian()).isEqualTo(8.0);
+        assertThat(result.getPercentiles()).containsExactly(entry("p10", 6), entry("p25", 6), entry("p50", 8),
+                entry("p75", 8), entry("p90", 10));
+        verifyNoInteractions(movieRepository);
+    }
+
+    @Test
+    void shouldGetEmptyRatingDistributionForUnratedMovie() {
+        // Given
+        UUID movieId = UUID.randomUUID();
+        when(movieRatingStatsRepository.findById(movieId)).thenReturn(Optional.empty());
+        when(movieRepository.existsById(movieId)).thenReturn(true);
+
+        // When
+        RatingDistributionResponseDto result = movieService.getRatingDistribution(movieId);
+
+        // Then
+        assertThat(result.getRatingCount()).isZero();
+        assertThat(result.getCounts()).hasSize(10).containsValue(0L).doesNotContainValue(1L);
+        assertThat(result.getMedian()).isNull();
+        assertThat(result.getPercentiles()).isNull();
     }
+
+    @Test
+    void shouldFailRatingDistributionWhenMovieNotFound() {
+        // Given
+        UUID movieId = UUID.randomUUID();
+        when(movieRatingStatsRepository.findById(movieId)).thenReturn(Optional.empty());
+        when(movieRepository.existsById(movieId)).thenReturn(false);
+
+        // When & Then
+        assertThatThrownBy(() -> movieService.getRatingDistribution(movieId))
+                .isInstanceOf(ResourceNotFoundException.class);
+    }
+
     @Test
     void shouldCreateMovieSuccessfully() {
         // Given
@@ -111,24 +210,17 @@ class MovieServiceTest {
         verify(movieMapper).toMovie(requestDto);
         verify(movieRepository).save(movie);
         verify(movieMapper).toMovieResponse(movie);
+        verify(eventPublisher).publishEvent(new MovieCreatedEvent(movie.getId(), "New Movie", null, null));
     }
 
     @Test
     void shouldGetTopRatedMoviesSuccessfully() {
         // Given
-        MovieRepository.MovieStatistics stats = mock(MovieRepository.MovieStatistics.class);
-
         UUID movieId = UUID.randomUUID();
-//        when(stats.getMovieId()).thenReturn(movieId);
-//        when(stats.getMovieName()).thenReturn("Top Movie");
-//        when(stats.getAvgRating()).thenReturn(5.0);
-//        when(stats.getRatingCount()).thenReturn(100L);
-
-        Page<MovieRepository.MovieStatistics> page = new PageImpl<>(List.of(stats));
+        LeaderboardEntry entry = LeaderboardEntry.of(movieId, "Top Movie", null, 2000, null, null, 500, 100, 1);
 
-        when(movieRepository.findTopRatedMovies(anyLong(), any(Pageable.class)))
-                .thenReturn(page);
-        when(movieMapper.toTopRatedMoviesResponse(stats)).thenReturn(
+        when(leaderboardService.getTopRated(LeaderboardScope.ALL, 1)).thenReturn(List.of(entry));
+        when(movieMapper.toTopRatedMoviesResponse(entry)).thenReturn(
                 TopRatedMovieResponseDto.builder()
                         .id(movieId)
                         .name("Top Movie")
@@ -144,23 +236,65 @@ class MovieServiceTest {
         assertThat(result).isNotNull();
         assertThat(result.getName()).isEqualTo("Top Movie");
 
-        verify(movieRepository).findTopRatedMovies(anyLong(), any(Pageable.class));
-        verify(movieMapper).toTopRatedMoviesResponse(stats);
+        verify(leaderboardService).getTopRated(LeaderboardScope.ALL, 1);
+        verify(movieMapper).toTopRatedMoviesResponse(entry);
     }
 
+    @Test
+    void shouldGetTopNRatedMoviesInLeaderboardOrder() {
+        // Given
+        LeaderboardEntry first = LeaderboardEntry.of(UUID.randomUUID(), "First", null, 2000, null, null, 20, 2, 1);
+        LeaderboardEntry second = LeaderboardEntry.of(UUID.randomUUID(), "Second", null, 2001, null, null, 9, 1, 1);
+
+        when(leaderboardService.getTopRated(LeaderboardScope.ALL, 2)).thenReturn(List.of(first, second));
+        when(movieMapper.toTopRatedMoviesResponse(any(LeaderboardEntry.class))).thenAnswer(i -> {
+            LeaderboardEntry entry = i.getArgument(0);
+            return TopRatedMovieResponseDto.builder().id(entry.movieId()).name(entry.name()).build();
+        });
+
+        // When
+        List<TopRatedMovieResponseDto> result = movieService.getTopRatedMovies(2);
+
+        // Then
+        assertThat(result).extracting(TopRatedMovieResponseDto::getName).containsExactly("First", "Second");
+    }
+
+    @Test
+    void shouldGetTopRatedMoviesOfGenreAndDecade() {
+        // Given
+        LeaderboardScope scope = new LeaderboardScope("crime", 1990);
+        LeaderboardEntry entry = LeaderboardEntry.of(UUID.randomUUID(), "Heat", null, 1995, "Crime", null, 45, 5, 1);
+
+        when(leaderboardService.getTopRated(scope, 5)).thenReturn(List.of(entry));
+        when(movieMapper.toTopRatedMoviesResponse(entry)).thenReturn(
+                TopRatedMovieResponseDto.builder().id(entry.movieId()).name(entry.name()).build());
+
+        // When
+        List<TopRatedMovieResponseDto> result = movieService.getTopRatedMovies("Crime", 1990, 5).body();
+
+        // Then
+        assertThat(result).extracting(TopRatedMovieResponseDto::getName).containsExactly("Heat");
+        verify(leaderboardService).getTopRated(scope, 5);
+    }
+
+    @Test
+    void shouldRejectDecadeThatIsNotTheFirstYearOfOne() {
+        assertThatThrownBy(() -> movieService.getTopRatedMovies(null, 1995, 5))
+                .isInstanceOf(BadRequestException.class);
+        verifyNoInteractions(leaderboardService);
+    }
 
     @Test
     void shouldThrowExceptionWhenNoTopRatedMovies() {
         // Given
-        Page<MovieRepository.MovieStatistics> emptyPage = Page.empty();
-        when(movieRepository.findTopRatedMovies(anyLong(), any(Pageable.class))).thenReturn(emptyPage);
+        when(leaderboardService.getTopRated(LeaderboardScope.ALL, 1)).thenReturn(List.of());
 
         // When & Then
         assertThatThrownBy(() -> movieService.getTopRatedMovies())
                 .isInstanceOf(ResourceNotFoundException.class)
                 .hasMessageContaining("no movies have ratings yet");
 
-        verify(movieRepository).findTopRatedMovies(anyLong(), any(Pageable.class));
+        verify(leaderboardService).getTopRated(LeaderboardScope.ALL, 1);
     }
 
     @Test
@@ -169,26 +303,140 @@ class MovieServiceTest {
         Movie movie1 = Movie.builder().id(UUID.randomUUID()).name("Movie A").build();
         Movie movie2 = Movie.builder().id(UUID.randomUUID()).name("Movie B").build();
 
-        Page<Movie> page = new PageImpl<>(List.of(movie1, movie2));
+        Slice<Movie> page = new SliceImpl<>(List.of(movie1, movie2));
 
-        when(movieRepository.findAll(any(Pageable.class))).thenReturn(page);
+        when(movieRepository.findAllBy(any(Pageable.class))).thenReturn(page);
         when(movieMapper.toMovieResponse(movie1)).thenReturn(MovieResponseDto.builder()
                 .id(movie1.getId()).name(movie1.getName()).build());
         when(movieMapper.toMovieResponse(movie2)).thenReturn(MovieResponseDto.builder()
                 .id(movie2.getId()).name(movie2.getName()).build());
 
         // When
-        List<MovieResponseDto> result = movieService.getAllMovies(0, 10);
+        List<MovieResponseDto> result = movieService.getAllMovies(0, 10).body();
 
         // Then
         assertThat(result).hasSize(2);
         assertThat(result.get(0).getName()).isEqualTo("Movie A");
         assertThat(result.get(1).getName()).isEqualTo("Movie B");
 
-        verify(movieRepository).findAll(any(Pageable.class));
+        verify(movieRepository).findAllBy(any(Pageable.class));
+        verify(movieRepository, never()).findAll(any(Pageable.class));
         verify(movieMapper).toMovieResponse(movie1);
         verify(movieMapper).toMovieResponse(movie2);
     }
 
+    @Test
+    void shouldPageMoviesByCursor() {
+        // Given
+        Movie movie1 = Movie.builder().id(UUID.randomUUID()).name("Movie A").build();
+        Movie movie2 = Movie.builder().id(UUID.randomUUID()).name("Movie B").build();
+        Movie movie3 = Movie.builder().id(UUID.randomUUID()).name("Movie C").build();
+
+        when(movieRepository.findAllByOrderByNameAscIdAsc(Limit.of(3))).thenReturn(List.of(movie1, movie2, movie3));
+        when(movieRepository.findAllAfter(movie2.getName(), movie2.getId(), Limit.of(3))).thenReturn(List.of(movie3));
+        when(movieMapper.toMovieResponse(any(Movie.class))).thenAnswer(i -> {
+            Movie movie = i.getArgument(0);
+            return MovieResponseDto.builder().id(movie.getId()).name(movie.getName()).build();
+        });
+
+        // When
+        CursorPageResponseDto<MovieResponseDto> first = movieService.getMovies("", 2).body();
+        CursorPageResponseDto<MovieResponseDto> second = movieService.getMovies(first.getNextCursor(), 2).body();
+
+        // Then
+        assertThat(first.getItems()).extracting(MovieResponseDto::getName).containsExactly("Movie A", "Movie B");
+        assertThat(first.getNextCursor()).isNotBlank();
+        assertThat(second.getItems()).extracting(MovieResponseDto::getName).containsExactly("Movie C");
+        assertThat(second.getNextCursor()).isNull();
+    }
 
-}
\ No newline at end of file
+    @Test
+    void shouldRejectMalformedCursor() {
+        assertThatThrownBy(() -> movieService.getMovies("not a cursor", 10))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("Invalid cursor");
+
+        verifyNoInteractions(movieRepository);
+    }
+
+    @Test
+    void shouldVersionMovieDetailsLikeTheVersionLookup() {
+        // Given
+        Movie movie = Movie.builder().id(UUID.randomUUID()).name("Heat").build();
+        movie.setUpdatedAt(LocalDateTime.of(2025, 1, 18, 12, 0));
+        MovieRatingStats stats = MovieRatingStats.builder().movieId(movie.getId()).ratingSum(9).ratingCount(1).version(3).build();
+        when(movieRepository.findById(movie.getId())).thenReturn(Optional.of(movie));
+        when(movieMapper.toMovieDetailResponse(movie)).thenReturn(MovieDetailResponseDto.builder().id(movie.getId()).build());
+        when(movieRatingStatsRepository.findById(movie.getId())).thenReturn(Optional.of(stats));
+        when(movieRepository.findDetailVersionById(movie.getId()))
+                .thenReturn(Optional.of(detailVersion(movie.getUpdatedAt(), 3L)), Optional.of(detailVersion(movie.getUpdatedAt(), 4L)));
+
+        // When
+        String served = movieService.getMovieById(movie.getId()).version();
+
+        // Then
+        assertThat(movieService.getMovieVersion(movie.getId())).contains(served);
+        assertThat(movieService.getMovieVersion(movie.getId())).isPresent().get().isNotEqualTo(served);
+    }
+
+    @Test
+    void shouldVersionCursorPagesWithTheRowThatDecidesTheNextCursor() {
+        // Given
+        Movie movie1 = Movie.builder().id(UUID.randomUUID()).name("Heat").build();
+        Movie movie2 = Movie.builder().id(UUID.randomUUID()).name("Ran").build();
+        String cursor = CursorCodec.encode(movie1.getId(), "Heat");
+        when(movieRepository.findAllByOrderByNameAscIdAsc(Limit.of(2))).thenReturn(List.of(movie1, movie2));
+        when(movieRepository.findVersionsByOrderByNameAscIdAsc(Limit.of(2)))
+                .thenReturn(List.of(rowVersion(movie1), rowVersion(movie2)));
+        when(movieRepository.findVersionsAfter("Heat", movie1.getId(), Limit.of(2))).thenReturn(List.of(rowVersion(movie2)));
+
+        // When
+        String served = movieService.getMovies("", 1).version();
+
+        // Then
+        assertThat(movieService.getMoviesVersion("", 1)).isEqualTo(served);
+        assertThat(movieService.getMoviesVersion(cursor, 1)).isNotEqualTo(served);
+    }
+
+    @Test
+    void shouldVersionTopRatedMoviesByTheMovieIdsAndStatsVersionsOfOneRead() {
+        // Given
+        LeaderboardEntry heat = LeaderboardEntry.of(UUID.randomUUID(), "Heat", null, 1995, "Crime", null, 9, 1, 1);
+        LeaderboardEntry ronin = LeaderboardEntry.of(UUID.randomUUID(), "Ronin", null, 1998, "Crime", null, 8, 1, 1);
+        when(leaderboardService.getTopRated(LeaderboardScope.ALL, 2)).thenReturn(
+                List.of(heat, ronin), List.of(heat, ronin), List.of(heat.withStats(17, 2, 2), ronin), List.of(ronin, heat));
+        when(movieMapper.toTopRatedMoviesResponse(any(LeaderboardEntry.class))).thenAnswer(i -> {
+            LeaderboardEntry entry = i.getArgument(0);
+            return TopRatedMovieResponseDto.builder().id(entry.movieId()).ratingCount(entry.ratingCount()).build();
+        });
+
+        // When
+        var first = movieService.getTopRatedMovies(null, null, 2);
+        var unchanged = movieService.getTopRatedMovies(null, null, 2);
+        var rated = movieService.getTopRatedMovies(null, null, 2);
+        var reordered = movieService.getTopRatedMovies(null, null, 2);
+
+        // Then
+        assertThat(first.version()).isEqualTo(Versioned.digest(Stream.of(heat.movieId(), 1L, ronin.movieId(), 1L)));
+        assertThat(unchanged.version()).isEqualTo(first.version());
+        assertThat(rated.version()).isNotEqualTo(first.version());
+        assertThat(rated.body().getFirst().getRatingCount()).isEqualTo(2);
+        assertThat(reordered.version()).isNotEqualTo(first.version());
+        verify(leaderboardService, times(4)).getTopRated(LeaderboardScope.ALL, 2);
+        verifyNoInteractions(movieRepository);
+    }
+
+    private static MovieRepository.DetailVersion detailVersion(LocalDateTime updatedAt, Long statsVersion) {
+        return new MovieRepository.DetailVersion() {
+            public LocalDateTime getUpdatedAt() { return updatedAt; }
+            public Long getStatsVersion() { return statsVersion; }
+        };
+    }
+
+    private static MovieRepository.RowVersion rowVersion(Movie movie) {
+        return new MovieRepository.RowVersion() {
+            public UUID getId() { return movie.getId(); }
+            public LocalDateTime getUpdatedAt() { return movie.getUpdatedAt(); }
+        };
+    }
+}
@@ -0,0 +1,119 @@
+package com.sky.movieratingservice.service;
+
+import com.sky.movieratingservice.api.dto.response.MovieSuggestionResponseDto;
+import com.sky.movieratingservice.domain.event.MovieCreatedEvent;
+import com.sky.movieratingservice.domain.event.MovieRankingsRefreshedEvent;
+import com.sky.movieratingservice.domain.event.MovieRatingStatsChangedEvent;
+import com.sky.movieratingservice.domain.ranking.BayesianPrior;
+import com.sky.movieratingservice.domain.repository.MovieRepository;
+import com.sky.movieratingservice.mapper.MovieMapper;
+import com.sky.movieratingservice.service.impl.MovieSuggestionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mapstruct.factory.Mappers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MovieSuggestionServiceTest {
+
+    @Mock
+    private MovieRepository movieRepository;
+
+    private MovieSuggestionService movieSuggestionService;
+
+    private final UUID heatId = UUID.randomUUID();
+    private final UUID heathersId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        movieSuggestionService = new MovieSuggestionService(movieRepository, Mappers.getMapper(MovieMapper.class));
+        ReflectionTestUtils.setField(movieSuggestionService, "topK", 10);
+        ReflectionTestUtils.setField(movieSuggestionService, "rebuildInterval", Duration.ofHours(1));
+    }
+
+    @Test
+    void shouldRaisePopularityFromCommittedRatingsWithoutReloadingMovies() {
+        // Given
+        MovieRepository.SuggestionSource heat = source(heatId, "Heat", 5);
+        MovieRepository.SuggestionSource heathers = source(heathersId, "Heathers", 3);
+        when(movieRepository.findAllForSuggestions()).thenReturn(List.of(heat, heathers));
+        ReflectionTestUtils.invokeMethod(movieSuggestionService, "initialize");
+
+        // When
+        movieSuggestionService.onRatingStatsChanged(new MovieRatingStatsChangedEvent(heathersId, 72, 9, 9));
+        movieSuggestionService.onRatingStatsChanged(new MovieRatingStatsChangedEvent(heatId, 8, 1, 7));
+        movieSuggestionService.onRankingsRefreshed(new MovieRankingsRefreshedEvent(BayesianPrior.NONE));
+
+        // Then
+        assertThat(movieSuggestionService.suggest("hea", 10))
+                .extracting(MovieSuggestionResponseDto::getName, MovieSuggestionResponseDto::getRatingCount)
+                .containsExactly(tuple("Heathers", 9L), tuple("Heat", 5L));
+        verify(movieRepository, times(1)).findAllForSuggestions();
+    }
+
+    @Test
+    void shouldRebuildOnRankingsRefreshOnceTheIntervalHasPassed() {
+        // Given
+        MovieRepository.SuggestionSource heat = source(heatId, "Heat", 5);
+        MovieRepository.SuggestionSource heatWithDeletedRatings = source(heatId, "Heat", 2);
+        when(movieRepository.findAllForSuggestions()).thenReturn(List.of(heat), List.of(heatWithDeletedRatings));
+        ReflectionTestUtils.setField(movieSuggestionService, "rebuildInterval", Duration.ZERO);
+        ReflectionTestUtils.invokeMethod(movieSuggestionService, "initialize");
+
+        // When
+        movieSuggestionService.onRankingsRefreshed(new MovieRankingsRefreshedEvent(BayesianPrior.NONE));
+
+        // Then
+        assertThat(movieSuggestionService.suggest("heat", 10))
+                .extracting(MovieSuggestionResponseDto::getRatingCount)
+                .containsExactly(2L);
+    }
+
+    @Test
+    void shouldReplayChangesCommittedWhileTheMoviesWereRead() {
+        // Given
+        UUID heistId = UUID.randomUUID();
+        MovieRepository.SuggestionSource heat = source(heatId, "Heat", 5);
+        MovieRepository.SuggestionSource heathers = source(heathersId, "Heathers", 3);
+        when(movieRepository.findAllForSuggestions()).thenReturn(List.of(heat, heathers)).thenAnswer(invocation -> {
+            movieSuggestionService.onMovieCreated(new MovieCreatedEvent(heistId, "Heist", "David Mamet", 2001));
+            movieSuggestionService.onRatingStatsChanged(new MovieRatingStatsChangedEvent(heistId, 40, 7, 7));
+            movieSuggestionService.onRatingStatsChanged(new MovieRatingStatsChangedEvent(heathersId, 48, 6, 6));
+            return List.of(heat, heathers);
+        });
+        ReflectionTestUtils.setField(movieSuggestionService, "rebuildInterval", Duration.ZERO);
+        ReflectionTestUtils.invokeMethod(movieSuggestionService, "initialize");
+
+        // When
+        movieSuggestionService.onRankingsRefreshed(new MovieRankingsRefreshedEvent(BayesianPrior.NONE));
+
+        // Then
+        assertThat(movieSuggestionService.suggest("hei", 10))
+                .extracting(MovieSuggestionResponseDto::getName, MovieSuggestionResponseDto::getRatingCount)
+                .containsExactly(tuple("Heist", 7L));
+        assertThat(movieSuggestionService.suggest("heathers", 10))
+                .extracting(MovieSuggestionResponseDto::getRatingCount)
+                .containsExactly(6L);
+    }
+
+    private static MovieRepository.SuggestionSource source(UUID movieId, String name, long ratingCount) {
+        MovieRepository.SuggestionSource source = mock(MovieRepository.SuggestionSource.class);
+        when(source.getMovieId()).thenReturn(movieId);
+        when(source.getMovieName()).thenReturn(name);
+        when(source.getDirector()).thenReturn("Michael Mann");
+        when(source.getReleaseYear()).thenReturn(1995);
+        when(source.getRatingCount()).thenReturn(ratingCount);
+        return source;
+    }
+}
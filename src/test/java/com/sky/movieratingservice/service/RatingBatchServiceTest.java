@@ -0,0 +1,216 @@
+package com.sky.movieratingservice.service;
+
+import com.sky.movieratingservice.api.dto.request.BatchRatingItemDto;
+import com.sky.movieratingservice.api.dto.response.BatchRatingResponseDto;
+import com.sky.movieratingservice.api.dto.response.BatchRatingResultDto;
+import com.sky.movieratingservice.domain.event.MovieRatingStatsChangedEvent;
+import com.sky.movieratingservice.domain.repository.MovieRatingStatsRepository;
+import com.sky.movieratingservice.domain.repository.MovieRepository;
+import com.sky.movieratingservice.domain.repository.RatingRepository;
+import com.sky.movieratingservice.service.impl.RatingBatchService;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RatingBatchServiceTest {
+
+    @Mock
+    private RatingRepository ratingRepository;
+
+    @Mock
+    private MovieRepository movieRepository;
+
+    @Mock
+    private MovieRatingStatsRepository movieRatingStatsRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private RatingBatchService ratingBatchService;
+
+    @BeforeEach
+    void setUp() {
+        ratingBatchService = new RatingBatchService(ratingRepository, movieRepository, movieRatingStatsRepository, eventPublisher,
+                transactionManager, Validation.buildDefaultValidatorFactory().getValidator());
+        ReflectionTestUtils.setField(ratingBatchService, "chunkSize", 500);
+    }
+
+    @Test
+    void shouldApplyBatchWithOneStatementPerKindAndReportEveryItem() {
+        // Given
+        UUID userId = UUID.randomUUID();
+        UUID updated = UUID.randomUUID();
+        UUID created = UUID.randomUUID();
+        UUID deleted = UUID.randomUUID();
+        UUID unknown = UUID.randomUUID();
+        List<BatchRatingItemDto> items = List.of(
+                upsert(updated, 3),
+                upsert(created, 8),
+                upsert(updated, 6),
+                BatchRatingItemDto.builder().op(BatchRatingItemDto.Operation.DELETE).movieId(deleted).build(),
+                upsert(unknown, 5),
+                upsert(created, 12));
+
+        when(ratingRepository.upsertForUsers(any(), any(), any(), any(), any())).thenReturn(List.of(
+                written(updated, 6, 4),
+                written(created, 8, null)));
+        when(ratingRepository.deleteAllReturning(userId, new UUID[]{deleted})).thenReturn(List.of(ratingValue(deleted, 7)));
+        when(movieRatingStatsRepository.applyDeltas(any(), any(), any(), any())).thenReturn(List.of(snapshot(created, 8, 1)));
+
+        // When
+        BatchRatingResponseDto result = ratingBatchService.applyBatch(userId, items);
+
+        // Then
+        assertThat(result.getApplied()).isEqualTo(4);
+        assertThat(result.getRejected()).isEqualTo(2);
+        assertThat(result.getResults()).extracting(BatchRatingResultDto::getStatus).containsExactly(
+                BatchRatingResultDto.Status.SUPERSEDED,
+                BatchRatingResultDto.Status.CREATED,
+                BatchRatingResultDto.Status.UPDATED,
+                BatchRatingResultDto.Status.DELETED,
+                BatchRatingResultDto.Status.NOT_FOUND,
+                BatchRatingResultDto.Status.INVALID);
+
+        verify(ratingRepository).upsertForUsers(eq(new UUID[]{userId, userId, userId}), eq(new UUID[]{updated, created, unknown}),
+                eq(new Integer[]{6, 8, 5}), eq(new String[3]), any());
+        verify(ratingRepository, times(2)).upsertForUsers(eq(new UUID[]{userId}), eq(new UUID[]{unknown}), any(), any(), any());
+        verify(movieRepository).existsById(unknown);
+        UUID[] statsOrder = List.of(updated, created, deleted).stream().sorted().toArray(UUID[]::new);
+        verify(movieRatingStatsRepository).applyDeltas(eq(statsOrder), any(), any(), any());
+        verify(eventPublisher).publishEvent(any(MovieRatingStatsChangedEvent.class));
+    }
+
+    @Test
+    void shouldFailOnlyTheChunkWhoseWriteFailed() {
+        // Given
+        ReflectionTestUtils.setField(ratingBatchService, "chunkSize", 1);
+        UUID userId = UUID.randomUUID();
+        UUID failing = UUID.randomUUID();
+        UUID stored = UUID.randomUUID();
+
+        when(ratingRepository.upsertForUsers(any(), eq(new UUID[]{failing}), any(), any(), any()))
+                .thenThrow(new QueryTimeoutException("timeout"));
+        when(ratingRepository.upsertForUsers(any(), eq(new UUID[]{stored}), any(), any(), any()))
+                .thenReturn(List.of(written(stored, 5, null)));
+        when(movieRatingStatsRepository.applyDeltas(any(), any(), any(), any())).thenReturn(List.of(snapshot(stored, 5, 1)));
+
+        // When
+        BatchRatingResponseDto result = ratingBatchService.applyBatch(userId, List.of(upsert(failing, 9), upsert(stored, 5)));
+
+        // Then
+        assertThat(result.getResults()).extracting(BatchRatingResultDto::getStatus).containsExactly(
+                BatchRatingResultDto.Status.FAILED,
+                BatchRatingResultDto.Status.CREATED);
+        verify(transactionManager).rollback(any());
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void shouldUpdateFirstRatingThatLostToAConcurrentInsertWithItsPreviousValue() {
+        // Given
+        UUID userId = UUID.randomUUID();
+        UUID movieId = UUID.randomUUID();
+        when(ratingRepository.upsertForUsers(any(), any(), any(), any(), any()))
+                .thenReturn(List.of(), List.of(written(movieId, 9, 3)));
+        when(movieRatingStatsRepository.applyDeltas(any(), any(), any(), any())).thenReturn(List.of(snapshot(movieId, 9, 1)));
+
+        // When
+        BatchRatingResponseDto result = ratingBatchService.applyBatch(userId, List.of(upsert(movieId, 9)));
+
+        // Then
+        assertThat(result.getResults()).extracting(BatchRatingResultDto::getStatus)
+                .containsExactly(BatchRatingResultDto.Status.UPDATED);
+        verify(ratingRepository, times(2)).upsertForUsers(any(), any(), any(), any(), any());
+        verify(movieRatingStatsRepository).applyDeltas(new UUID[]{movieId}, new Long[]{6L}, new Long[]{0L},
+                new Long[]{0L, 0L, -1L, 0L, 0L, 0L, 0L, 0L, 1L, 0L});
+        verifyNoInteractions(movieRepository);
+    }
+
+    @Test
+    void shouldFailItemsStillRacingAfterTheLastAttempt() {
+        // Given
+        UUID userId = UUID.randomUUID();
+        UUID movieId = UUID.randomUUID();
+        when(ratingRepository.upsertForUsers(any(), any(), any(), any(), any())).thenReturn(List.of());
+        when(movieRepository.existsById(movieId)).thenReturn(true);
+
+        // When
+        BatchRatingResponseDto result = ratingBatchService.applyBatch(userId, List.of(upsert(movieId, 9)));
+
+        // Then
+        assertThat(result.getResults()).extracting(BatchRatingResultDto::getStatus)
+                .containsExactly(BatchRatingResultDto.Status.FAILED);
+        verify(ratingRepository, times(3)).upsertForUsers(any(), any(), any(), any(), any());
+        verifyNoInteractions(movieRatingStatsRepository);
+    }
+
+    @Test
+    void shouldNotTouchTheDatabaseWhenEveryItemIsInvalid() {
+        // When
+        BatchRatingResponseDto result = ratingBatchService.applyBatch(UUID.randomUUID(), List.of(
+                BatchRatingItemDto.builder().ratingValue(5).build(),
+                BatchRatingItemDto.builder().movieId(UUID.randomUUID()).build()));
+
+        // Then
+        assertThat(result.getApplied()).isZero();
+        assertThat(result.getResults()).extracting(BatchRatingResultDto::getMessage)
+                .containsExactly("Movie ID cannot be null", "Rating value cannot be null");
+        verifyNoInteractions(ratingRepository, movieRepository, movieRatingStatsRepository, transactionManager);
+    }
+
+    private static BatchRatingItemDto upsert(UUID movieId, int ratingValue) {
+        return BatchRatingItemDto.builder().movieId(movieId).ratingValue(ratingValue).build();
+    }
+
+    private static RatingRepository.RatingValue ratingValue(UUID movieId, int value) {
+        return new RatingRepository.RatingValue() {
+            public UUID getMovieId() { return movieId; }
+            public int getRatingValue() { return value; }
+        };
+    }
+
+    private static RatingRepository.WrittenRating written(UUID movieId, int value, Integer previous) {
+        return new RatingRepository.WrittenRating() {
+            public UUID getId() { return UUID.randomUUID(); }
+            public UUID getUserId() { return null; }
+            public String getUserEmail() { return "user@example.com"; }
+            public UUID getMovieId() { return movieId; }
+            public String getMovieName() { return "Movie"; }
+            public Integer getRatingValue() { return value; }
+            public String getReview() { return null; }
+            public LocalDateTime getCreatedAt() { return null; }
+            public LocalDateTime getUpdatedAt() { return null; }
+            public Integer getPreviousValue() { return previous; }
+            public boolean getInserted() { return previous == null; }
+        };
+    }
+
+    private static MovieRatingStatsRepository.StatsSnapshot snapshot(UUID movieId, long sum, long count) {
+        return new MovieRatingStatsRepository.StatsSnapshot() {
+            public UUID getMovieId() { return movieId; }
+            public long getRatingSum() { return sum; }
+            public long getRatingCount() { return count; }
+            public long getVersion() { return 1; }
+        };
+    }
+}
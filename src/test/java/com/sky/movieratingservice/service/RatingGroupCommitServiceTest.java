@@ -0,0 +1,149 @@
+package com.sky.movieratingservice.service;
+
+import com.sky.movieratingservice.api.dto.request.RatingRequestDto;
+import com.sky.movieratingservice.api.dto.response.RatingResponseDto;
+import com.sky.movieratingservice.domain.exception.ResourceNotFoundException;
+import com.sky.movieratingservice.domain.journal.RatingKey;
+import com.sky.movieratingservice.domain.model.RatingHistogram;
+import com.sky.movieratingservice.domain.repository.MovieRatingStatsRepository;
+import com.sky.movieratingservice.domain.repository.MovieRepository;
+import com.sky.movieratingservice.domain.repository.RatingRepository;
+import com.sky.movieratingservice.domain.repository.UserRepository;
+import com.sky.movieratingservice.mapper.RatingMapper;
+import com.sky.movieratingservice.service.impl.RatingGroupCommitService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mapstruct.factory.Mappers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RatingGroupCommitServiceTest {
+
+    @Mock
+    private RatingRepository ratingRepository;
+
+    @Mock
+    private MovieRepository movieRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private MovieRatingStatsRepository movieRatingStatsRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private RatingGroupCommitService ratingGroupCommitService;
+
+    @BeforeEach
+    void setUp() {
+        ratingGroupCommitService = new RatingGroupCommitService(ratingRepository, movieRepository, userRepository,
+                movieRatingStatsRepository, Mappers.getMapper(RatingMapper.class), eventPublisher, transactionManager,
+                new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(ratingGroupCommitService, "committers", 1);
+        ReflectionTestUtils.setField(ratingGroupCommitService, "maxBatchSize", 3);
+        ReflectionTestUtils.setField(ratingGroupCommitService, "maxWait", Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(ratingGroupCommitService, "queueCapacity", 10);
+        ratingGroupCommitService.open();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        ratingGroupCommitService.close();
+    }
+
+    @Test
+    void shouldCommitConcurrentWritesTogetherAndAnswerEachCaller() throws Exception {
+        // Given
+        UUID userId = UUID.randomUUID();
+        UUID otherUserId = UUID.randomUUID();
+        UUID movieId = UUID.randomUUID();
+        UUID unknownMovieId = UUID.randomUUID();
+        Map<RatingKey, Integer> stored = new ConcurrentHashMap<>();
+        List<Integer> statementSizes = new ArrayList<>();
+        when(ratingRepository.upsertForUsers(any(), any(), any(), any(), any())).thenAnswer(invocation -> {
+            UUID[] userIds = invocation.getArgument(0);
+            UUID[] movieIds = invocation.getArgument(1);
+            Integer[] values = invocation.getArgument(2);
+            statementSizes.add(userIds.length);
+            List<RatingRepository.WrittenRating> written = new ArrayList<>();
+            for (int i = 0; i < userIds.length; i++) {
+                if (movieIds[i].equals(movieId)) {
+                    Integer previous = stored.put(new RatingKey(userIds[i], movieIds[i]), values[i]);
+                    written.add(written(userIds[i], movieIds[i], values[i], previous));
+                }
+            }
+            return written;
+        });
+        when(movieRepository.existsById(unknownMovieId)).thenReturn(false);
+        when(movieRatingStatsRepository.applyDeltas(any(), any(), any(), any())).thenReturn(List.of());
+
+        // When
+        ExecutorService callers = Executors.newFixedThreadPool(3);
+        var first = CompletableFuture.supplyAsync(() -> ratingGroupCommitService.createOrUpdateRating(rating(movieId, 7), userId), callers);
+        var second = CompletableFuture.supplyAsync(() -> ratingGroupCommitService.createOrUpdateRating(rating(movieId, 9), userId), callers);
+        var unknown = CompletableFuture.supplyAsync(() -> ratingGroupCommitService.createOrUpdateRating(rating(unknownMovieId, 5), otherUserId), callers);
+        callers.shutdown();
+
+        // Then
+        assertThat(List.of(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS)))
+                .extracting(RatingResponseDto::getRatingValue)
+                .containsExactly(7, 9);
+        assertThat(unknown).failsWithin(Duration.ofSeconds(5))
+                .withThrowableOfType(Exception.class)
+                .withCauseInstanceOf(ResourceNotFoundException.class);
+        // one statement per round of distinct ratings, the unknown movie is retried in the first round
+        assertThat(statementSizes).containsExactly(2, 1, 1, 1);
+        long finalValue = stored.get(new RatingKey(userId, movieId));
+        verify(movieRatingStatsRepository).applyDeltas(new UUID[]{movieId}, new Long[]{finalValue}, new Long[]{1L},
+                new RatingHistogram().add((int) finalValue).toArray());
+        verify(transactionManager, times(1)).commit(any());
+    }
+
+    private static RatingRequestDto rating(UUID movieId, int value) {
+        return RatingRequestDto.builder().movieId(movieId).ratingValue(value).build();
+    }
+
+    private static RatingRepository.WrittenRating written(UUID userId, UUID movieId, int value, Integer previous) {
+        return new RatingRepository.WrittenRating() {
+            public UUID getId() { return UUID.randomUUID(); }
+            public UUID getUserId() { return userId; }
+            public String getUserEmail() { return "user@example.com"; }
+            public UUID getMovieId() { return movieId; }
+            public String getMovieName() { return "Movie"; }
+            public Integer getRatingValue() { return value; }
+            public String getReview() { return null; }
+            public LocalDateTime getCreatedAt() { return null; }
+            public LocalDateTime getUpdatedAt() { return null; }
+            public Integer getPreviousValue() { return previous; }
+            public boolean getInserted() { return previous == null; }
+        };
+    }
+}
@@ -1,14 +1,22 @@
 package com.sky.movieratingservice.service;
 
 import com.sky.movieratingservice.api.dto.request.RatingRequestDto;
+import com.sky.movieratingservice.api.dto.response.RatingExportDto;
+import com.sky.movieratingservice.api.dto.response.RatingResponseDto;
+import com.sky.movieratingservice.common.ExportResumeToken;
 import com.sky.movieratingservice.domain.entity.Movie;
 import com.sky.movieratingservice.domain.entity.Rating;
 import com.sky.movieratingservice.domain.entity.User;
+import com.sky.movieratingservice.domain.event.MovieRatingStatsChangedEvent;
+import com.sky.movieratingservice.domain.exception.BadRequestException;
 import com.sky.movieratingservice.domain.exception.ForbiddenException;
 import com.sky.movieratingservice.domain.exception.ResourceNotFoundException;
+import com.sky.movieratingservice.domain.exception.ServiceUnavailableException;
+import com.sky.movieratingservice.domain.model.RatingExportRow;
+import com.sky.movieratingservice.domain.model.RatingHistogram;
+import com.sky.movieratingservice.domain.repository.MovieRatingStatsRepository;
 import com.sky.movieratingservice.domain.repository.MovieRepository;
 import com.sky.movieratingservice.domain.repository.RatingRepository;
-import com.sky.movieratingservice.domain.repository.UserRepository;
 import com.sky.movieratingservice.mapper.RatingMapper;
 import com.sky.movieratingservice.service.impl.RatingService;
 import org.junit.jupiter.api.Test;
@@ -16,11 +24,17 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
 
-import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -32,14 +46,17 @@ class RatingServiceTest {
     private RatingRepository ratingRepository;
 
     @Mock
-    private UserRepository userRepository;
+    private MovieRepository movieRepository;
 
     @Mock
-    private MovieRepository movieRepository;
+    private MovieRatingStatsRepository movieRatingStatsRepository;
 
     @Mock
     private RatingMapper ratingMapper;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private RatingService ratingService;
 
@@ -49,25 +66,26 @@ class RatingServiceTest {
         UUID userId = UUID.randomUUID();
         UUID movieId = UUID.randomUUID();
 
-        User user = User.builder().id(userId).email("test@example.com").build();
-        Movie movie = Movie.builder().id(movieId).name("Test Movie").build();
-
         RatingRequestDto request = RatingRequestDto.builder()
                 .movieId(movieId)
                 .ratingValue(9)
                 .review("Great!")
                 .build();
 
-        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
-        when(movieRepository.findById(movieId)).thenReturn(Optional.of(movie));
-        when(ratingRepository.findByUserIdAndMovieId(userId, movieId)).thenReturn(Optional.empty());
-        when(ratingRepository.save(any(Rating.class))).thenAnswer(i -> i.getArgument(0));
+        var written = writtenRating(9, null, true);
+        when(ratingRepository.upsert(userId, movieId, 9, "Great!")).thenReturn(Optional.of(written));
+        var statsSnapshot = statsSnapshot(movieId, 9, 1, 1);
+        when(movieRatingStatsRepository.applyDelta(movieId, 9, 1, new RatingHistogram().add(9).toArray())).thenReturn(statsSnapshot);
 
         // When
         ratingService.createOrUpdateRating( request,userId);
 
         // Then
-        verify(ratingRepository).save(any(Rating.class));
+        verify(ratingRepository).upsert(userId, movieId, 9, "Great!");
+        verify(movieRatingStatsRepository).applyDelta(movieId, 9, 1, new RatingHistogram().add(9).toArray());
+        verify(eventPublisher).publishEvent(new MovieRatingStatsChangedEvent(movieId, 9, 1, 1));
+        verify(ratingMapper).toRatingResponse(written);
+        verifyNoInteractions(movieRepository);
     }
     @Test
     void shouldUpdateExistingRating() {
@@ -75,74 +93,90 @@ class RatingServiceTest {
         UUID userId = UUID.randomUUID();
         UUID movieId = UUID.randomUUID();
 
-        User user = User.builder().id(userId).email("test@example.com").build();
-        Movie movie = Movie.builder().id(movieId).name("Test Movie").build();
-        Rating existingRating = Rating.builder()
-                .id(UUID.randomUUID())
-                .user(user)
-                .movie(movie)
-                .ratingValue(5)
-                .build();
-
         RatingRequestDto request = RatingRequestDto.builder()
                 .movieId(movieId)
                 .ratingValue(9)
                 .review("Changed my mind!")
                 .build();
 
-        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
-        when(movieRepository.findById(movieId)).thenReturn(Optional.of(movie));
-        when(ratingRepository.findByUserIdAndMovieId(userId, movieId)).thenReturn(Optional.of(existingRating));
-        when(ratingRepository.save(any(Rating.class))).thenAnswer(i -> i.getArgument(0));
+        var written = writtenRating(9, 5, false);
+        when(ratingRepository.upsert(userId, movieId, 9, "Changed my mind!")).thenReturn(Optional.of(written));
+        var statsSnapshot = statsSnapshot(movieId, 9, 1, 2);
+        when(movieRatingStatsRepository.applyDelta(movieId, 4, 0, new RatingHistogram().change(5, 9).toArray())).thenReturn(statsSnapshot);
 
         // When
         ratingService.createOrUpdateRating(request,userId);
 
         // Then
-        verify(ratingRepository).save(existingRating);
-        assertThat(existingRating.getRatingValue()).isEqualTo(9);
-        assertThat(existingRating.getReview()).isEqualTo("Changed my mind!");
+        verify(movieRatingStatsRepository).applyDelta(movieId, 4, 0, new RatingHistogram().change(5, 9).toArray());
+        verify(eventPublisher).publishEvent(new MovieRatingStatsChangedEvent(movieId, 9, 1, 2));
     }
 
     @Test
-    void shouldThrowExceptionWhenUserNotFound() {
+    void shouldNotTouchStatsWhenRatingValueIsUnchanged() {
         // Given
         UUID userId = UUID.randomUUID();
         UUID movieId = UUID.randomUUID();
 
         RatingRequestDto request = RatingRequestDto.builder()
                 .movieId(movieId)
-                .ratingValue(9)
+                .ratingValue(7)
+                .review("Same as before")
                 .build();
 
-        when(userRepository.findById(userId)).thenReturn(Optional.empty());
+        var written = writtenRating(7, 7, false);
+        when(ratingRepository.upsert(userId, movieId, 7, "Same as before")).thenReturn(Optional.of(written));
 
-        // When & Then
-        assertThatThrownBy(() -> ratingService.createOrUpdateRating(request, userId))
-                .isInstanceOf(ResourceNotFoundException.class)
-                .hasMessageContaining("User");
+        // When
+        ratingService.createOrUpdateRating(request, userId);
+
+        // Then
+        verifyNoInteractions(movieRatingStatsRepository, eventPublisher);
     }
 
     @Test
-    void shouldThrowExceptionWhenMovieNotFound() {
+    void shouldRunUpsertAgainWhenConcurrentFirstRatingWon() {
         // Given
         UUID userId = UUID.randomUUID();
         UUID movieId = UUID.randomUUID();
 
-        User user = User.builder().id(userId).email("test@example.com").build();
+        RatingRequestDto request = RatingRequestDto.builder()
+                .movieId(movieId)
+                .ratingValue(8)
+                .build();
+
+        var written = writtenRating(8, 6, false);
+        when(ratingRepository.upsert(userId, movieId, 8, null))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(written));
+        var statsSnapshot = statsSnapshot(movieId, 14, 2, 3);
+        when(movieRatingStatsRepository.applyDelta(movieId, 2, 0, new RatingHistogram().change(6, 8).toArray())).thenReturn(statsSnapshot);
+
+        // When
+        ratingService.createOrUpdateRating(request, userId);
+
+        // Then
+        verify(ratingRepository, times(2)).upsert(userId, movieId, 8, null);
+        verify(movieRatingStatsRepository).applyDelta(movieId, 2, 0, new RatingHistogram().change(6, 8).toArray());
+    }
+
+    @Test
+    void shouldFailWithServiceUnavailableWhenUpsertKeepsLosingTheRace() {
+        // Given
+        UUID userId = UUID.randomUUID();
+        UUID movieId = UUID.randomUUID();
 
         RatingRequestDto request = RatingRequestDto.builder()
                 .movieId(movieId)
-                .ratingValue(9)
+                .ratingValue(8)
                 .build();
 
-        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
-        when(movieRepository.findById(movieId)).thenReturn(Optional.empty());
+        when(ratingRepository.upsert(userId, movieId, 8, null)).thenReturn(Optional.empty());
 
         // When & Then
         assertThatThrownBy(() -> ratingService.createOrUpdateRating(request, userId))
-                .isInstanceOf(ResourceNotFoundException.class)
-                .hasMessageContaining("Movie");
+                .isInstanceOf(ServiceUnavailableException.class);
+        verifyNoInteractions(movieRatingStatsRepository);
     }
 
     @Test
@@ -152,18 +186,25 @@ class RatingServiceTest {
         UUID ratingId = UUID.randomUUID();
 
         User user = User.builder().id(userId).build();
+        Movie movie = Movie.builder().id(UUID.randomUUID()).build();
         Rating rating = Rating.builder()
                 .id(ratingId)
                 .user(user)
+                .movie(movie)
+                .ratingValue(7)
                 .build();
 
         when(ratingRepository.findById(ratingId)).thenReturn(Optional.of(rating));
+        var statsSnapshot = statsSnapshot(movie.getId(), 0, 0, 3);
+        when(movieRatingStatsRepository.applyDelta(movie.getId(), -7, -1, new RatingHistogram().remove(7).toArray())).thenReturn(statsSnapshot);
 
         // When
         ratingService.deleteRating(ratingId, userId);
 
         // Then
         verify(ratingRepository).delete(rating);
+        verify(movieRatingStatsRepository).applyDelta(movie.getId(), -7, -1, new RatingHistogram().remove(7).toArray());
+        verify(eventPublisher).publishEvent(new MovieRatingStatsChangedEvent(movie.getId(), 0, 0, 3));
     }
 
     @Test
@@ -187,6 +228,145 @@ class RatingServiceTest {
                 .hasMessageContaining("your own ratings");
 
         verify(ratingRepository, never()).delete(any());
+        verifyNoInteractions(movieRatingStatsRepository);
+    }
+
+    @Test
+    void shouldListMovieRatingsFromProjectionWithoutSeparateMovieLookup() {
+        // Given
+        UUID movieId = UUID.randomUUID();
+        RatingRepository.RatingView view = mock(RatingRepository.RatingView.class);
+        RatingResponseDto dto = RatingResponseDto.builder().movieId(movieId).ratingValue(8).build();
+
+        when(ratingRepository.findViewsByMovieId(movieId)).thenReturn(List.of(view));
+        when(ratingMapper.toRatingResponse(view)).thenReturn(dto);
+
+        // When
+        List<RatingResponseDto> result = ratingService.getMovieRatings(movieId);
+
+        // Then
+        assertThat(result).containsExactly(dto);
+        verifyNoInteractions(movieRepository);
     }
 
-}
\ No newline at end of file
+    @Test
+    void shouldThrowExceptionWhenListingRatingsOfUnknownMovie() {
+        // Given
+        UUID movieId = UUID.randomUUID();
+        when(ratingRepository.findViewsByMovieId(movieId)).thenReturn(List.of());
+        when(movieRepository.existsById(movieId)).thenReturn(false);
+
+        // When & Then
+        assertThatThrownBy(() -> ratingService.getMovieRatings(movieId))
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessageContaining("Movie");
+    }
+
+    @Test
+    void shouldStreamMovieRatingsToConsumer() {
+        // Given
+        UUID movieId = UUID.randomUUID();
+        RatingRepository.RatingView first = mock(RatingRepository.RatingView.class);
+        RatingRepository.RatingView second = mock(RatingRepository.RatingView.class);
+        RatingResponseDto firstDto = RatingResponseDto.builder().ratingValue(7).build();
+        RatingResponseDto secondDto = RatingResponseDto.builder().ratingValue(9).build();
+        AtomicBoolean closed = new AtomicBoolean();
+
+        when(movieRepository.existsById(movieId)).thenReturn(true);
+        when(ratingRepository.streamByMovieId(movieId)).thenReturn(Stream.of(first, second).onClose(() -> closed.set(true)));
+        when(ratingMapper.toRatingResponse(first)).thenReturn(firstDto);
+        when(ratingMapper.toRatingResponse(second)).thenReturn(secondDto);
+        List<RatingResponseDto> received = new ArrayList<>();
+
+        // When
+        ratingService.streamMovieRatings(movieId, received::add);
+
+        // Then
+        assertThat(received).containsExactly(firstDto, secondDto);
+        assertThat(closed).isTrue();
+    }
+
+    @Test
+    void shouldNotStreamRatingsOfUnknownMovie() {
+        // Given
+        UUID movieId = UUID.randomUUID();
+        when(movieRepository.existsById(movieId)).thenReturn(false);
+
+        // When & Then
+        assertThatThrownBy(() -> ratingService.streamMovieRatings(movieId, rating -> fail("nothing should be streamed")))
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessageContaining("Movie");
+
+        verify(ratingRepository, never()).streamByMovieId(any());
+    }
+
+    @Test
+    void shouldExportAllRatingsFromTheStart() {
+        // Given
+        RatingExportRow row = exportRow(LocalDateTime.of(2025, 1, 10, 10, 30));
+        RatingExportDto dto = RatingExportDto.builder().id(row.id()).build();
+        when(ratingRepository.streamAllForExport()).thenReturn(Stream.of(row));
+        when(ratingMapper.toRatingExport(row)).thenReturn(dto);
+        List<RatingExportDto> received = new ArrayList<>();
+
+        // When
+        ratingService.exportRatings(null, received::add);
+
+        // Then
+        assertThat(received).containsExactly(dto);
+        verify(ratingRepository, never()).streamAllForExportAfter(any(), any());
+    }
+
+    @Test
+    void shouldResumeExportAfterToken() {
+        // Given
+        ExportResumeToken after = ExportResumeToken.parse("2025-01-10T10:30:00," + UUID.randomUUID());
+        RatingExportRow row = exportRow(LocalDateTime.of(2025, 1, 11, 9, 0));
+        RatingExportDto dto = RatingExportDto.builder().id(row.id()).build();
+        when(ratingRepository.streamAllForExportAfter(after.createdAt(), after.ratingId())).thenReturn(Stream.of(row));
+        when(ratingMapper.toRatingExport(row)).thenReturn(dto);
+        List<RatingExportDto> received = new ArrayList<>();
+
+        // When
+        ratingService.exportRatings(after, received::add);
+
+        // Then
+        assertThat(received).containsExactly(dto);
+        verify(ratingRepository, never()).streamAllForExport();
+    }
+
+    @Test
+    void shouldRejectMalformedResumeToken() {
+        assertThatThrownBy(() -> ExportResumeToken.parse("2025-01-10T10:30:00"))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("Invalid resume token");
+        assertThatThrownBy(() -> ExportResumeToken.parse("yesterday," + UUID.randomUUID()))
+                .isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> ExportResumeToken.parse("2025-01-10T10:30:00,not-a-uuid"))
+                .isInstanceOf(BadRequestException.class);
+    }
+
+    private RatingExportRow exportRow(LocalDateTime createdAt) {
+        return new RatingExportRow(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), 7,
+                null, createdAt, createdAt);
+    }
+
+
+    private RatingRepository.WrittenRating writtenRating(int value, Integer previousValue, boolean inserted) {
+        RatingRepository.WrittenRating rating = mock(RatingRepository.WrittenRating.class);
+        lenient().when(rating.getId()).thenReturn(UUID.randomUUID());
+        lenient().when(rating.getRatingValue()).thenReturn(value);
+        lenient().when(rating.getPreviousValue()).thenReturn(previousValue);
+        when(rating.getInserted()).thenReturn(inserted);
+        return rating;
+    }
+
+    private MovieRatingStatsRepository.StatsSnapshot statsSnapshot(UUID movieId, long sum, long count, long version) {
+        MovieRatingStatsRepository.StatsSnapshot snapshot = mock(MovieRatingStatsRepository.StatsSnapshot.class);
+        when(snapshot.getMovieId()).thenReturn(movieId);
+        when(snapshot.getRatingSum()).thenReturn(sum);
+        when(snapshot.getRatingCount()).thenReturn(count);
+        when(snapshot.getVersion()).thenReturn(version);
+        return snapshot;
+    }
+}
@@ -0,0 +1,300 @@
+package com.sky.movieratingservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sky.movieratingservice.api.dto.request.RatingRequestDto;
+import com.sky.movieratingservice.domain.event.MovieRatingStatsChangedEvent;
+import com.sky.movieratingservice.domain.event.RatingsDeletedEvent;
+import com.sky.movieratingservice.domain.exception.ResourceNotFoundException;
+import com.sky.movieratingservice.domain.model.RatingHistogram;
+import com.sky.movieratingservice.domain.repository.MovieRatingStatsRepository;
+import com.sky.movieratingservice.domain.repository.MovieRepository;
+import com.sky.movieratingservice.domain.repository.RatingRepository;
+import com.sky.movieratingservice.domain.repository.UserRepository;
+import com.sky.movieratingservice.service.impl.RatingWriteBehindService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RatingWriteBehindServiceTest {
+
+    @Mock
+    private RatingRepository ratingRepository;
+
+    @Mock
+    private MovieRepository movieRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private MovieRatingStatsRepository movieRatingStatsRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path directory;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void shouldCoalesceRepeatedWritesAndFlushThemInOneStatement() throws Exception {
+        // Given
+        RatingWriteBehindService service = open();
+        UUID userId = UUID.randomUUID();
+        UUID movieId = UUID.randomUUID();
+        service.accept(rating(movieId, 3), userId);
+        service.accept(rating(movieId, 9), userId);
+
+        when(ratingRepository.upsertForUsers(any(), any(), any(), any(), any()))
+                .thenReturn(List.of(flushed(userId, movieId, 9, null, true)));
+        var snapshot = mock(MovieRatingStatsRepository.StatsSnapshot.class);
+        when(snapshot.getMovieId()).thenReturn(movieId);
+        when(snapshot.getRatingSum()).thenReturn(9L);
+        when(snapshot.getRatingCount()).thenReturn(1L);
+        when(snapshot.getVersion()).thenReturn(1L);
+        when(movieRatingStatsRepository.applyDeltas(any(), any(), any(), any())).thenReturn(List.of(snapshot));
+
+        // When
+        service.flush();
+
+        // Then
+        ArgumentCaptor<Integer[]> values = ArgumentCaptor.forClass(Integer[].class);
+        verify(ratingRepository).upsertForUsers(eq(new UUID[]{userId}), eq(new UUID[]{movieId}), values.capture(), any(), any());
+        assertThat(values.getValue()).containsExactly(9);
+        verify(movieRatingStatsRepository).applyDeltas(new UUID[]{movieId}, new Long[]{9L}, new Long[]{1L},
+                new RatingHistogram().add(9).toArray());
+        verify(eventPublisher).publishEvent(new MovieRatingStatsChangedEvent(movieId, 9, 1, 1));
+        assertThat(meterRegistry.get("ratings.write.behind.coalesced").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("ratings.journal.lag").gauge().value()).isZero();
+        service.drain();
+    }
+
+    @Test
+    void shouldKeepRatingsPendingWhenFlushFailsAndReplayThemAfterRestart() throws Exception {
+        // Given
+        RatingWriteBehindService service = open();
+        UUID userId = UUID.randomUUID();
+        UUID movieId = UUID.randomUUID();
+        service.accept(rating(movieId, 6), userId);
+        when(ratingRepository.upsertForUsers(any(), any(), any(), any(), any()))
+                .thenThrow(new QueryTimeoutException("timeout"));
+
+        // When
+        service.drain();
+        RatingWriteBehindService restarted = open();
+
+        // Then
+        assertThat(meterRegistry.get("ratings.write.behind.pending").gauge().value()).isEqualTo(1);
+        assertThat(meterRegistry.get("ratings.journal.lag").gauge().value()).isEqualTo(1);
+        verify(ratingRepository, times(1)).upsertForUsers(any(), any(), any(), any(), any());
+        verifyNoInteractions(movieRatingStatsRepository);
+
+        reset(ratingRepository);
+        when(ratingRepository.upsertForUsers(any(), any(), any(), any(), any()))
+                .thenReturn(List.of(flushed(userId, movieId, 6, 6, false)));
+        restarted.flush();
+        assertThat(meterRegistry.get("ratings.journal.lag").gauge().value()).isZero();
+        verifyNoInteractions(movieRatingStatsRepository);
+        restarted.drain();
+    }
+
+    @Test
+    void shouldKeepRatingsThatLostToAConcurrentInsertPendingAndDropOnlyUnknownOnes() throws Exception {
+        // Given
+        RatingWriteBehindService service = open();
+        UUID userId = UUID.randomUUID();
+        UUID unknownUserId = UUID.randomUUID();
+        UUID racing = UUID.randomUUID();
+        service.accept(rating(racing, 7), userId);
+        service.accept(rating(racing, 4), unknownUserId);
+        when(ratingRepository.upsertForUsers(any(), any(), any(), any(), any())).thenReturn(List.of());
+        when(userRepository.existsById(userId)).thenReturn(true);
+        when(userRepository.existsById(unknownUserId)).thenReturn(false);
+
+        // When
+        service.flush();
+
+        // Then
+        verify(ratingRepository, times(3)).upsertForUsers(any(), any(), any(), any(), any());
+        assertThat(meterRegistry.get("ratings.write.behind.dropped").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("ratings.write.behind.pending").gauge().value()).isEqualTo(1);
+
+        // When: the next run updates the rating that won
+        reset(ratingRepository);
+        when(ratingRepository.upsertForUsers(eq(new UUID[]{userId}), eq(new UUID[]{racing}), any(), any(), any()))
+                .thenReturn(List.of(flushed(userId, racing, 7, 5, false)));
+        when(movieRatingStatsRepository.applyDeltas(any(), any(), any(), any())).thenReturn(List.of());
+        service.flush();
+
+        // Then
+        verify(movieRatingStatsRepository).applyDeltas(new UUID[]{racing}, new Long[]{2L}, new Long[]{0L},
+                new RatingHistogram().change(5, 7).toArray());
+        assertThat(meterRegistry.get("ratings.journal.lag").gauge().value()).isZero();
+        service.drain();
+    }
+
+    @Test
+    void shouldDeadLetterRatingThatKeepsLosingSoTheJournalCanMoveOn() throws Exception {
+        // Given
+        RatingWriteBehindService service = open();
+        UUID userId = UUID.randomUUID();
+        UUID movieId = UUID.randomUUID();
+        service.accept(RatingRequestDto.builder().movieId(movieId).ratingValue(8).review("stuck").build(), userId);
+        when(ratingRepository.upsertForUsers(any(), any(), any(), any(), any())).thenReturn(List.of());
+        when(userRepository.existsById(userId)).thenReturn(true);
+
+        // When
+        service.flush();
+        double lagAfterFirstRun = meterRegistry.get("ratings.journal.lag").gauge().value();
+        service.flush();
+
+        // Then
+        assertThat(lagAfterFirstRun).isEqualTo(1);
+        assertThat(meterRegistry.get("ratings.journal.lag").gauge().value()).isZero();
+        assertThat(meterRegistry.get("ratings.write.behind.pending").gauge().value()).isZero();
+        assertThat(meterRegistry.get("ratings.write.behind.dead.lettered").counter().count()).isEqualTo(1);
+        List<String> deadLetters = Files.readAllLines(directory.resolve("ratings.dead-letter.ndjson"));
+        assertThat(deadLetters).singleElement().satisfies(line -> assertThat(line)
+                .contains("\"userId\":\"" + userId + "\"", "\"movieId\":\"" + movieId + "\"",
+                        "\"ratingValue\":8", "\"review\":\"stuck\""));
+        service.drain();
+    }
+
+    @Test
+    void shouldNotWriteBackRatingDeletedWhileTheFlushWaitedForTheLock() throws Exception {
+        // Given
+        RatingWriteBehindService service = open();
+        UUID userId = UUID.randomUUID();
+        UUID movieId = UUID.randomUUID();
+        service.accept(rating(movieId, 5), userId);
+        when(ratingRepository.lockRatingsOfUsers(new UUID[]{userId})).thenAnswer(invocation -> {
+            service.onRatingsDeleted(new RatingsDeletedEvent(userId, List.of(movieId)));
+            return 1L;
+        });
+
+        // When
+        service.flush();
+
+        // Then
+        verify(ratingRepository, never()).upsertForUsers(any(), any(), any(), any(), any());
+        assertThat(meterRegistry.get("ratings.write.behind.pending").gauge().value()).isZero();
+        assertThat(meterRegistry.get("ratings.journal.lag").gauge().value()).isZero();
+        service.drain();
+    }
+
+    @Test
+    void shouldNotReplayBufferedWriteOfDeletedRating() throws Exception {
+        // Given
+        RatingWriteBehindService service = open();
+        UUID userId = UUID.randomUUID();
+        UUID kept = UUID.randomUUID();
+        UUID deleted = UUID.randomUUID();
+        service.accept(rating(kept, 4), userId);
+        service.accept(rating(deleted, 9), userId);
+        service.onRatingsDeleted(new RatingsDeletedEvent(userId, List.of(deleted)));
+        when(ratingRepository.upsertForUsers(any(), any(), any(), any(), any()))
+                .thenThrow(new QueryTimeoutException("timeout"));
+
+        // When
+        service.drain();
+        RatingWriteBehindService restarted = open();
+
+        // Then
+        ArgumentCaptor<UUID[]> movies = ArgumentCaptor.forClass(UUID[].class);
+        verify(ratingRepository).upsertForUsers(any(), movies.capture(), any(), any(), any());
+        assertThat(movies.getValue()).containsExactly(kept);
+        assertThat(meterRegistry.get("ratings.write.behind.pending").gauge().value()).isEqualTo(1);
+
+        reset(ratingRepository);
+        when(ratingRepository.upsertForUsers(any(), any(), any(), any(), any()))
+                .thenReturn(List.of(flushed(userId, kept, 4, 4, false)));
+        restarted.flush();
+        verify(ratingRepository).upsertForUsers(eq(new UUID[]{userId}), eq(new UUID[]{kept}), any(), any(), any());
+        restarted.drain();
+    }
+
+    @Test
+    void shouldRejectRatingOfUnknownMovieBeforeJournalingIt() throws Exception {
+        // Given
+        RatingWriteBehindService service = open();
+        UUID userId = UUID.randomUUID();
+        UUID known = UUID.randomUUID();
+        UUID unknown = UUID.randomUUID();
+        when(movieRepository.existsById(unknown)).thenReturn(false);
+
+        // When
+        service.accept(rating(known, 6), userId);
+        service.accept(rating(known, 7), userId);
+
+        // Then
+        assertThatThrownBy(() -> service.accept(rating(unknown, 6), userId))
+                .isInstanceOf(ResourceNotFoundException.class);
+        verify(movieRepository, times(1)).existsById(known);
+        assertThat(meterRegistry.get("ratings.journal.lag").gauge().value()).isEqualTo(2);
+        when(ratingRepository.upsertForUsers(any(), any(), any(), any(), any()))
+                .thenReturn(List.of(flushed(userId, known, 7, 7, false)));
+        service.drain();
+    }
+
+    private RatingWriteBehindService open() throws Exception {
+        meterRegistry.clear();
+        RatingWriteBehindService service = new RatingWriteBehindService(ratingRepository, movieRepository, userRepository, movieRatingStatsRepository,
+                eventPublisher, transactionManager, meterRegistry, new ObjectMapper());
+        ReflectionTestUtils.setField(service, "journalPath", directory.resolve("ratings.journal"));
+        ReflectionTestUtils.setField(service, "journalSize", DataSize.ofMegabytes(1));
+        ReflectionTestUtils.setField(service, "batchSize", 100);
+        ReflectionTestUtils.setField(service, "maxFlushAttempts", 2);
+        ReflectionTestUtils.setField(service, "deadLetterPath", directory.resolve("ratings.dead-letter.ndjson"));
+        ReflectionTestUtils.setField(service, "knownMoviesCacheSize", 100L);
+        lenient().when(movieRepository.existsById(any())).thenReturn(true);
+        service.open();
+        return service;
+    }
+
+    private static RatingRequestDto rating(UUID movieId, int value) {
+        return RatingRequestDto.builder().movieId(movieId).ratingValue(value).build();
+    }
+
+    private static RatingRepository.WrittenRating flushed(UUID userId, UUID movieId, int value, Integer previous, boolean inserted) {
+        return new RatingRepository.WrittenRating() {
+            public UUID getId() { return null; }
+            public UUID getUserId() { return userId; }
+            public String getUserEmail() { return null; }
+            public UUID getMovieId() { return movieId; }
+            public String getMovieName() { return null; }
+            public Integer getRatingValue() { return value; }
+            public String getReview() { return null; }
+            public LocalDateTime getCreatedAt() { return null; }
+            public LocalDateTime getUpdatedAt() { return null; }
+            public Integer getPreviousValue() { return previous; }
+            public boolean getInserted() { return inserted; }
+        };
+    }
+}
@@ -0,0 +1,90 @@
+package com.sky.movieratingservice.service;
+
+import com.sky.movieratingservice.api.dto.response.CursorPageResponseDto;
+import com.sky.movieratingservice.api.dto.response.SearchResultResponseDto;
+import com.sky.movieratingservice.domain.exception.BadRequestException;
+import com.sky.movieratingservice.domain.repository.MovieRepository;
+import com.sky.movieratingservice.domain.repository.RatingRepository;
+import com.sky.movieratingservice.service.impl.SearchService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SearchServiceTest {
+
+    @Mock
+    private MovieRepository movieRepository;
+
+    @Mock
+    private RatingRepository ratingRepository;
+
+    @InjectMocks
+    private SearchService searchService;
+
+    @Test
+    void shouldContinueAfterLastResultOfPage() {
+        // Given
+        MovieRepository.MovieSearchHit best = movieHit(0.9, "Heat");
+        MovieRepository.MovieSearchHit second = movieHit(0.5, "Ronin");
+        MovieRepository.MovieSearchHit third = movieHit(0.1, "Thief");
+        when(movieRepository.searchMovies(eq("heist"), eq(0.0), eq(Double.POSITIVE_INFINITY), any(), eq(3)))
+                .thenReturn(List.of(best, second, third));
+        when(movieRepository.searchMovies("heist", 0.0, 0.5, second.getMovieId(), 3)).thenReturn(List.of(third));
+
+        // When
+        CursorPageResponseDto<SearchResultResponseDto> first = searchService.search("heist", null, false, null, 2);
+        CursorPageResponseDto<SearchResultResponseDto> next =
+                searchService.search("heist", "movies", false, first.getNextCursor(), 2);
+
+        // Then
+        assertThat(first.getItems()).extracting(SearchResultResponseDto::getMovieName).containsExactly("Heat", "Ronin");
+        assertThat(next.getItems()).extracting(SearchResultResponseDto::getMovieName).containsExactly("Thief");
+        assertThat(next.getNextCursor()).isNull();
+    }
+
+    @Test
+    void shouldSearchReviewsWithBoostAndEscapeSnippets() {
+        // Given
+        RatingRepository.ReviewSearchHit hit = mock(RatingRepository.ReviewSearchHit.class);
+        when(hit.getRatingId()).thenReturn(UUID.randomUUID());
+        when(hit.getScore()).thenReturn(0.4);
+        when(hit.getSnippet()).thenReturn("a <i>truly</i> \u0002moving\u0003 score");
+        when(ratingRepository.searchReviews(eq("moving"), eq(1.0), anyDouble(), any(), eq(11))).thenReturn(List.of(hit));
+
+        // When
+        CursorPageResponseDto<SearchResultResponseDto> page = searchService.search("moving", "Reviews", true, null, 10);
+
+        // Then
+        assertThat(page.getItems().getFirst().getSnippet())
+                .isEqualTo("a &lt;i&gt;truly&lt;/i&gt; <mark>moving</mark> score");
+        verifyNoInteractions(movieRepository);
+    }
+
+    @Test
+    void shouldRejectUnknownTargetsAndForeignCursors() {
+        assertThatThrownBy(() -> searchService.search("heist", "users", false, null, 10))
+                .isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> searchService.search("heist", null, false, "bm90LWEtY3Vyc29y", 10))
+                .isInstanceOf(BadRequestException.class);
+    }
+
+    private MovieRepository.MovieSearchHit movieHit(double score, String name) {
+        MovieRepository.MovieSearchHit hit = mock(MovieRepository.MovieSearchHit.class);
+        lenient().when(hit.getMovieId()).thenReturn(UUID.randomUUID());
+        lenient().when(hit.getMovieName()).thenReturn(name);
+        lenient().when(hit.getScore()).thenReturn(score);
+        return hit;
+    }
+}